@@ -0,0 +1,70 @@
+package com.bank.transaction.benchmark;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.repository.ITransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads of the aggregates maintained on write: a card summary and the stats of the last day by
+ * hour and of the last hour by minute, over a store whose transactions are dated in the last day
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class AggregateBenchmark {
+	private static final long DAY_SECONDS = 24 * 3600;
+
+	@Param({"memory", "compact", "sharded"})
+	public String engine;
+
+	@Param({"100000"})
+	public int storeSize;
+
+	private ITransactionRepository repository;
+
+	@Setup
+	public void setUp() {
+		repository = BenchmarkData.newRepository(engine);
+		Instant now = Instant.now();
+		for (int i = 0; i < storeSize; i++) {
+			Transaction t = BenchmarkData.newTransaction("seed-" + i, i);
+			t.setDate(now.minusSeconds(i % DAY_SECONDS));
+			repository.createTransaction(t);
+		}
+	}
+
+	@Benchmark
+	public List<CardSummary> cardSummary() {
+		return repository.getCardSummaries(BenchmarkData.cardId(42));
+	}
+
+	@Benchmark
+	public List<StatsBucket> lastDayByHour() {
+		return repository.getStats(StatsResolution.HOUR, 24);
+	}
+
+	@Benchmark
+	public List<StatsBucket> lastHourByMinute() {
+		return repository.getStats(StatsResolution.MINUTE, 60);
+	}
+}
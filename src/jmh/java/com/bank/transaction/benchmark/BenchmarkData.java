@@ -0,0 +1,78 @@
+package com.bank.transaction.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.SplittableRandom;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+import com.bank.transaction.repository.CompactTransactionRepository;
+import com.bank.transaction.repository.ITransactionRepository;
+import com.bank.transaction.repository.InMemoryTransactionRepository;
+import com.bank.transaction.repository.ShardedTransactionRepository;
+
+/**
+ * Deterministic transaction data shared by the benchmarks
+ * <p>
+ * Transactions are spread over {@link #CARDS} cards and one year of dates, with every status,
+ * channel and type in use, so the list filters select realistic fractions of the store.
+ */
+final class BenchmarkData {
+	static final int CARDS = 1000;
+	static final Instant FIRST_DATE = Instant.parse("2024-01-01T00:00:00Z");
+	static final long DATE_RANGE_SECONDS = 365L * 24 * 3600;
+
+	private static final Currency CNY = Currency.getInstance("CNY");
+	private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+	private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+	private static final TransactionType[] TYPES = TransactionType.values();
+
+	private BenchmarkData() {
+	}
+
+	static ITransactionRepository newRepository(String engine) {
+		return switch (engine) {
+			case "memory" -> new InMemoryTransactionRepository();
+			case "compact" -> new CompactTransactionRepository();
+			case "sharded" -> new ShardedTransactionRepository(8);
+			default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+		};
+	}
+
+	static String cardId(int card) {
+		return "card-" + card;
+	}
+
+	/** A valid, not yet stored transaction; the same seed always yields the same fields */
+	static Transaction newTransaction(String orderId, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Transaction t = new Transaction();
+		t.setOrderId(orderId);
+		t.setType(TYPES[random.nextInt(TYPES.length)]);
+		t.setCurrency(CNY);
+		t.setAmount(BigDecimal.valueOf(random.nextLong(1, 1_000_000), 2));
+		t.setDate(FIRST_DATE.plusSeconds(random.nextLong(DATE_RANGE_SECONDS)));
+		t.setCardId(cardId(random.nextInt(CARDS)));
+		t.setToCardId("to-" + random.nextInt(CARDS));
+		t.setDescription("benchmark payment " + seed);
+		t.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+		t.setChannel(CHANNELS[random.nextInt(CHANNELS.length)]);
+		return t;
+	}
+
+	/**
+	 * Fills the repository with {@code count} transactions
+	 *
+	 * @return the generated IDs in insertion order
+	 */
+	static String[] fill(ITransactionRepository repository, int count) {
+		String[] ids = new String[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = repository.createTransaction(newTransaction("seed-" + i, i)).getId();
+		}
+		return ids;
+	}
+}
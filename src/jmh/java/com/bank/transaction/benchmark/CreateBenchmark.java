@@ -0,0 +1,143 @@
+package com.bank.transaction.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.repository.ITransactionRepository;
+import com.bank.transaction.repository.TimedTransactionRepository;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code createTransaction} into a store that starts each iteration with {@code storeSize}
+ * rows, alone, with writers contending, and with writers racing card-filtered readers
+ * <p>
+ * Field values are generated up front; each invocation only copies a template into a new
+ * request with a unique order ID, as request deserialisation would. {@link #createTimed} goes
+ * through the {@link TimedTransactionRepository} with the histogram the application configures,
+ * to show the cost of the instrumentation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class CreateBenchmark {
+	private static final int TEMPLATES = 1024;
+
+	@Param({"memory", "compact", "sharded"})
+	public String engine;
+
+	@Param({"10000", "1000000"})
+	public int storeSize;
+
+	private ITransactionRepository repository;
+	private ITransactionRepository timed;
+	private Transaction[] templates;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		repository = BenchmarkData.newRepository(engine);
+		BenchmarkData.fill(repository, storeSize);
+		PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		registry.config().meterFilter(new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				return DistributionStatisticConfig.builder()
+						.percentilesHistogram(true)
+						.minimumExpectedValue((double) TimeUnit.MICROSECONDS.toNanos(1))
+						.maximumExpectedValue((double) TimeUnit.SECONDS.toNanos(1))
+						.build()
+						.merge(config);
+			}
+		});
+		timed = new TimedTransactionRepository(repository, registry);
+		templates = new Transaction[TEMPLATES];
+		for (int i = 0; i < TEMPLATES; i++) {
+			templates[i] = BenchmarkData.newTransaction(null, storeSize + i);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Writer {
+		private final String prefix = UUID.randomUUID() + "-";
+		private long next;
+
+		Transaction next(Transaction[] templates) {
+			Transaction template = templates[(int) (next & (TEMPLATES - 1))];
+			Transaction t = new Transaction();
+			t.setOrderId(prefix + next++);
+			t.setType(template.getType());
+			t.setCurrency(template.getCurrency());
+			t.setAmount(template.getAmount());
+			t.setDate(template.getDate());
+			t.setCardId(template.getCardId());
+			t.setToCardId(template.getToCardId());
+			t.setDescription(template.getDescription());
+			t.setStatus(template.getStatus());
+			t.setChannel(template.getChannel());
+			return t;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Reader {
+		private int next;
+
+		TransactionQuery next() {
+			return TransactionQuery.all().withCardId(BenchmarkData.cardId(next++ % BenchmarkData.CARDS));
+		}
+	}
+
+	@Benchmark
+	public Transaction create(Writer writer) {
+		return repository.createTransaction(writer.next(templates));
+	}
+
+	@Benchmark
+	public Transaction createTimed(Writer writer) {
+		return timed.createTransaction(writer.next(templates));
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Transaction createContended(Writer writer) {
+		return repository.createTransaction(writer.next(templates));
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(2)
+	public Transaction readWriteCreate(Writer writer) {
+		return repository.createTransaction(writer.next(templates));
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(6)
+	public PageResult<Transaction> readWriteList(Reader reader) {
+		return repository.listAllTransactions(0, 20, reader.next());
+	}
+}
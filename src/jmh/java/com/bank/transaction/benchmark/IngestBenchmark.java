@@ -0,0 +1,94 @@
+package com.bank.transaction.benchmark;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.repository.ITransactionRepository;
+import com.bank.transaction.service.TransactionIngestor;
+import com.bank.transaction.service.TransactionListCache;
+import com.bank.transaction.service.TransactionMetrics;
+import com.bank.transaction.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link TransactionService#createTransaction} writing directly to the repository against the
+ * same creates going through the {@link TransactionIngestor} ring, with one caller and with many
+ * <p>
+ * {@code mode} is {@code direct} or the wait strategy of the ring's writer thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class IngestBenchmark {
+	private static final int STORE_SIZE = 100_000;
+
+	@Param({"direct", "blocking", "sleeping", "yielding", "busy_spin"})
+	public String mode;
+
+	@Param({"memory", "compact"})
+	public String engine;
+
+	@Param({"256"})
+	public int batchSize;
+
+	private TransactionService service;
+	private TransactionIngestor ingestor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ITransactionRepository repository = BenchmarkData.newRepository(engine);
+		BenchmarkData.fill(repository, STORE_SIZE);
+		ingestor = mode.equals("direct") ? null : new TransactionIngestor(repository, 4096, batchSize, mode);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service = new TransactionService(repository,
+				new TransactionListCache(100_000, Duration.ofMinutes(2), registry), new TransactionMetrics(registry),
+				ingestor);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (ingestor != null) {
+			ingestor.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Writer {
+		private final String prefix = UUID.randomUUID() + "-";
+		private long next;
+
+		Transaction next() {
+			return BenchmarkData.newTransaction(prefix + next, STORE_SIZE + (next++ & 1023));
+		}
+	}
+
+	@Benchmark
+	public Transaction create(Writer writer) {
+		return service.createTransaction(writer.next());
+	}
+
+	@Benchmark
+	@Threads(64)
+	public Transaction createContended(Writer writer) {
+		return service.createTransaction(writer.next());
+	}
+}
@@ -0,0 +1,111 @@
+package com.bank.transaction.benchmark;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.repository.ITransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code listAllTransactions} and cursor paging over a pre-filled store, per filter mix
+ * <p>
+ * Each invocation takes the next query of a rotating set, so card and date filters do not
+ * keep hitting the same postings. Store sizes above 1M need a larger heap, e.g.
+ * {@code -p storeSize=10000000 -jvmArgsAppend -Xmx24g}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class ListBenchmark {
+	private static final int QUERIES = 1024;
+	private static final int PAGE_SIZE = 20;
+	private static final String[] MIXES = {"none", "card", "cardStatus", "status", "channelDate"};
+
+	@Param({"memory", "compact", "sharded"})
+	public String engine;
+
+	@Param({"10000", "100000", "1000000"})
+	public int storeSize;
+
+	/** none, card, cardStatus, status, channelDate, or mixed to rotate through all of them */
+	@Param({"none", "card", "cardStatus", "status", "channelDate", "mixed"})
+	public String filter;
+
+	private ITransactionRepository repository;
+	private TransactionQuery[] queries;
+
+	@Setup
+	public void setUp() {
+		repository = BenchmarkData.newRepository(engine);
+		BenchmarkData.fill(repository, storeSize);
+		queries = new TransactionQuery[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = query(filter.equals("mixed") ? MIXES[i % MIXES.length] : filter, i);
+		}
+	}
+
+	private static TransactionQuery query(String mix, int i) {
+		TransactionQuery all = TransactionQuery.all();
+		String card = BenchmarkData.cardId(i * 7919 % BenchmarkData.CARDS);
+		Instant start = BenchmarkData.FIRST_DATE.plusSeconds(i * 24 * 3600L % BenchmarkData.DATE_RANGE_SECONDS);
+		return switch (mix) {
+			case "none" -> all;
+			case "card" -> all.withCardId(card);
+			case "cardStatus" -> all.withCardId(card).withStatus(TransactionStatus.SUCCESS);
+			case "status" -> all.withStatus(TransactionStatus.values()[i % TransactionStatus.values().length]);
+			case "channelDate" -> all.withChannel(TransactionChannel.values()[i % TransactionChannel.values().length])
+					.withDateRange(start, start.plusSeconds(30 * 24 * 3600L));
+			default -> throw new IllegalArgumentException("Unknown filter: " + mix);
+		};
+	}
+
+	@State(Scope.Thread)
+	public static class QueryCursor {
+		private int next;
+
+		TransactionQuery next(TransactionQuery[] queries) {
+			return queries[next++ & (QUERIES - 1)];
+		}
+	}
+
+	@Benchmark
+	public PageResult<Transaction> firstPage(QueryCursor cursor) {
+		return repository.listAllTransactions(0, PAGE_SIZE, cursor.next(queries));
+	}
+
+	@Benchmark
+	public PageResult<Transaction> tenthPage(QueryCursor cursor) {
+		return repository.listAllTransactions(9, PAGE_SIZE, cursor.next(queries));
+	}
+
+	@Benchmark
+	public CursorPageResult<Transaction> firstCursorPage(QueryCursor cursor) {
+		return repository.listTransactionsByCursor(null, PAGE_SIZE, cursor.next(queries));
+	}
+
+	@Benchmark
+	@Threads(8)
+	public PageResult<Transaction> firstPageContended(QueryCursor cursor) {
+		return repository.listAllTransactions(0, PAGE_SIZE, cursor.next(queries));
+	}
+}
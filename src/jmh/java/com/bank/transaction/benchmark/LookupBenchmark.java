@@ -0,0 +1,82 @@
+package com.bank.transaction.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.repository.ITransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point lookups by ID and order ID over a pre-filled store, walking the IDs in a scattered
+ * order so successive lookups do not share cache lines
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+	/** Odd step, so walking the IDs with it visits each of them */
+	private static final int STEP = 7919 * 2 + 1;
+
+	@Param({"memory", "compact", "sharded"})
+	public String engine;
+
+	@Param({"10000", "100000", "1000000"})
+	public int storeSize;
+
+	private ITransactionRepository repository;
+	private String[] ids;
+	private String missingId;
+
+	@Setup
+	public void setUp() {
+		repository = BenchmarkData.newRepository(engine);
+		ids = BenchmarkData.fill(repository, storeSize);
+		missingId = UUID.randomUUID().toString();
+	}
+
+	@State(Scope.Thread)
+	public static class IdCursor {
+		private int next;
+
+		int next(int size) {
+			next = (int) ((next + (long) STEP) % size);
+			return next;
+		}
+	}
+
+	@Benchmark
+	public Transaction getById(IdCursor cursor) {
+		return repository.getTransactionById(ids[cursor.next(storeSize)]);
+	}
+
+	@Benchmark
+	public Transaction getByIdMissing() {
+		return repository.getTransactionById(missingId);
+	}
+
+	@Benchmark
+	public boolean existsByOrderId(IdCursor cursor) {
+		return repository.existsByOrderId("seed-" + cursor.next(storeSize));
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Transaction getByIdContended(IdCursor cursor) {
+		return repository.getTransactionById(ids[cursor.next(storeSize)]);
+	}
+}
@@ -0,0 +1,73 @@
+package com.bank.transaction.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.repository.BloomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Probes of the orderId Bloom filter the cold segments use to skip their orderId index, for
+ * orderIds that were never added (the create path) and ones that were (a replayed create)
+ * <p>
+ * Setup prints the measured false-positive rate and the bytes of filter per key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class OrderIdFilterBenchmark {
+	private static final int PROBES = 1 << 20;
+
+	@Param({"1000000", "100000000"})
+	public int keys;
+
+	private BloomFilter filter;
+	private String[] unseen;
+	private String[] stored;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		filter = new BloomFilter(keys, BloomFilter.DEFAULT_BITS_PER_KEY);
+		for (int i = 0; i < keys; i++) {
+			filter.add("seed-" + i);
+		}
+		unseen = new String[PROBES];
+		stored = new String[PROBES];
+		long step = Math.max(keys / PROBES, 1);
+		int falsePositives = 0;
+		for (int i = 0; i < PROBES; i++) {
+			unseen[i] = "new-" + i;
+			stored[i] = "seed-" + (i * step % keys);
+			if (filter.mightContain(unseen[i])) {
+				falsePositives++;
+			}
+		}
+		System.out.printf("%n%d keys: false positives %.3f%%, %.2f bytes per key%n", keys,
+				100.0 * falsePositives / PROBES, (double) filter.sizeInBytes() / keys);
+	}
+
+	@Benchmark
+	public boolean mightContainNew() {
+		next = (next + 1) & (PROBES - 1);
+		return filter.mightContain(unseen[next]);
+	}
+
+	@Benchmark
+	public boolean mightContainStored() {
+		next = (next + 1) & (PROBES - 1);
+		return filter.mightContain(stored[next]);
+	}
+}
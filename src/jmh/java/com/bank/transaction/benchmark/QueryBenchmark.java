@@ -0,0 +1,68 @@
+package com.bank.transaction.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-request cost of the list query: parsing request parameters, using the query as a list
+ * cache key, and matching it against a transaction
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+	private Map<String, String> parameters;
+	private Map<TransactionQuery, Object> cacheKeys;
+	private TransactionQuery query;
+	private Transaction transaction;
+
+	@Setup
+	public void setUp() {
+		parameters = new HashMap<>();
+		parameters.put("page", "0");
+		parameters.put("size", "20");
+		parameters.put("cardId", BenchmarkData.cardId(42));
+		parameters.put("status", "SUCCESS");
+		parameters.put("startDate", "2024-03-01T00:00:00Z");
+		parameters.put("endDate", "2024-03-31T23:59:59Z");
+		query = TransactionQuery.fromParameters(parameters);
+		cacheKeys = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			cacheKeys.put(query.withCardId(BenchmarkData.cardId(i)), Boolean.TRUE);
+		}
+		transaction = BenchmarkData.newTransaction("query", 42);
+	}
+
+	@Benchmark
+	public TransactionQuery parse() {
+		return TransactionQuery.fromParameters(parameters);
+	}
+
+	/** Parsing plus the cache lookup a list request performs with the parsed query */
+	@Benchmark
+	public Object parseAndLookup() {
+		return cacheKeys.get(TransactionQuery.fromParameters(parameters));
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return query.matches(transaction);
+	}
+}
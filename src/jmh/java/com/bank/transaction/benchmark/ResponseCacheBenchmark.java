@@ -0,0 +1,118 @@
+package com.bank.transaction.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.ApiResponse;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.repository.InMemoryTransactionRepository;
+import com.bank.transaction.service.TransactionListCache;
+import com.bank.transaction.service.TransactionMetrics;
+import com.bank.transaction.service.TransactionResponseCache;
+import com.bank.transaction.service.TransactionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * {@code GET /api/transaction/{id}} bodies for a small set of hot transactions, either wrapped
+ * and serialised on every request as the message converter does, or written from the response
+ * cache; both look the transaction up through the service and write to a discarding stream
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ResponseCacheBenchmark {
+	private static final int STORE_SIZE = 10_000;
+	private static final int HOT_IDS = 64;
+
+	private TransactionService service;
+	private TransactionResponseCache responseCache;
+	private ObjectMapper objectMapper;
+	private String[] hotIds;
+	/** Discards what is written and, unlike {@link OutputStream#nullOutputStream()}, survives the mapper closing it */
+	private final OutputStream out = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+		String[] ids = BenchmarkData.fill(repository, STORE_SIZE);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		responseCache = new TransactionResponseCache(DataSize.ofMegabytes(16), registry);
+		service = new TransactionService(repository,
+				new TransactionListCache(100_000, Duration.ofMinutes(2), registry), new TransactionMetrics(registry),
+				null, responseCache, null);
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+		hotIds = new String[HOT_IDS];
+		for (int i = 0; i < HOT_IDS; i++) {
+			hotIds[i] = ids[i * (STORE_SIZE / HOT_IDS)];
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class IdCursor {
+		private int next;
+
+		int next() {
+			next = (next + 1) & (HOT_IDS - 1);
+			return next;
+		}
+	}
+
+	@Benchmark
+	public void serialisedPerRequest(IdCursor cursor) throws IOException {
+		Transaction transaction = service.getTransactionById(hotIds[cursor.next()]);
+		objectMapper.writeValue(out, ApiResponse.success(transaction));
+	}
+
+	@Benchmark
+	public void cachedBytes(IdCursor cursor) throws IOException {
+		Transaction transaction = service.getTransactionById(hotIds[cursor.next()]);
+		out.write(responseCache.get(transaction, "JSON", this::encode));
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void cachedBytesContended(IdCursor cursor) throws IOException {
+		cachedBytes(cursor);
+	}
+
+	private byte[] encode(Transaction transaction) {
+		try {
+			return objectMapper.writeValueAsBytes(ApiResponse.success(transaction));
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
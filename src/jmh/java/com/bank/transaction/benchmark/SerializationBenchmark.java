@@ -0,0 +1,129 @@
+package com.bank.transaction.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.config.WireFormatConfig;
+import com.bank.transaction.model.ApiResponse;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * JSON and Smile serialisation of the {@link ApiResponse} bodies the controllers return, with an
+ * ObjectMapper configured like the one Spring Boot auto-configures, and decoding of list pages as
+ * a consumer would; setup prints the encoded sizes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+	private ObjectMapper objectMapper;
+	private ObjectMapper smileMapper;
+	private ApiResponse<Transaction> single;
+	private ApiResponse<PageResult<Transaction>> page;
+	private ApiResponse<Void> error;
+	private byte[] pageJson;
+	private byte[] pageSmile;
+
+	@Setup
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+		single = ApiResponse.success(withId(BenchmarkData.newTransaction("single", 1), 1));
+		List<Transaction> rows = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			rows.add(withId(BenchmarkData.newTransaction("page-" + i, i), i));
+		}
+		page = ApiResponse.success(new PageResult<>(rows, 1000));
+		error = ApiResponse.error("Transaction not found");
+		smileMapper = WireFormatConfig.smileMapper(objectMapper);
+		try {
+			pageJson = objectMapper.writeValueAsBytes(page);
+			pageSmile = smileMapper.writeValueAsBytes(page);
+			System.out.printf("%nsingle transaction: %d bytes JSON, %d bytes Smile; page of 20: %d bytes JSON, %d bytes Smile%n",
+					objectMapper.writeValueAsBytes(single).length, smileMapper.writeValueAsBytes(single).length,
+					pageJson.length, pageSmile.length);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** The envelope as a consumer declares it to decode list pages */
+	public static class PageEnvelope {
+		public String message;
+		public Page data;
+	}
+
+	public static class Page {
+		public List<Transaction> data;
+		public int totalCount;
+	}
+
+	private static Transaction withId(Transaction t, int i) {
+		t.setId("00000000-0000-0000-0000-" + String.format("%012d", i));
+		return t;
+	}
+
+	@Benchmark
+	public byte[] singleTransaction() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(single);
+	}
+
+	@Benchmark
+	public byte[] pageOfTwenty() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(page);
+	}
+
+	@Benchmark
+	public byte[] singleTransactionSmile() throws JsonProcessingException {
+		return smileMapper.writeValueAsBytes(single);
+	}
+
+	@Benchmark
+	public byte[] pageOfTwentySmile() throws JsonProcessingException {
+		return smileMapper.writeValueAsBytes(page);
+	}
+
+	@Benchmark
+	public PageEnvelope decodePageOfTwenty() throws IOException {
+		return objectMapper.readValue(pageJson, PageEnvelope.class);
+	}
+
+	@Benchmark
+	public PageEnvelope decodePageOfTwentySmile() throws IOException {
+		return smileMapper.readValue(pageSmile, PageEnvelope.class);
+	}
+
+	@Benchmark
+	public byte[] errorResponse() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(error);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public byte[] pageOfTwentyContended() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(page);
+	}
+}
@@ -0,0 +1,93 @@
+package com.bank.transaction.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.repository.InMemoryTransactionRepository;
+import com.bank.transaction.service.TransactionListCache;
+import com.bank.transaction.service.TransactionMetrics;
+import com.bank.transaction.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link TransactionService} on top of the in-memory repository: request validation on its own
+ * (a request rejected by the last rule), validated creates with their cache invalidation, and
+ * list pages served from the list cache
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+	private static final int STORE_SIZE = 10_000;
+
+	private TransactionService service;
+	private Transaction rejected;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+		BenchmarkData.fill(repository, STORE_SIZE);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service = new TransactionService(repository,
+				new TransactionListCache(100_000, Duration.ofMinutes(2), registry), new TransactionMetrics(registry));
+		rejected = BenchmarkData.newTransaction("rejected", 0);
+		rejected.setToCardId(rejected.getCardId());
+	}
+
+	@State(Scope.Thread)
+	public static class Requests {
+		private long next;
+
+		Transaction nextCreate() {
+			return BenchmarkData.newTransaction("bench-" + Thread.currentThread().threadId() + "-" + next, next++);
+		}
+
+		TransactionQuery nextQuery() {
+			return TransactionQuery.all().withCardId(BenchmarkData.cardId((int) (next++ % 64)));
+		}
+	}
+
+	@Benchmark
+	public Exception validationRejected() {
+		try {
+			service.createTransaction(rejected);
+			throw new IllegalStateException("Validation accepted an invalid request");
+		} catch (IllegalArgumentException e) {
+			return e;
+		}
+	}
+
+	@Benchmark
+	public Transaction validatedCreate(Requests requests) {
+		return service.createTransaction(requests.nextCreate());
+	}
+
+	@Benchmark
+	public PageResult<Transaction> cachedList(Requests requests) {
+		return service.listAllTransactions(0, 20, requests.nextQuery());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public PageResult<Transaction> cachedListContended(Requests requests) {
+		return service.listAllTransactions(0, 20, requests.nextQuery());
+	}
+}
@@ -0,0 +1,98 @@
+package com.bank.transaction.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.repository.ITransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Listings filtered on description text over stores holding a million transactions whose
+ * descriptions name one of {@value #MERCHANTS} merchants, a store number and one of
+ * {@value #CITIES} cities
+ * <p>
+ * The in-memory engine answers from its inverted index; the compact engine, which has none,
+ * decodes and tokenizes every description and serves as the baseline. Setup prints the bytes of
+ * posting lists per transaction when the engine reports them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class TextSearchBenchmark {
+	private static final int MERCHANTS = 1000;
+	private static final int CITIES = 50;
+	private static final String[] SYLLABLES = {"ka", "lo", "mi", "ne", "su", "ta", "ro", "vi", "de", "po"};
+
+	@Param({"memory", "compact"})
+	public String engine;
+
+	@Param({"1000000"})
+	public int transactions;
+
+	private ITransactionRepository repository;
+	private TransactionQuery merchant;
+	private TransactionQuery merchantInCity;
+	private TransactionQuery merchantOfCard;
+
+	@Setup
+	public void setUp() {
+		repository = BenchmarkData.newRepository(engine);
+		for (int i = 0; i < transactions; i++) {
+			Transaction t = BenchmarkData.newTransaction("seed-" + i, i);
+			t.setDescription("POS " + merchant(i % MERCHANTS) + " #" + (i / MERCHANTS % 500) + " city" + (i / MERCHANTS % CITIES));
+			repository.createTransaction(t);
+		}
+		merchant = TransactionQuery.all().withText(merchant(42));
+		merchantInCity = merchant.withText(merchant(42) + " city7");
+		merchantOfCard = merchant.withCardId(BenchmarkData.cardId(42));
+		Long postingBytes = repository.sizes().get("descriptionPostingBytes");
+		if (postingBytes != null) {
+			System.out.printf("%n%d transactions: %.2f bytes of posting lists per transaction%n", transactions,
+					(double) postingBytes / transactions);
+		}
+	}
+
+	/** First page and total count of one merchant's roughly one in a thousand transactions */
+	@Benchmark
+	public PageResult<Transaction> merchantPage() {
+		return repository.listAllTransactions(0, 20, merchant);
+	}
+
+	@Benchmark
+	public CursorPageResult<Transaction> merchantCursor() {
+		return repository.listTransactionsByCursor(null, 20, merchant);
+	}
+
+	/** Two tokens, intersecting a short posting list with one twenty times longer into a fiftieth of it */
+	@Benchmark
+	public PageResult<Transaction> merchantInCityPage() {
+		return repository.listAllTransactions(0, 20, merchantInCity);
+	}
+
+	/** Text combined with a card filter, whose index holds about as many candidates */
+	@Benchmark
+	public PageResult<Transaction> merchantOfCardPage() {
+		return repository.listAllTransactions(0, 20, merchantOfCard);
+	}
+
+	/** Pronounceable, distinct merchant name of three syllables */
+	private static String merchant(int merchant) {
+		return SYLLABLES[merchant / 100] + SYLLABLES[merchant / 10 % 10] + SYLLABLES[merchant % 10] + "mart";
+	}
+}
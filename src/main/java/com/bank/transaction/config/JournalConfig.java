@@ -0,0 +1,36 @@
+package com.bank.transaction.config;
+
+import java.nio.file.Path;
+
+import com.bank.transaction.repository.TransactionJournal;
+import com.bank.transaction.repository.TransactionSnapshots;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the write-ahead journal of the in-memory repository when
+ * {@code transaction.journal.enabled=true}, and periodic snapshots on top of it when
+ * {@code transaction.snapshot.enabled=true}
+ */
+@Configuration
+@ConditionalOnProperty(name = "transaction.journal.enabled", havingValue = "true")
+public class JournalConfig {
+
+	@Bean(destroyMethod = "close")
+	public TransactionJournal transactionJournal(
+			@Value("${transaction.journal.directory}") Path directory,
+			@Value("${transaction.journal.durability:batch}") String durability,
+			@Value("${transaction.journal.fsync-interval-ms:100}") long fsyncIntervalMillis) {
+		return new TransactionJournal(directory,
+				TransactionJournal.Durability.valueOf(durability.toUpperCase()), fsyncIntervalMillis);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "transaction.snapshot.enabled", havingValue = "true")
+	public TransactionSnapshots transactionSnapshots(@Value("${transaction.snapshot.directory}") Path directory) {
+		return new TransactionSnapshots(directory);
+	}
+}
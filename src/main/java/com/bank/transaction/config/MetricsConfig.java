@@ -0,0 +1,40 @@
+package com.bank.transaction.config;
+
+import com.bank.transaction.repository.CompactTransactionRepository;
+import com.bank.transaction.repository.ITransactionRepository;
+import com.bank.transaction.repository.InMemoryTransactionRepository;
+import com.bank.transaction.repository.ShardedTransactionRepository;
+import com.bank.transaction.repository.TieredTransactionRepository;
+import com.bank.transaction.repository.TimedTransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Wraps the selected repository engine in a {@link TimedTransactionRepository}, which becomes
+ * the {@link ITransactionRepository} the service is injected with
+ */
+@Configuration
+public class MetricsConfig {
+
+	@Bean
+	@Primary
+	public ITransactionRepository timedTransactionRepository(ObjectProvider<InMemoryTransactionRepository> memory,
+			ObjectProvider<CompactTransactionRepository> compact, ObjectProvider<ShardedTransactionRepository> sharded,
+			ObjectProvider<TieredTransactionRepository> tiered, MeterRegistry registry) {
+		ITransactionRepository engine = memory.getIfAvailable();
+		if (engine == null) {
+			engine = compact.getIfAvailable();
+		}
+		if (engine == null) {
+			engine = sharded.getIfAvailable();
+		}
+		if (engine == null) {
+			engine = tiered.getObject();
+		}
+		return new TimedTransactionRepository(engine, registry);
+	}
+}
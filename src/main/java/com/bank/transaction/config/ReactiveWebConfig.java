@@ -0,0 +1,33 @@
+package com.bank.transaction.config;
+
+import com.bank.transaction.controller.ApiResponseBodyResultHandler;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolver;
+
+/**
+ * WebFlux setup of the {@code reactive} profile, which switches the application to
+ * {@code spring.main.web-application-type=reactive}
+ * <p>
+ * Declares the Netty server explicitly: with Tomcat on the classpath for the servlet stack,
+ * Spring Boot would otherwise run WebFlux on Tomcat.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	@Bean
+	public ApiResponseBodyResultHandler apiResponseBodyResultHandler(ServerCodecConfigurer codecs,
+			RequestedContentTypeResolver webFluxContentTypeResolver) {
+		return new ApiResponseBodyResultHandler(codecs.getWriters(), webFluxContentTypeResolver);
+	}
+}
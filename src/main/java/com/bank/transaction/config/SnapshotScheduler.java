@@ -0,0 +1,40 @@
+package com.bank.transaction.config;
+
+import com.bank.transaction.repository.InMemoryTransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Takes a repository snapshot every {@code transaction.snapshot.interval-ms}, so a restart only
+ * replays the journal written since the last one
+ */
+@Component
+@ConditionalOnProperty(name = {"transaction.journal.enabled", "transaction.snapshot.enabled"}, havingValue = "true")
+public class SnapshotScheduler {
+	private final static Logger LOGGER = LoggerFactory.getLogger(SnapshotScheduler.class);
+
+	private final ObjectProvider<InMemoryTransactionRepository> repository;
+
+	/**
+	 * @param repository the in-memory store; absent when another repository type is configured,
+	 * in which case there is nothing to snapshot
+	 */
+	public SnapshotScheduler(ObjectProvider<InMemoryTransactionRepository> repository) {
+		this.repository = repository;
+	}
+
+	@Scheduled(initialDelayString = "${transaction.snapshot.interval-ms:300000}",
+			fixedDelayString = "${transaction.snapshot.interval-ms:300000}")
+	public void snapshot() {
+		try {
+			repository.ifAvailable(InMemoryTransactionRepository::snapshot);
+		} catch (RuntimeException e) {
+			LOGGER.error("Snapshot failed; the journal is kept until the next one succeeds", e);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.bank.transaction.config;
+
+import com.bank.transaction.repository.TieredTransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves due transactions of the tiered repository to its cold tier every
+ * {@code transaction.tiered.spill-interval-ms}
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "tiered")
+public class SpillScheduler {
+	private final static Logger LOGGER = LoggerFactory.getLogger(SpillScheduler.class);
+
+	private final TieredTransactionRepository repository;
+
+	public SpillScheduler(TieredTransactionRepository repository) {
+		this.repository = repository;
+	}
+
+	@Scheduled(initialDelayString = "${transaction.tiered.spill-interval-ms:10000}",
+			fixedDelayString = "${transaction.tiered.spill-interval-ms:10000}")
+	public void spill() {
+		try {
+			repository.spill();
+		} catch (RuntimeException e) {
+			LOGGER.error("Spill failed; the transactions stay in memory until the next one succeeds", e);
+		}
+	}
+}
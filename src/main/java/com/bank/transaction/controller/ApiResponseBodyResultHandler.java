@@ -0,0 +1,70 @@
+package com.bank.transaction.controller;
+
+import java.util.List;
+
+import com.bank.transaction.model.ApiResponse;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.web.reactive.HandlerResult;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolver;
+import org.springframework.web.reactive.result.method.annotation.ResponseBodyResultHandler;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Reactive counterpart of the {@link GlobalResponseHandler} response wrapping
+ * <p>
+ * Runs ahead of the default {@link ResponseBodyResultHandler} and writes the value of a
+ * {@code @ResponseBody} result, or of the Mono it returns, as {@link ApiResponse#success}; an
+ * empty result becomes a success without data. ResponseEntity results, such as the error
+ * responses, and multi-value publishers, such as the NDJSON export, are left to the default
+ * handlers.
+ */
+public class ApiResponseBodyResultHandler extends ResponseBodyResultHandler {
+	private static final MethodParameter WRAPPED_TYPE;
+
+	static {
+		try {
+			WRAPPED_TYPE = new MethodParameter(ApiResponseBodyResultHandler.class.getDeclaredMethod("wrappedType"), -1);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public ApiResponseBodyResultHandler(List<HttpMessageWriter<?>> writers, RequestedContentTypeResolver resolver) {
+		super(writers, resolver);
+		setOrder(getOrder() - 1);
+	}
+
+	@Override
+	public boolean supports(HandlerResult result) {
+		if (!super.supports(result)) {
+			return false;
+		}
+		ReactiveAdapter adapter = getAdapter(result);
+		if (adapter != null && adapter.isMultiValue()) {
+			return false;
+		}
+		Class<?> valueType = adapter != null ? result.getReturnType().getGeneric().toClass() : result.getReturnType().toClass();
+		return !ResponseEntity.class.isAssignableFrom(valueType) && !ApiResponse.class.isAssignableFrom(valueType);
+	}
+
+	@Override
+	public Mono<Void> handleResult(ServerWebExchange exchange, HandlerResult result) {
+		ReactiveAdapter adapter = getAdapter(result);
+		Object value = result.getReturnValue();
+		Mono<?> body = adapter != null && value != null ? Mono.from(adapter.toPublisher(value)) : Mono.justOrEmpty(value);
+		Mono<ApiResponse<?>> wrapped = body
+				.<ApiResponse<?>>map(ApiResponse::success)
+				.defaultIfEmpty(ApiResponse.success(null));
+		return writeBody(wrapped, WRAPPED_TYPE, exchange);
+	}
+
+	@SuppressWarnings("unused")
+	private static Mono<ApiResponse<?>> wrappedType() {
+		return null;
+	}
+}
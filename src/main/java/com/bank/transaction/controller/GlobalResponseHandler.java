@@ -1,16 +1,21 @@
 package com.bank.transaction.controller;
 
+import java.util.List;
+
 import com.bank.transaction.exception.TransactionAlreadyExistsException;
 import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.exception.TransactionVersionMismatchException;
 import com.bank.transaction.model.ApiResponse;
 
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
@@ -26,9 +31,19 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
  * 2. Centralized exception handling with proper HTTP status codes
  * <p>
  * 3. Custom error responses for business exceptions
+ * <p>
+ * 4. Successful bodies carry the entity tag their handler computed before running the query,
+ * adapted to the representation written, while error responses never do
+ * <p>
+ * 5. Wrapping is the same whichever converter writes the body, JSON or Smile
+ * <p>
+ * Under the reactive profile WebFlux applies the same exception handlers, while the wrapping is
+ * done by {@link ApiResponseBodyResultHandler}.
  */
 @ControllerAdvice
 public class GlobalResponseHandler implements ResponseBodyAdvice<Object> {
+	/** Request attribute holding the quoted entity tag to send with a successful body */
+	static final String ETAG_ATTRIBUTE = GlobalResponseHandler.class.getName() + ".etag";
 
 	@Override
 	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
@@ -39,6 +54,11 @@ public class GlobalResponseHandler implements ResponseBodyAdvice<Object> {
 	public Object beforeBodyWrite(Object body, MethodParameter returnType,
 			MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType,
 			ServerHttpRequest request, ServerHttpResponse response) {
+		if (request instanceof ServletServerHttpRequest servletRequest
+				&& servletRequest.getServletRequest().getAttribute(ETAG_ATTRIBUTE) instanceof String etag) {
+			response.getHeaders().setETag(WireFormat.of(selectedContentType).tag(etag));
+			response.getHeaders().setVary(List.of(HttpHeaders.ACCEPT));
+		}
 		return ApiResponse.success(body);
 	}
 
@@ -52,6 +72,12 @@ public class GlobalResponseHandler implements ResponseBodyAdvice<Object> {
 		return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(ex.getMessage()));
 	}
 
+	@ExceptionHandler(TransactionVersionMismatchException.class)
+	public ResponseEntity<ApiResponse<Void>> handleTransactionVersionMismatchException(
+			TransactionVersionMismatchException ex) {
+		return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ApiResponse.error(ex.getMessage()));
+	}
+
 	@ExceptionHandler(IllegalArgumentException.class)
 	public ResponseEntity<ApiResponse<Void>> handleIllegalArgumentException(IllegalArgumentException ex) {
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(ex.getMessage()));
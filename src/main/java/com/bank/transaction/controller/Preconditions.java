@@ -0,0 +1,55 @@
+package com.bank.transaction.controller;
+
+/**
+ * Reads the conditional request headers shared by both web stacks
+ */
+final class Preconditions {
+
+	private Preconditions() {
+	}
+
+	/**
+	 * Parses an {@code If-Match} header holding a transaction version, quoted as an entity tag
+	 * ({@code "3"}, or {@code "3-smile"} as tagged in the Smile representation) or bare ({@code 3})
+	 *
+	 * @return the expected version, or null if the header is absent or {@code *}
+	 * @throws IllegalArgumentException if the header is not a single version
+	 */
+	static Long expectedVersion(String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String value = ifMatch.trim();
+		if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+			value = WireFormat.untagged(value.substring(1, value.length() - 1));
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid If-Match: " + ifMatch);
+		}
+	}
+
+	/**
+	 * Tells whether an {@code If-None-Match} header holds the entity tag, so a GET can be answered
+	 * with 304; tags are compared weakly: {@code W/} prefixes are ignored and {@code *} matches any
+	 *
+	 * @param ifNoneMatch the header, possibly a comma-separated list of tags, or null
+	 * @param etag the quoted tag of the current representation
+	 */
+	static boolean notModified(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			String value = tag.trim();
+			if (value.startsWith("W/")) {
+				value = value.substring(2);
+			}
+			if (value.equals("*") || value.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,175 @@
+package com.bank.transaction.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.repository.TieredTransactionRepository;
+import com.bank.transaction.repository.TransactionJournal;
+import com.bank.transaction.service.TransactionIngestor;
+import com.bank.transaction.service.TransactionService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * WebFlux variant of {@link TransactionController}, serving the same /api/transaction contract
+ * on Netty when the {@code reactive} profile is active
+ * <p>
+ * Features:
+ * <p>
+ * 1. Same paths, parameters and response bodies as the servlet controller; results are wrapped
+ * in ApiResponse by {@link ApiResponseBodyResultHandler} and errors mapped by
+ * {@link GlobalResponseHandler}
+ * <p>
+ * 2. Reads run on the event loop when the repository answers from memory. The tiered repository
+ * reads its cold segments with blocking file reads, so with it reads and exports are moved to the
+ * bounded elastic scheduler.
+ * <p>
+ * 3. Writes run on the event loop too, unless the write-ahead journal is enabled or the repository
+ * is tiered; a journaled write waits for its group commit and a tiered one may read segments, so
+ * it is moved to the bounded elastic scheduler. With the ingestor ring a create is only published
+ * on the event loop and the response completes from the ring's writer thread; a full ring holds
+ * the publisher back until the writer frees a slot.
+ * <p>
+ * 4. The NDJSON export is a Flux over the repository stream, so rows are read only as fast as
+ * the client consumes them, and the stream is closed when the client goes away
+ */
+@RestController
+@RequestMapping("/api/transaction")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTransactionController {
+	private final TransactionService transactionService;
+	private final Scheduler readScheduler;
+	private final Scheduler writeScheduler;
+	private final Scheduler createScheduler;
+
+	@Autowired
+	public ReactiveTransactionController(TransactionService transactionService,
+			ObjectProvider<TransactionJournal> journal, ObjectProvider<TransactionIngestor> ingestor,
+			ObjectProvider<TieredTransactionRepository> tiered) {
+		this.transactionService = transactionService;
+		boolean readsFiles = tiered.getIfAvailable() != null;
+		this.readScheduler = readsFiles ? Schedulers.boundedElastic() : Schedulers.immediate();
+		this.writeScheduler = journal.getIfAvailable() == null && !readsFiles ? Schedulers.immediate() : Schedulers.boundedElastic();
+		this.createScheduler = ingestor.getIfAvailable() == null ? writeScheduler : Schedulers.immediate();
+	}
+
+	@PostMapping
+	public Mono<Transaction> createTransaction(@RequestBody Transaction transaction) {
+		return Mono.fromFuture(() -> transactionService.createTransactionAsync(transaction))
+				.subscribeOn(createScheduler);
+	}
+
+	@PostMapping("/batch")
+	public Mono<List<BatchItemResult>> createTransactions(@RequestBody List<Transaction> transactions) {
+		return write(() -> transactionService.createTransactions(transactions));
+	}
+
+	@DeleteMapping("/{id}")
+	public Mono<Void> deleteTransaction(@PathVariable String id) {
+		return write(() -> {
+			transactionService.deleteTransaction(id);
+			return null;
+		}).then();
+	}
+
+	@PutMapping("/{id}")
+	public Mono<Transaction> modifyTransaction(@PathVariable String id, @RequestBody Transaction transaction,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		Long expectedVersion = Preconditions.expectedVersion(ifMatch);
+		return write(() -> transactionService.modifyTransaction(id, transaction, expectedVersion));
+	}
+
+	@GetMapping("/list")
+	public Mono<PageResult<Transaction>> listAllTransactions(
+			@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "10") int size,
+			@RequestParam Map<String, String> parameters) {
+		return read(() ->
+				transactionService.listAllTransactions(page, size, TransactionQuery.fromParameters(parameters)));
+	}
+
+	/**
+	 * Keyset-paginated variant of the list endpoint, selected by the presence of the {@code cursor}
+	 * parameter; pass it empty for the first page and then the returned {@code nextCursor}
+	 */
+	@GetMapping(value = "/list", params = "cursor")
+	public Mono<CursorPageResult<Transaction>> listTransactionsByCursor(
+			@RequestParam String cursor,
+			@RequestParam(defaultValue = "10") int size,
+			@RequestParam Map<String, String> parameters) {
+		return read(() ->
+				transactionService.listTransactionsByCursor(cursor, size, TransactionQuery.fromParameters(parameters)));
+	}
+
+	/**
+	 * Streams every matching transaction as newline-delimited JSON, pulling rows from the
+	 * repository on demand
+	 */
+	@GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Transaction> exportTransactions(@RequestParam Map<String, String> parameters) {
+		TransactionQuery query = TransactionQuery.fromParameters(parameters);
+		return Flux.fromStream(() -> transactionService.streamTransactions(query)).subscribeOn(readScheduler);
+	}
+
+	/**
+	 * Per-currency inflow, outflow, net balance, count and last activity of the card's successful
+	 * transactions, read from totals maintained on every write
+	 */
+	@GetMapping("/summary/{cardId}")
+	public Mono<List<CardSummary>> getCardSummaries(@PathVariable String cardId) {
+		return read(() -> transactionService.getCardSummaries(cardId));
+	}
+
+	/**
+	 * Transaction counts and volumes per minute or hour, by channel, type and status, read from
+	 * rolling buckets; defaults to the last 24 hours
+	 */
+	@GetMapping("/stats")
+	public Mono<List<StatsBucket>> getStats(
+			@RequestParam(defaultValue = "hour") String resolution,
+			@RequestParam(defaultValue = "24") int buckets) {
+		return read(() ->
+				transactionService.getStats(StatsResolution.fromParameter(resolution), buckets));
+	}
+
+	@GetMapping("/{id}")
+	public Mono<Transaction> getTransactionById(@PathVariable String id) {
+		return read(() -> transactionService.getTransactionById(id));
+	}
+
+	private <T> Mono<T> read(Supplier<T> operation) {
+		return Mono.fromSupplier(operation).subscribeOn(readScheduler);
+	}
+
+	private <T> Mono<T> write(Callable<T> operation) {
+		return Mono.fromCallable(operation).subscribeOn(writeScheduler);
+	}
+}
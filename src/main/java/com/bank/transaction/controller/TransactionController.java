@@ -1,21 +1,49 @@
 package com.bank.transaction.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
+import com.bank.transaction.model.ApiResponse;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
 import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
 import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.service.ModificationVersions;
+import com.bank.transaction.service.TransactionResponseCache;
 import com.bank.transaction.service.TransactionService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for transaction operations
@@ -28,16 +56,52 @@ import org.springframework.web.bind.annotation.RestController;
  * <p>
  * 3. Pagination support for transaction listing
  * <p>
- * 4. Filter capability on list operations
+ * 4. Filter capability on list operations; parameters are parsed once into a typed TransactionQuery
+ * <p>
+ * 5. Cursor-based pagination on the list endpoint
+ * <p>
+ * 6. Batch creation endpoint with per-item results
+ * <p>
+ * 7. Streaming NDJSON export of filtered transactions
+ * <p>
+ * 8. Per-card summary of successful transactions
+ * <p>
+ * 9. Per-minute and per-hour transaction stats
+ * <p>
+ * 10. Optional {@code If-Match} version precondition on modifications, answered with 412 when it fails
+ * <p>
+ * 11. Single-transaction reads write cached, already wrapped response bytes per transaction version
+ * <p>
+ * 12. Strong entity tags on reads, the transaction version for a single transaction and the
+ * {@link ModificationVersions} for lists; a matching {@code If-None-Match} is answered with 304
+ * before anything is queried or serialised
+ * <p>
+ * 13. Create, batch, get and list speak JSON or, with {@code Accept} and {@code Content-Type}
+ * {@code application/x-jackson-smile}, the binary Smile encoding of the same documents
+ * <p>
+ * Served by Spring MVC; {@link ReactiveTransactionController} takes over under the reactive profile.
  */
 @RestController
 @RequestMapping("/api/transaction")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class TransactionController {
+	private static final int EXPORT_FLUSH_INTERVAL = 256;
+
 	private final TransactionService transactionService;
+	private final ObjectMapper objectMapper;
+	private final ObjectMapper smileMapper;
+	private final TransactionResponseCache responseCache;
+	private final ModificationVersions versions;
 
 	@Autowired
-	public TransactionController(TransactionService transactionService) {
+	public TransactionController(TransactionService transactionService, ObjectMapper objectMapper,
+			MappingJackson2SmileHttpMessageConverter smileConverter, TransactionResponseCache responseCache,
+			ModificationVersions versions) {
 		this.transactionService = transactionService;
+		this.objectMapper = objectMapper;
+		this.smileMapper = smileConverter.getObjectMapper();
+		this.responseCache = responseCache;
+		this.versions = versions;
 	}
 
 	@PostMapping
@@ -45,26 +109,146 @@ public class TransactionController {
 		return transactionService.createTransaction(transaction);
 	}
 
+	@PostMapping("/batch")
+	public List<BatchItemResult> createTransactions(@RequestBody List<Transaction> transactions) {
+		return transactionService.createTransactions(transactions);
+	}
+
 	@DeleteMapping("/{id}")
 	public void deleteTransaction(@PathVariable String id) {
 		transactionService.deleteTransaction(id);
 	}
 
 	@PutMapping("/{id}")
-	public Transaction modifyTransaction(@PathVariable String id, @RequestBody Transaction transaction) {
-		return transactionService.modifyTransaction(id, transaction);
+	public Transaction modifyTransaction(@PathVariable String id, @RequestBody Transaction transaction,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return transactionService.modifyTransaction(id, transaction, Preconditions.expectedVersion(ifMatch));
 	}
 
 	@GetMapping("/list")
 	public PageResult<Transaction> listAllTransactions(
 			@RequestParam(defaultValue = "0") int page,
 			@RequestParam(defaultValue = "10") int size,
-			@RequestParam Map<String, Object> filters) {
-		return transactionService.listAllTransactions(page, size, filters);
+			@RequestParam Map<String, String> parameters,
+			WebRequest request) {
+		TransactionQuery query = TransactionQuery.fromParameters(parameters);
+		if (notModified(request, versions.listTag(query))) {
+			return null;
+		}
+		return transactionService.listAllTransactions(page, size, query);
 	}
 
+	/**
+	 * Keyset-paginated variant of the list endpoint, selected by the presence of the {@code cursor}
+	 * parameter; pass it empty for the first page and then the returned {@code nextCursor}
+	 */
+	@GetMapping(value = "/list", params = "cursor")
+	public CursorPageResult<Transaction> listTransactionsByCursor(
+			@RequestParam String cursor,
+			@RequestParam(defaultValue = "10") int size,
+			@RequestParam Map<String, String> parameters,
+			WebRequest request) {
+		TransactionQuery query = TransactionQuery.fromParameters(parameters);
+		if (notModified(request, versions.listTag(query))) {
+			return null;
+		}
+		return transactionService.listTransactionsByCursor(cursor, size, query);
+	}
+
+	/**
+	 * Streams every matching transaction as newline-delimited JSON while iterating the repository,
+	 * flushing periodically so clients can start consuming before the export completes
+	 */
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportTransactions(@RequestParam Map<String, String> parameters) {
+		TransactionQuery query = TransactionQuery.fromParameters(parameters);
+		StreamingResponseBody body = out -> {
+			ObjectWriter writer = objectMapper.writerFor(Transaction.class);
+			try (Stream<Transaction> transactions = transactionService.streamTransactions(query);
+				 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				generator.setRootValueSeparator(null);
+				int written = 0;
+				for (Iterator<Transaction> it = transactions.iterator(); it.hasNext(); ) {
+					writer.writeValue(generator, it.next());
+					generator.writeRaw('\n');
+					if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+						generator.flush();
+					}
+				}
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+
+	/**
+	 * Per-currency inflow, outflow, net balance, count and last activity of the card's successful
+	 * transactions, read from totals maintained on every write
+	 */
+	@GetMapping("/summary/{cardId}")
+	public List<CardSummary> getCardSummaries(@PathVariable String cardId) {
+		return transactionService.getCardSummaries(cardId);
+	}
+
+	/**
+	 * Transaction counts and volumes per minute or hour, by channel, type and status, read from
+	 * rolling buckets; defaults to the last 24 hours
+	 */
+	@GetMapping("/stats")
+	public List<StatsBucket> getStats(
+			@RequestParam(defaultValue = "hour") String resolution,
+			@RequestParam(defaultValue = "24") int buckets) {
+		return transactionService.getStats(StatsResolution.fromParameter(resolution), buckets);
+	}
+
+	/**
+	 * Writes the {@link ApiResponse}-wrapped transaction straight to the servlet output stream,
+	 * bypassing the message converters; the bytes of a version already served come from the
+	 * response cache, so hot transactions are serialised once per version. The entity tag is the
+	 * version, as taken by {@code If-Match} on modifications.
+	 */
 	@GetMapping("/{id}")
-	public Transaction getTransactionById(@PathVariable String id) {
-		return transactionService.getTransactionById(id);
+	public void getTransactionById(@PathVariable String id, WebRequest request, HttpServletResponse response)
+			throws IOException {
+		WireFormat format = WireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+		response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		Transaction transaction = transactionService.getTransactionById(id);
+		byte[] body;
+		if (transaction == null) {
+			body = encode(null, format);
+		} else {
+			String etag = format.tag("\"" + transaction.getVersion() + "\"");
+			if (Preconditions.notModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)
+					&& request.checkNotModified(etag)) {
+				return;
+			}
+			response.setHeader(HttpHeaders.ETAG, etag);
+			body = responseCache.get(transaction, format.name(), t -> encode(t, format));
+		}
+		response.setContentType(format.mediaType().toString());
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	/**
+	 * Answers 304 if the request's {@code If-None-Match} holds the tag of the representation the
+	 * {@code Accept} header asks for; otherwise leaves the JSON tag for {@link GlobalResponseHandler}
+	 * to adapt to the representation written and send with the body, so a failing request carries none
+	 */
+	private static boolean notModified(WebRequest request, String etag) {
+		String requested = WireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT)).tag(etag);
+		if (Preconditions.notModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), requested)) {
+			return request.checkNotModified(requested);
+		}
+		request.setAttribute(GlobalResponseHandler.ETAG_ATTRIBUTE, etag, RequestAttributes.SCOPE_REQUEST);
+		return false;
+	}
+
+	private byte[] encode(Transaction transaction, WireFormat format) {
+		ObjectMapper mapper = format == WireFormat.SMILE ? smileMapper : objectMapper;
+		try {
+			return mapper.writeValueAsBytes(ApiResponse.success(transaction));
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 }
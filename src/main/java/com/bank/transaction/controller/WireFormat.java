@@ -0,0 +1,78 @@
+package com.bank.transaction.controller;
+
+import java.util.List;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Representations the transaction endpoints are served in, negotiated from the {@code Accept} header
+ * <p>
+ * Each representation has its own entity tags: the Smile tag is the JSON one with a suffix, so a
+ * tag obtained in one format never validates a cached copy in the other.
+ */
+enum WireFormat {
+	JSON(MediaType.APPLICATION_JSON, ""),
+	SMILE(new MediaType("application", "x-jackson-smile"), "-smile");
+
+	private final MediaType mediaType;
+	private final String tagSuffix;
+
+	WireFormat(MediaType mediaType, String tagSuffix) {
+		this.mediaType = mediaType;
+		this.tagSuffix = tagSuffix;
+	}
+
+	MediaType mediaType() {
+		return mediaType;
+	}
+
+	/**
+	 * Picks the representation the {@code Accept} header prefers: the highest quality wins and a
+	 * concrete type beats a wildcard of the same quality; JSON when the header is absent or invalid
+	 */
+	static WireFormat negotiate(String accept) {
+		if (accept == null || accept.isBlank()) {
+			return JSON;
+		}
+		List<MediaType> accepted;
+		try {
+			accepted = MediaType.parseMediaTypes(accept);
+		} catch (InvalidMediaTypeException e) {
+			return JSON;
+		}
+		WireFormat best = JSON;
+		double bestScore = 0;
+		for (MediaType mediaType : accepted) {
+			for (WireFormat format : values()) {
+				double score = mediaType.getQualityValue() * 2 + (mediaType.isConcrete() ? 1 : 0);
+				if (mediaType.includes(format.mediaType) && mediaType.getQualityValue() > 0 && score > bestScore) {
+					best = format;
+					bestScore = score;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Representation of a message converter's selected content type; JSON for anything else
+	 */
+	static WireFormat of(MediaType contentType) {
+		return contentType != null && SMILE.mediaType.isCompatibleWith(contentType) ? SMILE : JSON;
+	}
+
+	/**
+	 * Entity tag of this representation, from the quoted tag of the JSON one
+	 */
+	String tag(String etag) {
+		return tagSuffix.isEmpty() ? etag : etag.substring(0, etag.length() - 1) + tagSuffix + "\"";
+	}
+
+	/**
+	 * Strips the representation suffix from an unquoted tag value
+	 */
+	static String untagged(String value) {
+		return value.endsWith(SMILE.tagSuffix) ? value.substring(0, value.length() - SMILE.tagSuffix.length()) : value;
+	}
+}
@@ -0,0 +1,51 @@
+package com.bank.transaction.model;
+
+/**
+ * Outcome of one item of a batch create, reported at the item's position in the request
+ */
+public class BatchItemResult {
+	private final int index;
+	private final BatchItemStatus status;
+	private final Transaction data;
+	private final String message;
+
+	private BatchItemResult(int index, BatchItemStatus status, Transaction data, String message) {
+		this.index = index;
+		this.status = status;
+		this.data = data;
+		this.message = message;
+	}
+
+	public static BatchItemResult created(int index, Transaction data) {
+		return new BatchItemResult(index, BatchItemStatus.CREATED, data, "success");
+	}
+
+	public static BatchItemResult conflict(int index, String message) {
+		return new BatchItemResult(index, BatchItemStatus.CONFLICT, null, message);
+	}
+
+	public static BatchItemResult invalid(int index, String message) {
+		return new BatchItemResult(index, BatchItemStatus.INVALID, null, message);
+	}
+
+	/** Same outcome reported at another position, used when a sub-list result is mapped back to the request */
+	public BatchItemResult withIndex(int index) {
+		return new BatchItemResult(index, status, data, message);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public BatchItemStatus getStatus() {
+		return status;
+	}
+
+	public Transaction getData() {
+		return data;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
@@ -0,0 +1,5 @@
+package com.bank.transaction.model;
+
+public enum BatchItemStatus {
+	CREATED, CONFLICT, INVALID
+}
@@ -0,0 +1,57 @@
+package com.bank.transaction.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+
+/**
+ * Totals of the successful transactions of one card in one currency
+ * <p>
+ * Deposits and incoming transfers count as inflow, withdrawals and outgoing transfers as outflow.
+ */
+public class CardSummary {
+	private final String cardId;
+	private final Currency currency;
+	private final BigDecimal inflow;
+	private final BigDecimal outflow;
+	private final long count;
+	private final Instant lastActivity;
+
+	public CardSummary(String cardId, Currency currency, BigDecimal inflow, BigDecimal outflow, long count,
+			Instant lastActivity) {
+		this.cardId = cardId;
+		this.currency = currency;
+		this.inflow = inflow;
+		this.outflow = outflow;
+		this.count = count;
+		this.lastActivity = lastActivity;
+	}
+
+	public String getCardId() {
+		return cardId;
+	}
+
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	public BigDecimal getInflow() {
+		return inflow;
+	}
+
+	public BigDecimal getOutflow() {
+		return outflow;
+	}
+
+	public BigDecimal getNet() {
+		return inflow.subtract(outflow);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public Instant getLastActivity() {
+		return lastActivity;
+	}
+}
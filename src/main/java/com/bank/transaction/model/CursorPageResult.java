@@ -0,0 +1,28 @@
+package com.bank.transaction.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing
+ * <p>
+ * {@code nextCursor} is opaque to clients and is passed back as the {@code cursor} parameter to
+ * continue after the last returned item. It is null once the listing is exhausted; a full page
+ * always carries one, so the last page may come back empty.
+ */
+public class CursorPageResult<T> {
+	private final List<T> data;
+	private final String nextCursor;
+
+	public CursorPageResult(List<T> data, String nextCursor) {
+		this.data = data;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getData() {
+		return data;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
@@ -0,0 +1,46 @@
+package com.bank.transaction.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Transactions dated within one time bucket, in total and broken down by channel, type and status
+ * <p>
+ * A breakdown leaves out the values without transactions and the transactions without a value.
+ */
+public class StatsBucket {
+	private final Instant start;
+	private final StatsTotals total;
+	private final Map<TransactionChannel, StatsTotals> byChannel;
+	private final Map<TransactionType, StatsTotals> byType;
+	private final Map<TransactionStatus, StatsTotals> byStatus;
+
+	public StatsBucket(Instant start, StatsTotals total, Map<TransactionChannel, StatsTotals> byChannel,
+			Map<TransactionType, StatsTotals> byType, Map<TransactionStatus, StatsTotals> byStatus) {
+		this.start = start;
+		this.total = total;
+		this.byChannel = byChannel;
+		this.byType = byType;
+		this.byStatus = byStatus;
+	}
+
+	public Instant getStart() {
+		return start;
+	}
+
+	public StatsTotals getTotal() {
+		return total;
+	}
+
+	public Map<TransactionChannel, StatsTotals> getByChannel() {
+		return byChannel;
+	}
+
+	public Map<TransactionType, StatsTotals> getByType() {
+		return byType;
+	}
+
+	public Map<TransactionStatus, StatsTotals> getByStatus() {
+		return byStatus;
+	}
+}
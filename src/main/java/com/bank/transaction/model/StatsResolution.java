@@ -0,0 +1,33 @@
+package com.bank.transaction.model;
+
+import java.time.Duration;
+
+/**
+ * Width of the time buckets served by the stats endpoint
+ */
+public enum StatsResolution {
+	MINUTE(Duration.ofMinutes(1)), HOUR(Duration.ofHours(1));
+
+	private final Duration width;
+
+	StatsResolution(Duration width) {
+		this.width = width;
+	}
+
+	public Duration getWidth() {
+		return width;
+	}
+
+	/**
+	 * Parses a request parameter case-insensitively
+	 *
+	 * @throws IllegalArgumentException for an unknown resolution
+	 */
+	public static StatsResolution fromParameter(String value) {
+		try {
+			return valueOf(value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid resolution: " + value);
+		}
+	}
+}
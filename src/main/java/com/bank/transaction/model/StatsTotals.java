@@ -0,0 +1,26 @@
+package com.bank.transaction.model;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+
+/**
+ * Number of transactions and their volume per currency
+ */
+public class StatsTotals {
+	private final long count;
+	private final Map<Currency, BigDecimal> volume;
+
+	public StatsTotals(long count, Map<Currency, BigDecimal> volume) {
+		this.count = count;
+		this.volume = volume;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public Map<Currency, BigDecimal> getVolume() {
+		return volume;
+	}
+}
@@ -10,6 +10,9 @@ import java.util.Currency;
  * This entity captures all essential details of monetary operations including
  * fund transfers, payments, and withdrawals. Each transaction is uniquely
  * identified and tracks financial flow between accounts.
+ * <p>
+ * A stored transaction is an immutable snapshot: a modification stores a copy carrying the next
+ * {@link #getVersion() version} instead of changing the instance readers may hold.
  */
 public class Transaction {
 	/** Unique identifier for the transaction (UUID format) */
@@ -45,6 +48,30 @@ public class Transaction {
 	/** Origination channel (e.g., MOBILE_APP, WEB_PORTAL, ATM) */
 	private TransactionChannel channel;
 
+	/** Version of the stored transaction, 1 when created and incremented by every modification */
+	private long version;
+
+	public Transaction() {
+	}
+
+	/**
+	 * Copies every field of {@code other}
+	 */
+	public Transaction(Transaction other) {
+		this.id = other.id;
+		this.orderId = other.orderId;
+		this.type = other.type;
+		this.currency = other.currency;
+		this.amount = other.amount;
+		this.date = other.date;
+		this.cardId = other.cardId;
+		this.toCardId = other.toCardId;
+		this.description = other.description;
+		this.status = other.status;
+		this.channel = other.channel;
+		this.version = other.version;
+	}
+
 	public String getId() {
 		return id;
 	}
@@ -132,4 +159,12 @@ public class Transaction {
 	public void setChannel(TransactionChannel channel) {
 		this.channel = channel;
 	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
 }
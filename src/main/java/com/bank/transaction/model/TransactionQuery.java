@@ -0,0 +1,207 @@
+package com.bank.transaction.model;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import com.bank.transaction.util.TextTokenizer;
+
+/**
+ * Immutable, typed filter of a transaction listing
+ * <p>
+ * Request parameters are parsed once into enum and Instant fields, and the filters that are
+ * present are compiled into a single predicate, so matching a transaction checks nothing that
+ * was not asked for. Instances compare by their filter values and serve directly as cache keys.
+ * <p>
+ * Dates are inclusive at both ends; transactions without a date never match a date filter. Text
+ * is tokenized by {@link TextTokenizer} and matches descriptions holding every one of its tokens.
+ */
+public final class TransactionQuery {
+	private static final TransactionQuery ALL = new TransactionQuery(null, null, null, null, null);
+
+	private final String cardId;
+	private final TransactionStatus status;
+	private final TransactionChannel channel;
+	private final Instant startDate;
+	private final Instant endDate;
+	private final List<String> terms;
+
+	/** Every present filter except status, which is compared directly */
+	private final Predicate<Transaction> otherFilters;
+	private final int hash;
+
+	public TransactionQuery(String cardId, TransactionStatus status, TransactionChannel channel,
+			Instant startDate, Instant endDate) {
+		this(cardId, status, channel, startDate, endDate, List.of());
+	}
+
+	private TransactionQuery(String cardId, TransactionStatus status, TransactionChannel channel,
+			Instant startDate, Instant endDate, List<String> terms) {
+		this.cardId = cardId;
+		this.status = status;
+		this.channel = channel;
+		this.startDate = startDate;
+		this.endDate = endDate;
+		// sorted, so the same words in another order make the same cache key and entity tag
+		this.terms = terms.stream().sorted().toList();
+		this.otherFilters = compile(cardId, channel, startDate, endDate, this.terms);
+		this.hash = Objects.hash(cardId, status, channel, startDate, endDate, this.terms);
+	}
+
+	/** Query without any filter */
+	public static TransactionQuery all() {
+		return ALL;
+	}
+
+	/**
+	 * Parses request parameters; {@code cardId}, {@code status}, {@code channel},
+	 * {@code startDate} and {@code endDate} (ISO-8601 instants) and the description text {@code q}
+	 * are recognised, blank values are ignored and so are other parameters such as paging
+	 *
+	 * @throws IllegalArgumentException if a recognised parameter has an invalid value
+	 */
+	public static TransactionQuery fromParameters(Map<String, String> parameters) {
+		return new TransactionQuery(
+				text(parameters, "cardId"),
+				parseEnum(parameters, "status", TransactionStatus.class),
+				parseEnum(parameters, "channel", TransactionChannel.class),
+				parseInstant(parameters, "startDate"),
+				parseInstant(parameters, "endDate"),
+				TextTokenizer.tokenize(text(parameters, "q")));
+	}
+
+	public TransactionQuery withCardId(String cardId) {
+		return new TransactionQuery(cardId, status, channel, startDate, endDate, terms);
+	}
+
+	public TransactionQuery withStatus(TransactionStatus status) {
+		return new TransactionQuery(cardId, status, channel, startDate, endDate, terms);
+	}
+
+	public TransactionQuery withChannel(TransactionChannel channel) {
+		return new TransactionQuery(cardId, status, channel, startDate, endDate, terms);
+	}
+
+	public TransactionQuery withDateRange(Instant startDate, Instant endDate) {
+		return new TransactionQuery(cardId, status, channel, startDate, endDate, terms);
+	}
+
+	/**
+	 * Copy matching only descriptions that hold every token of the text; null or text without
+	 * tokens removes the filter
+	 */
+	public TransactionQuery withText(String text) {
+		return new TransactionQuery(cardId, status, channel, startDate, endDate, TextTokenizer.tokenize(text));
+	}
+
+	public boolean matches(Transaction transaction) {
+		return (status == null || status == transaction.getStatus()) && otherFilters.test(transaction);
+	}
+
+	public String getCardId() {
+		return cardId;
+	}
+
+	public TransactionStatus getStatus() {
+		return status;
+	}
+
+	public TransactionChannel getChannel() {
+		return channel;
+	}
+
+	public Instant getStartDate() {
+		return startDate;
+	}
+
+	public Instant getEndDate() {
+		return endDate;
+	}
+
+	/** Distinct tokens of the text filter in lexicographic order, empty without one */
+	public List<String> getTerms() {
+		return terms;
+	}
+
+	private static Predicate<Transaction> compile(String cardId, TransactionChannel channel,
+			Instant startDate, Instant endDate, List<String> terms) {
+		Predicate<Transaction> predicate = null;
+		if (cardId != null) {
+			predicate = and(predicate, t -> cardId.equals(t.getCardId()));
+		}
+		if (channel != null) {
+			predicate = and(predicate, t -> t.getChannel() == channel);
+		}
+		if (startDate != null && endDate != null) {
+			predicate = and(predicate, t -> t.getDate() != null && !t.getDate().isBefore(startDate) && !t.getDate().isAfter(endDate));
+		} else if (startDate != null) {
+			predicate = and(predicate, t -> t.getDate() != null && !t.getDate().isBefore(startDate));
+		} else if (endDate != null) {
+			predicate = and(predicate, t -> t.getDate() != null && !t.getDate().isAfter(endDate));
+		}
+		if (!terms.isEmpty()) {
+			predicate = and(predicate, t -> TextTokenizer.containsAll(t.getDescription(), terms));
+		}
+		return predicate == null ? t -> true : predicate;
+	}
+
+	private static Predicate<Transaction> and(Predicate<Transaction> first, Predicate<Transaction> second) {
+		return first == null ? second : first.and(second);
+	}
+
+	private static String text(Map<String, String> parameters, String name) {
+		String value = parameters.get(name);
+		return value == null || value.isBlank() ? null : value.trim();
+	}
+
+	private static <E extends Enum<E>> E parseEnum(Map<String, String> parameters, String name, Class<E> type) {
+		String value = text(parameters, name);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Enum.valueOf(type, value.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid " + name + ": " + value);
+		}
+	}
+
+	private static Instant parseInstant(Map<String, String> parameters, String name) {
+		String value = text(parameters, name);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Instant.parse(value);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid " + name + ": " + value);
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof TransactionQuery other)) {
+			return false;
+		}
+		return Objects.equals(cardId, other.cardId) && status == other.status && channel == other.channel
+				&& Objects.equals(startDate, other.startDate) && Objects.equals(endDate, other.endDate)
+				&& terms.equals(other.terms);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return "TransactionQuery{cardId=" + cardId + ", status=" + status + ", channel=" + channel
+				+ ", startDate=" + startDate + ", endDate=" + endDate + ", q=" + String.join(" ", terms) + "}";
+	}
+}
@@ -0,0 +1,35 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Fixed-point amounts for the aggregates kept next to the stores: amounts are summed as longs in
+ * units of 10^-{@value #SCALE}, which covers the minor units of every ISO currency
+ */
+public final class AmountUnits {
+	static final int SCALE = 4;
+
+	/** Largest amount whose units fit in a long; validation rejects larger ones for every engine */
+	public static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(Long.MAX_VALUE, SCALE);
+
+	private AmountUnits() {
+	}
+
+	/**
+	 * @throws ArithmeticException if the amount is larger than {@link #MAX_AMOUNT}
+	 */
+	static long toUnits(BigDecimal amount) {
+		return amount.movePointRight(SCALE).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+	}
+
+	/**
+	 * Converts a sum back to an amount at the currency's minor units, or finer if the sum needs it
+	 */
+	static BigDecimal toAmount(long units, Currency currency) {
+		BigDecimal amount = BigDecimal.valueOf(units, SCALE).stripTrailingZeros();
+		int digits = Math.max(currency.getDefaultFractionDigits(), 0);
+		return amount.scale() < digits ? amount.setScale(digits) : amount;
+	}
+}
@@ -0,0 +1,92 @@
+package com.bank.transaction.repository;
+
+/**
+ * Blocked Bloom filter over strings, answering "definitely absent" or "possibly present"
+ * <p>
+ * Features:
+ * <p>
+ * 1. Each key sets one bit in each of the eight longs of a single 512-bit block, so a probe
+ * touches one cache line
+ * <p>
+ * 2. Keys are hashed to 64 bits straight from their chars, without encoding them to bytes, so
+ * neither adding nor probing allocates
+ * <p>
+ * 3. The block is chosen by the high half of the hash and the bit in each long by the low half
+ * multiplied by a per-long odd constant, which spreads the eight bits independently
+ * <p>
+ * At {@value #DEFAULT_BITS_PER_KEY} bits per key the false-positive rate is about 1%. Adding is
+ * not thread-safe: a filter is filled once and then only read, and must be published safely.
+ */
+public final class BloomFilter {
+	public static final int DEFAULT_BITS_PER_KEY = 10;
+
+	private static final int WORDS_PER_BLOCK = 8;
+	private static final int BITS_PER_BLOCK = WORDS_PER_BLOCK * Long.SIZE;
+	private static final int[] SALTS = {
+			0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31};
+
+	private final long[] words;
+	private final long blocks;
+
+	/**
+	 * @param expectedKeys number of keys the filter is sized for; more raise the false-positive rate
+	 * @param bitsPerKey bits of filter per expected key
+	 */
+	public BloomFilter(long expectedKeys, int bitsPerKey) {
+		long bits = Math.max(expectedKeys, 1) * Math.max(bitsPerKey, 1);
+		this.blocks = Math.max(1, (bits + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK);
+		this.words = new long[Math.toIntExact(blocks * WORDS_PER_BLOCK)];
+	}
+
+	public void add(String key) {
+		long hash = hash(key);
+		int base = blockOf(hash);
+		int low = (int) hash;
+		for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+			words[base + i] |= 1L << ((low * SALTS[i]) >>> 26);
+		}
+	}
+
+	/**
+	 * @return false if the key was never added; true if it may have been
+	 */
+	public boolean mightContain(String key) {
+		long hash = hash(key);
+		int base = blockOf(hash);
+		int low = (int) hash;
+		for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+			if ((words[base + i] & (1L << ((low * SALTS[i]) >>> 26))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Size of the bit array in bytes */
+	public long sizeInBytes() {
+		return (long) words.length * Long.BYTES;
+	}
+
+	private int blockOf(long hash) {
+		// multiply-shift maps the high 32 bits onto [0, blocks) without a division
+		return (int) (((hash >>> 32) * blocks) >>> 32) * WORDS_PER_BLOCK;
+	}
+
+	/**
+	 * 64-bit FNV-1a over the UTF-16 chars followed by the MurmurHash3 finaliser, whose avalanche
+	 * makes both halves usable as independent hashes
+	 */
+	private static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
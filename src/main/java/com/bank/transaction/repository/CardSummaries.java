@@ -0,0 +1,129 @@
+package com.bank.transaction.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionStatus;
+
+/**
+ * Per-card, per-currency totals of successful transactions, maintained on every write so a
+ * summary is read without scanning the card's transactions
+ * <p>
+ * Totals are striped {@link LongAdder}s of {@link AmountUnits}, so concurrent
+ * writers to the same card do not contend on one counter. A transfer is an outflow of its card and
+ * an inflow of its receiving card. The last activity is the newest date ever counted; it is not
+ * moved back when that transaction is deleted or stops being successful.
+ */
+final class CardSummaries {
+	private final Map<String, Map<Currency, Totals>> cards = new ConcurrentHashMap<>();
+
+	void add(Transaction transaction) {
+		apply(transaction, transaction.getStatus(), 1);
+	}
+
+	void remove(Transaction transaction) {
+		apply(transaction, transaction.getStatus(), -1);
+	}
+
+	/**
+	 * Moves the transaction in or out of the totals when its status changes to or from SUCCESS
+	 */
+	void statusChanged(Transaction transaction, TransactionStatus previousStatus) {
+		apply(transaction, previousStatus, -1);
+		apply(transaction, transaction.getStatus(), 1);
+	}
+
+	/**
+	 * @return one summary per currency the card has successful transactions in, ordered by currency code
+	 */
+	List<CardSummary> get(String cardId) {
+		Map<Currency, Totals> byCurrency = cards.get(cardId);
+		if (byCurrency == null) {
+			return List.of();
+		}
+		List<CardSummary> summaries = new ArrayList<>(byCurrency.size());
+		byCurrency.forEach((currency, totals) -> {
+			long count = totals.count.sum();
+			if (count > 0) {
+				long lastActivity = totals.lastActivity.get();
+				summaries.add(new CardSummary(cardId, currency,
+						AmountUnits.toAmount(totals.inflow.sum(), currency),
+						AmountUnits.toAmount(totals.outflow.sum(), currency), count,
+						lastActivity == Long.MIN_VALUE ? null : Instant.ofEpochMilli(lastActivity)));
+			}
+		});
+		summaries.sort(Comparator.comparing(summary -> summary.getCurrency().getCurrencyCode()));
+		return summaries;
+	}
+
+	/**
+	 * Adds up the summaries of the same card kept by several stores
+	 */
+	static List<CardSummary> merge(List<List<CardSummary>> parts) {
+		Map<Currency, CardSummary> merged = new LinkedHashMap<>();
+		for (List<CardSummary> part : parts) {
+			for (CardSummary summary : part) {
+				merged.merge(summary.getCurrency(), summary, (a, b) -> new CardSummary(a.getCardId(), a.getCurrency(),
+						a.getInflow().add(b.getInflow()), a.getOutflow().add(b.getOutflow()), a.getCount() + b.getCount(),
+						latest(a.getLastActivity(), b.getLastActivity())));
+			}
+		}
+		List<CardSummary> summaries = new ArrayList<>(merged.values());
+		summaries.sort(Comparator.comparing(summary -> summary.getCurrency().getCurrencyCode()));
+		return summaries;
+	}
+
+	private void apply(Transaction transaction, TransactionStatus status, int sign) {
+		if (status != TransactionStatus.SUCCESS || transaction.getType() == null
+				|| transaction.getCurrency() == null || transaction.getAmount() == null) {
+			return;
+		}
+		long units = sign * AmountUnits.toUnits(transaction.getAmount());
+		switch (transaction.getType()) {
+			case DEPOSIT -> record(transaction.getCardId(), transaction, units, 0, sign);
+			case WITHDRAW -> record(transaction.getCardId(), transaction, 0, units, sign);
+			case TRANSFER -> {
+				record(transaction.getCardId(), transaction, 0, units, sign);
+				record(transaction.getToCardId(), transaction, units, 0, sign);
+			}
+		}
+	}
+
+	private void record(String cardId, Transaction transaction, long inflow, long outflow, int sign) {
+		if (cardId == null) {
+			return;
+		}
+		Totals totals = cards.computeIfAbsent(cardId, card -> new ConcurrentHashMap<>())
+				.computeIfAbsent(transaction.getCurrency(), currency -> new Totals());
+		totals.inflow.add(inflow);
+		totals.outflow.add(outflow);
+		totals.count.add(sign);
+		if (sign > 0 && transaction.getDate() != null) {
+			totals.lastActivity.accumulate(transaction.getDate().toEpochMilli());
+		}
+	}
+
+	private static Instant latest(Instant a, Instant b) {
+		if (a == null) {
+			return b;
+		}
+		return b == null || a.isAfter(b) ? a : b;
+	}
+
+	private static final class Totals {
+		final LongAdder inflow = new LongAdder();
+		final LongAdder outflow = new LongAdder();
+		final LongAdder count = new LongAdder();
+		final LongAccumulator lastActivity = new LongAccumulator(Math::max, Long.MIN_VALUE);
+	}
+}
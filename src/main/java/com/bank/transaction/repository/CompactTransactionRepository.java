@@ -0,0 +1,654 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+import com.bank.transaction.util.TextTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Memory-compact implementation of transaction repository, enabled with
+ * {@code transaction.repository.type=compact}
+ * <p>
+ * Features:
+ * <p>
+ * 1. Column-per-field storage in primitive arrays indexed by row number, so a stored transaction
+ * costs no object headers or references: the UUID is two longs, the amount a scaled long of at
+ * least the currency's minor units, the date epoch milliseconds, enums their ordinal byte
+ * <p>
+ * 2. Card IDs and currencies are dictionary-encoded; orderIds and descriptions are packed into a
+ * {@link StringArena}
+ * <p>
+ * 3. ID and orderId lookups go through open-addressing {@link RowIndex} tables of plain ints,
+ * and each card keeps the list of its rows
+ * <p>
+ * 4. {@link Transaction} objects are materialised only for results leaving the repository
+ * <p>
+ * 5. Queries scan the card's rows, or all rows, comparing primitives, and order matches like the
+ * in-memory store (newest first, then by ID), keeping only the rows up to the end of the requested
+ * page in a bounded heap; a text filter decodes the description of the rows that pass the other
+ * filters, since this store keeps no inverted index
+ * <p>
+ * 6. Per-card summaries of successful transactions and per-minute and per-hour rollups, updated
+ * by every write
+ * <p>
+ * Each row keeps a version that a modification checks and increments under the write lock, which
+ * makes it the same compare-and-swap as in the in-memory store. Dates are kept to millisecond
+ * precision. Deleted rows become tombstones and replaced
+ * descriptions are not reclaimed, which suits an append-mostly ledger. Writes take a write lock and
+ * reads a shared read lock; the write-ahead journal is only supported by the in-memory store.
+ */
+@Repository
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "compact")
+public class CompactTransactionRepository implements ITransactionRepository {
+	private final static Logger LOGGER = LoggerFactory.getLogger(CompactTransactionRepository.class);
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final byte NULL_ORDINAL = -1;
+	private static final byte NULL_SCALE = Byte.MIN_VALUE;
+	private static final long NULL_DATE = Long.MIN_VALUE;
+
+	private static final TransactionType[] TYPES = TransactionType.values();
+	private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+	private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final StringDictionary cards = new StringDictionary();
+	private final StringDictionary currencies = new StringDictionary();
+	private final StringArena strings = new StringArena();
+	private final RowIndex byId = new RowIndex(this::idHash);
+	private final RowIndex byOrderId = new RowIndex(this::orderIdHash);
+	private final List<RowList> rowsByCard = new ArrayList<>();
+	private final BitSet deleted = new BitSet();
+	private final CardSummaries cardSummaries = new CardSummaries();
+	private final TransactionRollups rollups = new TransactionRollups();
+
+	private int rows;
+	private long[] idHigh = new long[INITIAL_CAPACITY];
+	private long[] idLow = new long[INITIAL_CAPACITY];
+	private long[] orderId = new long[INITIAL_CAPACITY];
+	private int[] orderIdHash = new int[INITIAL_CAPACITY];
+	private byte[] type = new byte[INITIAL_CAPACITY];
+	private short[] currency = new short[INITIAL_CAPACITY];
+	private long[] amountUnscaled = new long[INITIAL_CAPACITY];
+	private byte[] amountScale = new byte[INITIAL_CAPACITY];
+	private long[] dateMillis = new long[INITIAL_CAPACITY];
+	private int[] cardId = new int[INITIAL_CAPACITY];
+	private int[] toCardId = new int[INITIAL_CAPACITY];
+	private long[] description = new long[INITIAL_CAPACITY];
+	private byte[] status = new byte[INITIAL_CAPACITY];
+	private byte[] channel = new byte[INITIAL_CAPACITY];
+	private int[] version = new int[INITIAL_CAPACITY];
+
+	@Override
+	public Transaction createTransaction(Transaction transaction) {
+		UUID id = UUID.fromString(TransactionIds.next());
+		lock.writeLock().lock();
+		try {
+			Transaction stored = claim(transaction, id);
+			if (stored == null) {
+				throw new TransactionAlreadyExistsException("Transaction with order ID already exists");
+			}
+			return stored;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public List<BatchItemResult> createTransactions(List<Transaction> batch) {
+		UUID[] ids = TransactionIds.nextUuids(batch.size());
+		List<BatchItemResult> results = new ArrayList<>(batch.size());
+		lock.writeLock().lock();
+		try {
+			for (int i = 0; i < batch.size(); i++) {
+				Transaction stored = claim(batch.get(i), ids[i]);
+				results.add(stored == null
+						? BatchItemResult.conflict(i, "Transaction with order ID already exists")
+						: BatchItemResult.created(i, stored));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return results;
+	}
+
+	@Override
+	public void deleteTransaction(String id) {
+		lock.writeLock().lock();
+		try {
+			int row = rowOf(id);
+			if (row < 0) {
+				LOGGER.error("Transaction with ID {} not found", id);
+				throw new TransactionNotFoundException("Transaction not found");
+			}
+			Transaction removed = materialize(row);
+			cardSummaries.remove(removed);
+			rollups.remove(removed);
+			byId.remove(idHash(row), row);
+			byOrderId.remove(orderIdHash[row], row);
+			deleted.set(row);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Transaction modifyTransaction(String id, Transaction transaction, long expectedVersion) {
+		lock.writeLock().lock();
+		try {
+			int row = rowOf(id);
+			if (row < 0) {
+				LOGGER.error("Transaction with ID {} not found", id);
+				throw new TransactionNotFoundException("Transaction not found");
+			}
+			if (version[row] != expectedVersion) {
+				return null;
+			}
+			version[row]++;
+			byte previousStatus = status[row];
+			status[row] = ordinal(transaction.getStatus());
+			description[row] = strings.append(transaction.getDescription());
+			Transaction modified = materialize(row);
+			if (previousStatus != status[row]) {
+				TransactionStatus previous = previousStatus == NULL_ORDINAL ? null : STATUSES[previousStatus];
+				cardSummaries.statusChanged(modified, previous);
+				rollups.statusChanged(modified, previous);
+			}
+			return modified;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public PageResult<Transaction> listAllTransactions(int page, int pageSize, TransactionQuery query) {
+		lock.readLock().lock();
+		try {
+			long end = (Math.max(page, 0) + 1L) * Math.max(pageSize, 0);
+			Selection selection = select(query, null, (int) Math.min(end, Integer.MAX_VALUE));
+			int[] matches = selection.rows();
+			int fromIndex = (int) Math.min(end - Math.max(pageSize, 0), matches.length);
+			List<Transaction> pageData = new ArrayList<>(matches.length - fromIndex);
+			for (int i = fromIndex; i < matches.length; i++) {
+				pageData.add(materialize(matches[i]));
+			}
+			return new PageResult<>(pageData, selection.total());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public CursorPageResult<Transaction> listTransactionsByCursor(String cursor, int pageSize, TransactionQuery query) {
+		TransactionKey after = TransactionKey.fromCursor(cursor);
+		lock.readLock().lock();
+		try {
+			int[] matches = select(query, after, Math.max(pageSize, 0)).rows();
+			int count = matches.length;
+			List<Transaction> pageData = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				pageData.add(materialize(matches[i]));
+			}
+			String nextCursor = pageSize > 0 && count == pageSize
+					? TransactionKey.of(pageData.get(count - 1)).toCursor()
+					: null;
+			return new CursorPageResult<>(pageData, nextCursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Stream<Transaction> streamTransactions(TransactionQuery query) {
+		int[] matches;
+		lock.readLock().lock();
+		try {
+			matches = select(query, null, Integer.MAX_VALUE).rows();
+		} finally {
+			lock.readLock().unlock();
+		}
+		// rows are never reused, so each one is re-read under the lock only when the stream reaches it
+		return IntStream.of(matches).mapToObj(row -> {
+			lock.readLock().lock();
+			try {
+				return deleted.get(row) ? null : materialize(row);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}).filter(Objects::nonNull);
+	}
+
+	@Override
+	public Transaction getTransactionById(String id) {
+		lock.readLock().lock();
+		try {
+			int row = rowOf(id);
+			return row < 0 ? null : materialize(row);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean existsByOrderId(String orderId) {
+		lock.readLock().lock();
+		try {
+			return rowOfOrderId(orderId) >= 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<CardSummary> getCardSummaries(String cardId) {
+		lock.readLock().lock();
+		try {
+			return cardSummaries.get(cardId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<StatsBucket> getStats(StatsResolution resolution, int buckets) {
+		return rollups.stats(resolution, buckets);
+	}
+
+	/**
+	 * Besides the live transactions, {@code rows} counts the tombstones of deleted ones
+	 */
+	@Override
+	public Map<String, Long> sizes() {
+		lock.readLock().lock();
+		try {
+			return Map.of(
+					"transactions", (long) byId.size(),
+					"orderIds", (long) byOrderId.size(),
+					"cardIds", (long) cards.size(),
+					"rows", (long) rows);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Approximate bytes held by the store: every column, the lookup tables and the string arena,
+	 * excluding the dictionaries whose size depends on the number of distinct cards
+	 */
+	public long footprintBytes() {
+		lock.readLock().lock();
+		try {
+			long perRowColumns = 8 + 8 + 8 + 4 + 1 + 2 + 8 + 1 + 8 + 4 + 4 + 8 + 1 + 1 + 4;
+			long cardLists = rowsByCard.stream().mapToLong(list -> (long) list.rows.length * Integer.BYTES).sum();
+			return perRowColumns * idHigh.length + byId.capacity() + byOrderId.capacity() + strings.capacity()
+					+ cardLists + deleted.size() / 8;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Appends the transaction under the given ID unless its orderId is taken. Runs under the write lock.
+	 *
+	 * @return the stored transaction, or the existing one for an identical retry, or null if the
+	 * orderId belongs to a different payload
+	 */
+	private Transaction claim(Transaction transaction, UUID id) {
+		int existing = rowOfOrderId(transaction.getOrderId());
+		if (existing >= 0) {
+			Transaction stored = materialize(existing);
+			if (IdempotentReplay.matches(stored, normalized(transaction))) {
+				LOGGER.info("Replaying transaction {} for order ID {}", stored.getId(), transaction.getOrderId());
+				return stored;
+			}
+			LOGGER.warn("Transaction with order ID {} already exists", transaction.getOrderId());
+			return null;
+		}
+		Transaction stored = materialize(append(transaction, id));
+		cardSummaries.add(stored);
+		rollups.add(stored);
+		return stored;
+	}
+
+	private int append(Transaction t, UUID id) {
+		BigDecimal amount = encodeAmount(t.getAmount(), t.getCurrency());
+		ensureCapacity(rows + 1);
+		int row = rows;
+		idHigh[row] = id.getMostSignificantBits();
+		idLow[row] = id.getLeastSignificantBits();
+		orderId[row] = strings.append(t.getOrderId());
+		orderIdHash[row] = Objects.hashCode(t.getOrderId());
+		type[row] = ordinal(t.getType());
+		currency[row] = (short) currencies.encode(t.getCurrency() == null ? null : t.getCurrency().getCurrencyCode());
+		amountUnscaled[row] = amount == null ? 0 : amount.unscaledValue().longValue();
+		amountScale[row] = amount == null ? NULL_SCALE : (byte) amount.scale();
+		dateMillis[row] = t.getDate() == null ? NULL_DATE : t.getDate().toEpochMilli();
+		cardId[row] = cards.encode(t.getCardId());
+		toCardId[row] = cards.encode(t.getToCardId());
+		description[row] = strings.append(t.getDescription());
+		status[row] = ordinal(t.getStatus());
+		channel[row] = ordinal(t.getChannel());
+		version[row] = 1;
+		rows++;
+
+		byId.insert(idHash(row), row);
+		byOrderId.insert(orderIdHash[row], row);
+		if (cardId[row] != StringDictionary.NULL) {
+			while (rowsByCard.size() <= cardId[row]) {
+				rowsByCard.add(new RowList());
+			}
+			rowsByCard.get(cardId[row]).add(row);
+		}
+		return row;
+	}
+
+	/**
+	 * The first {@code limit} rows, sorted newest first, of those matching the filters and
+	 * positioned after the cursor key, and the number of all such rows; runs under the read lock
+	 * <p>
+	 * When fewer rows are wanted than scanned, a max-heap of the {@code limit} best rows so far
+	 * replaces its worst whenever a better one matches, so a page costs {@code O(rows log limit)}
+	 * and {@code limit} ints rather than copying and sorting every match.
+	 */
+	private Selection select(TransactionQuery query, TransactionKey after, int limit) {
+		RowList candidates = null;
+		if (query.getCardId() != null) {
+			int code = cards.find(query.getCardId());
+			if (code == StringDictionary.NULL || code >= rowsByCard.size()) {
+				return new Selection(new int[0], 0);
+			}
+			candidates = rowsByCard.get(code);
+		}
+		byte wantedStatus = ordinal(query.getStatus());
+		byte wantedChannel = ordinal(query.getChannel());
+		Instant startDate = query.getStartDate();
+		Instant endDate = query.getEndDate();
+		List<String> terms = query.getTerms();
+		boolean dated = startDate != null || endDate != null;
+		long fromMillis = startDate == null ? Long.MIN_VALUE
+				: startDate.toEpochMilli() + (startDate.getNano() % 1_000_000 == 0 ? 0 : 1);
+		long toMillis = endDate == null ? Long.MAX_VALUE : endDate.toEpochMilli();
+
+		int count = candidates == null ? rows : candidates.size;
+		int kept = Math.min(limit, count);
+		boolean bounded = kept < count;
+		int[] matches = new int[kept];
+		int size = 0;
+		int total = 0;
+		for (int i = 0; i < count; i++) {
+			int row = candidates == null ? i : candidates.rows[i];
+			if (deleted.get(row)
+					|| (wantedStatus != NULL_ORDINAL && status[row] != wantedStatus)
+					|| (wantedChannel != NULL_ORDINAL && channel[row] != wantedChannel)
+					|| (dated && (dateMillis[row] == NULL_DATE || dateMillis[row] < fromMillis || dateMillis[row] > toMillis))
+					|| (after != null && compareToKey(row, after) <= 0)
+					|| (!terms.isEmpty() && !TextTokenizer.containsAll(strings.get(description[row]), terms))) {
+				continue;
+			}
+			total++;
+			if (!bounded || size < kept) {
+				matches[size++] = row;
+				if (bounded) {
+					siftUp(matches, size - 1);
+				}
+			} else if (kept > 0 && compareRows(row, matches[0]) < 0) {
+				matches[0] = row;
+				siftDown(matches, 0, kept);
+			}
+		}
+		if (bounded) {
+			// heap sort: moving the worst row to the end each time leaves them best first
+			for (int end = size - 1; end > 0; end--) {
+				int worst = matches[0];
+				matches[0] = matches[end];
+				matches[end] = worst;
+				siftDown(matches, 0, end);
+			}
+		} else {
+			sort(matches, new int[size], 0, size);
+		}
+		return new Selection(size == matches.length ? matches : Arrays.copyOf(matches, size), total);
+	}
+
+	/**
+	 * Restores the max-heap after adding the entry at {@code i}; by {@link #compareRows}, the root
+	 * is the row that sorts last
+	 */
+	private void siftUp(int[] heap, int i) {
+		int row = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (compareRows(heap[parent], row) >= 0) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = row;
+	}
+
+	/** Restores the max-heap of the first {@code size} entries after replacing the one at {@code i} */
+	private void siftDown(int[] heap, int i, int size) {
+		int row = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && compareRows(heap[child + 1], heap[child]) > 0) {
+				child++;
+			}
+			if (compareRows(row, heap[child]) >= 0) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = row;
+	}
+
+	/** Merge sort on row numbers by {@link #compareRows}, avoiding boxed comparators */
+	private void sort(int[] order, int[] buffer, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sort(order, buffer, from, mid);
+		sort(order, buffer, mid, to);
+		if (compareRows(order[mid - 1], order[mid]) <= 0) {
+			return;
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		for (int i = from, left = from, right = mid; i < to; i++) {
+			if (right >= to || (left < mid && compareRows(buffer[left], buffer[right]) <= 0)) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+
+	/**
+	 * Same order as {@link TransactionKey}: newest first with undated rows last, then by ID. UUID
+	 * strings compare like their two halves as unsigned numbers.
+	 */
+	private int compareRows(int a, int b) {
+		if (dateMillis[a] != dateMillis[b]) {
+			if (dateMillis[a] == NULL_DATE || dateMillis[b] == NULL_DATE) {
+				return dateMillis[a] == NULL_DATE ? 1 : -1;
+			}
+			return Long.compare(dateMillis[b], dateMillis[a]);
+		}
+		int high = Long.compareUnsigned(idHigh[a], idHigh[b]);
+		return high != 0 ? high : Long.compareUnsigned(idLow[a], idLow[b]);
+	}
+
+	private int compareToKey(int row, TransactionKey key) {
+		Instant date = dateMillis[row] == NULL_DATE ? null : Instant.ofEpochMilli(dateMillis[row]);
+		if (!Objects.equals(date, key.getDate())) {
+			return TransactionKey.first(date).compareTo(TransactionKey.first(key.getDate()));
+		}
+		return idString(row).compareTo(key.getId());
+	}
+
+	private Transaction materialize(int row) {
+		Transaction t = new Transaction();
+		t.setId(idString(row));
+		t.setOrderId(strings.get(orderId[row]));
+		t.setType(type[row] == NULL_ORDINAL ? null : TYPES[type[row]]);
+		String currencyCode = currencies.decode(currency[row]);
+		t.setCurrency(currencyCode == null ? null : Currency.getInstance(currencyCode));
+		t.setAmount(amountScale[row] == NULL_SCALE ? null : BigDecimal.valueOf(amountUnscaled[row], amountScale[row]));
+		t.setDate(dateMillis[row] == NULL_DATE ? null : Instant.ofEpochMilli(dateMillis[row]));
+		t.setCardId(cards.decode(cardId[row]));
+		t.setToCardId(cards.decode(toCardId[row]));
+		t.setDescription(strings.get(description[row]));
+		t.setStatus(status[row] == NULL_ORDINAL ? null : STATUSES[status[row]]);
+		t.setChannel(channel[row] == NULL_ORDINAL ? null : CHANNELS[channel[row]]);
+		t.setVersion(version[row]);
+		return t;
+	}
+
+	/** The request as it would read back once stored, so retries compare equal after rounding the date */
+	private static Transaction normalized(Transaction request) {
+		if (request.getDate() == null || request.getDate().getNano() % 1_000_000 == 0) {
+			return request;
+		}
+		Transaction copy = new Transaction();
+		copy.setOrderId(request.getOrderId());
+		copy.setType(request.getType());
+		copy.setCurrency(request.getCurrency());
+		copy.setAmount(request.getAmount());
+		copy.setDate(Instant.ofEpochMilli(request.getDate().toEpochMilli()));
+		copy.setCardId(request.getCardId());
+		copy.setToCardId(request.getToCardId());
+		copy.setDescription(request.getDescription());
+		copy.setChannel(request.getChannel());
+		return copy;
+	}
+
+	/**
+	 * Scales the amount to at least the currency's minor units, e.g. 1500 CNY is stored as 150000
+	 * at scale 2, and checks the unscaled value fits in a long
+	 */
+	private static BigDecimal encodeAmount(BigDecimal amount, Currency currency) {
+		if (amount == null) {
+			return null;
+		}
+		int minorUnits = currency == null ? 0 : Math.max(currency.getDefaultFractionDigits(), 0);
+		BigDecimal scaled = amount.setScale(Math.max(Math.max(amount.scale(), minorUnits), 0));
+		BigInteger unscaled = scaled.unscaledValue();
+		if (unscaled.bitLength() > 63 || scaled.scale() > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("Amount is out of the supported range");
+		}
+		return scaled;
+	}
+
+	private int rowOf(String id) {
+		UUID uuid;
+		try {
+			uuid = UUID.fromString(id);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+		long high = uuid.getMostSignificantBits();
+		long low = uuid.getLeastSignificantBits();
+		return byId.find(Long.hashCode(high ^ low), row -> idHigh[row] == high && idLow[row] == low);
+	}
+
+	private int rowOfOrderId(String value) {
+		if (value == null) {
+			return -1;
+		}
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		int hash = value.hashCode();
+		return byOrderId.find(hash, row -> orderIdHash[row] == hash && strings.equals(orderId[row], utf8));
+	}
+
+	private int idHash(int row) {
+		return Long.hashCode(idHigh[row] ^ idLow[row]);
+	}
+
+	private int orderIdHash(int row) {
+		return orderIdHash[row];
+	}
+
+	private String idString(int row) {
+		return new UUID(idHigh[row], idLow[row]).toString();
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= idHigh.length) {
+			return;
+		}
+		int grown = Math.max(capacity, idHigh.length + (idHigh.length >> 1));
+		idHigh = Arrays.copyOf(idHigh, grown);
+		idLow = Arrays.copyOf(idLow, grown);
+		orderId = Arrays.copyOf(orderId, grown);
+		orderIdHash = Arrays.copyOf(orderIdHash, grown);
+		type = Arrays.copyOf(type, grown);
+		currency = Arrays.copyOf(currency, grown);
+		amountUnscaled = Arrays.copyOf(amountUnscaled, grown);
+		amountScale = Arrays.copyOf(amountScale, grown);
+		dateMillis = Arrays.copyOf(dateMillis, grown);
+		cardId = Arrays.copyOf(cardId, grown);
+		toCardId = Arrays.copyOf(toCardId, grown);
+		description = Arrays.copyOf(description, grown);
+		status = Arrays.copyOf(status, grown);
+		channel = Arrays.copyOf(channel, grown);
+		version = Arrays.copyOf(version, grown);
+	}
+
+	private static byte ordinal(Enum<?> value) {
+		return value == null ? NULL_ORDINAL : (byte) value.ordinal();
+	}
+
+	/** The first rows in order of a selection, and the number of rows matching in total */
+	private record Selection(int[] rows, int total) {
+	}
+
+	/** Growable list of row numbers, one per card */
+	private static final class RowList {
+		private int[] rows = new int[4];
+		private int size;
+
+		void add(int row) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			rows[size++] = row;
+		}
+	}
+}
@@ -0,0 +1,526 @@
+package com.bank.transaction.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import com.bank.transaction.util.TextTokenizer;
+
+/**
+ * Inverted index from description tokens to the keys of the transactions whose description holds them
+ * <p>
+ * Features:
+ * <p>
+ * 1. Every indexed description becomes a document numbered in increasing order, so posting lists
+ * only ever grow at their end and are stored as variable-length deltas between document
+ * numbers, typically one or two bytes an entry
+ * <p>
+ * 2. Every {@value #SKIP_INTERVAL}th entry of a list records its byte offset, so intersecting a
+ * long list with a short one jumps over the blocks that cannot match instead of decoding them
+ * <p>
+ * 3. A search decodes the shortest list of its tokens and intersects the others into it, then
+ * returns the keys in the date window, newest first
+ * <p>
+ * 4. Removing a description only marks its document dead; a list is re-encoded without its dead
+ * entries once they outnumber the live ones, which keeps removal amortised constant
+ * <p>
+ * 5. Writers lock only the tokens they touch, through {@value #TOKEN_LOCK_STRIPES} striped locks
+ * taken in ascending order. A document is numbered while the locks of all its tokens are held, so
+ * writers sharing a token append to its list in number order and writers sharing none run in
+ * parallel.
+ * <p>
+ * 6. Searches take no lock: each list publishes an immutable snapshot after every change, and an
+ * append only writes past the end of the bytes earlier snapshots decode
+ * <p>
+ * 7. Numbers are not reused one by one, so the table of documents grows with every add, dead
+ * documents included. Whenever a chunk of 2^{@value #CHUNK_BITS} numbers has been handed
+ * out and dead documents outnumber live ones, the live documents are renumbered from 0 in their
+ * current order: the table and every list are rebuilt and published as a new {@link Numbering}
+ * while all locks are held, so writers pause for a pass over the index and searches keep decoding
+ * the numbering they started with. An index whose {@value #MAX_DOCUMENTS} numbers are all live
+ * rejects further adds with {@link IllegalStateException}.
+ * <p>
+ * A changed description is removed and added again under a new number. Callers pass the same
+ * description to {@link #remove} that they added, and never add or remove one transaction
+ * concurrently. A search may still return a key whose document died while it ran; callers
+ * re-check the transaction.
+ */
+final class DescriptionIndex {
+	private static final int SKIP_INTERVAL = 128;
+	private static final int TOKEN_LOCK_STRIPES = 1024;
+	private static final int ID_STRIPES = 64;
+	private static final int CHUNK_BITS = 14;
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+	/** Document numbers available to one numbering, the last whole chunk below 2^31 */
+	private static final int MAX_DOCUMENTS = Integer.MAX_VALUE & ~CHUNK_MASK;
+	private static final int[] NO_SKIPS = new int[0];
+
+	private final ReentrantLock[] tokenLocks = new ReentrantLock[TOKEN_LOCK_STRIPES];
+
+	/** Documents and lists of the current numbering, replaced only while every lock is held */
+	private volatile Numbering numbering = new Numbering(new TransactionKey[16][]);
+	private final Object growLock = new Object();
+	private final AtomicInteger documentCount = new AtomicInteger();
+
+	/** Document of each live transaction ID, in stripes guarded by themselves */
+	private final RowIndex[] byId = new RowIndex[ID_STRIPES];
+	private final AtomicLong postingBytes = new AtomicLong();
+
+	DescriptionIndex() {
+		for (int i = 0; i < tokenLocks.length; i++) {
+			tokenLocks[i] = new ReentrantLock();
+		}
+		for (int i = 0; i < byId.length; i++) {
+			byId[i] = new RowIndex(document -> document(numbering.documents, document).getId().hashCode());
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if every document number is taken by a live document
+	 */
+	void add(TransactionKey key, String description) {
+		List<String> tokens = TextTokenizer.tokenize(description);
+		if (tokens.isEmpty()) {
+			return;
+		}
+		int document;
+		while ((document = append(key, tokens)) < 0) {
+			if (!renumber(true)) {
+				throw new IllegalStateException("Description index is full: " + MAX_DOCUMENTS + " live descriptions");
+			}
+		}
+		// each number is handed out once, so exactly one add per chunk checks whether to reclaim
+		if ((document & CHUNK_MASK) == CHUNK_MASK) {
+			renumber(false);
+		}
+	}
+
+	/** @return the number of the new document, or -1 if the numbering has run out */
+	private int append(TransactionKey key, List<String> tokens) {
+		ReentrantLock[] locks = lockAll(tokens);
+		try {
+			int document = documentCount.getAndUpdate(count -> Math.min(count + 1, MAX_DOCUMENTS));
+			if (document == MAX_DOCUMENTS) {
+				return -1;
+			}
+			Numbering current = numbering;
+			chunk(current, document)[document & CHUNK_MASK] = key;
+			String id = key.getId();
+			RowIndex ids = byId[stripe(id.hashCode(), ID_STRIPES)];
+			synchronized (ids) {
+				ids.insert(id.hashCode(), document);
+			}
+			for (String token : tokens) {
+				PostingList list = current.postings.computeIfAbsent(token, t -> new PostingList());
+				int before = list.bytes.length;
+				list.append(document);
+				postingBytes.addAndGet(list.bytes.length - before);
+			}
+			return document;
+		} finally {
+			for (ReentrantLock lock : locks) {
+				lock.unlock();
+			}
+		}
+	}
+
+	void remove(TransactionKey key, String description) {
+		List<String> tokens = TextTokenizer.tokenize(description);
+		if (tokens.isEmpty()) {
+			return;
+		}
+		String id = key.getId();
+		RowIndex ids = byId[stripe(id.hashCode(), ID_STRIPES)];
+		Numbering current;
+		synchronized (ids) {
+			current = numbering;
+			TransactionKey[][] documents = current.documents;
+			int document = ids.find(id.hashCode(), d -> document(documents, d).getId().equals(id));
+			if (document < 0) {
+				return;
+			}
+			ids.remove(id.hashCode(), document);
+			documents[document >>> CHUNK_BITS][document & CHUNK_MASK] = null;
+		}
+		for (String token : tokens) {
+			ReentrantLock lock = tokenLocks[stripe(token.hashCode(), TOKEN_LOCK_STRIPES)];
+			lock.lock();
+			try {
+				// a renumbering since the document died has already dropped it from every list
+				if (numbering != current) {
+					break;
+				}
+				PostingList list = current.postings.get(token);
+				if (list == null) {
+					continue;
+				}
+				list.live--;
+				if (list.live == 0) {
+					current.postings.remove(token);
+					postingBytes.addAndGet(-list.bytes.length);
+				} else if (list.count - list.live > list.live) {
+					int before = list.bytes.length;
+					list.dropDead(current.documents);
+					postingBytes.addAndGet(list.bytes.length - before);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Number of live documents in the shortest list of the tokens, an upper bound of the matches
+	 * used by the query planner; 0 if a token is not indexed at all
+	 */
+	int estimate(List<String> tokens) {
+		Map<String, PostingList> postings = numbering.postings;
+		int smallest = Integer.MAX_VALUE;
+		for (String token : tokens) {
+			PostingList list = postings.get(token);
+			if (list == null) {
+				return 0;
+			}
+			smallest = Math.min(smallest, list.live);
+		}
+		return smallest;
+	}
+
+	/**
+	 * Keys of the documents holding every token, dated within [startDate, endDate] and positioned
+	 * strictly after {@code after}, newest first; the bounds are the ones of
+	 * {@link Postings#range(Instant, Instant, TransactionKey)}, any of them may be null
+	 */
+	List<TransactionKey> search(List<String> tokens, Instant startDate, Instant endDate, TransactionKey after) {
+		TransactionKey from = endDate == null ? null : TransactionKey.first(endDate);
+		boolean fromInclusive = true;
+		if (after != null && (from == null || after.compareTo(from) >= 0)) {
+			from = after;
+			fromInclusive = false;
+		}
+		TransactionKey to = startDate == null || startDate.equals(Instant.MIN)
+				? null : TransactionKey.first(startDate.minusNanos(1));
+
+		Numbering numbering = this.numbering;
+		Snapshot[] lists = new Snapshot[tokens.size()];
+		for (int i = 0; i < lists.length; i++) {
+			PostingList list = numbering.postings.get(tokens.get(i));
+			if (list == null) {
+				return List.of();
+			}
+			lists[i] = list.snapshot;
+		}
+		// read after the snapshots, so it holds the key of every document they list
+		TransactionKey[][] current = numbering.documents;
+		Arrays.sort(lists, (a, b) -> Integer.compare(a.count, b.count));
+		int[] candidates = lists[0].liveDocuments(current);
+		int size = candidates.length;
+		for (int i = 1; i < lists.length && size > 0; i++) {
+			size = lists[i].retain(candidates, size);
+		}
+		List<TransactionKey> keys = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			TransactionKey key = document(current, candidates[i]);
+			if (key == null) {
+				continue;
+			}
+			int fromOrder = from == null ? 1 : key.compareTo(from);
+			if ((fromOrder > 0 || fromOrder == 0 && fromInclusive) && (to == null || key.compareTo(to) < 0)) {
+				keys.add(key);
+			}
+		}
+		keys.sort(null);
+		return keys;
+	}
+
+	/** Bytes allocated to the encoded posting lists, skip entries excluded */
+	long postingBytes() {
+		return postingBytes.get();
+	}
+
+	/** Document numbers handed out by the current numbering, dead documents included */
+	int documentNumbers() {
+		return documentCount.get();
+	}
+
+	/**
+	 * Renumbers the live documents from 0 under every token lock and every ID stripe, when dead
+	 * documents outnumber live ones or, if {@code full}, when the numbers have run out and any
+	 * document is dead
+	 *
+	 * @return whether numbers are available to the next add, after renumbering or not
+	 */
+	private boolean renumber(boolean full) {
+		for (ReentrantLock lock : tokenLocks) {
+			lock.lock();
+		}
+		try {
+			return withIdStripes(0, () -> {
+				int count = documentCount.get();
+				int live = 0;
+				for (RowIndex ids : byId) {
+					live += ids.size();
+				}
+				if (full ? count < MAX_DOCUMENTS || live == count : count - live <= live) {
+					return count < MAX_DOCUMENTS;
+				}
+				renumber(count, live);
+				return true;
+			});
+		} finally {
+			for (ReentrantLock lock : tokenLocks) {
+				lock.unlock();
+			}
+		}
+	}
+
+	/** Takes the monitors of the ID stripes from {@code stripe} on in ascending order, then runs the action */
+	private boolean withIdStripes(int stripe, BooleanSupplier action) {
+		if (stripe == byId.length) {
+			return action.getAsBoolean();
+		}
+		synchronized (byId[stripe]) {
+			return withIdStripes(stripe + 1, action);
+		}
+	}
+
+	/** Publishes a numbering of the live documents in their current order; every lock is held */
+	private void renumber(int count, int live) {
+		TransactionKey[][] documents = numbering.documents;
+		Numbering renumbered = new Numbering(new TransactionKey[Math.max(16, (live >>> CHUNK_BITS) + 1)][]);
+		int[][] numbers = new int[documents.length][];
+		int next = 0;
+		for (int document = 0; document < count; document++) {
+			TransactionKey key = document(documents, document);
+			if (key != null) {
+				if (numbers[document >>> CHUNK_BITS] == null) {
+					numbers[document >>> CHUNK_BITS] = new int[1 << CHUNK_BITS];
+				}
+				numbers[document >>> CHUNK_BITS][document & CHUNK_MASK] = next;
+				chunk(renumbered, next)[next & CHUNK_MASK] = key;
+				next++;
+			}
+		}
+		long bytes = 0;
+		for (Map.Entry<String, PostingList> entry : numbering.postings.entrySet()) {
+			int[] kept = entry.getValue().snapshot.liveDocuments(documents);
+			for (int i = 0; i < kept.length; i++) {
+				kept[i] = numbers[kept[i] >>> CHUNK_BITS][kept[i] & CHUNK_MASK];
+			}
+			PostingList list = new PostingList();
+			list.rebuild(kept);
+			renumbered.postings.put(entry.getKey(), list);
+			bytes += list.bytes.length;
+		}
+		numbering = renumbered;
+		for (RowIndex ids : byId) {
+			ids.clear();
+		}
+		for (int document = 0; document < live; document++) {
+			int hash = document(renumbered.documents, document).getId().hashCode();
+			byId[stripe(hash, ID_STRIPES)].insert(hash, document);
+		}
+		documentCount.set(live);
+		postingBytes.set(bytes);
+	}
+
+	/** Locks the stripes of the tokens in ascending order, each once */
+	private ReentrantLock[] lockAll(List<String> tokens) {
+		int[] stripes = new int[tokens.size()];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = stripe(tokens.get(i).hashCode(), TOKEN_LOCK_STRIPES);
+		}
+		stripes = Arrays.stream(stripes).sorted().distinct().toArray();
+		ReentrantLock[] locks = new ReentrantLock[stripes.length];
+		for (int i = 0; i < stripes.length; i++) {
+			locks[i] = tokenLocks[stripes[i]];
+			locks[i].lock();
+		}
+		return locks;
+	}
+
+	/** Chunk holding the document's key, allocated along with the outer array when it is first needed */
+	private TransactionKey[] chunk(Numbering numbering, int document) {
+		int chunk = document >>> CHUNK_BITS;
+		TransactionKey[][] current = numbering.documents;
+		if (chunk < current.length && current[chunk] != null) {
+			return current[chunk];
+		}
+		synchronized (growLock) {
+			current = numbering.documents;
+			if (chunk >= current.length) {
+				current = Arrays.copyOf(current, Math.max(current.length * 2, chunk + 1));
+			}
+			if (current[chunk] == null) {
+				current[chunk] = new TransactionKey[1 << CHUNK_BITS];
+			}
+			numbering.documents = current;
+			return current[chunk];
+		}
+	}
+
+	private static TransactionKey document(TransactionKey[][] documents, int document) {
+		return documents[document >>> CHUNK_BITS][document & CHUNK_MASK];
+	}
+
+	private static int stripe(int hash, int stripes) {
+		return (hash ^ (hash >>> 16)) & (stripes - 1);
+	}
+
+	/**
+	 * Key of every document number in chunks of 2^{@value #CHUNK_BITS}, null once the document is
+	 * dead, and the posting lists of those numbers; the outer array is replaced under
+	 * {@link #growLock} as it grows
+	 */
+	private static final class Numbering {
+		private volatile TransactionKey[][] documents;
+		private final Map<String, PostingList> postings = new ConcurrentHashMap<>();
+
+		Numbering(TransactionKey[][] documents) {
+			this.documents = documents;
+		}
+	}
+
+	/**
+	 * Posting list of one token, changed under the lock of its stripe. Ascending document numbers
+	 * are stored as their unsigned LEB128 delta to the previous one; the first delta is taken from
+	 * -1, so every delta is at least 1.
+	 */
+	private static final class PostingList {
+		private byte[] bytes = new byte[4];
+		private int length;
+		private int count;
+		private int last = -1;
+
+		/** Document preceding each block of entries and the byte offset the block starts at */
+		private int[] skipDocuments = NO_SKIPS;
+		private int[] skipOffsets = NO_SKIPS;
+
+		/** Live documents in the list, read without the lock by the query planner */
+		private volatile int live;
+
+		/** What searches decode, republished after every change */
+		private volatile Snapshot snapshot = new Snapshot(bytes, 0, NO_SKIPS, NO_SKIPS);
+
+		void append(int document) {
+			if (count % SKIP_INTERVAL == 0) {
+				int block = count / SKIP_INTERVAL;
+				if (block == skipDocuments.length) {
+					skipDocuments = Arrays.copyOf(skipDocuments, Math.max(4, block * 2));
+					skipOffsets = Arrays.copyOf(skipOffsets, skipDocuments.length);
+				}
+				skipDocuments[block] = last;
+				skipOffsets[block] = length;
+			}
+			if (length + 5 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(length + 5, bytes.length * 2));
+			}
+			int delta = document - last;
+			while ((delta & ~0x7f) != 0) {
+				bytes[length++] = (byte) (delta & 0x7f | 0x80);
+				delta >>>= 7;
+			}
+			bytes[length++] = (byte) delta;
+			last = document;
+			count++;
+			live++;
+			snapshot = new Snapshot(bytes, count, skipDocuments, skipOffsets);
+		}
+
+		/** Re-encodes the list with only its live documents */
+		void dropDead(TransactionKey[][] documents) {
+			rebuild(snapshot.liveDocuments(documents));
+		}
+
+		/** Re-encodes the list with the given ascending documents, all of them live */
+		void rebuild(int[] kept) {
+			bytes = new byte[4];
+			length = 0;
+			count = 0;
+			last = -1;
+			skipDocuments = NO_SKIPS;
+			skipOffsets = NO_SKIPS;
+			for (int document : kept) {
+				append(document);
+			}
+			live = kept.length;
+		}
+	}
+
+	/**
+	 * The first {@code count} entries of a posting list; later appends only write beyond them, so
+	 * the arrays may be shared with the list and newer snapshots
+	 */
+	private record Snapshot(byte[] bytes, int count, int[] skipDocuments, int[] skipOffsets) {
+		int[] liveDocuments(TransactionKey[][] documents) {
+			int[] result = new int[count];
+			int size = 0;
+			int document = -1;
+			int offset = 0;
+			for (int i = 0; i < count; i++) {
+				int delta = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = bytes[offset++];
+					delta |= (b & 0x7f) << shift;
+					shift += 7;
+				} while (b < 0);
+				document += delta;
+				if (document(documents, document) != null) {
+					result[size++] = document;
+				}
+			}
+			return size == result.length ? result : Arrays.copyOf(result, size);
+		}
+
+		/**
+		 * Keeps those of the ascending candidates that are in this list, moving them to the front
+		 *
+		 * @return number of candidates kept
+		 */
+		int retain(int[] candidates, int size) {
+			int blocks = (count + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+			int kept = 0;
+			int entry = 0;
+			int offset = 0;
+			int document = -1;
+			for (int c = 0; c < size; c++) {
+				int target = candidates[c];
+				// the last block starting below the target, when it starts beyond the current position
+				int block = Arrays.binarySearch(skipDocuments, 0, blocks, target);
+				block = block >= 0 ? block - 1 : -block - 2;
+				if (block >= 0 && skipDocuments[block] > document) {
+					entry = block * SKIP_INTERVAL;
+					offset = skipOffsets[block];
+					document = skipDocuments[block];
+				}
+				while (document < target && entry < count) {
+					int delta = 0;
+					int shift = 0;
+					byte b;
+					do {
+						b = bytes[offset++];
+						delta |= (b & 0x7f) << shift;
+						shift += 7;
+					} while (b < 0);
+					document += delta;
+					entry++;
+				}
+				if (document == target) {
+					candidates[kept++] = target;
+				} else if (document < target) {
+					break;
+				}
+			}
+			return kept;
+		}
+	}
+}
@@ -1,22 +1,93 @@
 package com.bank.transaction.repository;
 
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
 import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
 import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
 
 public interface ITransactionRepository {
 
 	Transaction createTransaction(Transaction transaction);
 
+	/**
+	 * Inserts all transactions in one pass; a conflicting item does not stop the others.
+	 *
+	 * @return one result per input item, in input order, with the index set to the item's position
+	 */
+	List<BatchItemResult> createTransactions(List<Transaction> transactions);
+
 	void deleteTransaction(String id);
 
-	Transaction modifyTransaction(String id, Transaction transaction);
+	/**
+	 * Stores a copy of the transaction with the status and description of {@code transaction} as its
+	 * next version, provided the stored version is still {@code expectedVersion} (compare-and-swap)
+	 *
+	 * @return the new version, or null if the transaction has moved past {@code expectedVersion}
+	 * @throws TransactionNotFoundException if there is no transaction with the ID
+	 */
+	Transaction modifyTransaction(String id, Transaction transaction, long expectedVersion);
+
+	/**
+	 * Modifies whatever version is current, retrying the compare-and-swap until it applies
+	 */
+	default Transaction modifyTransaction(String id, Transaction transaction) {
+		while (true) {
+			Transaction current = getTransactionById(id);
+			if (current == null) {
+				throw new TransactionNotFoundException("Transaction not found");
+			}
+			Transaction modified = modifyTransaction(id, transaction, current.getVersion());
+			if (modified != null) {
+				return modified;
+			}
+		}
+	}
+
+	PageResult<Transaction> listAllTransactions(int page, int pageSize, TransactionQuery query);
+
+	CursorPageResult<Transaction> listTransactionsByCursor(String cursor, int pageSize, TransactionQuery query);
 
-	PageResult<Transaction> listAllTransactions(int page, int pageSize, Map<String, Object> filters);
+	/**
+	 * Lazily streams every matching transaction in list order, without materialising the result
+	 */
+	Stream<Transaction> streamTransactions(TransactionQuery query);
 
 	Transaction getTransactionById(String id);
 
 	boolean existsByOrderId(String orderId);
 
+	/**
+	 * Totals of the card's successful transactions per currency, maintained on every write
+	 *
+	 * @return one summary per currency, ordered by currency code; empty for an unknown card
+	 */
+	List<CardSummary> getCardSummaries(String cardId);
+
+	/**
+	 * Counts and volumes of the transactions dated in each of the latest time buckets, by channel,
+	 * type and status
+	 *
+	 * @param buckets number of buckets, ending with the current one
+	 * @return the buckets oldest first, including empty ones
+	 * @throws IllegalArgumentException if more buckets are requested than are kept
+	 */
+	List<StatsBucket> getStats(StatsResolution resolution, int buckets);
+
+	/**
+	 * Entry counts of the store and its lookup structures by name, published as gauges. The set of
+	 * names is fixed per implementation and the counts may lag concurrent writes.
+	 */
+	default Map<String, Long> sizes() {
+		return Map.of();
+	}
+
 }
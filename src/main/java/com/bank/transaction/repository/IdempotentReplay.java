@@ -0,0 +1,39 @@
+package com.bank.transaction.repository;
+
+import java.util.Objects;
+
+import com.bank.transaction.model.Transaction;
+
+/**
+ * Decides whether a create request that lost the orderId claim is a client retry of the stored
+ * transaction, in which case the stored one is returned instead of a conflict
+ */
+final class IdempotentReplay {
+
+	private IdempotentReplay() {
+	}
+
+	/**
+	 * A retry must carry the same payload as the stored transaction; amounts are compared by value
+	 * so that "1500" and "1500.00" are treated as the same request. Status is left out because it
+	 * legitimately moves on after creation.
+	 */
+	static boolean matches(Transaction stored, Transaction request) {
+		return Objects.equals(stored.getOrderId(), request.getOrderId())
+				&& stored.getType() == request.getType()
+				&& Objects.equals(stored.getCurrency(), request.getCurrency())
+				&& sameAmount(stored, request)
+				&& Objects.equals(stored.getDate(), request.getDate())
+				&& Objects.equals(stored.getCardId(), request.getCardId())
+				&& Objects.equals(stored.getToCardId(), request.getToCardId())
+				&& Objects.equals(stored.getDescription(), request.getDescription())
+				&& stored.getChannel() == request.getChannel();
+	}
+
+	private static boolean sameAmount(Transaction stored, Transaction request) {
+		if (stored.getAmount() == null || request.getAmount() == null) {
+			return stored.getAmount() == request.getAmount();
+		}
+		return stored.getAmount().compareTo(request.getAmount()) == 0;
+	}
+}
@@ -1,19 +1,37 @@
 package com.bank.transaction.repository;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.bank.transaction.exception.TransactionAlreadyExistsException;
 import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
 import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
 import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -29,80 +47,271 @@ import org.springframework.stereotype.Repository;
  * <p>
  * 4. Pagination support for list operations
  * <p>
- * 5. Fine-grained locking by OrderId to prevent duplicates while maintaining concurrency
+ * 5. Lock-free orderId reservation with a single putIfAbsent; identical retries replay the stored
+ * transaction, once it is journaled
+ * <p>
+ * 6. Secondary indexes on cardId, status and channel; queries start from the most selective one
+ * <p>
+ * 7. Every index is ordered newest-first by date, so date ranges are sliced rather than scanned
+ * and pages come back in a stable order
+ * <p>
+ * 8. Keyset (cursor) pagination that resumes the index scan from the last returned key
+ * <p>
+ * 9. Optional write-ahead journal: mutations are journaled before they become visible and the
+ * store is rebuilt from it on startup
+ * <p>
+ * 10. Optional snapshots taken without blocking writers; startup restores the newest one and
+ * replays only the journal written after it
+ * <p>
+ * 11. Per-card summaries of successful transactions and per-minute and per-hour rollups, kept up
+ * to date with the indexes
+ * <p>
+ * 12. Stored transactions are immutable versioned snapshots; a modification is a compare-and-swap
+ * of the map entry, so readers never lock and never see a half-applied change. Writers of one
+ * entry take one of {@value #ENTRY_LOCK_STRIPES} striped locks, which orders their journal
+ * records and index updates without holding a map bin lock through an fsync
+ * <p>
+ * 13. Inverted index over description tokens with compressed posting lists; a text filter is
+ * answered from it when it promises far fewer candidates than the other indexes
  */
 @Repository
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "memory", matchIfMissing = true)
 public class InMemoryTransactionRepository implements ITransactionRepository {
 	private final static Logger LOGGER = LoggerFactory.getLogger(InMemoryTransactionRepository.class);
+	private static final Postings EMPTY_POSTINGS = new Postings();
+
+	/**
+	 * How many times fewer candidates the description index must promise than the other indexes to
+	 * be used, since its matches still have to be sorted by date
+	 */
+	private static final int TEXT_SELECTIVITY = 4;
+
+	private static final int ENTRY_LOCK_STRIPES = 256;
 
 	private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
 	private final Map<String, String> orderIdToId = new ConcurrentHashMap<>();
 
+	/**
+	 * Creates claimed but not yet journaled, completed with whether their journal write succeeded;
+	 * only used with a journal
+	 */
+	private final Map<String, CompletableFuture<Boolean>> uncommitted = new ConcurrentHashMap<>();
+
+	/** Held by whoever modifies, deletes, evicts or adopts an existing entry, striped by ID */
+	private final ReentrantLock[] entryLocks = new ReentrantLock[ENTRY_LOCK_STRIPES];
+
+	/** Date index over all transactions, newest first */
+	private final Postings dateIndex = new Postings();
+
+	/** Secondary indexes, each mapping a field value to the date-ordered keys of the transactions carrying it */
+	private final Map<String, Postings> cardIdIndex = new ConcurrentHashMap<>();
+	private final Map<TransactionStatus, Postings> statusIndex = new ConcurrentHashMap<>();
+	private final Map<TransactionChannel, Postings> channelIndex = new ConcurrentHashMap<>();
+	private final DescriptionIndex descriptionIndex = new DescriptionIndex();
+
+	private final CardSummaries cardSummaries = new CardSummaries();
+	private final TransactionRollups rollups;
+
+	private final TransactionJournal journal;
+	private final TransactionSnapshots snapshots;
+
+	/**
+	 * Journaled mutations still being applied, counted per snapshot epoch; a snapshot waits for the
+	 * previous epoch to drain so everything journaled before its rotation is in memory
+	 */
+	private final AtomicLong[] inFlight = {new AtomicLong(), new AtomicLong()};
+	private volatile int epoch;
+
+	public InMemoryTransactionRepository() {
+		this((TransactionJournal) null);
+	}
+
+	@Autowired
+	public InMemoryTransactionRepository(ObjectProvider<TransactionJournal> journal,
+			ObjectProvider<TransactionSnapshots> snapshots) {
+		this(journal.getIfAvailable(), snapshots.getIfAvailable());
+	}
+
+	/**
+	 * @param journal write-ahead journal to replay on startup and append every mutation to, or null
+	 */
+	InMemoryTransactionRepository(TransactionJournal journal) {
+		this(journal, null);
+	}
+
+	/**
+	 * @param journal write-ahead journal to replay on startup and append every mutation to, or null
+	 * @param snapshots snapshots to restore from before replaying the journal, or null; ignored
+	 * without a journal, which holds the changes made after a snapshot
+	 */
+	InMemoryTransactionRepository(TransactionJournal journal, TransactionSnapshots snapshots) {
+		this(journal, snapshots, new TransactionRollups());
+	}
+
+	/**
+	 * Store without a journal whose rollups are shared with other stores
+	 */
+	InMemoryTransactionRepository(TransactionRollups rollups) {
+		this(null, null, rollups);
+	}
+
+	/**
+	 * @param journal write-ahead journal to replay on startup and append every mutation to, or null
+	 * @param snapshots snapshots to restore from before replaying the journal, or null
+	 * @param rollups rollups to keep, which may be shared with other stores
+	 */
+	InMemoryTransactionRepository(TransactionJournal journal, TransactionSnapshots snapshots,
+			TransactionRollups rollups) {
+		for (int i = 0; i < entryLocks.length; i++) {
+			entryLocks[i] = new ReentrantLock();
+		}
+		this.rollups = rollups;
+		this.journal = journal;
+		this.snapshots = journal == null ? null : snapshots;
+		if (journal != null) {
+			JournalReplay replay = new JournalReplay();
+			long fromSegment = this.snapshots == null ? 0 : this.snapshots.load(replay::onCreate).orElse(0);
+			journal.open(fromSegment, replay);
+		}
+	}
+
 	@Override
 	public Transaction createTransaction(Transaction transaction) {
-		if (existsByOrderId(transaction.getOrderId())) {
-			LOGGER.warn("Transaction with order ID {} already exists", transaction.getOrderId());
-			throw new TransactionAlreadyExistsException("Transaction with order ID already exists");
+		String id = TransactionIds.next();
+		Transaction stored;
+		do {
+			stored = claim(transaction, id);
+			if (stored == null) {
+				throw new TransactionAlreadyExistsException("Transaction with order ID already exists");
+			}
+			if (id.equals(stored.getId())) {
+				commitCreates(List.of(stored));
+				return stored;
+			}
+		} while (!awaitCommit(stored));
+		return stored;
+	}
+
+	@Override
+	public List<BatchItemResult> createTransactions(List<Transaction> batch) {
+		String[] ids = TransactionIds.next(batch.size());
+		Transaction[] stored = new Transaction[batch.size()];
+		List<Transaction> claimed = new ArrayList<>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			stored[i] = claim(batch.get(i), ids[i]);
+			if (stored[i] != null && ids[i].equals(stored[i].getId())) {
+				claimed.add(stored[i]);
+			}
 		}
-		String id = UUID.randomUUID().toString();
-		transaction.setId(id);
-		transactions.put(id, transaction);
-		orderIdToId.put(transaction.getOrderId(), id);
-		return transaction;
+		commitCreates(claimed);
+		// replays wait only now, since the row they replay may be one this batch has just committed
+		for (int i = 0; i < batch.size(); i++) {
+			while (stored[i] != null && !ids[i].equals(stored[i].getId()) && !awaitCommit(stored[i])) {
+				stored[i] = claim(batch.get(i), ids[i]);
+				if (stored[i] != null && ids[i].equals(stored[i].getId())) {
+					commitCreates(List.of(stored[i]));
+				}
+			}
+		}
+
+		List<BatchItemResult> results = new ArrayList<>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			results.add(stored[i] == null
+					? BatchItemResult.conflict(i, "Transaction with order ID already exists")
+					: BatchItemResult.created(i, stored[i]));
+		}
+		return results;
 	}
 
 	@Override
 	public void deleteTransaction(String id) {
-		if (!transactions.containsKey(id)) {
-			LOGGER.error("Transaction with ID {} not found", id);
-			throw new TransactionNotFoundException("Transaction not found");
+		ReentrantLock lock = entryLock(id);
+		lock.lock();
+		try {
+			if (!transactions.containsKey(id)) {
+				LOGGER.error("Transaction with ID {} not found", id);
+				throw new TransactionNotFoundException("Transaction not found");
+			}
+			if (journal == null) {
+				remove(id);
+				return;
+			}
+			int slot = beginMutation();
+			try {
+				journal.appendDelete(id);
+				remove(id);
+			} finally {
+				endMutation(slot);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Transaction modifyTransaction(String id, Transaction transaction, long expectedVersion) {
+		if (journal == null) {
+			return swap(id, transaction, expectedVersion, false);
+		}
+		int slot = beginMutation();
+		try {
+			return swap(id, transaction, expectedVersion, true);
+		} finally {
+			endMutation(slot);
 		}
-		Transaction transaction = transactions.get(id);
-		transactions.remove(id);
-		orderIdToId.remove(transaction.getOrderId());
 	}
 
 	@Override
-	public Transaction modifyTransaction(String id, Transaction transaction) {
-		if (!transactions.containsKey(id)) {
-			LOGGER.error("Transaction with ID {} not found", id);
-			throw new TransactionNotFoundException("Transaction not found");
+	public PageResult<Transaction> listAllTransactions(int page, int pageSize, TransactionQuery query) {
+		int fromIndex = Math.max(page, 0) * pageSize;
+		int toIndex = fromIndex + pageSize;
+		List<Transaction> pageData = new ArrayList<>(Math.max(pageSize, 0));
+		int total = 0;
+		for (TransactionKey key : selectCandidates(query, null)) {
+			Transaction t = transactions.get(key.getId());
+			if (t == null || !query.matches(t)) {
+				continue;
+			}
+			if (total >= fromIndex && total < toIndex) {
+				pageData.add(t);
+			}
+			total++;
 		}
-		Transaction existing = transactions.get(id);
-		existing.setStatus(transaction.getStatus());
-		existing.setDescription(transaction.getDescription());
-		transactions.put(id, existing);
-		return existing;
+		return new PageResult<>(pageData, total);
 	}
 
 	@Override
-	public PageResult<Transaction> listAllTransactions(int page, int pageSize, Map<String, Object> filters) {
-		List<Transaction> filteredTransactions = transactions.values().stream()
-				.filter(t -> {
-					if (filters.containsKey("cardId") && !filters.get("cardId").equals(t.getCardId()))  {
-						return false;
-					}
-					if (filters.containsKey("status") && !filters.get("status").equals(t.getStatus())) {
-						return false;
-					}
-					if (filters.containsKey("channel") && !filters.get("channel").equals(t.getChannel())) {
-						return false;
-					}
-					if (filters.containsKey("startDate") && ((Instant) filters.get("startDate")).isAfter(t.getDate())) {
-						return false;
-					}
-					return !filters.containsKey("endDate") || !((Instant) filters.get("endDate")).isBefore(t.getDate());
-				})
-				.collect(Collectors.toList());
-
-		int total = filteredTransactions.size();
-		int fromIndex = page * pageSize;
-		int toIndex = Math.min(fromIndex + pageSize, total);
-
-		return new PageResult<>(
-				filteredTransactions.subList(fromIndex, toIndex),
-				total
-		);
+	public CursorPageResult<Transaction> listTransactionsByCursor(String cursor, int pageSize, TransactionQuery query) {
+		TransactionKey after = TransactionKey.fromCursor(cursor);
+		List<Transaction> pageData = new ArrayList<>(Math.max(pageSize, 0));
+		TransactionKey last = null;
+		for (TransactionKey key : selectCandidates(query, after)) {
+			if (pageData.size() >= pageSize) {
+				break;
+			}
+			Transaction t = transactions.get(key.getId());
+			if (t != null && query.matches(t)) {
+				pageData.add(t);
+				last = key;
+			}
+		}
+		String nextCursor = pageSize > 0 && pageData.size() == pageSize ? last.toCursor() : null;
+		return new CursorPageResult<>(pageData, nextCursor);
+	}
+
+	@Override
+	public Stream<Transaction> streamTransactions(TransactionQuery query) {
+		return streamTransactions(query, null);
+	}
+
+	/**
+	 * Same as {@link #streamTransactions(TransactionQuery)}, resuming strictly after {@code after}
+	 * when it is not null
+	 */
+	Stream<Transaction> streamTransactions(TransactionQuery query, TransactionKey after) {
+		return StreamSupport.stream(selectCandidates(query, after).spliterator(), false)
+				.map(key -> transactions.get(key.getId()))
+				.filter(t -> t != null && query.matches(t));
 	}
 
 	@Override
@@ -114,4 +323,451 @@ public class InMemoryTransactionRepository implements ITransactionRepository {
 	public boolean existsByOrderId(String orderId) {
 		return orderIdToId.containsKey(orderId);
 	}
-}
\ No newline at end of file
+
+	@Override
+	public List<CardSummary> getCardSummaries(String cardId) {
+		return cardSummaries.get(cardId);
+	}
+
+	@Override
+	public List<StatsBucket> getStats(StatsResolution resolution, int buckets) {
+		return rollups.stats(resolution, buckets);
+	}
+
+	@Override
+	public Map<String, Long> sizes() {
+		return Map.of(
+				"transactions", (long) transactions.size(),
+				"orderIds", (long) orderIdToId.size(),
+				"cardIds", (long) cardIdIndex.size(),
+				"descriptionPostingBytes", descriptionIndex.postingBytes());
+	}
+
+	/**
+	 * Transactions from the oldest end of the date index, taken while they are dated before
+	 * {@code cutoff} or fewer than {@code minimum} have been taken, up to {@code limit}. Undated
+	 * transactions sort last and so are taken first.
+	 *
+	 * @return the transactions, oldest first
+	 */
+	List<Transaction> oldest(Instant cutoff, int minimum, int limit) {
+		List<Transaction> oldest = new ArrayList<>();
+		for (TransactionKey key : dateIndex.oldestFirst()) {
+			if (oldest.size() >= limit
+					|| oldest.size() >= minimum && key.getDate() != null && !key.getDate().isBefore(cutoff)) {
+				break;
+			}
+			Transaction t = transactions.get(key.getId());
+			if (t != null) {
+				oldest.add(t);
+			}
+		}
+		return oldest;
+	}
+
+	/**
+	 * Hands the given versions of transactions over to another tier: they leave the maps, indexes
+	 * and card summaries but stay counted in the rollups, which the tiers share. With a journal their
+	 * deletes are journaled first, as one group, so that a restart does not bring them back; if that
+	 * write fails nothing is evicted.
+	 *
+	 * @return the transactions evicted, leaving out those modified or deleted since their given
+	 * version
+	 */
+	List<Transaction> evict(List<Transaction> batch) {
+		for (ReentrantLock lock : entryLocks) {
+			lock.lock();
+		}
+		try {
+			List<Transaction> evicted = new ArrayList<>(batch.size());
+			for (Transaction transaction : batch) {
+				Transaction stored = transactions.get(transaction.getId());
+				if (stored != null && stored.getVersion() == transaction.getVersion()) {
+					evicted.add(stored);
+				}
+			}
+			if (journal == null) {
+				evicted.forEach(this::evict);
+				return evicted;
+			}
+			int slot = beginMutation();
+			try {
+				journal.appendDeletes(evicted.stream().map(Transaction::getId).toList());
+				evicted.forEach(this::evict);
+			} finally {
+				endMutation(slot);
+			}
+			return evicted;
+		} finally {
+			for (int i = entryLocks.length - 1; i >= 0; i--) {
+				entryLocks[i].unlock();
+			}
+		}
+	}
+
+	/**
+	 * Takes over a transaction from another tier, keeping its ID and version; the opposite of
+	 * {@link #evict(List)}, so the rollups are left as they are. With a journal it is journaled as
+	 * a create of that version first.
+	 */
+	void adopt(Transaction transaction) {
+		ReentrantLock lock = entryLock(transaction.getId());
+		lock.lock();
+		try {
+			if (journal == null) {
+				store(transaction);
+				return;
+			}
+			int slot = beginMutation();
+			try {
+				journal.appendCreate(transaction);
+				store(transaction);
+			} finally {
+				endMutation(slot);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stores the transaction under the given ID and claims its orderId, or finds the transaction
+	 * already holding that orderId. A newly claimed row is reachable by ID only; it becomes visible
+	 * to queries in {@link #commitCreates(List)}. A returned stored transaction may still be
+	 * uncommitted; see {@link #awaitCommit(Transaction)}.
+	 *
+	 * @return the given transaction, now carrying {@code id}, if newly claimed; the stored one for an
+	 * identical retry; or null if the orderId belongs to a different payload
+	 */
+	private Transaction claim(Transaction transaction, String id) {
+		String requestedId = transaction.getId();
+		long requestedVersion = transaction.getVersion();
+		transaction.setId(id);
+		transaction.setVersion(1);
+		if (journal != null) {
+			uncommitted.put(id, new CompletableFuture<>());
+		}
+		// publish the row before claiming the orderId, so a competing request that loses the claim
+		// always finds the winner's transaction; the row is unreachable until its ID is returned
+		transactions.put(id, transaction);
+		String claimedId = orderIdToId.putIfAbsent(transaction.getOrderId(), id);
+		if (claimedId != null) {
+			transactions.remove(id);
+			uncommitted.remove(id);
+			transaction.setId(requestedId);
+			transaction.setVersion(requestedVersion);
+			Transaction existing = transactions.get(claimedId);
+			if (existing != null && IdempotentReplay.matches(existing, transaction)) {
+				LOGGER.info("Replaying transaction {} for order ID {}", claimedId, transaction.getOrderId());
+				return existing;
+			}
+			LOGGER.warn("Transaction with order ID {} already exists", transaction.getOrderId());
+			return null;
+		}
+		return transaction;
+	}
+
+	/**
+	 * Journals newly claimed transactions as one group commit and then indexes them; if the journal
+	 * write fails the claims are released so nothing unjournaled is ever acknowledged, neither to
+	 * their creators nor to identical retries waiting in {@link #awaitCommit(Transaction)}
+	 */
+	private void commitCreates(List<Transaction> claimed) {
+		if (journal == null || claimed.isEmpty()) {
+			claimed.forEach(this::index);
+			return;
+		}
+		int slot = beginMutation();
+		try {
+			journal.appendCreates(claimed);
+			claimed.forEach(this::index);
+			settle(claimed, true);
+		} catch (RuntimeException e) {
+			for (Transaction transaction : claimed) {
+				orderIdToId.remove(transaction.getOrderId(), transaction.getId());
+				transactions.remove(transaction.getId());
+			}
+			settle(claimed, false);
+			throw e;
+		} finally {
+			endMutation(slot);
+		}
+	}
+
+	private void settle(List<Transaction> claimed, boolean committed) {
+		for (Transaction transaction : claimed) {
+			CompletableFuture<Boolean> pending = uncommitted.remove(transaction.getId());
+			if (pending != null) {
+				pending.complete(committed);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the transaction a create lost its claim to is journaled, so that an identical
+	 * retry is never answered with a row whose journal write may still fail, and a modification of
+	 * the replayed ID is never journaled ahead of its create
+	 *
+	 * @return false if the journal write failed and the claim was released, in which case the
+	 * orderId is free to be claimed again
+	 */
+	private boolean awaitCommit(Transaction existing) {
+		if (journal == null) {
+			return true;
+		}
+		CompletableFuture<Boolean> pending = uncommitted.get(existing.getId());
+		// settled and removed already: a released claim has left the map by then
+		return pending != null ? pending.join() : transactions.containsKey(existing.getId());
+	}
+
+	/**
+	 * Writes a point-in-time snapshot while writers keep going: the journal is rotated first, then
+	 * the snapshot waits for mutations journaled before the rotation to be applied and copies the
+	 * committed rows. Changes racing with the copy are in the new segment and are replayed over it,
+	 * after which the older segments are no longer needed.
+	 * <p>
+	 * Rows are taken through the date index rather than the map, since a claim publishes its row in
+	 * the map before it wins the orderId and before it is journaled: such a row may still be
+	 * withdrawn, and restoring it would resurrect a failed create or let a losing duplicate take
+	 * over the orderId. Rows are indexed only once committed.
+	 *
+	 * @return number of transactions written
+	 */
+	public synchronized long snapshot() {
+		if (snapshots == null) {
+			throw new IllegalStateException("Snapshots require the journal and a snapshot directory");
+		}
+		long segment = journal.rotate();
+		int drained = epoch & 1;
+		epoch++;
+		while (inFlight[drained].get() != 0) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		Iterable<Transaction> committed = () -> dateIndex.range(null, null).stream()
+				.map(key -> transactions.get(key.getId()))
+				.filter(Objects::nonNull)
+				.iterator();
+		long count = snapshots.write(segment, committed);
+		journal.deleteSegmentsBefore(segment);
+		return count;
+	}
+
+	private int beginMutation() {
+		int slot = epoch & 1;
+		inFlight[slot].incrementAndGet();
+		return slot;
+	}
+
+	private void endMutation(int slot) {
+		inFlight[slot].decrementAndGet();
+	}
+
+	private void index(Transaction transaction) {
+		addToIndexes(transaction);
+		rollups.add(transaction);
+	}
+
+	private void unindex(Transaction transaction) {
+		removeFromIndexes(transaction);
+		rollups.remove(transaction);
+	}
+
+	private void addToIndexes(Transaction transaction) {
+		TransactionKey key = TransactionKey.of(transaction);
+		dateIndex.add(key);
+		addToIndex(cardIdIndex, transaction.getCardId(), key);
+		addToIndex(statusIndex, transaction.getStatus(), key);
+		addToIndex(channelIndex, transaction.getChannel(), key);
+		descriptionIndex.add(key, transaction.getDescription());
+		cardSummaries.add(transaction);
+	}
+
+	private void removeFromIndexes(Transaction transaction) {
+		TransactionKey key = TransactionKey.of(transaction);
+		dateIndex.remove(key);
+		removeFromIndex(cardIdIndex, transaction.getCardId(), key);
+		removeFromIndex(statusIndex, transaction.getStatus(), key);
+		removeFromIndex(channelIndex, transaction.getChannel(), key);
+		descriptionIndex.remove(key, transaction.getDescription());
+		cardSummaries.remove(transaction);
+	}
+
+	/** Removes a transaction handed over to another tier, leaving the rollups as they are */
+	private void evict(Transaction stored) {
+		transactions.remove(stored.getId(), stored);
+		orderIdToId.remove(stored.getOrderId(), stored.getId());
+		removeFromIndexes(stored);
+	}
+
+	/** Stores a transaction taken over from another tier, leaving the rollups as they are */
+	private void store(Transaction transaction) {
+		transactions.put(transaction.getId(), transaction);
+		orderIdToId.put(transaction.getOrderId(), transaction.getId());
+		addToIndexes(transaction);
+	}
+
+	private ReentrantLock entryLock(String id) {
+		int h = id.hashCode();
+		return entryLocks[(h ^ (h >>> 16)) & (ENTRY_LOCK_STRIPES - 1)];
+	}
+
+	/**
+	 * Removes and unindexes the transaction; the caller holds the entry's lock, so it is unindexed
+	 * with the status of the last version a modification stored
+	 */
+	private void remove(String id) {
+		Transaction transaction = transactions.remove(id);
+		if (transaction != null) {
+			orderIdToId.remove(transaction.getOrderId(), id);
+			unindex(transaction);
+		}
+	}
+
+	/**
+	 * Replaces the stored version by a modified copy if it is still at {@code expectedVersion}.
+	 * Under the entry's lock the stored version is read and checked, the record journaled and the
+	 * copy installed with a compare-and-swap, after which the indexes, summary and rollups follow.
+	 * No map bin lock is held meanwhile, so readers and writers of other entries never wait for the
+	 * journal, and readers keep getting the previous version until the swap.
+	 *
+	 * @return the new version, or null if the stored one has moved on
+	 */
+	private Transaction swap(String id, Transaction changes, long expectedVersion, boolean journaled) {
+		ReentrantLock lock = entryLock(id);
+		lock.lock();
+		try {
+			Transaction stored;
+			Transaction next;
+			// other writers of the entry hold its lock, so the swap only fails if a create whose
+			// journal write failed released the entry
+			do {
+				stored = transactions.get(id);
+				if (stored == null) {
+					LOGGER.error("Transaction with ID {} not found", id);
+					throw new TransactionNotFoundException("Transaction not found");
+				}
+				if (stored.getVersion() != expectedVersion) {
+					return null;
+				}
+				next = withChanges(stored, expectedVersion + 1, changes.getStatus(), changes.getDescription());
+				if (journaled) {
+					journal.appendModify(id, next.getVersion(), next.getStatus(), next.getDescription());
+				}
+			} while (!transactions.replace(id, stored, next));
+			reindex(stored, next);
+			return next;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static Transaction withChanges(Transaction stored, long version, TransactionStatus status, String description) {
+		Transaction next = new Transaction(stored);
+		next.setStatus(status);
+		next.setDescription(description);
+		next.setVersion(version);
+		return next;
+	}
+
+	/**
+	 * Moves the status index, card summary and rollups when a modification changed the status and
+	 * re-indexes the description when it changed
+	 */
+	private void reindex(Transaction stored, Transaction next) {
+		TransactionKey key = TransactionKey.of(stored);
+		if (stored.getStatus() != next.getStatus()) {
+			removeFromIndex(statusIndex, stored.getStatus(), key);
+			addToIndex(statusIndex, next.getStatus(), key);
+			cardSummaries.statusChanged(next, stored.getStatus());
+			rollups.statusChanged(next, stored.getStatus());
+		}
+		if (!Objects.equals(stored.getDescription(), next.getDescription())) {
+			descriptionIndex.remove(key, stored.getDescription());
+			descriptionIndex.add(key, next.getDescription());
+		}
+	}
+
+	/**
+	 * Query planner: picks the smallest posting set among the indexed filters present, falling back
+	 * to the date index, then slices it to the requested date range and resumes after the cursor
+	 * position if one is given. A text filter whose rarest token is much rarer still is answered
+	 * by intersecting the description postings instead. Candidates are still checked
+	 * against every filter, so a concurrently updated index can only cost a wasted lookup, never a
+	 * wrong result.
+	 */
+	private Iterable<TransactionKey> selectCandidates(TransactionQuery query, TransactionKey after) {
+		Postings best = null;
+		best = narrower(best, cardIdIndex, query.getCardId());
+		best = narrower(best, statusIndex, query.getStatus());
+		best = narrower(best, channelIndex, query.getChannel());
+		if (best == null) {
+			best = dateIndex;
+		}
+		if (!query.getTerms().isEmpty() && descriptionIndex.estimate(query.getTerms()) < best.size() / TEXT_SELECTIVITY) {
+			return descriptionIndex.search(query.getTerms(), query.getStartDate(), query.getEndDate(), after);
+		}
+		return best.range(query.getStartDate(), query.getEndDate(), after);
+	}
+
+	private static Postings narrower(Postings current, Map<?, Postings> index, Object value) {
+		if (value == null) {
+			return current;
+		}
+		Postings postings = index.getOrDefault(value, EMPTY_POSTINGS);
+		return current == null || postings.size() < current.size() ? postings : current;
+	}
+
+	private static <K> void addToIndex(Map<K, Postings> index, K key, TransactionKey transactionKey) {
+		if (key == null) {
+			return;
+		}
+		index.compute(key, (k, postings) -> {
+			Postings result = postings == null ? new Postings() : postings;
+			result.add(transactionKey);
+			return result;
+		});
+	}
+
+	private static <K> void removeFromIndex(Map<K, Postings> index, K key, TransactionKey transactionKey) {
+		if (key == null) {
+			return;
+		}
+		index.computeIfPresent(key, (k, postings) -> {
+			postings.remove(transactionKey);
+			return postings.isEmpty() ? null : postings;
+		});
+	}
+
+	/**
+	 * Rebuilds state from journal records. Records may repeat state that is already present, so
+	 * every operation is applied idempotently.
+	 */
+	private final class JournalReplay implements TransactionJournal.Visitor {
+		@Override
+		public void onCreate(Transaction transaction) {
+			Transaction previous = transactions.put(transaction.getId(), transaction);
+			if (previous != null) {
+				unindex(previous);
+			}
+			orderIdToId.put(transaction.getOrderId(), transaction.getId());
+			index(transaction);
+		}
+
+		/** Sets exactly the recorded version, skipping a record the stored version already covers */
+		@Override
+		public void onModify(String id, long version, TransactionStatus status, String description) {
+			Transaction stored = transactions.get(id);
+			if (stored == null || stored.getVersion() >= version) {
+				return;
+			}
+			Transaction next = withChanges(stored, version, status, description);
+			transactions.put(id, next);
+			reindex(stored, next);
+		}
+
+		@Override
+		public void onDelete(String id) {
+			remove(id);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.bank.transaction.repository;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+import com.bank.transaction.model.Transaction;
+
+/**
+ * K-way merge of iterators that are each in ascending order of a key
+ * <p>
+ * Of elements with equal keys only the one from the earliest source is returned, so a source
+ * listed first shadows older copies of the same element in later ones.
+ */
+final class MergingIterator<T, K extends Comparable<? super K>> implements Iterator<T> {
+	private final PriorityQueue<Head<T, K>> heads;
+	private final Function<? super T, ? extends K> keyOf;
+
+	MergingIterator(List<? extends Iterator<? extends T>> sources, Function<? super T, ? extends K> keyOf) {
+		this.heads = new PriorityQueue<>(Math.max(sources.size(), 1));
+		this.keyOf = keyOf;
+		for (int i = 0; i < sources.size(); i++) {
+			advance(sources.get(i), i);
+		}
+	}
+
+	/** Merge of transactions in {@link TransactionKey} order */
+	static MergingIterator<Transaction, TransactionKey> byKey(List<? extends Iterator<Transaction>> sources) {
+		return new MergingIterator<>(sources, TransactionKey::of);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !heads.isEmpty();
+	}
+
+	@Override
+	public T next() {
+		Head<T, K> head = heads.poll();
+		if (head == null) {
+			throw new NoSuchElementException();
+		}
+		advance(head.source, head.rank);
+		while (!heads.isEmpty() && heads.peek().key.compareTo(head.key) == 0) {
+			Head<T, K> shadowed = heads.poll();
+			advance(shadowed.source, shadowed.rank);
+		}
+		return head.value;
+	}
+
+	private void advance(Iterator<? extends T> source, int rank) {
+		if (source.hasNext()) {
+			T value = source.next();
+			heads.add(new Head<>(keyOf.apply(value), value, source, rank));
+		}
+	}
+
+	private record Head<T, K extends Comparable<? super K>>(K key, T value, Iterator<? extends T> source, int rank)
+			implements Comparable<Head<T, K>> {
+		@Override
+		public int compareTo(Head<T, K> other) {
+			int order = key.compareTo(other.key);
+			return order != 0 ? order : Integer.compare(rank, other.rank);
+		}
+	}
+}
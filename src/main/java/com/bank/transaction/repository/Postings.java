@@ -0,0 +1,72 @@
+package com.bank.transaction.repository;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent, newest-first ordered set of transaction keys for one index value
+ * <p>
+ * Keeps its own size counter because {@link ConcurrentSkipListSet#size()} walks the whole set,
+ * and the query planner compares sizes on every list call.
+ */
+final class Postings {
+	private final NavigableSet<TransactionKey> keys = new ConcurrentSkipListSet<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	void add(TransactionKey key) {
+		if (keys.add(key)) {
+			size.incrementAndGet();
+		}
+	}
+
+	void remove(TransactionKey key) {
+		if (keys.remove(key)) {
+			size.decrementAndGet();
+		}
+	}
+
+	int size() {
+		return size.get();
+	}
+
+	boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	/** View of all keys, oldest first; undated keys come first since they sort last */
+	NavigableSet<TransactionKey> oldestFirst() {
+		return keys.descendingSet();
+	}
+
+	/**
+	 * View of the keys dated within [startDate, endDate], newest first; either bound may be null
+	 */
+	NavigableSet<TransactionKey> range(Instant startDate, Instant endDate) {
+		return range(startDate, endDate, null);
+	}
+
+	/**
+	 * Same as {@link #range(Instant, Instant)}, additionally resuming strictly after {@code after}
+	 * when it is not null
+	 */
+	NavigableSet<TransactionKey> range(Instant startDate, Instant endDate, TransactionKey after) {
+		TransactionKey from = endDate == null ? null : TransactionKey.first(endDate);
+		boolean fromInclusive = true;
+		if (after != null && (from == null || after.compareTo(from) >= 0)) {
+			from = after;
+			fromInclusive = false;
+		}
+		TransactionKey to = startDate == null || startDate.equals(Instant.MIN)
+				? null : TransactionKey.first(startDate.minusNanos(1));
+		if (from != null && to != null) {
+			return from.compareTo(to) >= 0 ? Collections.emptyNavigableSet() : keys.subSet(from, fromInclusive, to, false);
+		}
+		if (from != null) {
+			return keys.tailSet(from, fromInclusive);
+		}
+		return to != null ? keys.headSet(to, false) : keys;
+	}
+}
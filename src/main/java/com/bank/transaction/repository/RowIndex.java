@@ -0,0 +1,106 @@
+package com.bank.transaction.repository;
+
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Open-addressing hash index from a key to a row number of the compact repository
+ * <p>
+ * Slots hold {@code row + 1} in a plain int array (0 marks an empty slot) and collisions are
+ * resolved by linear probing, so the index costs a few bytes per row instead of a map entry, a
+ * boxed key and a boxed value. Keys are not stored: the caller supplies the hash of a stored row
+ * for rehashing and a predicate to recognise the wanted row. Not thread-safe; callers synchronise.
+ */
+final class RowIndex {
+	private final IntUnaryOperator rowHash;
+	private int[] slots = new int[16];
+	private int size;
+
+	/**
+	 * @param rowHash hash of the key stored in a row; must agree with the hashes passed in
+	 */
+	RowIndex(IntUnaryOperator rowHash) {
+		this.rowHash = rowHash;
+	}
+
+	/** @return the first row with the given hash accepted by {@code matches}, or -1 */
+	int find(int hash, IntPredicate matches) {
+		int mask = slots.length - 1;
+		for (int i = spread(hash) & mask; slots[i] != 0; i = (i + 1) & mask) {
+			if (matches.test(slots[i] - 1)) {
+				return slots[i] - 1;
+			}
+		}
+		return -1;
+	}
+
+	void insert(int hash, int row) {
+		if ((size + 1) * 2 > slots.length) {
+			resize();
+		}
+		place(slots, hash, row);
+		size++;
+	}
+
+	/** Removes the row, shifting later entries of its probe run back so lookups never need tombstones */
+	void remove(int hash, int row) {
+		int mask = slots.length - 1;
+		int i = spread(hash) & mask;
+		while (slots[i] != row + 1) {
+			if (slots[i] == 0) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		slots[i] = 0;
+		size--;
+		for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+			int home = spread(rowHash.applyAsInt(slots[j] - 1)) & mask;
+			boolean reachable = i <= j ? i < home && home <= j : i < home || home <= j;
+			if (!reachable) {
+				slots[i] = slots[j];
+				slots[j] = 0;
+				i = j;
+			}
+		}
+	}
+
+	/** Removes every row */
+	void clear() {
+		slots = new int[16];
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** Bytes taken by the slot array */
+	long capacity() {
+		return (long) slots.length * Integer.BYTES;
+	}
+
+	private void resize() {
+		int[] resized = new int[slots.length * 2];
+		for (int slot : slots) {
+			if (slot != 0) {
+				place(resized, rowHash.applyAsInt(slot - 1), slot - 1);
+			}
+		}
+		slots = resized;
+	}
+
+	private static void place(int[] target, int hash, int row) {
+		int mask = target.length - 1;
+		int i = spread(hash) & mask;
+		while (target[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		target[i] = row + 1;
+	}
+
+	private static int spread(int hash) {
+		int h = hash * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,296 @@
+package com.bank.transaction.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Hash-sharded implementation of transaction repository, enabled with
+ * {@code transaction.repository.type=sharded}
+ * <p>
+ * Features:
+ * <p>
+ * 1. Transactions are partitioned by cardId hash into {@code transaction.repository.shards}
+ * independent {@link InMemoryTransactionRepository} shards, each with its own maps and indexes
+ * <p>
+ * 2. Queries filtered by cardId are answered by the one shard owning the card
+ * <p>
+ * 3. Other list queries fan out to every shard in parallel on a dedicated ForkJoin pool and the
+ * shard pages, each already in list order, are merged newest first
+ * <p>
+ * 4. orderIds stay unique across shards through a global orderId-to-shard claim, taken atomically
+ * with the insert into the owning shard
+ * <p>
+ * 5. Lookups by ID probe the shards in turn, which costs a few hash lookups and no global ID map
+ * <p>
+ * 6. Card summaries add up the card's summary from every shard, since incoming transfers are
+ * kept by the shard of the sending card
+ * <p>
+ * 7. The shards share one set of time rollups
+ * <p>
+ * An offset page needs the first {@code (page + 1) * size} matches of every shard, so deep offset
+ * pages cost more here than on a single store; cursor pages do not. The write-ahead journal is
+ * only supported by the in-memory store.
+ */
+@Repository
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "sharded")
+public class ShardedTransactionRepository implements ITransactionRepository, AutoCloseable {
+	private final static Logger LOGGER = LoggerFactory.getLogger(ShardedTransactionRepository.class);
+
+	private final InMemoryTransactionRepository[] shards;
+	private final Map<String, Integer> orderIdToShard = new ConcurrentHashMap<>();
+	private final TransactionRollups rollups = new TransactionRollups();
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param shardCount number of shards; 0 or less uses one per available processor
+	 */
+	@Autowired
+	public ShardedTransactionRepository(@Value("${transaction.repository.shards:0}") int shardCount) {
+		int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+		this.shards = new InMemoryTransactionRepository[count];
+		for (int i = 0; i < count; i++) {
+			shards[i] = new InMemoryTransactionRepository(rollups);
+		}
+		this.pool = new ForkJoinPool(Math.min(count, Runtime.getRuntime().availableProcessors()));
+		LOGGER.info("Sharded repository with {} shards and {} query threads", count, pool.getParallelism());
+	}
+
+	@Override
+	public Transaction createTransaction(Transaction transaction) {
+		int shard = shardOf(transaction.getCardId());
+		Transaction[] created = new Transaction[1];
+		orderIdToShard.compute(transaction.getOrderId(), (orderId, owner) -> {
+			if (owner != null && owner != shard) {
+				// the orderId is held by a transaction of another card, so it cannot be an identical retry
+				LOGGER.warn("Transaction with order ID {} already exists", orderId);
+				throw new TransactionAlreadyExistsException("Transaction with order ID already exists");
+			}
+			created[0] = shards[shard].createTransaction(transaction);
+			return shard;
+		});
+		return created[0];
+	}
+
+	/**
+	 * Inserts the items one by one: each shard insert is claimed with its orderId, and without a
+	 * journal there is no group commit for a single pass to save
+	 */
+	@Override
+	public List<BatchItemResult> createTransactions(List<Transaction> transactions) {
+		List<BatchItemResult> results = new ArrayList<>(transactions.size());
+		for (int i = 0; i < transactions.size(); i++) {
+			try {
+				results.add(BatchItemResult.created(i, createTransaction(transactions.get(i))));
+			} catch (TransactionAlreadyExistsException e) {
+				results.add(BatchItemResult.conflict(i, e.getMessage()));
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public void deleteTransaction(String id) {
+		InMemoryTransactionRepository shard = shardHolding(id);
+		Transaction existing = shard.getTransactionById(id);
+		shard.deleteTransaction(id);
+		if (existing != null) {
+			// keep the claim if a retry already re-created the orderId in the same shard
+			orderIdToShard.computeIfPresent(existing.getOrderId(),
+					(orderId, owner) -> shards[owner].existsByOrderId(orderId) ? owner : null);
+		}
+	}
+
+	@Override
+	public Transaction modifyTransaction(String id, Transaction transaction, long expectedVersion) {
+		return shardHolding(id).modifyTransaction(id, transaction, expectedVersion);
+	}
+
+	@Override
+	public PageResult<Transaction> listAllTransactions(int page, int pageSize, TransactionQuery query) {
+		if (query.getCardId() != null) {
+			return shards[shardOf(query.getCardId())].listAllTransactions(page, pageSize, query);
+		}
+		int fromIndex = Math.max(page, 0) * pageSize;
+		int limit = fromIndex + Math.max(pageSize, 0);
+		List<PageResult<Transaction>> pages = fanOut(shard -> shard.listAllTransactions(0, limit, query));
+
+		int total = 0;
+		List<Iterator<Transaction>> sorted = new ArrayList<>(pages.size());
+		for (PageResult<Transaction> shardPage : pages) {
+			total += shardPage.getTotalCount();
+			sorted.add(shardPage.getData().iterator());
+		}
+		Iterator<Transaction> merged = MergingIterator.byKey(sorted);
+		List<Transaction> pageData = new ArrayList<>(Math.max(pageSize, 0));
+		for (int i = 0; i < limit && merged.hasNext(); i++) {
+			Transaction t = merged.next();
+			if (i >= fromIndex) {
+				pageData.add(t);
+			}
+		}
+		return new PageResult<>(pageData, total);
+	}
+
+	@Override
+	public CursorPageResult<Transaction> listTransactionsByCursor(String cursor, int pageSize, TransactionQuery query) {
+		if (query.getCardId() != null) {
+			return shards[shardOf(query.getCardId())].listTransactionsByCursor(cursor, pageSize, query);
+		}
+		// reject a malformed cursor here rather than once per shard
+		TransactionKey.fromCursor(cursor);
+		List<CursorPageResult<Transaction>> pages = fanOut(shard -> shard.listTransactionsByCursor(cursor, pageSize, query));
+
+		List<Iterator<Transaction>> sorted = new ArrayList<>(pages.size());
+		for (CursorPageResult<Transaction> shardPage : pages) {
+			sorted.add(shardPage.getData().iterator());
+		}
+		Iterator<Transaction> merged = MergingIterator.byKey(sorted);
+		List<Transaction> pageData = new ArrayList<>(Math.max(pageSize, 0));
+		while (pageData.size() < pageSize && merged.hasNext()) {
+			pageData.add(merged.next());
+		}
+		String nextCursor = pageSize > 0 && pageData.size() == pageSize
+				? TransactionKey.of(pageData.get(pageSize - 1)).toCursor()
+				: null;
+		return new CursorPageResult<>(pageData, nextCursor);
+	}
+
+	/**
+	 * Merges the shard streams lazily on the calling thread, pulling from each shard only as far as
+	 * the consumer reads
+	 */
+	@Override
+	public Stream<Transaction> streamTransactions(TransactionQuery query) {
+		if (query.getCardId() != null) {
+			return shards[shardOf(query.getCardId())].streamTransactions(query);
+		}
+		List<Stream<Transaction>> streams = new ArrayList<>(shards.length);
+		List<Iterator<Transaction>> sorted = new ArrayList<>(shards.length);
+		for (InMemoryTransactionRepository shard : shards) {
+			Stream<Transaction> stream = shard.streamTransactions(query);
+			streams.add(stream);
+			sorted.add(stream.iterator());
+		}
+		Spliterator<Transaction> merged = Spliterators.spliteratorUnknownSize(MergingIterator.byKey(sorted),
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(merged, false).onClose(() -> streams.forEach(Stream::close));
+	}
+
+	@Override
+	public Transaction getTransactionById(String id) {
+		for (InMemoryTransactionRepository shard : shards) {
+			Transaction transaction = shard.getTransactionById(id);
+			if (transaction != null) {
+				return transaction;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean existsByOrderId(String orderId) {
+		return orderIdToShard.containsKey(orderId);
+	}
+
+	@Override
+	public List<CardSummary> getCardSummaries(String cardId) {
+		List<List<CardSummary>> parts = new ArrayList<>(shards.length);
+		for (InMemoryTransactionRepository shard : shards) {
+			parts.add(shard.getCardSummaries(cardId));
+		}
+		return CardSummaries.merge(parts);
+	}
+
+	@Override
+	public List<StatsBucket> getStats(StatsResolution resolution, int buckets) {
+		return rollups.stats(resolution, buckets);
+	}
+
+	@Override
+	public Map<String, Long> sizes() {
+		long transactions = 0;
+		long cardIds = 0;
+		long descriptionPostingBytes = 0;
+		for (InMemoryTransactionRepository shard : shards) {
+			Map<String, Long> sizes = shard.sizes();
+			transactions += sizes.get("transactions");
+			cardIds += sizes.get("cardIds");
+			descriptionPostingBytes += sizes.get("descriptionPostingBytes");
+		}
+		return Map.of(
+				"transactions", transactions,
+				"orderIds", (long) orderIdToShard.size(),
+				"cardIds", cardIds,
+				"descriptionPostingBytes", descriptionPostingBytes);
+	}
+
+	int shardCount() {
+		return shards.length;
+	}
+
+	int shardOf(String cardId) {
+		if (cardId == null) {
+			return 0;
+		}
+		int hash = cardId.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+	}
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	private InMemoryTransactionRepository shardHolding(String id) {
+		for (InMemoryTransactionRepository shard : shards) {
+			if (shard.getTransactionById(id) != null) {
+				return shard;
+			}
+		}
+		LOGGER.error("Transaction with ID {} not found", id);
+		throw new TransactionNotFoundException("Transaction not found");
+	}
+
+	/**
+	 * Runs the operation on every shard in parallel and returns the results in shard order
+	 */
+	private <T> List<T> fanOut(Function<InMemoryTransactionRepository, T> operation) {
+		List<ForkJoinTask<T>> tasks = new ArrayList<>(shards.length);
+		for (InMemoryTransactionRepository shard : shards) {
+			tasks.add(pool.submit(() -> operation.apply(shard)));
+		}
+		List<T> results = new ArrayList<>(shards.length);
+		for (ForkJoinTask<T> task : tasks) {
+			results.add(task.join());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,102 @@
+package com.bank.transaction.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only UTF-8 string storage for the compact repository
+ * <p>
+ * Strings are packed back to back into large byte chunks, each prefixed with its varint length,
+ * and addressed by a long handle. This keeps per-transaction strings such as orderId and
+ * description out of the object graph: one chunk holds thousands of them behind a single header.
+ * Space of replaced values is not reclaimed. Not thread-safe; callers synchronise.
+ */
+final class StringArena {
+	/** Handle of a null string */
+	static final long NULL = -1;
+
+	private static final int CHUNK_BITS = 20;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	private final List<byte[]> chunks = new ArrayList<>();
+	private int position = CHUNK_SIZE;
+
+	long append(String value) {
+		if (value == null) {
+			return NULL;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		int needed = varintSize(bytes.length) + bytes.length;
+		if (needed > CHUNK_SIZE) {
+			throw new IllegalArgumentException("String too long to store: " + bytes.length + " bytes");
+		}
+		if (position + needed > CHUNK_SIZE) {
+			chunks.add(new byte[CHUNK_SIZE]);
+			position = 0;
+		}
+		byte[] chunk = chunks.get(chunks.size() - 1);
+		long handle = ((long) (chunks.size() - 1) << CHUNK_BITS) | position;
+		position = writeVarint(chunk, position, bytes.length);
+		System.arraycopy(bytes, 0, chunk, position, bytes.length);
+		position += bytes.length;
+		return handle;
+	}
+
+	String get(long handle) {
+		if (handle == NULL) {
+			return null;
+		}
+		byte[] chunk = chunks.get((int) (handle >>> CHUNK_BITS));
+		int offset = (int) handle & (CHUNK_SIZE - 1);
+		int length = readVarint(chunk, offset);
+		int start = offset + varintSize(length);
+		return new String(chunk, start, length, StandardCharsets.UTF_8);
+	}
+
+	/** Compares the stored string with already encoded UTF-8 bytes without decoding it */
+	boolean equals(long handle, byte[] utf8) {
+		if (handle == NULL) {
+			return false;
+		}
+		byte[] chunk = chunks.get((int) (handle >>> CHUNK_BITS));
+		int offset = (int) handle & (CHUNK_SIZE - 1);
+		int length = readVarint(chunk, offset);
+		int start = offset + varintSize(length);
+		return length == utf8.length && Arrays.equals(chunk, start, start + length, utf8, 0, length);
+	}
+
+	/** Bytes reserved by the arena, used to report the footprint of the compact store */
+	long capacity() {
+		return (long) chunks.size() * CHUNK_SIZE;
+	}
+
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	private static int writeVarint(byte[] target, int offset, int value) {
+		while ((value & ~0x7f) != 0) {
+			target[offset++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		target[offset++] = (byte) value;
+		return offset;
+	}
+
+	private static int readVarint(byte[] source, int offset) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = source[offset++];
+			value |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.bank.transaction.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality strings of the compact repository, such as card IDs
+ * and currency codes
+ * <p>
+ * Each distinct value is stored once and rows keep its int code; -1 encodes null. Not
+ * thread-safe; callers synchronise.
+ */
+final class StringDictionary {
+	static final int NULL = -1;
+
+	private final Map<String, Integer> codes = new HashMap<>();
+	private final List<String> values = new ArrayList<>();
+
+	/** @return the code of the value, assigning the next one if it is new */
+	int encode(String value) {
+		if (value == null) {
+			return NULL;
+		}
+		return codes.computeIfAbsent(value, v -> {
+			values.add(v);
+			return values.size() - 1;
+		});
+	}
+
+	/** @return the code of the value, or {@link #NULL} if it has never been encoded */
+	int find(String value) {
+		return value == null ? NULL : codes.getOrDefault(value, NULL);
+	}
+
+	String decode(int code) {
+		return code == NULL ? null : values.get(code);
+	}
+
+	int size() {
+		return values.size();
+	}
+}
@@ -0,0 +1,1046 @@
+package com.bank.transaction.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.repository.TransactionSegment.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Hot/cold tiered implementation of transaction repository, enabled with
+ * {@code transaction.repository.type=tiered}
+ * <p>
+ * Features:
+ * <p>
+ * 1. Recent transactions live in an {@link InMemoryTransactionRepository}, the hot tier, with all
+ * of its indexes
+ * <p>
+ * 2. {@link #spill()} moves transactions dated more than {@code transaction.tiered.hot-age} ago,
+ * and the oldest ones beyond {@code transaction.tiered.hot-max-transactions}, into a new immutable
+ * {@link TransactionSegment} on disk, the cold tier, and drops them from the heap
+ * <p>
+ * 3. Lookups by ID and orderId fall through to the segments, newest first, each answering from
+ * its sparse index and a single block read. Each segment's orderId Bloom filter answers the
+ * duplicate check of a create with a new orderId without any read, so creates stay memory-speed
+ * however much history is cold.
+ * <p>
+ * 4. Listings lazily merge the hot tier with the segments overlapping the requested date range,
+ * newest first as usual, so cursor pages and exports read the cold tier only as far as they return.
+ * A listing retains the segments it reads, so a compaction replacing them meanwhile deletes their
+ * files only once the listing is closed or runs out.
+ * <p>
+ * 5. Modifying a cold transaction moves its next version into the hot tier. Modified and deleted
+ * cold versions are hidden by a per-ID version watermark until a compaction drops them.
+ * <p>
+ * 6. Segments are compacted by size tier: whenever {@value #MERGE_FACTOR} segments of similar size
+ * exist they are merged into one by streaming each of their sections, so a row is rewritten about
+ * once per power of {@value #MERGE_FACTOR} of the cold row count; beyond
+ * {@code transaction.tiered.max-segments} segments the smallest are merged as well
+ * <p>
+ * 7. Card summaries and rollups cover both tiers
+ * <p>
+ * 8. Nothing is lost on restart. The hot tier is journaled and snapshotted like the in-memory
+ * store, in the {@code journal} and {@code snapshots} subdirectories of
+ * {@code transaction.tiered.directory}, and a spill journals the deletes that hand its rows to the
+ * cold tier; deletes of cold transactions are journaled as tombstones. On startup the segments are
+ * reopened from their footers, a spill that a crash cut short is finished, older copies of a
+ * transaction are hidden again, and the card summaries and rollups are rebuilt.
+ * <p>
+ * The heap holds the hot tier, one sparse index entry per {@value TransactionSegment#BLOCK_SIZE}
+ * cold rows, {@value BloomFilter#DEFAULT_BITS_PER_KEY} filter bits per cold orderId, the card
+ * summaries and the watermarks of cold rows changed since they were last compacted. Listings
+ * filtered on other fields than date decode the cold rows of the date range, so they cost more once
+ * history is cold; cursor pages over recent transactions do not. Offset pages read only as far as
+ * their last row: the total of an unfiltered listing comes from the tier sizes, while that of a
+ * filtered one that reaches into the cold tier is an estimate, see
+ * {@link #listAllTransactions(int, int, TransactionQuery)}.
+ */
+@Repository
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "tiered")
+public class TieredTransactionRepository implements ITransactionRepository, AutoCloseable {
+	private final static Logger LOGGER = LoggerFactory.getLogger(TieredTransactionRepository.class);
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String HOT_JOURNAL = "journal";
+	private static final String HOT_SNAPSHOTS = "snapshots";
+	private static final String TOMBSTONES = "tombstones";
+	private static final String ALREADY_EXISTS = "Transaction with order ID already exists";
+
+	/** Segments of one size tier that are merged together; tiers are powers of it in rows */
+	private static final int MERGE_FACTOR = 4;
+
+	private final TransactionRollups rollups;
+	private final TransactionJournal hotJournal;
+	private final InMemoryTransactionRepository hot;
+
+	/** Deletes of cold transactions, replayed on startup to hide them again */
+	private final TransactionJournal tombstones;
+	private final CardSummaries coldSummaries = new CardSummaries();
+	private final AtomicLong coldCount = new AtomicLong();
+
+	/** Cold segments, newest first, replaced as a whole when a spill or compaction publishes */
+	private volatile List<TransactionSegment> segments = List.of();
+
+	/**
+	 * Highest cold version of each ID that is no longer current, because it was modified or
+	 * deleted ({@link Long#MAX_VALUE}); cold rows up to that version are skipped
+	 */
+	private final Map<String, Long> superseded = new ConcurrentHashMap<>();
+
+	/**
+	 * Segments replaced by compactions, each with the watermarks its compaction released; the
+	 * watermarks are kept until every reader still holding those segments is done, so that none of
+	 * them sees rows the compaction dropped
+	 */
+	private final List<Retirement> retired = new ArrayList<>();
+
+	/**
+	 * Creates and writes that find a transaction in the hot tier take the read lock; moving
+	 * transactions between tiers takes the write lock, so an orderId is never seen free in both
+	 */
+	private final ReadWriteLock tierLock = new ReentrantReadWriteLock();
+
+	private final Path directory;
+	private final Duration hotAge;
+	private final int hotMaxTransactions;
+	private final int maxSegments;
+	private final Clock clock;
+	private long nextSegment;
+
+	/** Transactions spilled since the hot tier was last snapshotted, each leaving a create and a delete in its journal */
+	private long spilledSinceSnapshot;
+
+	/**
+	 * @param directory where segments, the hot tier's journal and snapshots and the tombstones are
+	 * kept; whatever a previous run left there is reopened on startup
+	 * @param hotAge age of the transaction date after which it is moved to the cold tier
+	 * @param hotMaxTransactions transactions the hot tier keeps at most after a spill, which is also
+	 * the most written to one segment
+	 * @param maxSegments segments kept at most; beyond it the smallest are compacted together
+	 * @param durability when journal writes are forced to disk, see {@link TransactionJournal.Durability}
+	 * @param fsyncIntervalMillis interval between forced writes with {@code interval} durability
+	 */
+	@Autowired
+	public TieredTransactionRepository(@Value("${transaction.tiered.directory:data/segments}") Path directory,
+			@Value("${transaction.tiered.hot-age:7d}") Duration hotAge,
+			@Value("${transaction.tiered.hot-max-transactions:1000000}") int hotMaxTransactions,
+			@Value("${transaction.tiered.max-segments:16}") int maxSegments,
+			@Value("${transaction.journal.durability:batch}") String durability,
+			@Value("${transaction.journal.fsync-interval-ms:100}") long fsyncIntervalMillis) {
+		this(directory, hotAge, hotMaxTransactions, maxSegments,
+				TransactionJournal.Durability.valueOf(durability.toUpperCase()), fsyncIntervalMillis, Clock.systemUTC());
+	}
+
+	TieredTransactionRepository(Path directory, Duration hotAge, int hotMaxTransactions, int maxSegments, Clock clock) {
+		this(directory, hotAge, hotMaxTransactions, maxSegments, TransactionJournal.Durability.BATCH, 100, clock);
+	}
+
+	TieredTransactionRepository(Path directory, Duration hotAge, int hotMaxTransactions, int maxSegments,
+			TransactionJournal.Durability durability, long fsyncIntervalMillis, Clock clock) {
+		this.directory = directory;
+		this.hotAge = hotAge;
+		this.hotMaxTransactions = Math.max(hotMaxTransactions, 1);
+		this.maxSegments = Math.max(maxSegments, 1);
+		this.clock = clock;
+		this.rollups = new TransactionRollups(clock);
+		this.hotJournal = new TransactionJournal(directory.resolve(HOT_JOURNAL), durability, fsyncIntervalMillis);
+		this.tombstones = new TransactionJournal(directory.resolve(TOMBSTONES), durability, fsyncIntervalMillis);
+		this.hot = new InMemoryTransactionRepository(hotJournal,
+				new TransactionSnapshots(directory.resolve(HOT_SNAPSHOTS)), rollups);
+		reopen();
+		LOGGER.info("Tiered repository keeping {} or at most {} transactions in memory, segments in {}",
+				hotAge, this.hotMaxTransactions, directory);
+	}
+
+	@Override
+	public Transaction createTransaction(Transaction transaction) {
+		tierLock.readLock().lock();
+		try {
+			Transaction replayed = replayCold(transaction);
+			return replayed != null ? replayed : hot.createTransaction(transaction);
+		} finally {
+			tierLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Resolves the items whose orderId is held by a cold transaction and inserts the others into
+	 * the hot tier in one bulk insert
+	 */
+	@Override
+	public List<BatchItemResult> createTransactions(List<Transaction> transactions) {
+		tierLock.readLock().lock();
+		try {
+			List<BatchItemResult> results = new ArrayList<>(Collections.nCopies(transactions.size(), null));
+			List<Transaction> fresh = new ArrayList<>(transactions.size());
+			List<Integer> positions = new ArrayList<>(transactions.size());
+			for (int i = 0; i < transactions.size(); i++) {
+				try {
+					Transaction replayed = replayCold(transactions.get(i));
+					if (replayed != null) {
+						results.set(i, BatchItemResult.created(i, replayed));
+						continue;
+					}
+				} catch (TransactionAlreadyExistsException e) {
+					results.set(i, BatchItemResult.conflict(i, e.getMessage()));
+					continue;
+				}
+				fresh.add(transactions.get(i));
+				positions.add(i);
+			}
+			for (BatchItemResult result : hot.createTransactions(fresh)) {
+				int position = positions.get(result.getIndex());
+				results.set(position, result.withIndex(position));
+			}
+			return results;
+		} finally {
+			tierLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void deleteTransaction(String id) {
+		tierLock.readLock().lock();
+		try {
+			if (hot.getTransactionById(id) != null) {
+				deleteHot(id);
+				return;
+			}
+		} finally {
+			tierLock.readLock().unlock();
+		}
+		tierLock.writeLock().lock();
+		try {
+			if (hot.getTransactionById(id) != null) {
+				deleteHot(id);
+				return;
+			}
+			Transaction cold = coldById(id);
+			if (cold == null) {
+				LOGGER.error("Transaction with ID {} not found", id);
+				throw new TransactionNotFoundException("Transaction not found");
+			}
+			tombstones.appendDelete(id);
+			hide(id, Long.MAX_VALUE);
+			coldSummaries.remove(cold);
+			rollups.remove(cold);
+			coldCount.decrementAndGet();
+		} finally {
+			tierLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Deletes a hot transaction. If older versions of it may still be in a segment, a tombstone is
+	 * journaled first, so that they stay hidden after a restart however its watermark ends up.
+	 */
+	private void deleteHot(String id) {
+		if (!superseded.containsKey(id)) {
+			hot.deleteTransaction(id);
+			return;
+		}
+		tombstones.appendDelete(id);
+		hot.deleteTransaction(id);
+		hide(id, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Transaction modifyTransaction(String id, Transaction transaction, long expectedVersion) {
+		tierLock.readLock().lock();
+		try {
+			if (hot.getTransactionById(id) != null) {
+				return hot.modifyTransaction(id, transaction, expectedVersion);
+			}
+		} finally {
+			tierLock.readLock().unlock();
+		}
+		tierLock.writeLock().lock();
+		try {
+			if (hot.getTransactionById(id) != null) {
+				return hot.modifyTransaction(id, transaction, expectedVersion);
+			}
+			Transaction cold = coldById(id);
+			if (cold == null) {
+				LOGGER.error("Transaction with ID {} not found", id);
+				throw new TransactionNotFoundException("Transaction not found");
+			}
+			if (cold.getVersion() != expectedVersion) {
+				return null;
+			}
+			Transaction next = new Transaction(cold);
+			next.setStatus(transaction.getStatus());
+			next.setDescription(transaction.getDescription());
+			next.setVersion(cold.getVersion() + 1);
+			// adopted before it is hidden, so a reader looking at the hot tier again always finds one of them
+			hot.adopt(next);
+			hide(id, cold.getVersion());
+			coldSummaries.remove(cold);
+			coldCount.decrementAndGet();
+			if (cold.getStatus() != next.getStatus()) {
+				rollups.statusChanged(next, cold.getStatus());
+			}
+			return next;
+		} finally {
+			tierLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads the merged listing only up to the end of the page. The total of an unfiltered listing is
+	 * the size of both tiers. A filtered listing counts its hot matches exactly from the hot tier's
+	 * indexes; unless the page read the cold rows to their end, their share of the total is
+	 * extrapolated from the fraction of the cold rows read that matched to the cold rows in the date
+	 * range, so it is an estimate, never below the rows seen so far, and exact when every current
+	 * cold row in the range matches, as it does for a listing filtered on date alone.
+	 */
+	@Override
+	public PageResult<Transaction> listAllTransactions(int page, int pageSize, TransactionQuery query) {
+		int fromIndex = Math.max(page, 0) * pageSize;
+		int toIndex = fromIndex + pageSize;
+		List<Transaction> pageData = new ArrayList<>(Math.max(pageSize, 0));
+		boolean unfiltered = TransactionQuery.all().equals(query);
+		long size = unfiltered ? size() : 0;
+		ColdScan scan = new ColdScan();
+		int seen = 0;
+		boolean exhausted;
+		try (Stream<Transaction> matches = merged(query, null, scan)) {
+			Iterator<Transaction> iterator = matches.iterator();
+			while (seen < toIndex && iterator.hasNext()) {
+				Transaction t = iterator.next();
+				if (seen >= fromIndex) {
+					pageData.add(t);
+				}
+				seen++;
+			}
+			exhausted = !iterator.hasNext();
+		}
+		long total;
+		if (exhausted) {
+			total = seen;
+		} else if (unfiltered) {
+			total = Math.max(size, seen + 1);
+		} else {
+			long hotTotal = hot.listAllTransactions(0, 0, query).getTotalCount();
+			long coldEstimate = scan.read == 0 ? 0 : Math.round((double) scan.matched * scan.rows / scan.read);
+			total = Math.max(hotTotal + coldEstimate, seen + 1);
+		}
+		return new PageResult<>(pageData, (int) Math.min(total, Integer.MAX_VALUE));
+	}
+
+	@Override
+	public CursorPageResult<Transaction> listTransactionsByCursor(String cursor, int pageSize, TransactionQuery query) {
+		TransactionKey after = TransactionKey.fromCursor(cursor);
+		List<Transaction> pageData = new ArrayList<>(Math.max(pageSize, 0));
+		try (Stream<Transaction> matches = merged(query, after, new ColdScan())) {
+			Iterator<Transaction> iterator = matches.iterator();
+			while (pageData.size() < pageSize && iterator.hasNext()) {
+				pageData.add(iterator.next());
+			}
+		}
+		String nextCursor = pageSize > 0 && pageData.size() == pageSize
+				? TransactionKey.of(pageData.get(pageSize - 1)).toCursor()
+				: null;
+		return new CursorPageResult<>(pageData, nextCursor);
+	}
+
+	@Override
+	public Stream<Transaction> streamTransactions(TransactionQuery query) {
+		return merged(query, null, new ColdScan());
+	}
+
+	/**
+	 * Looks in the hot tier, then the cold one, then the hot tier again: a transaction moving
+	 * between tiers is published in the tier it enters before it leaves the other, so the second
+	 * look finds one that moved into the hot tier during the first two
+	 */
+	@Override
+	public Transaction getTransactionById(String id) {
+		Transaction transaction = hot.getTransactionById(id);
+		if (transaction == null) {
+			transaction = coldById(id);
+		}
+		return transaction != null ? transaction : hot.getTransactionById(id);
+	}
+
+	@Override
+	public boolean existsByOrderId(String orderId) {
+		return hot.existsByOrderId(orderId) || coldByOrderId(orderId) != null || hot.existsByOrderId(orderId);
+	}
+
+	@Override
+	public List<CardSummary> getCardSummaries(String cardId) {
+		return CardSummaries.merge(List.of(hot.getCardSummaries(cardId), coldSummaries.get(cardId)));
+	}
+
+	@Override
+	public List<StatsBucket> getStats(StatsResolution resolution, int buckets) {
+		return rollups.stats(resolution, buckets);
+	}
+
+	@Override
+	public Map<String, Long> sizes() {
+		Map<String, Long> hotSizes = hot.sizes();
+		long hotTransactions = hotSizes.get("transactions");
+		long coldTransactions = coldCount.get();
+		List<TransactionSegment> current = segments;
+		long filterBytes = 0;
+		for (TransactionSegment segment : current) {
+			filterBytes += segment.orderIdFilterBytes();
+		}
+		return Map.of(
+				"transactions", hotTransactions + coldTransactions,
+				"hotTransactions", hotTransactions,
+				"coldTransactions", coldTransactions,
+				"segments", (long) current.size(),
+				"orderIdFilterBytes", filterBytes,
+				"descriptionPostingBytes", hotSizes.get("descriptionPostingBytes"));
+	}
+
+	/**
+	 * Transactions in both tiers, read under the read lock so none is counted in both or neither
+	 * while it moves
+	 */
+	private long size() {
+		tierLock.readLock().lock();
+		try {
+			return hot.sizes().get("transactions") + coldCount.get();
+		} finally {
+			tierLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves every transaction that is due into new cold segments, then compacts the segments whose
+	 * tier is full. Runs concurrently with reads and writes.
+	 *
+	 * @return number of transactions moved
+	 */
+	public synchronized long spill() {
+		long started = System.nanoTime();
+		long moved = 0;
+		int batch;
+		do {
+			batch = spillBatch();
+			moved += batch;
+		} while (batch == hotMaxTransactions);
+		if (moved > 0) {
+			LOGGER.info("Spilled {} transactions to the cold tier in {} ms", moved,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			snapshotHotTier(moved);
+		}
+		compact();
+		return moved;
+	}
+
+	/**
+	 * Closes the journals and the segments, keeping every file for the next startup; segments
+	 * replaced by a compaction are deleted once the listings still reading them are closed
+	 */
+	@Override
+	public synchronized void close() {
+		segments.forEach(TransactionSegment::close);
+		segments = List.of();
+		retired.forEach(retirement -> retirement.placeholders().forEach(TransactionSegment::close));
+		retired.clear();
+		hotJournal.close();
+		tombstones.close();
+	}
+
+	/**
+	 * Snapshots the hot tier once as many transactions have been spilled since the last snapshot as
+	 * it holds, which keeps its journal, where each of them left a create and a delete, within a
+	 * small multiple of the hot tier
+	 */
+	private void snapshotHotTier(long moved) {
+		spilledSinceSnapshot += moved;
+		if (spilledSinceSnapshot >= hot.sizes().get("transactions")) {
+			long written = hot.snapshot();
+			spilledSinceSnapshot = 0;
+			LOGGER.debug("Snapshotted {} hot transactions", written);
+		}
+	}
+
+	/**
+	 * Writes the oldest due transactions, at most {@code hotMaxTransactions}, into a segment and
+	 * then, under the write lock, publishes it and evicts them from the hot tier. A transaction
+	 * modified or deleted while the segment was written stays hot and its cold copy is hidden, as
+	 * are those of the whole batch if the evictions cannot be journaled.
+	 *
+	 * @return number of transactions evicted
+	 */
+	private int spillBatch() {
+		long excess = hot.sizes().get("transactions") - hotMaxTransactions;
+		List<Transaction> oldest = hot.oldest(clock.instant().minus(hotAge), (int) Math.max(excess, 0), hotMaxTransactions);
+		if (oldest.isEmpty()) {
+			return 0;
+		}
+		List<Transaction> rows = oldest.reversed();
+		List<Entry> ids = new ArrayList<>(rows.size());
+		List<Entry> orderIds = new ArrayList<>(rows.size());
+		for (Transaction t : rows) {
+			ids.add(Entry.byId(t));
+			if (t.getOrderId() != null) {
+				orderIds.add(Entry.byOrderId(t));
+			}
+		}
+		Collections.sort(ids);
+		Collections.sort(orderIds);
+		TransactionSegment segment = TransactionSegment.write(nextSegmentPath(), List.of(), rows.iterator(),
+				ids.iterator(), orderIds.iterator());
+
+		List<Transaction> evicted;
+		tierLock.writeLock().lock();
+		try {
+			List<TransactionSegment> published = new ArrayList<>(segments.size() + 1);
+			published.add(segment);
+			published.addAll(segments);
+			segments = List.copyOf(published);
+			try {
+				evicted = hot.evict(rows);
+			} catch (RuntimeException e) {
+				rows.forEach(t -> hide(t.getId(), t.getVersion()));
+				throw e;
+			}
+			Set<String> moved = new HashSet<>();
+			for (Transaction t : evicted) {
+				coldSummaries.add(t);
+				moved.add(t.getId());
+			}
+			for (Transaction t : rows) {
+				if (!moved.contains(t.getId())) {
+					hide(t.getId(), t.getVersion());
+				}
+			}
+			coldCount.addAndGet(evicted.size());
+		} finally {
+			tierLock.writeLock().unlock();
+		}
+		LOGGER.debug("Spilled {} transactions to {}", evicted.size(), segment);
+		return evicted.size();
+	}
+
+	/**
+	 * Merges segments until no size tier holds {@value #MERGE_FACTOR} of them and there are at most
+	 * {@code maxSegments}. A merge's output lands in a higher tier than its inputs, so a row is
+	 * rewritten once per tier it climbs rather than at every compaction. Spills and compactions are
+	 * serialised, so no segment is published while a merge runs.
+	 */
+	private void compact() {
+		List<TransactionSegment> replaced = new ArrayList<>();
+		List<TransactionSegment> placeholders = new ArrayList<>();
+		Map<String, Long> released = new HashMap<>();
+		for (List<TransactionSegment> inputs; (inputs = nextMerge(segments)) != null; ) {
+			merge(inputs, released, placeholders);
+			replaced.addAll(inputs);
+		}
+		tierLock.writeLock().lock();
+		try {
+			boolean dropped = retired.removeIf(retirement -> {
+				if (!retirement.segments().stream().allMatch(TransactionSegment::isClosed)) {
+					return false;
+				}
+				retirement.watermarks().forEach(superseded::remove);
+				retirement.placeholders().forEach(TransactionSegment::delete);
+				return true;
+			});
+			if (dropped) {
+				rewriteTombstones();
+			}
+		} finally {
+			tierLock.writeLock().unlock();
+		}
+		if (!replaced.isEmpty()) {
+			retired.add(new Retirement(replaced, released, placeholders));
+		}
+	}
+
+	/**
+	 * Starts the tombstone journal over with the deletes whose watermarks are still held, once
+	 * compactions have dropped the rows others hid. The caller holds the write lock, so no delete is
+	 * journaled meanwhile.
+	 */
+	private void rewriteTombstones() {
+		long segment = tombstones.rotate();
+		tombstones.appendDeletes(superseded.entrySet().stream()
+				.filter(watermark -> watermark.getValue() == Long.MAX_VALUE)
+				.map(Map.Entry::getKey)
+				.toList());
+		tombstones.deleteSegmentsBefore(segment);
+	}
+
+	/**
+	 * @return the segments of the smallest tier holding {@value #MERGE_FACTOR} of them; else, with
+	 * more than {@code maxSegments} segments, the smallest ones; else null
+	 */
+	private List<TransactionSegment> nextMerge(List<TransactionSegment> current) {
+		Map<Integer, List<TransactionSegment>> tiers = new TreeMap<>();
+		for (TransactionSegment segment : current) {
+			tiers.computeIfAbsent(tier(segment.rowCount()), tier -> new ArrayList<>()).add(segment);
+		}
+		for (List<TransactionSegment> tier : tiers.values()) {
+			if (tier.size() >= MERGE_FACTOR) {
+				return tier;
+			}
+		}
+		if (current.size() <= maxSegments) {
+			return null;
+		}
+		List<TransactionSegment> bySize = new ArrayList<>(current);
+		bySize.sort(Comparator.comparingLong(TransactionSegment::rowCount));
+		return bySize.subList(0, current.size() - maxSegments + 1);
+	}
+
+	private static int tier(long rows) {
+		int tier = 0;
+		for (long r = rows; r >= MERGE_FACTOR; r /= MERGE_FACTOR) {
+			tier++;
+		}
+		return tier;
+	}
+
+	/**
+	 * Merges the segments into one that takes the place of the newest of them, dropping hidden
+	 * rows. The watermark of a dropped row is added to {@code released} unless a segment outside
+	 * the merge still holds a row it hides. The merged segment names the inputs, and the segments
+	 * they replaced whose files a reader still holds, so that a restart deletes whichever of them
+	 * it finds; one left without rows is added to {@code placeholders} to keep that list on disk.
+	 */
+	private void merge(List<TransactionSegment> inputs, Map<String, Long> released,
+			List<TransactionSegment> placeholders) {
+		long started = System.nanoTime();
+		Map<String, Long> applied = new HashMap<>(superseded);
+		Set<String> dropped = new HashSet<>();
+		List<Iterator<Transaction>> rows = new ArrayList<>(inputs.size());
+		List<Iterator<Entry>> ids = new ArrayList<>(inputs.size());
+		List<Iterator<Entry>> orderIds = new ArrayList<>(inputs.size());
+		for (TransactionSegment segment : inputs) {
+			rows.add(filtered(segment.rows(null, null), t -> {
+				if (isCurrent(applied, t.getId(), t.getVersion())) {
+					return true;
+				}
+				dropped.add(t.getId());
+				return false;
+			}));
+			ids.add(filtered(segment.idEntries(), e -> isCurrent(applied, e.key().getId(), e.version())));
+			orderIds.add(filtered(segment.orderIdEntries(), e -> isCurrent(applied, e.key().getId(), e.version())));
+		}
+		List<String> replaces = new ArrayList<>();
+		for (TransactionSegment segment : inputs) {
+			replaces.add(segment.path().getFileName().toString());
+			for (String older : segment.replaces()) {
+				if (Files.exists(directory.resolve(older))) {
+					replaces.add(older);
+				}
+			}
+		}
+		TransactionSegment merged = TransactionSegment.write(nextSegmentPath(), replaces, MergingIterator.byKey(rows),
+				new MergingIterator<>(ids, Function.identity()), new MergingIterator<>(orderIds, Function.identity()));
+
+		List<TransactionSegment> current = segments;
+		List<TransactionSegment> published = new ArrayList<>(current.size());
+		for (TransactionSegment segment : current) {
+			if (!inputs.contains(segment)) {
+				published.add(segment);
+			} else if (!published.contains(merged) && merged.rowCount() > 0) {
+				published.add(merged);
+			}
+		}
+		for (String id : dropped) {
+			long watermark = applied.get(id);
+			boolean hiddenElsewhere = published.stream().filter(segment -> segment != merged)
+					.anyMatch(segment -> segment.findById(id).stream().anyMatch(entry -> entry.version() <= watermark));
+			if (!hiddenElsewhere) {
+				released.put(id, watermark);
+			}
+		}
+		tierLock.writeLock().lock();
+		try {
+			segments = List.copyOf(published);
+		} finally {
+			tierLock.writeLock().unlock();
+		}
+		// readers that retained the inputs keep them until they are done
+		inputs.forEach(TransactionSegment::delete);
+		if (merged.rowCount() == 0) {
+			placeholders.add(merged);
+		}
+		LOGGER.info("Compacted {} segments into {} in {} ms", inputs.size(), merged,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+	}
+
+	/**
+	 * Merges the hot matches with those of every segment that may hold keys in the query's date
+	 * range, resuming strictly after {@code after} when it is not null; the cold rows read and
+	 * matched are counted in {@code scan} as the stream is consumed. The segments read are
+	 * retained until the stream is closed or runs out.
+	 */
+	private Stream<Transaction> merged(TransactionQuery query, TransactionKey after, ColdScan scan) {
+		Stream<Transaction> hotMatches = hot.streamTransactions(query, after);
+		List<TransactionSegment> current = acquire();
+		if (current.isEmpty()) {
+			return hotMatches;
+		}
+		TransactionKey from = query.getEndDate() == null ? null : TransactionKey.first(query.getEndDate());
+		if (after != null && (from == null || after.compareTo(from) >= 0)) {
+			from = after;
+		}
+		Instant startDate = query.getStartDate();
+		TransactionKey to = startDate == null || startDate.equals(Instant.MIN)
+				? null : TransactionKey.first(startDate.minusNanos(1));
+
+		List<TransactionSegment> read = new ArrayList<>(current.size());
+		for (TransactionSegment segment : current) {
+			if (segment.overlaps(from, to)) {
+				read.add(segment);
+			} else {
+				segment.release();
+			}
+		}
+		AtomicBoolean held = new AtomicBoolean(true);
+		Runnable releaseSegments = () -> {
+			if (held.compareAndSet(true, false)) {
+				release(read);
+			}
+		};
+		Iterator<Transaction> merging;
+		try {
+			List<Iterator<Transaction>> sources = new ArrayList<>(read.size() + 1);
+			sources.add(hotMatches.iterator());
+			for (TransactionSegment segment : read) {
+				scan.rows += segment.count(from, to);
+				sources.add(filtered(segment.rows(from, to), t -> {
+					scan.read++;
+					boolean matches = isCurrent(superseded, t.getId(), t.getVersion())
+							&& query.matches(t) && (after == null || !after.equals(TransactionKey.of(t)));
+					if (matches) {
+						scan.matched++;
+					}
+					return matches;
+				}));
+			}
+			merging = MergingIterator.byKey(sources);
+		} catch (RuntimeException e) {
+			releaseSegments.run();
+			hotMatches.close();
+			throw e;
+		}
+		Iterator<Transaction> rows = new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				if (merging.hasNext()) {
+					return true;
+				}
+				releaseSegments.run();
+				return false;
+			}
+
+			@Override
+			public Transaction next() {
+				return merging.next();
+			}
+		};
+		Spliterator<Transaction> spliterator = Spliterators.spliteratorUnknownSize(rows,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			releaseSegments.run();
+			hotMatches.close();
+		});
+	}
+
+	/**
+	 * Resolves a create against the cold tier, which may already hold its orderId
+	 *
+	 * @return the cold transaction if the request is an identical retry of it, or null if no
+	 * current cold transaction holds the orderId
+	 * @throws TransactionAlreadyExistsException if a different cold transaction holds it
+	 */
+	private Transaction replayCold(Transaction transaction) {
+		Transaction existing = coldByOrderId(transaction.getOrderId());
+		if (existing == null) {
+			return null;
+		}
+		if (IdempotentReplay.matches(existing, transaction)) {
+			LOGGER.info("Replaying transaction {} for order ID {}", existing.getId(), transaction.getOrderId());
+			return existing;
+		}
+		LOGGER.warn("Transaction with order ID {} already exists", transaction.getOrderId());
+		throw new TransactionAlreadyExistsException(ALREADY_EXISTS);
+	}
+
+	private Transaction coldById(String id) {
+		List<TransactionSegment> current = acquire();
+		try {
+			for (TransactionSegment segment : current) {
+				for (Entry entry : segment.findById(id)) {
+					if (isCurrent(superseded, id, entry.version())) {
+						return segment.get(entry.key());
+					}
+				}
+			}
+			return null;
+		} finally {
+			release(current);
+		}
+	}
+
+	private Transaction coldByOrderId(String orderId) {
+		if (orderId == null) {
+			return null;
+		}
+		List<TransactionSegment> current = acquire();
+		try {
+			for (TransactionSegment segment : current) {
+				for (Entry entry : segment.findByOrderId(orderId)) {
+					if (isCurrent(superseded, entry.key().getId(), entry.version())) {
+						return segment.get(entry.key());
+					}
+				}
+			}
+			return null;
+		} finally {
+			release(current);
+		}
+	}
+
+	/**
+	 * The published segments, each retained for the caller, who must {@link #release} them. A
+	 * segment that cannot be retained was closed after a newer list replaced it, so the list is
+	 * read again.
+	 */
+	private List<TransactionSegment> acquire() {
+		while (true) {
+			List<TransactionSegment> current = segments;
+			List<TransactionSegment> retained = new ArrayList<>(current.size());
+			for (TransactionSegment segment : current) {
+				if (!segment.retain()) {
+					break;
+				}
+				retained.add(segment);
+			}
+			if (retained.size() == current.size()) {
+				return retained;
+			}
+			release(retained);
+		}
+	}
+
+	private static void release(List<TransactionSegment> segments) {
+		segments.forEach(TransactionSegment::release);
+	}
+
+	private void hide(String id, long version) {
+		superseded.merge(id, version, Math::max);
+	}
+
+	private static boolean isCurrent(Map<String, Long> watermarks, String id, long version) {
+		Long watermark = watermarks.get(id);
+		return watermark == null || version > watermark;
+	}
+
+	/**
+	 * Segments replaced by a compaction, the watermarks it released, and the segments without rows
+	 * it wrote, which are not published and are deleted with the retirement
+	 */
+	private record Retirement(List<TransactionSegment> segments, Map<String, Long> watermarks,
+			List<TransactionSegment> placeholders) {
+	}
+
+	/** Next ID entry of a segment being merged by {@link #resolveCopies(List)} */
+	private record IdCursor(Entry entry, Iterator<Entry> rest) {
+	}
+
+	/** Cold rows in the date range of a listing, and those of them read and matched so far */
+	private static final class ColdScan {
+		long rows;
+		long read;
+		long matched;
+	}
+
+	private static <T> Iterator<T> filtered(Iterator<T> source, Predicate<? super T> keep) {
+		Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(source, Spliterator.ORDERED);
+		return StreamSupport.stream(spliterator, false).filter(keep).iterator();
+	}
+
+	private Path nextSegmentPath() {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegment++, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Reopens the segments a previous run left, replays the tombstones, resolves the copies of a
+	 * transaction found in more than one place and rebuilds the cold card summaries and rollups. Leftover
+	 * temporary files of segments that were being written, and segments named as replaced by
+	 * another one, are deleted.
+	 */
+	private void reopen() {
+		List<TransactionSegment> opened = new ArrayList<>();
+		try {
+			Files.createDirectories(directory);
+			List<Path> files;
+			try (Stream<Path> list = Files.list(directory)) {
+				// numbers are zero-padded, so this is newest first
+				files = list.sorted(Comparator.reverseOrder()).toList();
+			}
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (!name.startsWith(SEGMENT_PREFIX)) {
+					continue;
+				}
+				if (TransactionSegment.isTemporary(file)) {
+					LOGGER.warn("Deleting {}, a segment that was not completely written", file);
+					Files.delete(file);
+				} else if (name.endsWith(SEGMENT_SUFFIX)) {
+					opened.add(TransactionSegment.open(file));
+					long number = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+					nextSegment = Math.max(nextSegment, number + 1);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			opened.forEach(TransactionSegment::close);
+			hotJournal.close();
+			tombstones.close();
+			if (e instanceof IOException io) {
+				throw new UncheckedIOException("Cannot open segment directory " + directory, io);
+			}
+			throw (RuntimeException) e;
+		}
+
+		Set<String> replaced = new HashSet<>();
+		opened.forEach(segment -> replaced.addAll(segment.replaces()));
+		List<TransactionSegment> live = new ArrayList<>(opened.size());
+		for (TransactionSegment segment : opened) {
+			if (segment.rowCount() == 0 || replaced.contains(segment.path().getFileName().toString())) {
+				segment.delete();
+			} else {
+				live.add(segment);
+			}
+		}
+
+		tombstones.open(0, new TransactionJournal.Visitor() {
+			@Override
+			public void onCreate(Transaction transaction) {
+			}
+
+			@Override
+			public void onModify(String id, long version, TransactionStatus status, String description) {
+			}
+
+			/** A hot transaction is still there if the delete its tombstone preceded failed */
+			@Override
+			public void onDelete(String id) {
+				if (hot.getTransactionById(id) == null) {
+					hide(id, Long.MAX_VALUE);
+				}
+			}
+		});
+		resolveCopies(live);
+		for (TransactionSegment segment : live) {
+			for (Iterator<Transaction> rows = segment.rows(null, null); rows.hasNext(); ) {
+				Transaction t = rows.next();
+				if (isCurrent(superseded, t.getId(), t.getVersion())) {
+					coldSummaries.add(t);
+					rollups.add(t);
+					coldCount.incrementAndGet();
+				}
+			}
+		}
+		segments = List.copyOf(live);
+		if (!live.isEmpty()) {
+			LOGGER.info("Reopened {} segments holding {} cold transactions", live.size(), coldCount.get());
+		}
+	}
+
+	/**
+	 * Walks the ID entries of all segments in ID order and hides every cold version of an ID but
+	 * the newest, and that one too if the hot tier holds a newer version, as it does for a modified
+	 * cold transaction. Apart from tombstones these are the watermarks the previous run had. A
+	 * transaction the hot tier holds at the newest cold version was being spilled when the previous
+	 * run stopped, before its eviction was journaled; the spill is finished by evicting it.
+	 */
+	private void resolveCopies(List<TransactionSegment> live) {
+		PriorityQueue<IdCursor> cursors = new PriorityQueue<>(Comparator.comparing(cursor -> cursor.entry().name()));
+		for (TransactionSegment segment : live) {
+			Iterator<Entry> entries = segment.idEntries();
+			if (entries.hasNext()) {
+				cursors.add(new IdCursor(entries.next(), entries));
+			}
+		}
+		List<Transaction> spilled = new ArrayList<>();
+		while (!cursors.isEmpty()) {
+			String id = cursors.peek().entry().name();
+			long newest = 0;
+			long stale = 0;
+			while (!cursors.isEmpty() && cursors.peek().entry().name().equals(id)) {
+				IdCursor cursor = cursors.poll();
+				long version = cursor.entry().version();
+				if (version > newest) {
+					stale = newest;
+					newest = version;
+				} else if (version < newest) {
+					stale = Math.max(stale, version);
+				}
+				if (cursor.rest().hasNext()) {
+					cursors.add(new IdCursor(cursor.rest().next(), cursor.rest()));
+				}
+			}
+			Transaction hotCopy = hot.getTransactionById(id);
+			if (hotCopy != null && hotCopy.getVersion() != newest) {
+				hide(id, newest);
+				continue;
+			}
+			if (hotCopy != null) {
+				spilled.add(hotCopy);
+			}
+			if (stale > 0) {
+				hide(id, stale);
+			}
+		}
+		// counted in the rollups by the journal replay, and again with the cold rows
+		hot.evict(spilled).forEach(rollups::remove);
+	}
+}
@@ -0,0 +1,202 @@
+package com.bank.transaction.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Decorator that times every repository method and publishes the repository sizes
+ * <p>
+ * Features:
+ * <p>
+ * 1. One {@code transaction.repository{method=...}} timer per method, registered up front, so a
+ * call costs two clock reads and a histogram update without any meter lookup or allocation.
+ * Percentiles and histogram buckets come from {@code management.metrics.distribution.*}.
+ * <p>
+ * 2. A {@code transaction.repository.size{structure=...}} gauge for every entry of
+ * {@link ITransactionRepository#sizes()}
+ * <p>
+ * Failed calls are timed as well. {@link #streamTransactions} is timed until the stream is
+ * returned, not while it is consumed.
+ */
+public class TimedTransactionRepository implements ITransactionRepository {
+	static final String TIMER_NAME = "transaction.repository";
+	static final String SIZE_GAUGE_NAME = "transaction.repository.size";
+
+	private final ITransactionRepository delegate;
+	private final Clock clock;
+
+	private final Timer createTimer;
+	private final Timer createBatchTimer;
+	private final Timer deleteTimer;
+	private final Timer modifyTimer;
+	private final Timer listTimer;
+	private final Timer cursorTimer;
+	private final Timer streamTimer;
+	private final Timer getByIdTimer;
+	private final Timer existsByOrderIdTimer;
+	private final Timer cardSummariesTimer;
+	private final Timer statsTimer;
+
+	public TimedTransactionRepository(ITransactionRepository delegate, MeterRegistry registry) {
+		this.delegate = delegate;
+		this.clock = registry.config().clock();
+		this.createTimer = timer(registry, "createTransaction");
+		this.createBatchTimer = timer(registry, "createTransactions");
+		this.deleteTimer = timer(registry, "deleteTransaction");
+		this.modifyTimer = timer(registry, "modifyTransaction");
+		this.listTimer = timer(registry, "listAllTransactions");
+		this.cursorTimer = timer(registry, "listTransactionsByCursor");
+		this.streamTimer = timer(registry, "streamTransactions");
+		this.getByIdTimer = timer(registry, "getTransactionById");
+		this.existsByOrderIdTimer = timer(registry, "existsByOrderId");
+		this.cardSummariesTimer = timer(registry, "getCardSummaries");
+		this.statsTimer = timer(registry, "getStats");
+		for (String structure : delegate.sizes().keySet()) {
+			Gauge.builder(SIZE_GAUGE_NAME, delegate, repository -> repository.sizes().getOrDefault(structure, 0L))
+					.description("Entries held by the transaction repository")
+					.tag("structure", structure)
+					.register(registry);
+		}
+	}
+
+	private static Timer timer(MeterRegistry registry, String method) {
+		return Timer.builder(TIMER_NAME)
+				.description("Latency of transaction repository operations")
+				.tag("method", method)
+				.register(registry);
+	}
+
+	private void record(Timer timer, long start) {
+		timer.record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public Transaction createTransaction(Transaction transaction) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.createTransaction(transaction);
+		} finally {
+			record(createTimer, start);
+		}
+	}
+
+	@Override
+	public List<BatchItemResult> createTransactions(List<Transaction> transactions) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.createTransactions(transactions);
+		} finally {
+			record(createBatchTimer, start);
+		}
+	}
+
+	@Override
+	public void deleteTransaction(String id) {
+		long start = clock.monotonicTime();
+		try {
+			delegate.deleteTransaction(id);
+		} finally {
+			record(deleteTimer, start);
+		}
+	}
+
+	@Override
+	public Transaction modifyTransaction(String id, Transaction transaction, long expectedVersion) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.modifyTransaction(id, transaction, expectedVersion);
+		} finally {
+			record(modifyTimer, start);
+		}
+	}
+
+	@Override
+	public PageResult<Transaction> listAllTransactions(int page, int pageSize, TransactionQuery query) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.listAllTransactions(page, pageSize, query);
+		} finally {
+			record(listTimer, start);
+		}
+	}
+
+	@Override
+	public CursorPageResult<Transaction> listTransactionsByCursor(String cursor, int pageSize, TransactionQuery query) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.listTransactionsByCursor(cursor, pageSize, query);
+		} finally {
+			record(cursorTimer, start);
+		}
+	}
+
+	@Override
+	public Stream<Transaction> streamTransactions(TransactionQuery query) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.streamTransactions(query);
+		} finally {
+			record(streamTimer, start);
+		}
+	}
+
+	@Override
+	public Transaction getTransactionById(String id) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.getTransactionById(id);
+		} finally {
+			record(getByIdTimer, start);
+		}
+	}
+
+	@Override
+	public boolean existsByOrderId(String orderId) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.existsByOrderId(orderId);
+		} finally {
+			record(existsByOrderIdTimer, start);
+		}
+	}
+
+	@Override
+	public List<CardSummary> getCardSummaries(String cardId) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.getCardSummaries(cardId);
+		} finally {
+			record(cardSummariesTimer, start);
+		}
+	}
+
+	@Override
+	public List<StatsBucket> getStats(StatsResolution resolution, int buckets) {
+		long start = clock.monotonicTime();
+		try {
+			return delegate.getStats(resolution, buckets);
+		} finally {
+			record(statsTimer, start);
+		}
+	}
+
+	@Override
+	public Map<String, Long> sizes() {
+		return delegate.sizes();
+	}
+}
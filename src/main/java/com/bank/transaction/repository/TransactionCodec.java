@@ -0,0 +1,149 @@
+package com.bank.transaction.repository;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Currency;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+
+/**
+ * Compact binary encoding of {@link Transaction} shared by the journal and on-disk formats
+ * <p>
+ * Values are written big-endian through {@link DataOutput} and read back from a {@link ByteBuffer},
+ * so the same bytes can come from a stream or a memory-mapped file. Nullable strings are a length
+ * prefix (-1 for null) followed by UTF-8 bytes; enums are a single ordinal byte (-1 for null).
+ */
+final class TransactionCodec {
+
+	private TransactionCodec() {
+	}
+
+	static void write(DataOutput out, Transaction t) throws IOException {
+		writeString(out, t.getId());
+		writeString(out, t.getOrderId());
+		writeEnum(out, t.getType());
+		writeString(out, t.getCurrency() == null ? null : t.getCurrency().getCurrencyCode());
+		writeAmount(out, t.getAmount());
+		writeInstant(out, t.getDate());
+		writeString(out, t.getCardId());
+		writeString(out, t.getToCardId());
+		writeString(out, t.getDescription());
+		writeEnum(out, t.getStatus());
+		writeEnum(out, t.getChannel());
+		out.writeLong(t.getVersion());
+	}
+
+	static Transaction read(ByteBuffer in) {
+		Transaction t = new Transaction();
+		t.setId(readString(in));
+		t.setOrderId(readString(in));
+		t.setType(readEnum(in, TransactionType.values()));
+		String currency = readString(in);
+		t.setCurrency(currency == null ? null : Currency.getInstance(currency));
+		t.setAmount(readAmount(in));
+		t.setDate(readInstant(in));
+		t.setCardId(readString(in));
+		t.setToCardId(readString(in));
+		t.setDescription(readString(in));
+		t.setStatus(readEnum(in, TransactionStatus.values()));
+		t.setChannel(readEnum(in, TransactionChannel.values()));
+		t.setVersion(in.getLong());
+		return t;
+	}
+
+	/**
+	 * Reads only the sort key of a record written by {@link #write(DataOutput, Transaction)},
+	 * skipping the fields in between; the buffer is left positioned after the date
+	 */
+	static TransactionKey readKey(ByteBuffer in) {
+		String id = readString(in);
+		skipBytes(in); // orderId
+		in.get(); // type
+		skipBytes(in); // currency
+		int unscaled = in.getInt();
+		if (unscaled >= 0) {
+			in.position(in.position() + unscaled + Integer.BYTES);
+		}
+		return new TransactionKey(readInstant(in), id);
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void skipBytes(ByteBuffer in) {
+		int length = in.getInt();
+		if (length > 0) {
+			in.position(in.position() + length);
+		}
+	}
+
+	static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+		out.writeByte(value == null ? -1 : value.ordinal());
+	}
+
+	static <E extends Enum<E>> E readEnum(ByteBuffer in, E[] values) {
+		byte ordinal = in.get();
+		return ordinal < 0 ? null : values[ordinal];
+	}
+
+	private static void writeAmount(DataOutput out, BigDecimal amount) throws IOException {
+		if (amount == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] unscaled = amount.unscaledValue().toByteArray();
+		out.writeInt(unscaled.length);
+		out.write(unscaled);
+		out.writeInt(amount.scale());
+	}
+
+	private static BigDecimal readAmount(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] unscaled = new byte[length];
+		in.get(unscaled);
+		return new BigDecimal(new BigInteger(unscaled), in.getInt());
+	}
+
+	static void writeInstant(DataOutput out, Instant instant) throws IOException {
+		out.writeBoolean(instant != null);
+		if (instant != null) {
+			out.writeLong(instant.getEpochSecond());
+			out.writeInt(instant.getNano());
+		}
+	}
+
+	static Instant readInstant(ByteBuffer in) {
+		if (in.get() == 0) {
+			return null;
+		}
+		return Instant.ofEpochSecond(in.getLong(), in.getInt());
+	}
+}
@@ -0,0 +1,57 @@
+package com.bank.transaction.repository;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUID transaction IDs
+ * <p>
+ * {@link UUID#randomUUID()} takes the shared SecureRandom once per ID; {@link #next(int)} draws
+ * the randomness for a whole batch in a single call, which is what makes bulk inserts cheap.
+ */
+final class TransactionIds {
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private TransactionIds() {
+	}
+
+	static String next() {
+		return UUID.randomUUID().toString();
+	}
+
+	static String[] next(int count) {
+		UUID[] uuids = nextUuids(count);
+		String[] ids = new String[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = uuids[i].toString();
+		}
+		return ids;
+	}
+
+	/** Same as {@link #next(int)} for callers that store the two halves rather than the string */
+	static UUID[] nextUuids(int count) {
+		byte[] random = new byte[count * 16];
+		RANDOM.nextBytes(random);
+		UUID[] uuids = new UUID[count];
+		for (int i = 0; i < count; i++) {
+			uuids[i] = toUuid(random, i * 16);
+		}
+		return uuids;
+	}
+
+	private static UUID toUuid(byte[] random, int offset) {
+		random[offset + 6] &= 0x0f;  // clear version
+		random[offset + 6] |= 0x40;  // set to version 4
+		random[offset + 8] &= 0x3f;  // clear variant
+		random[offset + 8] |= (byte) 0x80;  // set to IETF variant
+		long msb = 0;
+		long lsb = 0;
+		for (int i = 0; i < 8; i++) {
+			msb = (msb << 8) | (random[offset + i] & 0xff);
+		}
+		for (int i = 8; i < 16; i++) {
+			lsb = (lsb << 8) | (random[offset + i] & 0xff);
+		}
+		return new UUID(msb, lsb);
+	}
+}
@@ -0,0 +1,481 @@
+package com.bank.transaction.repository;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only write-ahead journal of repository mutations
+ * <p>
+ * Features:
+ * <p>
+ * 1. Records are encoded on the calling thread and handed to a single writer thread, which drains
+ * everything queued so far into one gathering {@link FileChannel} write (group commit)
+ * <p>
+ * 2. {@link Durability#BATCH} shares one fsync per drained batch and releases callers only after it;
+ * {@link Durability#INTERVAL} releases callers once the write reaches the OS and fsyncs on a timer
+ * <p>
+ * 3. Each record is framed as [length][CRC32][type][payload]; replay stops at the first torn or
+ * corrupt record and truncates the tail, so a crash mid-write loses only unacknowledged records
+ * <p>
+ * 4. Records live in numbered segment files; a snapshot rotates to a new segment so that older
+ * ones can be dropped once it is written
+ * <p>
+ * 5. A group whose write or fsync fails is truncated away before its callers are failed, so no
+ * record a caller was told failed comes back on replay and later groups never follow torn bytes.
+ * If that truncation, or an interval fsync of acknowledged records, fails too, the journal turns
+ * failed and rejects every later append.
+ */
+public class TransactionJournal implements AutoCloseable {
+	private final static Logger LOGGER = LoggerFactory.getLogger(TransactionJournal.class);
+
+	private static final int MAGIC = 0x54584a4c; // "TXJL"
+	private static final int FORMAT_VERSION = 3;
+	private static final int HEADER_SIZE = 8;
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final int MAX_GROUP_SIZE = 1024;
+
+	private static final byte CREATE = 1;
+	private static final byte MODIFY = 2;
+	private static final byte DELETE = 3;
+
+	public enum Durability {
+		/** fsync once per group commit before acknowledging the writers in it */
+		BATCH,
+		/** acknowledge after the write reaches the OS, fsync every configured interval */
+		INTERVAL
+	}
+
+	/**
+	 * Opens the file of a segment for writing; tests substitute one that fails
+	 */
+	@FunctionalInterface
+	interface SegmentOpener {
+		FileChannel open(Path path) throws IOException;
+	}
+
+	/**
+	 * Receives journal records during replay, in the order they were committed
+	 */
+	interface Visitor {
+		void onCreate(Transaction transaction);
+
+		/**
+		 * @param version version the modification produced
+		 */
+		void onModify(String id, long version, TransactionStatus status, String description);
+
+		void onDelete(String id);
+	}
+
+	private final Path directory;
+	private final SegmentOpener opener;
+	private final Durability durability;
+	private final long fsyncIntervalNanos;
+	private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+	private final Thread writerThread;
+
+	/** Guards {@link #channel} and {@link #segment} against a rotation racing the writer thread */
+	private final Object segmentLock = new Object();
+	private FileChannel channel;
+	private long segment;
+	private volatile boolean running = true;
+	/** Set once a failed write could not be rolled back; every later append is rejected */
+	private volatile IOException failure;
+
+	public TransactionJournal(Path directory, Durability durability, long fsyncIntervalMillis) {
+		this(directory, durability, fsyncIntervalMillis,
+				path -> FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+	}
+
+	TransactionJournal(Path directory, Durability durability, long fsyncIntervalMillis, SegmentOpener opener) {
+		this.directory = directory;
+		this.opener = opener;
+		this.durability = durability;
+		this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMillis));
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot create journal directory " + directory, e);
+		}
+		this.writerThread = new Thread(this::writeLoop, "transaction-journal-writer");
+		this.writerThread.setDaemon(true);
+	}
+
+	/**
+	 * Replays every committed record from segment {@code fromSegment} onwards and then opens the
+	 * journal for appending; must be called once before the first append
+	 *
+	 * @return number of records replayed
+	 */
+	long open(long fromSegment, Visitor visitor) {
+		try {
+			long started = System.nanoTime();
+			long records = 0;
+			List<Long> segments = listSegments().stream().filter(number -> number >= fromSegment).toList();
+			for (long existing : segments) {
+				records += replaySegment(existing, visitor);
+			}
+			long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			LOGGER.info("Replayed {} journal records from {} segments in {} ms ({} records/s)",
+					records, segments.size(), elapsedMillis, records * 1000 / elapsedMillis);
+			synchronized (segmentLock) {
+				openSegment(segments.isEmpty() ? Math.max(1, fromSegment) : segments.get(segments.size() - 1));
+			}
+			writerThread.start();
+			return records;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open journal in " + directory, e);
+		}
+	}
+
+	/**
+	 * Closes the current segment and starts a new one; every record committed after this returns
+	 * lands in the returned segment or a later one
+	 *
+	 * @return number of the new segment
+	 */
+	long rotate() {
+		synchronized (segmentLock) {
+			try {
+				channel.force(false);
+				channel.close();
+				openSegment(segment + 1);
+				return segment;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot rotate journal in " + directory, e);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the segments whose records are all covered by a snapshot taken at {@code segment}
+	 */
+	void deleteSegmentsBefore(long segment) {
+		try {
+			for (long number : listSegments()) {
+				if (number < segment) {
+					Files.deleteIfExists(segmentPath(number));
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed to delete old journal segments in {}", directory, e);
+		}
+	}
+
+	void appendCreate(Transaction transaction) {
+		commit(encodeCreate(transaction));
+	}
+
+	void appendCreates(List<Transaction> transactions) {
+		if (transactions.isEmpty()) {
+			return;
+		}
+		ByteBuffer[] records = new ByteBuffer[transactions.size()];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = encodeCreate(transactions.get(i));
+		}
+		commit(records);
+	}
+
+	void appendModify(String id, long version, TransactionStatus status, String description) {
+		commit(encode(MODIFY, out -> {
+			TransactionCodec.writeString(out, id);
+			out.writeLong(version);
+			TransactionCodec.writeEnum(out, status);
+			TransactionCodec.writeString(out, description);
+		}));
+	}
+
+	void appendDelete(String id) {
+		commit(encode(DELETE, out -> TransactionCodec.writeString(out, id)));
+	}
+
+	void appendDeletes(List<String> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		ByteBuffer[] records = new ByteBuffer[ids.size()];
+		for (int i = 0; i < records.length; i++) {
+			String id = ids.get(i);
+			records[i] = encode(DELETE, out -> TransactionCodec.writeString(out, id));
+		}
+		commit(records);
+	}
+
+	@Override
+	public void close() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		// wake the writer with an empty append rather than an interrupt, which would close the channel
+		queue.add(new PendingAppend(new ByteBuffer[0]));
+		try {
+			if (writerThread.isAlive()) {
+				writerThread.join();
+			}
+			synchronized (segmentLock) {
+				if (channel != null) {
+					channel.force(false);
+					channel.close();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			LOGGER.error("Failed to close journal", e);
+		}
+		IllegalStateException closed = new IllegalStateException("Journal is closed");
+		for (PendingAppend append; (append = queue.poll()) != null; ) {
+			append.done.completeExceptionally(closed);
+		}
+	}
+
+	private void commit(ByteBuffer... records) {
+		if (!running) {
+			throw new IllegalStateException("Journal is closed");
+		}
+		if (failure != null) {
+			throw new IllegalStateException("Journal has failed", failure);
+		}
+		PendingAppend append = new PendingAppend(records);
+		queue.add(append);
+		try {
+			append.done.join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException cause ? cause : e;
+		}
+	}
+
+	private void writeLoop() {
+		List<PendingAppend> group = new ArrayList<>();
+		List<ByteBuffer> buffers = new ArrayList<>();
+		long lastFsync = System.nanoTime();
+		boolean dirty = false;
+		while (running || !queue.isEmpty()) {
+			try {
+				PendingAppend first = queue.poll(durability == Durability.INTERVAL ? fsyncIntervalNanos : Long.MAX_VALUE,
+						TimeUnit.NANOSECONDS);
+				if (first != null) {
+					group.add(first);
+					queue.drainTo(group, MAX_GROUP_SIZE - 1);
+					if (failure != null) {
+						throw failure;
+					}
+					for (PendingAppend append : group) {
+						buffers.addAll(List.of(append.records));
+					}
+					synchronized (segmentLock) {
+						long groupStart = channel.position();
+						try {
+							writeFully(buffers.toArray(ByteBuffer[]::new));
+							if (durability == Durability.BATCH) {
+								channel.force(false);
+							}
+						} catch (IOException e) {
+							rollBack(groupStart);
+							throw e;
+						}
+					}
+					dirty |= durability == Durability.INTERVAL;
+					group.forEach(append -> append.done.complete(null));
+				}
+				if (dirty && System.nanoTime() - lastFsync >= fsyncIntervalNanos) {
+					synchronized (segmentLock) {
+						try {
+							channel.force(false);
+						} catch (IOException e) {
+							// the records since the last fsync are acknowledged and cannot be taken back
+							failure = e;
+							throw e;
+						}
+					}
+					lastFsync = System.nanoTime();
+					dirty = false;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (IOException e) {
+				LOGGER.error("Journal write failed", e);
+				UncheckedIOException failed = new UncheckedIOException("Journal write failed", e);
+				group.forEach(append -> append.done.completeExceptionally(failed));
+			} finally {
+				group.clear();
+				buffers.clear();
+			}
+		}
+	}
+
+	/**
+	 * Cuts a failed group off the segment and makes the cut durable, so none of its records can be
+	 * replayed and the next group starts where it did; marks the journal failed if that fails too
+	 */
+	private void rollBack(long groupStart) {
+		try {
+			channel.truncate(groupStart);
+			channel.position(groupStart);
+			channel.force(false);
+		} catch (IOException e) {
+			LOGGER.error("Cannot roll back failed journal write, rejecting further appends", e);
+			failure = e;
+		}
+	}
+
+	private void writeFully(ByteBuffer[] buffers) throws IOException {
+		long remaining = 0;
+		for (ByteBuffer buffer : buffers) {
+			remaining += buffer.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= channel.write(buffers);
+		}
+	}
+
+	private ByteBuffer encodeCreate(Transaction transaction) {
+		return encode(CREATE, out -> TransactionCodec.write(out, transaction));
+	}
+
+	private static ByteBuffer encode(byte type, RecordWriter payload) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0); // length, patched below
+			out.writeInt(0); // CRC32, patched below
+			out.writeByte(type);
+			payload.write(out);
+			ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+			int bodyLength = record.capacity() - 8;
+			CRC32 crc = new CRC32();
+			crc.update(record.array(), 8, bodyLength);
+			record.putInt(0, bodyLength);
+			record.putInt(4, (int) crc.getValue());
+			return record;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private long replaySegment(long number, Visitor visitor) throws IOException {
+		Path path = segmentPath(number);
+		long records = 0;
+		long validPosition = HEADER_SIZE;
+		try (InputStream file = Files.newInputStream(path);
+			 DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Not a journal segment: " + path);
+			}
+			CRC32 crc = new CRC32();
+			while (true) {
+				byte[] body;
+				int checksum;
+				try {
+					int length = in.readInt();
+					checksum = in.readInt();
+					if (length <= 0) {
+						break;
+					}
+					body = new byte[length];
+					in.readFully(body);
+				} catch (EOFException e) {
+					break;
+				}
+				crc.reset();
+				crc.update(body);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				apply(ByteBuffer.wrap(body), visitor);
+				validPosition += 8 + body.length;
+				records++;
+			}
+		} catch (EOFException e) {
+			throw new IOException("Truncated journal header: " + path, e);
+		}
+		if (Files.size(path) > validPosition) {
+			LOGGER.warn("Truncating torn journal tail of {} at byte {}", path, validPosition);
+			try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+				truncate.truncate(validPosition);
+			}
+		}
+		return records;
+	}
+
+	private static void apply(ByteBuffer record, Visitor visitor) {
+		byte type = record.get();
+		switch (type) {
+			case CREATE -> visitor.onCreate(TransactionCodec.read(record));
+			case MODIFY -> visitor.onModify(TransactionCodec.readString(record), record.getLong(),
+					TransactionCodec.readEnum(record, TransactionStatus.values()), TransactionCodec.readString(record));
+			case DELETE -> visitor.onDelete(TransactionCodec.readString(record));
+			default -> throw new IllegalStateException("Unknown journal record type " + type);
+		}
+	}
+
+	private void openSegment(long number) throws IOException {
+		Path path = segmentPath(number);
+		boolean fresh = Files.notExists(path);
+		channel = opener.open(path);
+		segment = number;
+		if (fresh) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+			writeFully(new ByteBuffer[]{header});
+			channel.force(true);
+		}
+		channel.position(channel.size());
+	}
+
+	private List<Long> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+					.map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+					.sorted()
+					.toList();
+		}
+	}
+
+	private Path segmentPath(long number) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+	}
+
+	@FunctionalInterface
+	private interface RecordWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private static final class PendingAppend {
+		private final ByteBuffer[] records;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		private PendingAppend(ByteBuffer[] records) {
+			this.records = records;
+		}
+	}
+}
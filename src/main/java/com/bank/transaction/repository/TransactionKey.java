@@ -0,0 +1,96 @@
+package com.bank.transaction.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Objects;
+
+import com.bank.transaction.model.Transaction;
+
+/**
+ * Sort key shared by every repository index
+ * <p>
+ * Orders transactions newest-first by date, breaking ties by ID so the order is total and
+ * stable between calls. Transactions without a date sort after all dated ones.
+ */
+final class TransactionKey implements Comparable<TransactionKey> {
+	private static final Comparator<TransactionKey> ORDER = Comparator
+			.comparing(TransactionKey::getDate, Comparator.nullsLast(Comparator.<Instant>reverseOrder()))
+			.thenComparing(TransactionKey::getId);
+
+	private static final char CURSOR_SEPARATOR = '|';
+
+	private final Instant date;
+	private final String id;
+
+	TransactionKey(Instant date, String id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	static TransactionKey of(Transaction transaction) {
+		return new TransactionKey(transaction.getDate(), transaction.getId());
+	}
+
+	/** Smallest key for the given date, i.e. the first position a newest-first scan reaches for it */
+	static TransactionKey first(Instant date) {
+		return new TransactionKey(date, "");
+	}
+
+	/**
+	 * Decodes a cursor produced by {@link #toCursor()}; a null or empty cursor means "from the start"
+	 */
+	static TransactionKey fromCursor(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return null;
+		}
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separator = decoded.indexOf(CURSOR_SEPARATOR);
+			if (separator < 0 || separator == decoded.length() - 1) {
+				throw new IllegalArgumentException("Invalid cursor");
+			}
+			Instant date = separator == 0 ? null : Instant.parse(decoded.substring(0, separator));
+			return new TransactionKey(date, decoded.substring(separator + 1));
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+
+	/** Opaque, URL-safe encoding of this position for keyset pagination */
+	String toCursor() {
+		String raw = (date == null ? "" : date.toString()) + CURSOR_SEPARATOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	Instant getDate() {
+		return date;
+	}
+
+	String getId() {
+		return id;
+	}
+
+	@Override
+	public int compareTo(TransactionKey other) {
+		return ORDER.compare(this, other);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof TransactionKey other)) {
+			return false;
+		}
+		return Objects.equals(date, other.date) && id.equals(other.id);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Objects.hashCode(date) + id.hashCode();
+	}
+}
@@ -0,0 +1,280 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.StatsTotals;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+
+/**
+ * Rolling per-minute and per-hour counts and volumes of transactions by channel, type and status
+ * <p>
+ * Features:
+ * <p>
+ * 1. Two fixed rings of buckets, {@value #MINUTE_BUCKETS} minutes and {@value #HOUR_BUCKETS}
+ * hours, so memory stays bounded whatever the write rate; a write updates its minute and its hour
+ * bucket, and a slot is reset in place when the ring wraps around to it
+ * <p>
+ * 2. Transactions are bucketed by their date; dates older than a ring are left out of it, and
+ * transactions without a date are not counted
+ * <p>
+ * 3. Each bucket keeps one {@link LongAdder} count per channel, type and status combination, plus
+ * the volume of the combination per currency, so concurrent writers to the current bucket do not
+ * contend on one counter
+ * <p>
+ * 4. Status changes move the transaction between combinations and deletes take it out, as long as
+ * its bucket is still in the ring
+ * <p>
+ * A read sums the combinations of the requested buckets, which is independent of the number of
+ * transactions.
+ */
+final class TransactionRollups {
+	static final int MINUTE_BUCKETS = 120;
+	static final int HOUR_BUCKETS = 48;
+
+	private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+	private static final TransactionType[] TYPES = TransactionType.values();
+	private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+	/** Each dimension has one extra value, the last, for transactions without it */
+	private static final int CELLS = (CHANNELS.length + 1) * (TYPES.length + 1) * (STATUSES.length + 1);
+
+	/** Layout of the sums a bucket is read into: the total, then one per channel, type and status */
+	private static final int CHANNEL_SUMS = 1;
+	private static final int TYPE_SUMS = CHANNEL_SUMS + CHANNELS.length;
+	private static final int STATUS_SUMS = TYPE_SUMS + TYPES.length;
+	private static final int SUMS = STATUS_SUMS + STATUSES.length;
+
+	/** For each cell, the sums it contributes to; the transactions without a value only count in the total */
+	private static final int[][] CELL_SUMS = new int[CELLS][];
+
+	static {
+		for (int c = 0; c <= CHANNELS.length; c++) {
+			for (int t = 0; t <= TYPES.length; t++) {
+				for (int s = 0; s <= STATUSES.length; s++) {
+					int[] targets = new int[4];
+					int n = 0;
+					targets[n++] = 0;
+					if (c < CHANNELS.length) {
+						targets[n++] = CHANNEL_SUMS + c;
+					}
+					if (t < TYPES.length) {
+						targets[n++] = TYPE_SUMS + t;
+					}
+					if (s < STATUSES.length) {
+						targets[n++] = STATUS_SUMS + s;
+					}
+					CELL_SUMS[(c * (TYPES.length + 1) + t) * (STATUSES.length + 1) + s] = Arrays.copyOf(targets, n);
+				}
+			}
+		}
+	}
+
+	private final Clock clock;
+	private final Ring minutes = new Ring(StatsResolution.MINUTE.getWidth().toMillis(), MINUTE_BUCKETS);
+	private final Ring hours = new Ring(StatsResolution.HOUR.getWidth().toMillis(), HOUR_BUCKETS);
+	private final Ring[] rings = {minutes, hours};
+
+	TransactionRollups() {
+		this(Clock.systemUTC());
+	}
+
+	TransactionRollups(Clock clock) {
+		this.clock = clock;
+	}
+
+	void add(Transaction transaction) {
+		apply(transaction, transaction.getStatus(), 1, true);
+	}
+
+	void remove(Transaction transaction) {
+		apply(transaction, transaction.getStatus(), -1, false);
+	}
+
+	void statusChanged(Transaction transaction, TransactionStatus previousStatus) {
+		apply(transaction, previousStatus, -1, false);
+		apply(transaction, transaction.getStatus(), 1, false);
+	}
+
+	/**
+	 * @param buckets number of buckets to return, ending with the current one
+	 * @return the buckets oldest first, including empty ones
+	 * @throws IllegalArgumentException if more buckets are requested than the ring keeps
+	 */
+	List<StatsBucket> stats(StatsResolution resolution, int buckets) {
+		Ring ring = resolution == StatsResolution.MINUTE ? minutes : hours;
+		if (buckets < 1 || buckets > ring.slots.length()) {
+			throw new IllegalArgumentException(
+					"Buckets must be between 1 and " + ring.slots.length() + " for resolution " + resolution);
+		}
+		long current = ring.indexOf(clock.millis());
+		List<StatsBucket> result = new ArrayList<>(buckets);
+		for (long index = current - buckets + 1; index <= current; index++) {
+			result.add(ring.find(index).toStats(Instant.ofEpochMilli(index * ring.widthMillis)));
+		}
+		return result;
+	}
+
+	private void apply(Transaction transaction, TransactionStatus status, int sign, boolean create) {
+		if (transaction.getDate() == null) {
+			return;
+		}
+		long millis = transaction.getDate().toEpochMilli();
+		int cell = cell(transaction.getChannel(), transaction.getType(), status);
+		long units = transaction.getAmount() == null ? 0 : sign * AmountUnits.toUnits(transaction.getAmount());
+		long now = clock.millis();
+		for (Ring ring : rings) {
+			Bucket bucket = create ? ring.claim(millis, now) : ring.find(ring.indexOf(millis));
+			if (bucket != Bucket.EMPTY) {
+				bucket.add(cell, sign, transaction.getCurrency(), units);
+			}
+		}
+	}
+
+	private static int cell(TransactionChannel channel, TransactionType type, TransactionStatus status) {
+		int c = channel == null ? CHANNELS.length : channel.ordinal();
+		int t = type == null ? TYPES.length : type.ordinal();
+		int s = status == null ? STATUSES.length : status.ordinal();
+		return (c * (TYPES.length + 1) + t) * (STATUSES.length + 1) + s;
+	}
+
+	/**
+	 * Fixed number of bucket slots, where bucket {@code index} (time / width) lives in slot
+	 * {@code index % slots}
+	 */
+	private static final class Ring {
+		final long widthMillis;
+		final AtomicReferenceArray<Bucket> slots;
+
+		Ring(long widthMillis, int size) {
+			this.widthMillis = widthMillis;
+			this.slots = new AtomicReferenceArray<>(size);
+		}
+
+		long indexOf(long millis) {
+			return Math.floorDiv(millis, widthMillis);
+		}
+
+		/** The bucket holding the index, or {@link Bucket#EMPTY} if the ring has none */
+		Bucket find(long index) {
+			Bucket bucket = slots.get(slot(index));
+			return bucket != null && bucket.index == index ? bucket : Bucket.EMPTY;
+		}
+
+		/**
+		 * The bucket for the time, replacing an older bucket in its slot; {@link Bucket#EMPTY} if the
+		 * time is already out of the ring
+		 */
+		Bucket claim(long millis, long now) {
+			long index = indexOf(millis);
+			if (index <= indexOf(now) - slots.length()) {
+				return Bucket.EMPTY;
+			}
+			int slot = slot(index);
+			while (true) {
+				Bucket current = slots.get(slot);
+				if (current != null && current.index >= index) {
+					return current.index == index ? current : Bucket.EMPTY;
+				}
+				Bucket fresh = new Bucket(index);
+				if (slots.compareAndSet(slot, current, fresh)) {
+					return fresh;
+				}
+			}
+		}
+
+		private int slot(long index) {
+			return (int) Math.floorMod(index, (long) slots.length());
+		}
+	}
+
+	private static final class Bucket {
+		static final Bucket EMPTY = new Bucket(Long.MIN_VALUE);
+
+		final long index;
+		final LongAdder[] counts = new LongAdder[CELLS];
+		final Map<Currency, LongAdder[]> volumes = new ConcurrentHashMap<>();
+
+		Bucket(long index) {
+			this.index = index;
+			for (int i = 0; i < CELLS; i++) {
+				counts[i] = new LongAdder();
+			}
+		}
+
+		void add(int cell, int sign, Currency currency, long units) {
+			counts[cell].add(sign);
+			if (currency != null && units != 0) {
+				volumes.computeIfAbsent(currency, c -> newAdders())[cell].add(units);
+			}
+		}
+
+		StatsBucket toStats(Instant start) {
+			long[] countSums = sum(counts);
+			Map<Currency, long[]> unitSums = new LinkedHashMap<>();
+			volumes.forEach((currency, adders) -> unitSums.put(currency, sum(adders)));
+			return new StatsBucket(start, totals(0, countSums, unitSums),
+					breakdown(CHANNELS, CHANNEL_SUMS, countSums, unitSums),
+					breakdown(TYPES, TYPE_SUMS, countSums, unitSums),
+					breakdown(STATUSES, STATUS_SUMS, countSums, unitSums));
+		}
+
+		/** Adds every cell into the total and into the sums of its channel, type and status */
+		private static long[] sum(LongAdder[] cells) {
+			long[] sums = new long[SUMS];
+			for (int cell = 0; cell < CELLS; cell++) {
+				long value = cells[cell].sum();
+				if (value != 0) {
+					for (int target : CELL_SUMS[cell]) {
+						sums[target] += value;
+					}
+				}
+			}
+			return sums;
+		}
+
+		private static <K extends Enum<K>> Map<K, StatsTotals> breakdown(K[] values, int offset, long[] countSums,
+				Map<Currency, long[]> unitSums) {
+			Map<K, StatsTotals> result = new LinkedHashMap<>();
+			for (int i = 0; i < values.length; i++) {
+				if (countSums[offset + i] != 0) {
+					result.put(values[i], totals(offset + i, countSums, unitSums));
+				}
+			}
+			return result;
+		}
+
+		private static StatsTotals totals(int sum, long[] countSums, Map<Currency, long[]> unitSums) {
+			Map<Currency, BigDecimal> volume = new LinkedHashMap<>();
+			unitSums.forEach((currency, units) -> {
+				if (units[sum] != 0) {
+					volume.put(currency, AmountUnits.toAmount(units[sum], currency));
+				}
+			});
+			return new StatsTotals(countSums[sum], volume);
+		}
+
+		private static LongAdder[] newAdders() {
+			LongAdder[] adders = new LongAdder[CELLS];
+			for (int i = 0; i < CELLS; i++) {
+				adders[i] = new LongAdder();
+			}
+			return adders;
+		}
+	}
+}
@@ -0,0 +1,712 @@
+package com.bank.transaction.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import com.bank.transaction.model.Transaction;
+
+/**
+ * Immutable on-disk run of transactions, the unit of the cold tier of
+ * {@link TieredTransactionRepository}
+ * <p>
+ * Features:
+ * <p>
+ * 1. Three sections written once, in order: the rows in {@link TransactionKey} order as
+ * length-prefixed {@link TransactionCodec} records, then ID entries sorted by ID, then orderId
+ * entries sorted by orderId. A footer with the sparse indexes and the names of the segments this
+ * one replaces follows; the file is written under a temporary name, forced and then renamed, so a
+ * segment file is always complete and is {@link #open(Path) reopened} from its footer.
+ * <p>
+ * 2. Entries point at their row by key and carry its version instead of a file offset, so
+ * segments are merged by streaming each section, without remapping offsets
+ * <p>
+ * 3. Only a sparse index stays on the heap: the first key and the offset of every
+ * {@value #BLOCK_SIZE}th record of each section. A lookup binary-searches it and reads a single
+ * block.
+ * <p>
+ * 4. Blocks are read with positional channel reads, which any number of threads can issue at once
+ * <p>
+ * 5. A {@link BloomFilter} of the orderIds, built with the segment, or from its orderId section
+ * when it is reopened, and kept on the heap, answers most lookups of an orderId the segment does
+ * not hold, which is every create of a new one
+ * <p>
+ * 6. The segment is reference counted: the owner holds the first reference and each reader
+ * {@link #retain()}s one for as long as it reads, so the file is closed, and deleted if the
+ * segment has been replaced, only once its last reader is done
+ */
+final class TransactionSegment implements AutoCloseable {
+	/** Records per sparse index entry */
+	static final int BLOCK_SIZE = 64;
+
+	private static final int MAGIC = 0x54534547;
+	private static final int FORMAT_VERSION = 1;
+	/** Footer offset and magic at the very end of the file */
+	private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final Path path;
+	private final FileChannel channel;
+	private final long rowCount;
+	private final TransactionKey newest;
+	private final TransactionKey oldest;
+	private final SparseIndex<TransactionKey> rows;
+	private final SparseIndex<String> ids;
+	private final SparseIndex<String> orderIds;
+	private final BloomFilter orderIdFilter;
+	private final List<String> replaces;
+	private final AtomicInteger references = new AtomicInteger(1);
+	private volatile boolean obsolete;
+
+	private TransactionSegment(Path path, FileChannel channel, long rowCount, TransactionKey newest,
+			TransactionKey oldest, SparseIndex<TransactionKey> rows, SparseIndex<String> ids,
+			SparseIndex<String> orderIds, BloomFilter orderIdFilter, List<String> replaces) {
+		this.path = path;
+		this.channel = channel;
+		this.rowCount = rowCount;
+		this.newest = newest;
+		this.oldest = oldest;
+		this.rows = rows;
+		this.ids = ids;
+		this.orderIds = orderIds;
+		this.orderIdFilter = orderIdFilter;
+		this.replaces = replaces;
+	}
+
+	/**
+	 * Reference from an index section to a row: the ID or orderId looked up by, and the key and
+	 * version of the row holding it
+	 */
+	record Entry(String name, TransactionKey key, long version) implements Comparable<Entry> {
+		private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::name).thenComparing(Entry::key);
+
+		static Entry byId(Transaction transaction) {
+			return new Entry(transaction.getId(), TransactionKey.of(transaction), transaction.getVersion());
+		}
+
+		static Entry byOrderId(Transaction transaction) {
+			return new Entry(transaction.getOrderId(), TransactionKey.of(transaction), transaction.getVersion());
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			return ORDER.compare(this, other);
+		}
+	}
+
+	/**
+	 * Writes a new segment file and opens it for reading
+	 *
+	 * @param replaces file names of the segments this one replaces, which are deleted if a restart
+	 * finds them next to it
+	 * @param rows the transactions, in key order
+	 * @param ids their ID entries, sorted
+	 * @param orderIds the orderId entries of those that have one, sorted
+	 */
+	static TransactionSegment write(Path path, List<String> replaces, Iterator<Transaction> rows,
+			Iterator<Entry> ids, Iterator<Entry> orderIds) {
+		Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+					StandardOpenOption.READ);
+			// not closed: closing it would close the channel the segment is read through
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+			DataOutputStream recordOut = new DataOutputStream(record);
+
+			SparseIndex.Builder<TransactionKey> rowIndex = new SparseIndex.Builder<>(0);
+			TransactionKey newest = null;
+			TransactionKey oldest = null;
+			while (rows.hasNext()) {
+				Transaction transaction = rows.next();
+				record.reset();
+				TransactionCodec.write(recordOut, transaction);
+				oldest = TransactionKey.of(transaction);
+				if (newest == null) {
+					newest = oldest;
+				}
+				rowIndex.add(oldest, Integer.BYTES + record.size());
+				out.writeInt(record.size());
+				record.writeTo(out);
+			}
+
+			SparseIndex.Builder<String> idIndex = new SparseIndex.Builder<>(rowIndex.end());
+			while (ids.hasNext()) {
+				Entry entry = ids.next();
+				record.reset();
+				TransactionCodec.writeString(recordOut, entry.name());
+				TransactionCodec.writeInstant(recordOut, entry.key().getDate());
+				recordOut.writeLong(entry.version());
+				idIndex.add(entry.name(), record.size());
+				record.writeTo(out);
+			}
+
+			SparseIndex.Builder<String> orderIdIndex = new SparseIndex.Builder<>(idIndex.end());
+			BloomFilter orderIdFilter = new BloomFilter(rowIndex.count(), BloomFilter.DEFAULT_BITS_PER_KEY);
+			while (orderIds.hasNext()) {
+				Entry entry = orderIds.next();
+				record.reset();
+				TransactionCodec.writeString(recordOut, entry.name());
+				TransactionCodec.writeInstant(recordOut, entry.key().getDate());
+				TransactionCodec.writeString(recordOut, entry.key().getId());
+				recordOut.writeLong(entry.version());
+				orderIdIndex.add(entry.name(), record.size());
+				orderIdFilter.add(entry.name());
+				record.writeTo(out);
+			}
+
+			SparseIndex<TransactionKey> rowBlocks = rowIndex.build(TransactionKey[]::new);
+			SparseIndex<String> idBlocks = idIndex.build(String[]::new);
+			SparseIndex<String> orderIdBlocks = orderIdIndex.build(String[]::new);
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(rowIndex.count());
+			if (oldest != null) {
+				writeKey(out, oldest);
+			}
+			rowBlocks.writeTo(out, TransactionSegment::writeKey);
+			idBlocks.writeTo(out, TransactionCodec::writeString);
+			orderIdBlocks.writeTo(out, TransactionCodec::writeString);
+			out.writeInt(replaces.size());
+			for (String replaced : replaces) {
+				TransactionCodec.writeString(out, replaced);
+			}
+			out.writeLong(orderIdIndex.end());
+			out.writeInt(MAGIC);
+			out.flush();
+			channel.force(true);
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+			return new TransactionSegment(path, channel, rowIndex.count(), newest, oldest, rowBlocks, idBlocks,
+					orderIdBlocks, orderIdFilter, List.copyOf(replaces));
+		} catch (IOException e) {
+			discard(channel, temporary);
+			throw new UncheckedIOException("Cannot write segment " + path, e);
+		}
+	}
+
+	/**
+	 * Opens a segment written by an earlier run: the sparse indexes are read from its footer and
+	 * the orderId filter is rebuilt from its orderId section
+	 *
+	 * @throws UncheckedIOException if the file cannot be read or is not a complete segment
+	 */
+	static TransactionSegment open(Path path) {
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(path, StandardOpenOption.READ);
+			long size = channel.size();
+			if (size < TRAILER_BYTES) {
+				throw new IOException("Segment " + path + " is too short to hold a footer");
+			}
+			ByteBuffer trailer = read(channel, path, size - TRAILER_BYTES, size);
+			long footer = trailer.getLong();
+			if (trailer.getInt() != MAGIC || footer < 0 || footer > size - TRAILER_BYTES) {
+				throw new IOException("Segment " + path + " has no valid footer");
+			}
+			ByteBuffer in = read(channel, path, footer, size - TRAILER_BYTES);
+			int version = in.getInt() == MAGIC ? in.getInt() : -1;
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Segment " + path + " has an unknown format");
+			}
+			long rowCount = in.getLong();
+			TransactionKey oldest = rowCount == 0 ? null : readKey(in);
+			SparseIndex<TransactionKey> rows = SparseIndex.read(in, TransactionSegment::readKey, TransactionKey[]::new);
+			SparseIndex<String> ids = SparseIndex.read(in, TransactionCodec::readString, String[]::new);
+			SparseIndex<String> orderIds = SparseIndex.read(in, TransactionCodec::readString, String[]::new);
+			List<String> replaces = new ArrayList<>();
+			for (int i = in.getInt(); i > 0; i--) {
+				replaces.add(TransactionCodec.readString(in));
+			}
+			TransactionKey newest = rows.blocks() == 0 ? null : rows.firstKey(0);
+			BloomFilter orderIdFilter = new BloomFilter(rowCount, BloomFilter.DEFAULT_BITS_PER_KEY);
+			TransactionSegment segment = new TransactionSegment(path, channel, rowCount, newest, oldest, rows, ids,
+					orderIds, orderIdFilter, List.copyOf(replaces));
+			for (Iterator<Entry> entries = segment.orderIdEntries(); entries.hasNext(); ) {
+				orderIdFilter.add(entries.next().name());
+			}
+			return segment;
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			close(channel);
+			throw new UncheckedIOException("Cannot open segment " + path,
+					e instanceof IOException io ? io : new IOException("Segment " + path + " has a corrupt footer", e));
+		} catch (RuntimeException e) {
+			close(channel);
+			throw e;
+		}
+	}
+
+	/** Whether the file is one {@link #write} left behind when it failed or the process died */
+	static boolean isTemporary(Path path) {
+		return path.getFileName().toString().endsWith(TEMPORARY_SUFFIX);
+	}
+
+	long rowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Whether the segment may hold keys in [from, to); either bound may be null
+	 */
+	boolean overlaps(TransactionKey from, TransactionKey to) {
+		return rowCount > 0 && (to == null || newest.compareTo(to) < 0) && (from == null || oldest.compareTo(from) >= 0);
+	}
+
+	/**
+	 * @return the row with the key, or null if the segment does not hold it
+	 */
+	Transaction get(TransactionKey key) {
+		int block = rows.floorBlock(key);
+		if (block < 0 || oldest.compareTo(key) < 0) {
+			return null;
+		}
+		ByteBuffer buffer = read(rows.start(block), rows.end(block));
+		while (buffer.hasRemaining()) {
+			int length = buffer.getInt();
+			ByteBuffer record = buffer.slice(buffer.position(), length);
+			buffer.position(buffer.position() + length);
+			int order = TransactionCodec.readKey(record.duplicate()).compareTo(key);
+			if (order == 0) {
+				return TransactionCodec.read(record);
+			}
+			if (order > 0) {
+				break;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Number of rows with keys in [from, to), either bound may be null: whole blocks are counted
+	 * from the sparse index and only the block each bound falls in is read
+	 */
+	long count(TransactionKey from, TransactionKey to) {
+		long end = to == null ? rowCount : position(to);
+		long start = from == null ? 0 : position(from);
+		return Math.max(end - start, 0);
+	}
+
+	/** Number of rows with keys less than the given one */
+	private long position(TransactionKey key) {
+		int block = rows.floorBlock(key);
+		if (block < 0) {
+			return 0;
+		}
+		long position = (long) block * BLOCK_SIZE;
+		ByteBuffer buffer = read(rows.start(block), rows.end(block));
+		while (buffer.hasRemaining()) {
+			int length = buffer.getInt();
+			if (TransactionCodec.readKey(buffer.slice(buffer.position(), length)).compareTo(key) >= 0) {
+				break;
+			}
+			buffer.position(buffer.position() + length);
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Lazily reads the rows with keys in [from, to), in key order; either bound may be null
+	 */
+	Iterator<Transaction> rows(TransactionKey from, TransactionKey to) {
+		return new RowIterator(from == null ? 0 : Math.max(rows.floorBlock(from), 0), from, to);
+	}
+
+	/** Entries for the ID: at most one, since a segment holds a single version of a transaction */
+	List<Entry> findById(String id) {
+		return find(ids, id, false);
+	}
+
+	/**
+	 * Entries for the orderId: one per row that has ever held it in this segment. An orderId the
+	 * segment never held is almost always turned away by its Bloom filter, without a read.
+	 */
+	List<Entry> findByOrderId(String orderId) {
+		if (!orderIdFilter.mightContain(orderId)) {
+			return List.of();
+		}
+		return find(orderIds, orderId, true);
+	}
+
+	/** File names of the segments this one replaced */
+	List<String> replaces() {
+		return replaces;
+	}
+
+	Path path() {
+		return path;
+	}
+
+	/** Heap taken by the orderId filter */
+	long orderIdFilterBytes() {
+		return orderIdFilter.sizeInBytes();
+	}
+
+	/** Every ID entry, sorted */
+	Iterator<Entry> idEntries() {
+		return new EntryIterator(ids, 0, false);
+	}
+
+	/** Every orderId entry, sorted */
+	Iterator<Entry> orderIdEntries() {
+		return new EntryIterator(orderIds, 0, true);
+	}
+
+	/**
+	 * Takes a reference for a reader, who must {@link #release()} it when done
+	 *
+	 * @return false if the segment is already closed
+	 */
+	boolean retain() {
+		for (int count = references.get(); count > 0; count = references.get()) {
+			if (references.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Drops a reference; the last one closes the file, and deletes it if the segment was replaced */
+	void release() {
+		if (references.decrementAndGet() == 0) {
+			try {
+				channel.close();
+				if (obsolete) {
+					Files.deleteIfExists(path);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot delete segment " + path, e);
+			}
+		}
+	}
+
+	/** Whether every reference has been released, and so the file is closed */
+	boolean isClosed() {
+		return references.get() == 0;
+	}
+
+	/**
+	 * Releases the owner's reference of a segment that is no longer published and will not be
+	 * again; the file is deleted once readers still holding the segment are done with it
+	 */
+	void delete() {
+		obsolete = true;
+		release();
+	}
+
+	/**
+	 * Releases the owner's reference and keeps the file, for the next startup to reopen
+	 */
+	@Override
+	public void close() {
+		release();
+	}
+
+	@Override
+	public String toString() {
+		return path.getFileName() + " (" + rowCount + " rows, " + orderIdFilter.sizeInBytes() + " filter bytes)";
+	}
+
+	private List<Entry> find(SparseIndex<String> index, String name, boolean withId) {
+		List<Entry> found = new ArrayList<>(1);
+		EntryIterator entries = new EntryIterator(index, index.firstBlockFor(name), withId);
+		while (entries.hasNext()) {
+			Entry entry = entries.next();
+			int order = entry.name().compareTo(name);
+			if (order == 0) {
+				found.add(entry);
+			} else if (order > 0) {
+				break;
+			}
+		}
+		return found;
+	}
+
+	private ByteBuffer read(long start, long end) {
+		try {
+			return read(channel, path, start, end);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read segment " + path, e);
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, Path path, long start, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, start + buffer.position()) < 0) {
+				throw new EOFException("Segment " + path + " ends before " + end);
+			}
+		}
+		return buffer.flip();
+	}
+
+	private static void writeKey(DataOutput out, TransactionKey key) throws IOException {
+		TransactionCodec.writeInstant(out, key.getDate());
+		TransactionCodec.writeString(out, key.getId());
+	}
+
+	private static TransactionKey readKey(ByteBuffer in) {
+		Instant date = TransactionCodec.readInstant(in);
+		return new TransactionKey(date, TransactionCodec.readString(in));
+	}
+
+	private static Entry readEntry(ByteBuffer buffer, boolean withId) {
+		String name = TransactionCodec.readString(buffer);
+		Instant date = TransactionCodec.readInstant(buffer);
+		String id = withId ? TransactionCodec.readString(buffer) : name;
+		return new Entry(name, new TransactionKey(date, id), buffer.getLong());
+	}
+
+	/** Removes a partly written segment; the write failure is the one reported */
+	private static void discard(FileChannel channel, Path path) {
+		close(channel);
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException ignored) {
+			// temporary files are deleted on the next startup
+		}
+	}
+
+	/** Closes a channel whose segment failed; that failure is the one reported */
+	private static void close(FileChannel channel) {
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException ignored) {
+			// nothing was written through it that is kept
+		}
+	}
+
+	private final class RowIterator implements Iterator<Transaction> {
+		private final TransactionKey from;
+		private final TransactionKey to;
+		private int block;
+		private ByteBuffer buffer;
+		private Transaction next;
+		private boolean done;
+
+		RowIterator(int block, TransactionKey from, TransactionKey to) {
+			this.block = block;
+			this.from = from;
+			this.to = to;
+			this.done = rowCount == 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && !done) {
+				if (buffer == null || !buffer.hasRemaining()) {
+					if (block >= rows.blocks()) {
+						done = true;
+						break;
+					}
+					buffer = read(rows.start(block), rows.end(block));
+					block++;
+				}
+				int length = buffer.getInt();
+				ByteBuffer record = buffer.slice(buffer.position(), length);
+				buffer.position(buffer.position() + length);
+				TransactionKey key = TransactionCodec.readKey(record.duplicate());
+				if (to != null && key.compareTo(to) >= 0) {
+					done = true;
+				} else if (from == null || key.compareTo(from) >= 0) {
+					next = TransactionCodec.read(record);
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public Transaction next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Transaction result = next;
+			next = null;
+			return result;
+		}
+	}
+
+	private final class EntryIterator implements Iterator<Entry> {
+		private final SparseIndex<String> index;
+		private final boolean withId;
+		private int block;
+		private ByteBuffer buffer;
+
+		EntryIterator(SparseIndex<String> index, int block, boolean withId) {
+			this.index = index;
+			this.block = block;
+			this.withId = withId;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (buffer != null && buffer.hasRemaining()) {
+				return true;
+			}
+			if (block >= index.blocks()) {
+				return false;
+			}
+			buffer = read(index.start(block), index.end(block));
+			block++;
+			return buffer.hasRemaining();
+		}
+
+		@Override
+		public Entry next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return readEntry(buffer, withId);
+		}
+	}
+
+	/**
+	 * First key and file offset of every {@link #BLOCK_SIZE}th record of a section, plus the
+	 * offset where the section ends
+	 */
+	private static final class SparseIndex<K extends Comparable<? super K>> {
+		private final K[] firstKeys;
+		private final long[] offsets;
+
+		SparseIndex(K[] firstKeys, long[] offsets) {
+			this.firstKeys = firstKeys;
+			this.offsets = offsets;
+		}
+
+		int blocks() {
+			return firstKeys.length;
+		}
+
+		K firstKey(int block) {
+			return firstKeys[block];
+		}
+
+		long start(int block) {
+			return offsets[block];
+		}
+
+		long end(int block) {
+			return offsets[block + 1];
+		}
+
+		/**
+		 * @return the block holding the first record not less than {@code key}, if there is one:
+		 * the block before the first block starting at or after the key, since equal keys can span
+		 * blocks
+		 */
+		int firstBlockFor(K key) {
+			int low = 0;
+			int high = firstKeys.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (firstKeys[mid].compareTo(key) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return Math.max(low - 1, 0);
+		}
+
+		/** Writes the first keys and offsets, for {@link #read} to restore them */
+		void writeTo(DataOutput out, KeyWriter<K> keyWriter) throws IOException {
+			out.writeInt(firstKeys.length);
+			for (int block = 0; block < firstKeys.length; block++) {
+				keyWriter.write(out, firstKeys[block]);
+				out.writeLong(offsets[block]);
+			}
+			out.writeLong(offsets[firstKeys.length]);
+		}
+
+		static <K extends Comparable<? super K>> SparseIndex<K> read(ByteBuffer in, Function<ByteBuffer, K> keyReader,
+				IntFunction<K[]> newArray) {
+			int blocks = in.getInt();
+			if (blocks < 0 || blocks > in.remaining()) {
+				throw new IllegalArgumentException("Sparse index of " + blocks + " blocks");
+			}
+			K[] firstKeys = newArray.apply(blocks);
+			long[] offsets = new long[blocks + 1];
+			for (int block = 0; block < blocks; block++) {
+				firstKeys[block] = keyReader.apply(in);
+				offsets[block] = in.getLong();
+			}
+			offsets[blocks] = in.getLong();
+			return new SparseIndex<>(firstKeys, offsets);
+		}
+
+		@FunctionalInterface
+		interface KeyWriter<K> {
+			void write(DataOutput out, K key) throws IOException;
+		}
+
+		/**
+		 * @return the last block whose first key is at most {@code key}, or -1 if there is none;
+		 * for keys that are unique within the section
+		 */
+		int floorBlock(K key) {
+			int found = Arrays.binarySearch(firstKeys, key);
+			return found >= 0 ? found : -found - 2;
+		}
+
+		static final class Builder<K extends Comparable<? super K>> {
+			private final List<K> firstKeys = new ArrayList<>();
+			private long[] offsets = new long[16];
+			private long offset;
+			private long count;
+
+			Builder(long start) {
+				this.offset = start;
+			}
+
+			void add(K key, int length) {
+				if (count % BLOCK_SIZE == 0) {
+					if (firstKeys.size() + 1 >= offsets.length) {
+						offsets = Arrays.copyOf(offsets, offsets.length * 2);
+					}
+					offsets[firstKeys.size()] = offset;
+					firstKeys.add(key);
+				}
+				offset += length;
+				count++;
+			}
+
+			long end() {
+				return offset;
+			}
+
+			long count() {
+				return count;
+			}
+
+			SparseIndex<K> build(IntFunction<K[]> newArray) {
+				long[] bounds = Arrays.copyOf(offsets, firstKeys.size() + 1);
+				bounds[firstKeys.size()] = offset;
+				return new SparseIndex<>(firstKeys.toArray(newArray.apply(0)), bounds);
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package com.bank.transaction.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.bank.transaction.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Point-in-time binary snapshots of the in-memory repository
+ * <p>
+ * Features:
+ * <p>
+ * 1. A snapshot is named after the journal segment that was current when it started; restoring
+ * it and replaying that segment onwards rebuilds the full state
+ * <p>
+ * 2. Records use the {@link TransactionCodec} format, each carrying its orderId, so the orderId
+ * map is restored together with the rows
+ * <p>
+ * 3. Snapshots are written to a temporary file, forced and atomically renamed, so a crash
+ * mid-write never leaves a partial snapshot behind
+ * <p>
+ * 4. Loading maps the file into memory and decodes records in place, without read calls or
+ * intermediate copies
+ */
+public class TransactionSnapshots {
+	private final static Logger LOGGER = LoggerFactory.getLogger(TransactionSnapshots.class);
+
+	private static final int MAGIC = 0x5458534e;
+	private static final int FORMAT_VERSION = 2;
+	/** magic, format version, journal segment, record count */
+	private static final int HEADER_SIZE = 24;
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".bin";
+	/** Upper bound of a single mapping; records never straddle a window because it is re-mapped at record starts */
+	private static final long MAX_WINDOW = 1L << 30;
+
+	private final Path directory;
+
+	public TransactionSnapshots(Path directory) {
+		this.directory = directory;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot create snapshot directory " + directory, e);
+		}
+	}
+
+	/**
+	 * Writes every transaction into a new snapshot for the given journal segment and removes older
+	 * snapshots once it is durable
+	 *
+	 * @return number of records written
+	 */
+	long write(long segment, Iterable<Transaction> transactions) {
+		Path target = snapshotPath(segment);
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		long started = System.nanoTime();
+		long count = 0;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.position(HEADER_SIZE);
+			// not closed: closing it would close the channel before the header is written
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+			DataOutputStream recordOut = new DataOutputStream(record);
+			for (Transaction transaction : transactions) {
+				record.reset();
+				TransactionCodec.write(recordOut, transaction);
+				out.writeInt(record.size());
+				record.writeTo(out);
+				count++;
+			}
+			out.flush();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+					.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(segment).putLong(count).flip();
+			while (header.hasRemaining()) {
+				channel.write(header, HEADER_SIZE - header.remaining());
+			}
+			channel.force(true);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write snapshot " + target, e);
+		}
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			for (long older : listSnapshots()) {
+				if (older < segment) {
+					Files.deleteIfExists(snapshotPath(older));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot publish snapshot " + target, e);
+		}
+		LOGGER.info("Wrote snapshot of {} transactions at journal segment {} in {} ms",
+				count, segment, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		return count;
+	}
+
+	/**
+	 * Loads the newest snapshot, if any, handing every record to {@code restore}
+	 *
+	 * @return the journal segment replay has to start from, or empty if there is no snapshot
+	 */
+	OptionalLong load(Consumer<Transaction> restore) {
+		try {
+			List<Long> snapshots = listSnapshots();
+			if (snapshots.isEmpty()) {
+				return OptionalLong.empty();
+			}
+			long segment = snapshots.get(snapshots.size() - 1);
+			long started = System.nanoTime();
+			long count = load(snapshotPath(segment), segment, restore);
+			long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			LOGGER.info("Loaded snapshot of {} transactions at journal segment {} in {} ms ({} records/s)",
+					count, segment, elapsedMillis, count * 1000 / elapsedMillis);
+			return OptionalLong.of(segment);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot load snapshot from " + directory, e);
+		}
+	}
+
+	private long load(Path path, long segment, Consumer<Transaction> restore) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_WINDOW));
+			if (size < HEADER_SIZE || window.getInt() != MAGIC || window.getInt() != FORMAT_VERSION
+					|| window.getLong() != segment) {
+				throw new IOException("Not a snapshot: " + path);
+			}
+			long count = window.getLong();
+			long windowStart = 0;
+			for (long i = 0; i < count; i++) {
+				if (window.remaining() < Integer.BYTES || window.remaining() < Integer.BYTES + window.getInt(window.position())) {
+					windowStart += window.position();
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, MAX_WINDOW));
+				}
+				int length = window.getInt();
+				ByteBuffer record = window.slice(window.position(), length);
+				window.position(window.position() + length);
+				restore.accept(TransactionCodec.read(record));
+			}
+			return count;
+		}
+	}
+
+	private List<Long> listSnapshots() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+					.map(name -> Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())))
+					.sorted()
+					.toList();
+		}
+	}
+
+	private Path snapshotPath(long segment) {
+		return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+	}
+}
@@ -0,0 +1,62 @@
+package com.bank.transaction.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters of applied writes from which strong entity tags of the list endpoints are derived
+ * <p>
+ * Features:
+ * <p>
+ * 1. A store-wide version, advanced by every create, modification and deletion, tags lists
+ * without a cardId filter
+ * <p>
+ * 2. Card-filtered lists are tagged by the version of the card's stripe, so writes to other cards
+ * leave them unchanged; cards share {@value #CARD_STRIPES} stripes, which keeps the counters
+ * bounded at the cost of an occasional needless miss
+ * <p>
+ * 3. Tags carry a random epoch chosen at startup, so a tag handed out before a restart never
+ * matches the store rebuilt after it
+ * <p>
+ * Versions are advanced after the write is applied and read before the list is, so a page is at
+ * least as new as its tag and a tag can never vouch for data older than it.
+ */
+@Component
+public class ModificationVersions {
+	static final int CARD_STRIPES = 4096;
+
+	private final String epoch = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+	private final AtomicLong store = new AtomicLong();
+	private final AtomicLongArray cards = new AtomicLongArray(CARD_STRIPES);
+
+	/**
+	 * Records a created, modified or deleted transaction; call after the write is applied
+	 */
+	public void modified(Transaction transaction) {
+		if (transaction.getCardId() != null) {
+			cards.incrementAndGet(stripe(transaction.getCardId()));
+		}
+		store.incrementAndGet();
+	}
+
+	/**
+	 * Quoted entity tag of the lists of this query, whatever their page or cursor
+	 */
+	public String listTag(TransactionQuery query) {
+		String cardId = query.getCardId();
+		return cardId == null
+				? "\"" + epoch + "-" + store.get() + "\""
+				: "\"" + epoch + "-c" + cards.get(stripe(cardId)) + "\"";
+	}
+
+	private static int stripe(String cardId) {
+		int h = cardId.hashCode();
+		return (h ^ (h >>> 16)) & (CARD_STRIPES - 1);
+	}
+}
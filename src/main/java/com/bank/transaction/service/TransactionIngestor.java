@@ -0,0 +1,285 @@
+package com.bank.transaction.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.BatchItemStatus;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.repository.ITransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-writer ingestion of creates through a pre-allocated ring buffer, enabled with
+ * {@code transaction.ingest.mode=ring}
+ * <p>
+ * Features:
+ * <p>
+ * 1. Request threads claim a sequence, fill the slot it maps to and publish it; nothing but the
+ * caller's future is allocated per create, and a full ring holds producers back instead of growing
+ * <p>
+ * 2. One writer thread takes every published slot in sequence, up to the configured batch size,
+ * and applies them with a single {@link ITransactionRepository#createTransactions} call, so IDs,
+ * index updates and journal records are produced once per batch rather than once per request
+ * <p>
+ * 3. Callers are completed from the writer thread as soon as their batch is applied; a create whose
+ * orderId holds a different transaction fails with {@link TransactionAlreadyExistsException}, as
+ * it does in direct mode
+ * <p>
+ * 4. The way the writer waits for work is configurable, see {@link WaitStrategy}
+ * <p>
+ * 5. Once the writer stops, whether closed or killed by an error, every slot still in the ring is
+ * failed with {@link IllegalStateException}, and producers that publish or wait for room after
+ * that fail their own callers, so no caller is left waiting
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.ingest.mode", havingValue = "ring")
+public class TransactionIngestor implements AutoCloseable {
+	private final static Logger LOGGER = LoggerFactory.getLogger(TransactionIngestor.class);
+
+	private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long FULL_RING_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+	public enum WaitStrategy {
+		/** spin on the ring; lowest latency, but keeps a core busy even when idle */
+		BUSY_SPIN,
+		/** yield the core between checks of the ring */
+		YIELDING,
+		/** park for a short fixed interval between checks of the ring */
+		SLEEPING,
+		/** park until a producer publishes; the publishing producer pays the wake-up */
+		BLOCKING
+	}
+
+	private final ITransactionRepository repository;
+	private final int batchSize;
+	private final WaitStrategy waitStrategy;
+	private final int mask;
+	private final Slot[] slots;
+
+	/** Sequence published in each slot, -1 before its first use */
+	private final AtomicLongArray published;
+
+	/** Next sequence to hand to a producer */
+	private final AtomicLong claimed = new AtomicLong();
+
+	/** Every sequence below this one has been applied and its slot may be reused */
+	private final AtomicLong consumed = new AtomicLong();
+
+	private final Thread writerThread;
+	private volatile boolean writerWaiting;
+	private volatile boolean running = true;
+	/** Set by the writer thread as it exits; no published slot is applied after this */
+	private volatile boolean stopped;
+
+	@Autowired
+	public TransactionIngestor(ITransactionRepository repository,
+			@Value("${transaction.ingest.ring-size:4096}") int ringSize,
+			@Value("${transaction.ingest.batch-size:256}") int batchSize,
+			@Value("${transaction.ingest.wait-strategy:blocking}") String waitStrategy) {
+		if (ringSize < 1 || Integer.bitCount(ringSize) != 1) {
+			throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		this.repository = repository;
+		this.batchSize = Math.min(batchSize, ringSize);
+		this.waitStrategy = WaitStrategy.valueOf(waitStrategy.toUpperCase().replace('-', '_'));
+		this.mask = ringSize - 1;
+		this.slots = new Slot[ringSize];
+		this.published = new AtomicLongArray(ringSize);
+		for (int i = 0; i < ringSize; i++) {
+			slots[i] = new Slot();
+			published.set(i, -1);
+		}
+		this.writerThread = new Thread(this::writeLoop, "transaction-ingest-writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+		LOGGER.info("Ingesting creates through a ring of {} slots, batches of up to {}, {} wait strategy",
+				ringSize, this.batchSize, this.waitStrategy);
+	}
+
+	/**
+	 * Creates the transaction through the ring and waits for the writer to apply it
+	 *
+	 * @throws TransactionAlreadyExistsException if the orderId holds a different transaction
+	 */
+	public Transaction create(Transaction transaction) {
+		try {
+			return submit(transaction).join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException cause ? cause : e;
+		}
+	}
+
+	/**
+	 * Publishes the transaction to the ring
+	 *
+	 * @return completed with the stored transaction once the batch holding it has been applied
+	 */
+	public CompletableFuture<Transaction> submit(Transaction transaction) {
+		if (!running) {
+			throw new IllegalStateException("Ingestor is closed");
+		}
+		long sequence = claimed.getAndIncrement();
+		while (sequence - consumed.get() > mask) {
+			// consumed is final once stopped is set, so re-read it: a sequence that fits in the
+			// ring after all is waited for by failOutstanding and must be published below
+			if (stopped && sequence - consumed.get() > mask) {
+				// the ring will never drain; the sequence stays unpublished and nobody waits for it
+				return CompletableFuture.failedFuture(new IllegalStateException("Ingestor is closed"));
+			}
+			LockSupport.parkNanos(FULL_RING_BACKOFF_NANOS);
+		}
+		CompletableFuture<Transaction> done = new CompletableFuture<>();
+		Slot slot = slots[(int) sequence & mask];
+		slot.transaction = transaction;
+		slot.done = done;
+		published.set((int) sequence & mask, sequence);
+		// the writer sets stopped before it drains, so either it fails this slot or this check does
+		if (stopped) {
+			done.completeExceptionally(new IllegalStateException("Ingestor is closed"));
+		} else if (writerWaiting) {
+			LockSupport.unpark(writerThread);
+		}
+		return done;
+	}
+
+	@Override
+	public void close() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(writerThread);
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLoop() {
+		try {
+			List<Transaction> batch = new ArrayList<>(batchSize);
+			long next = 0;
+			int idle = 0;
+			while (running || isPublished(next)) {
+				if (!isPublished(next)) {
+					waitForPublish(next, idle++);
+					continue;
+				}
+				idle = 0;
+				int count = 0;
+				while (count < batchSize && isPublished(next + count)) {
+					batch.add(slots[(int) (next + count) & mask].transaction);
+					count++;
+				}
+				apply(batch, next);
+				for (int i = 0; i < count; i++) {
+					Slot slot = slots[(int) (next + i) & mask];
+					slot.transaction = null;
+					slot.done = null;
+				}
+				next += count;
+				consumed.set(next);
+				batch.clear();
+			}
+		} finally {
+			running = false;
+			stopped = true;
+			failOutstanding();
+		}
+	}
+
+	/**
+	 * Fails every slot between the last applied sequence and the last claimed one that fits in the
+	 * ring. A producer holding such a sequence is past its wait for room, so its publish is only
+	 * waited for, not skipped; producers that claim later see {@link #stopped} themselves.
+	 */
+	private void failOutstanding() {
+		IllegalStateException closed = new IllegalStateException("Ingestor is closed");
+		long first = consumed.get();
+		long end = Math.min(claimed.get(), first + slots.length);
+		for (long sequence = first; sequence < end; sequence++) {
+			while (!isPublished(sequence)) {
+				Thread.onSpinWait();
+			}
+			// cleared only if an error struck after its batch was applied
+			CompletableFuture<Transaction> done = slots[(int) sequence & mask].done;
+			if (done != null) {
+				done.completeExceptionally(closed);
+			}
+		}
+	}
+
+	private void apply(List<Transaction> batch, long first) {
+		List<BatchItemResult> results;
+		try {
+			results = repository.createTransactions(batch);
+		} catch (Throwable e) {
+			LOGGER.error("Failed to apply a batch of {} creates", batch.size(), e);
+			for (int i = 0; i < batch.size(); i++) {
+				slots[(int) (first + i) & mask].done.completeExceptionally(e);
+			}
+			return;
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			BatchItemResult result = results.get(i);
+			CompletableFuture<Transaction> done = slots[(int) (first + i) & mask].done;
+			if (result.getStatus() == BatchItemStatus.CREATED) {
+				done.complete(result.getData());
+			} else {
+				done.completeExceptionally(new TransactionAlreadyExistsException(result.getMessage()));
+			}
+		}
+	}
+
+	private void waitForPublish(long sequence, int idle) {
+		switch (waitStrategy) {
+			case BUSY_SPIN -> Thread.onSpinWait();
+			case YIELDING -> Thread.yield();
+			case SLEEPING -> LockSupport.parkNanos(SLEEP_NANOS);
+			case BLOCKING -> {
+				// spin briefly before parking, bursts usually arrive back to back
+				if (idle < 100) {
+					Thread.onSpinWait();
+					return;
+				}
+				writerWaiting = true;
+				// a producer publishing after this check sees writerWaiting and unparks
+				if (running && !isPublished(sequence)) {
+					LockSupport.park(this);
+				}
+				writerWaiting = false;
+			}
+		}
+	}
+
+	private boolean isPublished(long sequence) {
+		return published.get((int) sequence & mask) == sequence;
+	}
+
+	/**
+	 * Ring entry, reused for every sequence that maps to it; fields are written by the producer
+	 * before it publishes the sequence and cleared by the writer before the slot is released
+	 */
+	private static final class Slot {
+		Transaction transaction;
+		CompletableFuture<Transaction> done;
+	}
+}
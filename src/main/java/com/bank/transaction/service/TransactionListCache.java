@@ -0,0 +1,179 @@
+package com.bank.transaction.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of {@code listAllTransactions} pages that stays correct under writes
+ * <p>
+ * Features:
+ * <p>
+ * 1. Caffeine (W-TinyLFU) eviction bounded by the total number of cached rows, so large pages
+ * weigh more than small ones
+ * <p>
+ * 2. Targeted invalidation: a write drops only the pages whose filters could match the
+ * transaction before or after the change. Keys are bucketed by their cardId filter, so a write
+ * only inspects the pages of its own card and those without a card filter.
+ * <p>
+ * 3. A write counter guards against a page computed before a write being cached after that
+ * write's invalidation has already run
+ * <p>
+ * 4. Hit ratio, evictions and invalidations are published to Micrometer under
+ * {@code cache.*{cache=transactionList}} and {@code transaction.cache.invalidations}
+ */
+@Component
+public class TransactionListCache {
+	static final String CACHE_NAME = "transactionList";
+
+	/** Bucket of the keys without a cardId filter */
+	private static final Object NO_CARD = new Object();
+
+	private final Cache<Key, PageResult<Transaction>> cache;
+	private final Map<Object, Set<Key>> keysByCard = new ConcurrentHashMap<>();
+	private final AtomicLong writes = new AtomicLong();
+	private final Counter invalidations;
+
+	@Autowired
+	public TransactionListCache(
+			@Value("${transaction.cache.list.maximum-rows:100000}") long maximumRows,
+			@Value("${transaction.cache.list.expire-after-write:2m}") Duration expireAfterWrite,
+			MeterRegistry registry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maximumRows)
+				.weigher((Key key, PageResult<Transaction> page) -> page.getData().size() + 1)
+				.expireAfterWrite(expireAfterWrite)
+				.removalListener((Key key, PageResult<Transaction> page, RemovalCause cause) -> {
+					if (key != null && cause != RemovalCause.REPLACED) {
+						forget(key);
+					}
+				})
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+		this.invalidations = Counter.builder("transaction.cache.invalidations")
+				.description("List pages dropped because a write could change them")
+				.tag("cache", CACHE_NAME)
+				.register(registry);
+	}
+
+	/**
+	 * Returns the cached page for these arguments, or loads and caches it
+	 */
+	public PageResult<Transaction> get(int page, int pageSize, TransactionQuery query,
+			Supplier<PageResult<Transaction>> loader) {
+		Key key = new Key(page, pageSize, query);
+		PageResult<Transaction> cached = cache.getIfPresent(key);
+		if (cached != null) {
+			return cached;
+		}
+		long generation = writes.get();
+		PageResult<Transaction> loaded = loader.get();
+		if (loaded == null || loaded.getData() == null) {
+			return loaded;
+		}
+		keysByCard.compute(key.bucket(), (bucket, keys) -> {
+			Set<Key> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+			result.add(key);
+			cache.put(key, loaded);
+			return result;
+		});
+		// a write that finished while loading may already have run its invalidation
+		if (writes.get() != generation) {
+			cache.asMap().remove(key, loaded);
+		}
+		return loaded;
+	}
+
+	/**
+	 * Drops the pages a created or deleted transaction can appear in; call after the write is applied
+	 */
+	public void invalidate(Transaction transaction) {
+		invalidate(transaction, transaction);
+	}
+
+	/**
+	 * Drops the pages a modified transaction can appear in, either as its previous version or
+	 * its current one; call after the write is applied
+	 */
+	public void invalidate(Transaction transaction, Transaction previous) {
+		writes.incrementAndGet();
+		invalidateBucket(NO_CARD, transaction, previous);
+		if (transaction.getCardId() != null) {
+			invalidateBucket(transaction.getCardId(), transaction, previous);
+		}
+	}
+
+	private void invalidateBucket(Object bucket, Transaction transaction, Transaction previous) {
+		keysByCard.computeIfPresent(bucket, (b, keys) -> {
+			keys.removeIf(key -> {
+				if (!key.query.matches(transaction) && (previous == transaction || !key.query.matches(previous))) {
+					return false;
+				}
+				cache.invalidate(key);
+				invalidations.increment();
+				return true;
+			});
+			return keys.isEmpty() ? null : keys;
+		});
+	}
+
+	/** Unindexes an evicted or expired key, unless it has been cached again in the meantime */
+	private void forget(Key key) {
+		keysByCard.computeIfPresent(key.bucket(), (bucket, keys) -> {
+			if (!cache.asMap().containsKey(key)) {
+				keys.remove(key);
+			}
+			return keys.isEmpty() ? null : keys;
+		});
+	}
+
+	private static final class Key {
+		private final int page;
+		private final int pageSize;
+		private final TransactionQuery query;
+
+		Key(int page, int pageSize, TransactionQuery query) {
+			this.page = page;
+			this.pageSize = pageSize;
+			this.query = query;
+		}
+
+		Object bucket() {
+			return query.getCardId() == null ? NO_CARD : query.getCardId();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key other)) {
+				return false;
+			}
+			return page == other.page && pageSize == other.pageSize && query.equals(other.query);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * page + pageSize) + query.hashCode();
+		}
+	}
+}
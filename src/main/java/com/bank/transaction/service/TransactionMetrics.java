@@ -0,0 +1,67 @@
+package com.bank.transaction.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters of the requests the service turns down
+ * <p>
+ * Features:
+ * <p>
+ * 1. {@code transaction.rejections{reason=duplicateOrderId|notFound|versionMismatch}}: creates
+ * whose orderId already holds a different transaction, single or in a batch, writes to a missing
+ * ID, and conditional modifications of a version that is no longer current
+ * <p>
+ * 2. {@code transaction.validation.failures{rule=...}}: requests failing a validation rule, one
+ * series per rule
+ * <p>
+ * Counters are only touched on the rejection path, so accepted requests pay nothing.
+ */
+@Component
+public class TransactionMetrics {
+	private final MeterRegistry registry;
+	private final Counter duplicateOrderIds;
+	private final Counter notFound;
+	private final Counter versionMismatches;
+	private final Map<String, Counter> validationFailures = new ConcurrentHashMap<>();
+
+	@Autowired
+	public TransactionMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		this.duplicateOrderIds = rejections("duplicateOrderId");
+		this.notFound = rejections("notFound");
+		this.versionMismatches = rejections("versionMismatch");
+	}
+
+	private Counter rejections(String reason) {
+		return Counter.builder("transaction.rejections")
+				.description("Requests rejected because of the stored transactions")
+				.tag("reason", reason)
+				.register(registry);
+	}
+
+	public void duplicateOrderId() {
+		duplicateOrderIds.increment();
+	}
+
+	public void notFound() {
+		notFound.increment();
+	}
+
+	public void versionMismatch() {
+		versionMismatches.increment();
+	}
+
+	public void validationFailed(String rule) {
+		validationFailures.computeIfAbsent(rule, r -> Counter.builder("transaction.validation.failures")
+				.description("Requests rejected by a validation rule")
+				.tag("rule", r)
+				.register(registry)).increment();
+	}
+}
@@ -0,0 +1,100 @@
+package com.bank.transaction.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.bank.transaction.model.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Bounded cache of the encoded response bodies of single-transaction reads
+ * <p>
+ * Features:
+ * <p>
+ * 1. Holds the complete bytes the endpoint writes, wrapper included, so a hit neither serialises
+ * nor allocates beyond the lookup; each wire format of a version is encoded and cached on first use
+ * <p>
+ * 2. Entries are keyed by ID and carry the version they were encoded from; a body is only served
+ * for the same version, so a read racing a modification can never serve stale bytes
+ * <p>
+ * 3. Modifications and deletions drop the ID's entry, so superseded bodies do not wait for eviction
+ * <p>
+ * 4. Caffeine (W-TinyLFU) eviction bounded by the total size of the cached bodies, with hit ratio
+ * and evictions published to Micrometer under {@code cache.*{cache=transactionResponse}}
+ */
+@Component
+public class TransactionResponseCache {
+	static final String CACHE_NAME = "transactionResponse";
+
+	private final Cache<String, Body> cache;
+
+	@Autowired
+	public TransactionResponseCache(
+			@Value("${transaction.cache.response.maximum-size:16MB}") DataSize maximumSize,
+			MeterRegistry registry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maximumSize.toBytes())
+				.weigher((String id, Body body) -> body.size() + 2 * id.length())
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+	}
+
+	/**
+	 * Returns the cached body of this version of the transaction in the given format, or encodes
+	 * and caches it
+	 *
+	 * @param format name of the wire format the encoder produces
+	 */
+	public byte[] get(Transaction transaction, String format, Function<Transaction, byte[]> encoder) {
+		Body cached = cache.getIfPresent(transaction.getId());
+		if (cached != null && cached.version == transaction.getVersion()) {
+			byte[] bytes = cached.formats.get(format);
+			if (bytes != null) {
+				return bytes;
+			}
+		}
+		byte[] bytes = encoder.apply(transaction);
+		Body encoded = new Body(transaction.getVersion(), Map.of(format, bytes));
+		// a reader still holding an older version must not replace the body of a newer one
+		cache.asMap().merge(transaction.getId(), encoded, (current, candidate) -> {
+			if (current.version != candidate.version) {
+				return current.version > candidate.version ? current : candidate;
+			}
+			return current.with(format, bytes);
+		});
+		return bytes;
+	}
+
+	/**
+	 * Drops the cached body of a modified or deleted transaction; call after the write is applied
+	 */
+	public void invalidate(String id) {
+		cache.invalidate(id);
+	}
+
+	private record Body(long version, Map<String, byte[]> formats) {
+		Body with(String format, byte[] bytes) {
+			Map<String, byte[]> merged = new HashMap<>(formats);
+			merged.put(format, bytes);
+			return new Body(version, Map.copyOf(merged));
+		}
+
+		int size() {
+			int size = 0;
+			for (byte[] bytes : formats.values()) {
+				size += bytes.length;
+			}
+			return size;
+		}
+	}
+}
@@ -2,16 +2,30 @@ package com.bank.transaction.service;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
 import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.exception.TransactionVersionMismatchException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.BatchItemStatus;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
 import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
 import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
 import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.repository.AmountUnits;
 import com.bank.transaction.repository.ITransactionRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 /**
@@ -22,88 +36,285 @@ import org.springframework.stereotype.Service;
  * 1. Transaction creation with comprehensive validation
  * <p>
  * 2. Integration with transaction repository for persistence
+ * <p>
+ * 3. Batch creation with per-item results
+ * <p>
+ * 4. List pages are cached and every write invalidates the pages it can affect
+ * <p>
+ * 5. Rejections are counted: duplicate orderIds, missing IDs and each validation rule
+ * <p>
+ * 6. Single creates go straight to the repository, or through the {@link TransactionIngestor}
+ * ring when one is configured; {@link #createTransactionAsync} publishes to the ring without
+ * waiting for the writer
+ * <p>
+ * 7. Modifications and deletions drop the transaction's cached response body
+ * <p>
+ * 8. Every applied write advances the {@link ModificationVersions} the list entity tags derive from
  */
 @Service
 public class TransactionService {
+	static final int MAX_BATCH_SIZE = 1000;
+
 	private final ITransactionRepository transactionRepository;
+	private final TransactionListCache listCache;
+	private final TransactionMetrics metrics;
+	private final TransactionIngestor ingestor;
+	private final TransactionResponseCache responseCache;
+	private final ModificationVersions versions;
+
+	public TransactionService(ITransactionRepository transactionRepository, TransactionListCache listCache,
+			TransactionMetrics metrics) {
+		this(transactionRepository, listCache, metrics, null);
+	}
+
+	public TransactionService(ITransactionRepository transactionRepository, TransactionListCache listCache,
+			TransactionMetrics metrics, @Nullable TransactionIngestor ingestor) {
+		this(transactionRepository, listCache, metrics, ingestor, null, null);
+	}
 
 	@Autowired
-	public TransactionService(ITransactionRepository transactionRepository) {
+	public TransactionService(ITransactionRepository transactionRepository, TransactionListCache listCache,
+			TransactionMetrics metrics, @Nullable TransactionIngestor ingestor,
+			@Nullable TransactionResponseCache responseCache, @Nullable ModificationVersions versions) {
 		this.transactionRepository = transactionRepository;
+		this.listCache = listCache;
+		this.metrics = metrics;
+		this.ingestor = ingestor;
+		this.responseCache = responseCache;
+		this.versions = versions;
 	}
 
 	public Transaction createTransaction(Transaction transaction) {
+		validate(transaction);
+		Transaction created;
+		try {
+			created = ingestor == null
+					? transactionRepository.createTransaction(transaction)
+					: ingestor.create(transaction);
+		} catch (TransactionAlreadyExistsException e) {
+			metrics.duplicateOrderId();
+			throw e;
+		}
+		listCache.invalidate(created);
+		advanceVersions(created);
+		return created;
+	}
+
+	/**
+	 * {@link #createTransaction(Transaction)} for callers that must not block: with an ingestor the
+	 * transaction is only published to the ring, and the future completes on the ring's writer
+	 * thread once its batch is applied. Without one the create runs on the calling thread.
+	 */
+	public CompletableFuture<Transaction> createTransactionAsync(Transaction transaction) {
+		if (ingestor == null) {
+			return CompletableFuture.completedFuture(createTransaction(transaction));
+		}
+		validate(transaction);
+		return ingestor.submit(transaction).whenComplete((created, failure) -> {
+			if (failure instanceof TransactionAlreadyExistsException) {
+				metrics.duplicateOrderId();
+			}
+		}).thenApply(created -> {
+			listCache.invalidate(created);
+			advanceVersions(created);
+			return created;
+		});
+	}
+
+	/**
+	 * Creates every valid item of the batch in one repository pass. Invalid or conflicting items
+	 * are reported in their own result and never abort the rest of the batch.
+	 */
+	public List<BatchItemResult> createTransactions(List<Transaction> transactions) {
+		if (transactions == null) {
+			throw invalid("batch", "Transaction list cannot be null");
+		}
+		if (transactions.size() > MAX_BATCH_SIZE) {
+			throw invalid("batchSize", "Batch size cannot exceed " + MAX_BATCH_SIZE);
+		}
+
+		BatchItemResult[] results = new BatchItemResult[transactions.size()];
+		List<Transaction> valid = new ArrayList<>(transactions.size());
+		int[] positions = new int[transactions.size()];
+		for (int i = 0; i < transactions.size(); i++) {
+			try {
+				validate(transactions.get(i));
+				positions[valid.size()] = i;
+				valid.add(transactions.get(i));
+			} catch (IllegalArgumentException e) {
+				results[i] = BatchItemResult.invalid(i, e.getMessage());
+			}
+		}
+
+		if (!valid.isEmpty()) {
+			List<BatchItemResult> inserted = transactionRepository.createTransactions(valid);
+			for (int j = 0; j < inserted.size(); j++) {
+				results[positions[j]] = inserted.get(j).withIndex(positions[j]);
+				if (inserted.get(j).getStatus() == BatchItemStatus.CREATED) {
+					listCache.invalidate(inserted.get(j).getData());
+					advanceVersions(inserted.get(j).getData());
+				} else if (inserted.get(j).getStatus() == BatchItemStatus.CONFLICT) {
+					metrics.duplicateOrderId();
+				}
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	public void deleteTransaction(String id) {
+		Transaction existing = transactionRepository.getTransactionById(id);
+		try {
+			transactionRepository.deleteTransaction(id);
+		} catch (TransactionNotFoundException e) {
+			metrics.notFound();
+			throw e;
+		}
+		if (existing != null) {
+			listCache.invalidate(existing);
+			advanceVersions(existing);
+		}
+		if (responseCache != null) {
+			responseCache.invalidate(id);
+		}
+	}
+
+	public Transaction modifyTransaction(String id, Transaction transaction) {
+		return modifyTransaction(id, transaction, null);
+	}
+
+	/**
+	 * Modifies the transaction as a compare-and-swap against the version the rules were checked on.
+	 * If another modification gets in first, the transaction is read again and the rules are
+	 * re-checked, so a successful transaction can never be modified.
+	 *
+	 * @param expectedVersion version the client last read ({@code If-Match}), or null for any version
+	 * @throws TransactionVersionMismatchException if the transaction is not at {@code expectedVersion}
+	 */
+	public Transaction modifyTransaction(String id, Transaction transaction, Long expectedVersion) {
+		while (true) {
+			// Retrieve the current version by ID
+			Transaction existing = transactionRepository.getTransactionById(id);
+
+			// Check if transaction exists
+			if (existing == null) {
+				metrics.notFound();
+				throw new TransactionNotFoundException("Transaction not found");
+			}
+
+			// Check the client's precondition
+			if (expectedVersion != null && existing.getVersion() != expectedVersion) {
+				metrics.versionMismatch();
+				throw new TransactionVersionMismatchException(
+						"Transaction is at version " + existing.getVersion() + ", not " + expectedVersion);
+			}
+
+			// Validate transaction status, cannot modify successful transactions
+			if (existing.getStatus() == TransactionStatus.SUCCESS) {
+				throw invalid("modifySuccessful", "Cannot modify a successful transaction");
+			}
+
+			// Swap in the modified version unless another modification replaced the one checked above
+			Transaction modified;
+			try {
+				modified = transactionRepository.modifyTransaction(id, transaction, existing.getVersion());
+			} catch (TransactionNotFoundException e) {
+				metrics.notFound();
+				throw e;
+			}
+			if (modified != null) {
+				listCache.invalidate(modified, existing);
+				advanceVersions(modified);
+				if (responseCache != null) {
+					responseCache.invalidate(id);
+				}
+				return modified;
+			}
+		}
+	}
+
+	public PageResult<Transaction> listAllTransactions(int page, int pageSize, TransactionQuery query) {
+		return listCache.get(page, pageSize, query,
+				() -> transactionRepository.listAllTransactions(page, pageSize, query));
+	}
+
+	public CursorPageResult<Transaction> listTransactionsByCursor(String cursor, int pageSize, TransactionQuery query) {
+		return transactionRepository.listTransactionsByCursor(cursor, pageSize, query);
+	}
+
+	public Stream<Transaction> streamTransactions(TransactionQuery query) {
+		return transactionRepository.streamTransactions(query);
+	}
+
+	public Transaction getTransactionById(String id) {
+		return transactionRepository.getTransactionById(id);
+	}
+
+	public List<CardSummary> getCardSummaries(String cardId) {
+		return transactionRepository.getCardSummaries(cardId);
+	}
+
+	public List<StatsBucket> getStats(StatsResolution resolution, int buckets) {
+		return transactionRepository.getStats(resolution, buckets);
+	}
+
+	private void validate(Transaction transaction) {
 		// Validate transaction object
 		if (transaction == null) {
-			throw new IllegalArgumentException("Transaction object cannot be null");
+			throw invalid("transaction", "Transaction object cannot be null");
 		}
 
 		// Validate order ID
 		if (transaction.getOrderId() == null || transaction.getOrderId().trim().isEmpty()) {
-			throw new IllegalArgumentException("Order ID is required");
+			throw invalid("orderId", "Order ID is required");
 		}
 
 		// Validate amount
 		if (transaction.getAmount() == null || transaction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-			throw new IllegalArgumentException("Amount must be a positive value");
+			throw invalid("amount", "Amount must be a positive value");
+		}
+
+		// Validate amount range, since summaries and rollups add amounts up as fixed-point longs
+		if (transaction.getAmount().compareTo(AmountUnits.MAX_AMOUNT) > 0) {
+			throw invalid("amountRange", "Amount cannot exceed " + AmountUnits.MAX_AMOUNT.toPlainString());
 		}
 
 		// Validate currency
 		if (transaction.getCurrency() == null) {
-			throw new IllegalArgumentException("Currency must be specified");
+			throw invalid("currency", "Currency must be specified");
 		}
 
 		// Validate card ID
 		if (transaction.getCardId() == null || transaction.getCardId().trim().isEmpty()) {
-			throw new IllegalArgumentException("Card ID is required");
+			throw invalid("cardId", "Card ID is required");
 		}
 
 		// Validate transaction type
 		if (transaction.getType() == null) {
-			throw new IllegalArgumentException("Transaction type must be specified");
+			throw invalid("type", "Transaction type must be specified");
 		}
 
 		// Validate transaction date
 		if (transaction.getDate() != null && transaction.getDate().isAfter(Instant.now())) {
-			throw new IllegalArgumentException("Transaction date cannot be in the future");
+			throw invalid("date", "Transaction date cannot be in the future");
 		}
 
 		// Validate transfer between different cards
 		if (transaction.getToCardId() != null && transaction.getToCardId().equals(transaction.getCardId())) {
-			throw new IllegalArgumentException("Sender and receiver cannot be the same");
+			throw invalid("sameCard", "Sender and receiver cannot be the same");
 		}
-
-		return transactionRepository.createTransaction(transaction);
 	}
 
-	public void deleteTransaction(String id) {
-		transactionRepository.deleteTransaction(id);
-	}
-
-	public Transaction modifyTransaction(String id, Transaction transaction) {
-		// Retrieve existing transaction by ID
-		Transaction existing = transactionRepository.getTransactionById(id);
-
-		// Check if transaction exists
-		if (existing == null) {
-			throw new TransactionNotFoundException("Transaction not found");
+	private void advanceVersions(Transaction transaction) {
+		if (versions != null) {
+			versions.modified(transaction);
 		}
-
-		// Validate transaction status, cannot modify successful transactions
-		if (existing.getStatus() == TransactionStatus.SUCCESS) {
-			throw new IllegalArgumentException("Cannot modify a successful transaction");
-		}
-
-		// Update and return the modified transaction
-		return transactionRepository.modifyTransaction(id, transaction);
 	}
 
-	@Cacheable(value = "listAllTransactions", keyGenerator = "transactionListKeyGenerator", unless = "#result.totalCount == 0")
-	public PageResult<Transaction> listAllTransactions(int page, int pageSize, Map<String, Object> filters) {
-		return transactionRepository.listAllTransactions(page, pageSize, filters);
-	}
-
-	public Transaction getTransactionById(String id) {
-		return transactionRepository.getTransactionById(id);
+	/**
+	 * Counts the failed validation rule and returns the exception to throw
+	 */
+	private IllegalArgumentException invalid(String rule, String message) {
+		metrics.validationFailed(rule);
+		return new IllegalArgumentException(message);
 	}
 }
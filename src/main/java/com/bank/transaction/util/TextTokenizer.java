@@ -0,0 +1,109 @@
+package com.bank.transaction.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits free text such as transaction descriptions into search tokens
+ * <p>
+ * Features:
+ * <p>
+ * 1. A token is a maximal run of letters and digits, lower-cased char by char, so
+ * "STARBUCKS #1024" yields "starbucks" and "1024"
+ * <p>
+ * 2. Ideographs form a token each, since scripts such as Chinese do not separate words
+ * <p>
+ * 3. {@link #containsAll(String, List)} walks the text in place, so checking a candidate against a
+ * query allocates nothing
+ * <p>
+ * Tokens compare exactly: there is no stemming and no prefix matching.
+ */
+public final class TextTokenizer {
+	private TextTokenizer() {
+	}
+
+	/**
+	 * @return the distinct tokens of the text in order of first occurrence; empty for null
+	 */
+	public static List<String> tokenize(String text) {
+		if (text == null) {
+			return List.of();
+		}
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < text.length()) {
+			int end = tokenEnd(text, i);
+			if (end == i) {
+				i++;
+				continue;
+			}
+			char[] token = new char[end - i];
+			for (int j = 0; j < token.length; j++) {
+				token[j] = Character.toLowerCase(text.charAt(i + j));
+			}
+			String value = new String(token);
+			if (!tokens.contains(value)) {
+				tokens.add(value);
+			}
+			i = end;
+		}
+		return tokens;
+	}
+
+	/**
+	 * Whether every one of the tokens, as produced by {@link #tokenize(String)}, is a token of the text
+	 */
+	public static boolean containsAll(String text, List<String> tokens) {
+		for (String token : tokens) {
+			if (!contains(text, token)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean contains(String text, String token) {
+		if (text == null) {
+			return false;
+		}
+		int i = 0;
+		while (i < text.length()) {
+			int end = tokenEnd(text, i);
+			if (end == i) {
+				i++;
+				continue;
+			}
+			if (end - i == token.length() && equalsLowerCase(text, i, token)) {
+				return true;
+			}
+			i = end;
+		}
+		return false;
+	}
+
+	private static boolean equalsLowerCase(String text, int start, String token) {
+		for (int j = 0; j < token.length(); j++) {
+			if (Character.toLowerCase(text.charAt(start + j)) != token.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** End of the token starting at {@code start}, or {@code start} if no token starts there */
+	private static int tokenEnd(String text, int start) {
+		char c = text.charAt(start);
+		if (Character.isIdeographic(c)) {
+			return start + 1;
+		}
+		int end = start;
+		while (end < text.length() && isWordChar(text.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) && !Character.isIdeographic(c);
+	}
+}
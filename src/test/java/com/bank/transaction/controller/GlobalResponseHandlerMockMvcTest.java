@@ -1,32 +1,75 @@
 package com.bank.transaction.controller;
 
+import com.bank.transaction.config.WireFormatConfig;
 import com.bank.transaction.exception.TransactionAlreadyExistsException;
 import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.exception.TransactionVersionMismatchException;
+import com.bank.transaction.model.ApiResponse;
+import com.bank.transaction.model.PageResult;
 import com.bank.transaction.model.Transaction;
+import com.bank.transaction.service.ModificationVersions;
+import com.bank.transaction.service.TransactionResponseCache;
 import com.bank.transaction.service.TransactionService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.unit.DataSize;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransactionController.class)
+@Import(WireFormatConfig.class)
 class GlobalResponseHandlerMockMvcTest {
 
+	@TestConfiguration
+	static class ResponseCacheConfig {
+		@Bean
+		TransactionResponseCache transactionResponseCache() {
+			return new TransactionResponseCache(DataSize.ofMegabytes(1), new SimpleMeterRegistry());
+		}
+
+		@Bean
+		ModificationVersions modificationVersions() {
+			return new ModificationVersions();
+		}
+	}
+
 	@Autowired
 	private MockMvc mockMvc;
 
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@Autowired
+	private ModificationVersions versions;
+
 	@MockBean
 	private TransactionService transactionService;
 
@@ -51,6 +94,17 @@ class GlobalResponseHandlerMockMvcTest {
 				.andExpect(status().isNotFound());
 	}
 
+	@Test
+	void shouldReturnPreconditionFailedWhenVersionMoved() throws Exception {
+		when(transactionService.modifyTransaction(eq("123"), any(Transaction.class), eq(2L)))
+				.thenThrow(new TransactionVersionMismatchException("Transaction is at version 3, not 2"));
+
+		mockMvc.perform(put("/api/transaction/123")
+						.header("If-Match", "\"2\"")
+						.contentType("application/json")
+						.content(objectMapper.writeValueAsString(new Transaction())))
+				.andExpect(status().isPreconditionFailed());
+	}
 
 	@Test
 	void shouldWrapSuccessResponse() throws Exception {
@@ -63,4 +117,162 @@ class GlobalResponseHandlerMockMvcTest {
 						.content(objectMapper.writeValueAsString(mockTransaction)))
 				.andExpect(status().isOk());
 	}
+
+	@Test
+	void shouldWriteWrappedTransactionFromResponseCache() throws Exception {
+		Transaction mockTransaction = new Transaction();
+		mockTransaction.setId("123");
+		mockTransaction.setVersion(1);
+		when(transactionService.getTransactionById("123")).thenReturn(mockTransaction);
+
+		String first = mockMvc.perform(get("/api/transaction/123"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/json"))
+				.andReturn().getResponse().getContentAsString();
+		String second = mockMvc.perform(get("/api/transaction/123"))
+				.andReturn().getResponse().getContentAsString();
+
+		assertEquals(objectMapper.writeValueAsString(ApiResponse.success(mockTransaction)), first);
+		assertEquals(first, second);
+	}
+
+	@Test
+	void shouldAnswerUnchangedListsWithNotModified() throws Exception {
+		when(transactionService.listAllTransactions(eq(0), eq(10), any()))
+				.thenReturn(new PageResult<>(List.of(new Transaction()), 1));
+
+		String etag = mockMvc.perform(get("/api/transaction/list").param("cardId", "CARD_001"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+		mockMvc.perform(get("/api/transaction/list").param("cardId", "CARD_001").header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etag))
+				.andExpect(content().string(""));
+		Transaction written = new Transaction();
+		written.setCardId("CARD_001");
+		versions.modified(written);
+		mockMvc.perform(get("/api/transaction/list").param("cardId", "CARD_001").header("If-None-Match", etag))
+				.andExpect(status().isOk());
+
+		verify(transactionService, times(2)).listAllTransactions(eq(0), eq(10), any());
+	}
+
+	@Test
+	void shouldAnswerUnchangedTransactionWithNotModified() throws Exception {
+		Transaction mockTransaction = new Transaction();
+		mockTransaction.setId("123");
+		mockTransaction.setVersion(4);
+		when(transactionService.getTransactionById("123")).thenReturn(mockTransaction);
+
+		mockMvc.perform(get("/api/transaction/123").header("If-None-Match", "W/\"4\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+		mockMvc.perform(get("/api/transaction/123").header("If-None-Match", "\"3\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"4\""));
+	}
+
+	@Test
+	void shouldNotTagErrorResponses() throws Exception {
+		when(transactionService.listAllTransactions(eq(0), eq(-1), any()))
+				.thenThrow(new IllegalArgumentException("Page size must be positive"));
+
+		mockMvc.perform(get("/api/transaction/list").param("size", "-1"))
+				.andExpect(status().isBadRequest())
+				.andExpect(header().doesNotExist("ETag"));
+	}
+
+	@Test
+	void shouldReadAndWriteWrappedSmileOnCreate() throws Exception {
+		ObjectMapper smileMapper = WireFormatConfig.smileMapper(objectMapper);
+		Transaction request = new Transaction();
+		request.setOrderId("order-1");
+		request.setAmount(new BigDecimal("12.50"));
+		when(transactionService.createTransaction(any())).thenAnswer(invocation -> {
+			Transaction created = new Transaction(invocation.getArgument(0));
+			created.setId("123");
+			return created;
+		});
+
+		byte[] body = mockMvc.perform(post("/api/transaction")
+						.contentType("application/x-jackson-smile")
+						.accept("application/x-jackson-smile")
+						.content(smileMapper.writeValueAsBytes(request)))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-jackson-smile"))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode response = smileMapper.readTree(body);
+		assertEquals("success", response.get("message").asText());
+		assertEquals("123", response.get("data").get("id").asText());
+		assertEquals("order-1", response.get("data").get("orderId").asText());
+	}
+
+	@Test
+	void shouldTagEachRepresentationOfAListSeparately() throws Exception {
+		Transaction row = new Transaction();
+		row.setId("1");
+		when(transactionService.listAllTransactions(eq(0), eq(10), any()))
+				.thenReturn(new PageResult<>(List.of(row), 1));
+
+		String jsonTag = mockMvc.perform(get("/api/transaction/list"))
+				.andReturn().getResponse().getHeader("ETag");
+		byte[] body = mockMvc.perform(get("/api/transaction/list")
+						.accept("application/x-jackson-smile")
+						.header("If-None-Match", jsonTag))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", jsonTag.replaceFirst("\"$", "-smile\"")))
+				.andExpect(header().string("Vary", "Accept"))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode page = WireFormatConfig.smileMapper(objectMapper).readTree(body);
+		assertEquals(1, page.get("data").get("totalCount").asInt());
+		assertEquals("1", page.get("data").get("data").get(0).get("id").asText());
+		mockMvc.perform(get("/api/transaction/list")
+						.accept("application/x-jackson-smile")
+						.header("If-None-Match", jsonTag.replaceFirst("\"$", "-smile\"")))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void shouldWriteSmileTransactionFromResponseCache() throws Exception {
+		Transaction mockTransaction = new Transaction();
+		mockTransaction.setId("123");
+		mockTransaction.setVersion(2);
+		when(transactionService.getTransactionById("123")).thenReturn(mockTransaction);
+
+		byte[] smile = mockMvc.perform(get("/api/transaction/123").accept("application/x-jackson-smile"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-jackson-smile"))
+				.andExpect(header().string("ETag", "\"2-smile\""))
+				.andReturn().getResponse().getContentAsByteArray();
+		String json = mockMvc.perform(get("/api/transaction/123"))
+				.andExpect(header().string("ETag", "\"2\""))
+				.andReturn().getResponse().getContentAsString();
+
+		assertEquals(objectMapper.readTree(json), WireFormatConfig.smileMapper(objectMapper).readTree(smile));
+	}
+
+	@Test
+	void shouldStreamExportAsUnwrappedNdjson() throws Exception {
+		Transaction first = new Transaction();
+		first.setId("1");
+		Transaction second = new Transaction();
+		second.setId("2");
+		when(transactionService.streamTransactions(any())).thenReturn(Stream.of(first, second));
+
+		MvcResult result = mockMvc.perform(get("/api/transaction/export").param("cardId", "CARD_001"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		String body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson"))
+				.andReturn().getResponse().getContentAsString();
+		String[] lines = body.split("\n");
+		assertEquals(2, lines.length);
+		assertEquals("1", objectMapper.readValue(lines[0], Transaction.class).getId());
+		assertEquals("2", objectMapper.readValue(lines[1], Transaction.class).getId());
+	}
 }
@@ -0,0 +1,171 @@
+package com.bank.transaction.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.service.TransactionService;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveTransactionControllerTest {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private ReactiveWebServerApplicationContext context;
+
+	@MockBean
+	private TransactionService transactionService;
+
+	@Test
+	void shouldServeWithWebFluxOnNetty() {
+		assertInstanceOf(NettyWebServer.class, context.getWebServer());
+	}
+
+	@Test
+	void shouldWrapSuccessResponse() {
+		Transaction created = new Transaction();
+		created.setId("123");
+		when(transactionService.createTransactionAsync(any())).thenReturn(CompletableFuture.completedFuture(created));
+
+		webTestClient.post().uri("/api/transaction")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Map.of("orderId", "order-1"))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("success")
+				.jsonPath("$.data.id").isEqualTo("123");
+	}
+
+	@Test
+	void shouldWrapPagesAndEmptyResults() {
+		Transaction row = new Transaction();
+		row.setId("1");
+		when(transactionService.listAllTransactions(0, 10, TransactionQuery.all().withCardId("CARD_001")))
+				.thenReturn(new PageResult<>(List.of(row), 1));
+
+		webTestClient.get().uri("/api/transaction/list?cardId=CARD_001")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.data.totalCount").isEqualTo(1)
+				.jsonPath("$.data.data[0].id").isEqualTo("1");
+		webTestClient.get().uri("/api/transaction/unknown")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("success")
+				.jsonPath("$.data").doesNotExist();
+	}
+
+	@Test
+	void shouldMapExceptionsLikeTheServletStack() {
+		when(transactionService.createTransactionAsync(any()))
+				.thenReturn(CompletableFuture.failedFuture(new TransactionAlreadyExistsException("Transaction exists")));
+		doThrow(new TransactionNotFoundException("Transaction not found"))
+				.when(transactionService).deleteTransaction("123");
+
+		webTestClient.post().uri("/api/transaction")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Map.of("orderId", "order-1"))
+				.exchange()
+				.expectStatus().isEqualTo(409)
+				.expectBody().jsonPath("$.message").isEqualTo("Transaction exists");
+		webTestClient.delete().uri("/api/transaction/123")
+				.exchange()
+				.expectStatus().isNotFound();
+		webTestClient.get().uri("/api/transaction/list?status=PENDING")
+				.exchange()
+				.expectStatus().isBadRequest()
+				.expectBody().jsonPath("$.message").isEqualTo("Invalid status: PENDING");
+	}
+
+	@Test
+	void shouldStreamExportAsUnwrappedNdjson() {
+		Transaction first = new Transaction();
+		first.setId("1");
+		Transaction second = new Transaction();
+		second.setId("2");
+		when(transactionService.streamTransactions(any())).thenAnswer(invocation -> List.of(first, second).stream());
+
+		List<Transaction> exported = webTestClient.get().uri("/api/transaction/export?cardId=CARD_001")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(Transaction.class)
+				.getResponseBody()
+				.collectList()
+				.block();
+
+		assertEquals(2, exported.size());
+		assertEquals("2", exported.get(1).getId());
+	}
+
+	@Test
+	void shouldReadOnTheEventLoopFromMemory() {
+		assertFalse(readingThread(webTestClient, transactionService).startsWith("boundedElastic"));
+	}
+
+	@Nested
+	@TestPropertySource(properties = {
+			"transaction.repository.type=tiered",
+			"transaction.tiered.directory=target/reactive-controller-segments"})
+	class OnTheTieredRepository {
+
+		// the mocked service is declared on the enclosing class, but this context has its own
+		@Autowired
+		private WebTestClient webTestClient;
+
+		@Autowired
+		private TransactionService transactionService;
+
+		@Test
+		void shouldReadOffTheEventLoop() {
+			assertTrue(readingThread(webTestClient, transactionService).startsWith("boundedElastic"));
+		}
+	}
+
+	/** Name of the thread the service is called on for a lookup by ID */
+	private static String readingThread(WebTestClient webTestClient, TransactionService transactionService) {
+		AtomicReference<String> thread = new AtomicReference<>();
+		when(transactionService.getTransactionById("1")).thenAnswer(invocation -> {
+			thread.set(Thread.currentThread().getName());
+			return null;
+		});
+
+		webTestClient.get().uri("/api/transaction/1")
+				.exchange()
+				.expectStatus().isOk();
+		return thread.get();
+	}
+}
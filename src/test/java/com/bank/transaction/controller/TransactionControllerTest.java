@@ -7,22 +7,48 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.bank.transaction.config.WireFormatConfig;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
 import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
 import com.bank.transaction.model.Transaction;
 import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionQuery;
 import com.bank.transaction.model.TransactionStatus;
 import com.bank.transaction.model.TransactionType;
+import com.bank.transaction.service.ModificationVersions;
+import com.bank.transaction.service.TransactionResponseCache;
 import com.bank.transaction.service.TransactionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +57,12 @@ public class TransactionControllerTest {
 	@Mock
 	private TransactionService transactionService;
 
+	@Spy
+	private ModificationVersions versions = new ModificationVersions();
+
+	@Spy
+	private MappingJackson2SmileHttpMessageConverter smileConverter = new MappingJackson2SmileHttpMessageConverter();
+
 	@InjectMocks
 	private TransactionController transactionController;
 
@@ -61,6 +93,26 @@ public class TransactionControllerTest {
 		verify(transactionService, times(1)).createTransaction(testTransaction);
 	}
 
+	@Test
+	public void testGetCardSummaries() {
+		List<CardSummary> summaries = List.of(new CardSummary("testCardId", Currency.getInstance("USD"),
+				new BigDecimal("100.00"), new BigDecimal("40.00"), 2, Instant.now()));
+		when(transactionService.getCardSummaries("testCardId")).thenReturn(summaries);
+
+		List<CardSummary> result = transactionController.getCardSummaries("testCardId");
+
+		assertEquals(summaries, result);
+		assertEquals(new BigDecimal("60.00"), result.get(0).getNet());
+	}
+
+	@Test
+	public void testCreateTransactions() {
+		List<BatchItemResult> results = List.of(BatchItemResult.created(0, testTransaction));
+		when(transactionService.createTransactions(List.of(testTransaction))).thenReturn(results);
+
+		assertEquals(results, transactionController.createTransactions(List.of(testTransaction)));
+	}
+
 	@Test
 	public void testDeleteTransaction() {
 		transactionController.deleteTransaction("testId");
@@ -70,36 +122,121 @@ public class TransactionControllerTest {
 
 	@Test
 	public void testModifyTransaction() {
-		when(transactionService.modifyTransaction("testId", testTransaction)).thenReturn(testTransaction);
+		when(transactionService.modifyTransaction("testId", testTransaction, null)).thenReturn(testTransaction);
 
-		Transaction result = transactionController.modifyTransaction("testId", testTransaction);
+		Transaction result = transactionController.modifyTransaction("testId", testTransaction, null);
 
 		assertEquals(testTransaction, result);
-		verify(transactionService, times(1)).modifyTransaction("testId", testTransaction);
+		verify(transactionService, times(1)).modifyTransaction("testId", testTransaction, null);
+	}
+
+	@Test
+	public void testModifyTransactionPassesIfMatchVersion() {
+		when(transactionService.modifyTransaction("testId", testTransaction, 3L)).thenReturn(testTransaction);
+
+		assertEquals(testTransaction, transactionController.modifyTransaction("testId", testTransaction, "\"3\""));
+		assertThrows(IllegalArgumentException.class,
+				() -> transactionController.modifyTransaction("testId", testTransaction, "W/\"abc\""));
 	}
 
 	@Test
 	public void testListAllTransactions() {
-		Map<String, Object> filters = new HashMap<>();
-		filters.put("cardId", "testCardId");
-		filters.put("status", TransactionStatus.PROCESSING);
-		filters.put("channel", TransactionChannel.WEB_PORTAL);
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("page", "0");
+		parameters.put("cardId", "testCardId");
+		parameters.put("status", "processing");
+		parameters.put("channel", "WEB_PORTAL");
+		parameters.put("q", " Starbucks  SEATTLE ");
+		TransactionQuery query = new TransactionQuery("testCardId", TransactionStatus.PROCESSING, TransactionChannel.WEB_PORTAL, null, null)
+				.withText("seattle starbucks");
 
-		when(transactionService.listAllTransactions(0, 10, filters)).thenReturn(new PageResult<>(List.of(testTransaction), 1));
+		when(transactionService.listAllTransactions(0, 10, query)).thenReturn(new PageResult<>(List.of(testTransaction), 1));
 
-		PageResult<Transaction> result = transactionController.listAllTransactions(0, 10, filters);
+		PageResult<Transaction> result = transactionController.listAllTransactions(0, 10, parameters, request());
 
 		assertEquals(List.of(testTransaction), result.getData());
-		verify(transactionService, times(1)).listAllTransactions(0, 10, filters);
+		verify(transactionService, times(1)).listAllTransactions(0, 10, query);
 	}
 
 	@Test
-	public void testGetTransactionById() {
-		when(transactionService.getTransactionById("testId")).thenReturn(testTransaction);
+	public void testListTransactionsByCursor() {
+		when(transactionService.listTransactionsByCursor("", 10, TransactionQuery.all().withCardId("testCardId")))
+				.thenReturn(new CursorPageResult<>(List.of(testTransaction), "next"));
 
-		Transaction result = transactionController.getTransactionById("testId");
+		CursorPageResult<Transaction> result = transactionController.listTransactionsByCursor("", 10, Map.of("cardId", "testCardId"),
+				request());
 
-		assertEquals(testTransaction, result);
-		verify(transactionService, times(1)).getTransactionById("testId");
+		assertEquals(List.of(testTransaction), result.getData());
+		assertEquals("next", result.getNextCursor());
+	}
+
+	@Test
+	public void testListRejectsInvalidFilterValues() {
+		assertThrows(IllegalArgumentException.class,
+				() -> transactionController.listAllTransactions(0, 10, Map.of("status", "PENDING"), request()));
+		assertThrows(IllegalArgumentException.class,
+				() -> transactionController.listAllTransactions(0, 10, Map.of("endDate", "2025-04-02"), request()));
+	}
+
+	@Test
+	public void testListMatchingIfNoneMatchIsNotModifiedWithoutQuerying() {
+		TransactionQuery query = TransactionQuery.all().withCardId("testCardId");
+		String etag = versions.listTag(query);
+		MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/api/transaction/list");
+		conditional.addHeader("If-None-Match", "\"other\", " + etag);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertNull(transactionController.listAllTransactions(0, 10, Map.of("cardId", "testCardId"),
+				new ServletWebRequest(conditional, response)));
+
+		assertEquals(304, response.getStatus());
+		assertEquals(etag, response.getHeader("ETag"));
+		verifyNoInteractions(transactionService);
+		versions.modified(testTransaction);
+		assertNotEquals(etag, versions.listTag(query));
+	}
+
+	@Test
+	public void testGetStatsParsesResolution() {
+		List<StatsBucket> buckets = List.of();
+		when(transactionService.getStats(StatsResolution.MINUTE, 60)).thenReturn(buckets);
+
+		assertEquals(buckets, transactionController.getStats("minute", 60));
+		assertThrows(IllegalArgumentException.class, () -> transactionController.getStats("week", 1));
+	}
+
+	@Test
+	public void testGetTransactionByIdWritesCachedBodyPerVersion() throws Exception {
+		ObjectMapper objectMapper = spy(new ObjectMapper().findAndRegisterModules());
+		TransactionController controller = new TransactionController(transactionService, objectMapper,
+				new MappingJackson2SmileHttpMessageConverter(WireFormatConfig.smileMapper(objectMapper)),
+				new TransactionResponseCache(DataSize.ofMegabytes(1), new SimpleMeterRegistry()), versions);
+		testTransaction.setId("testId");
+		testTransaction.setVersion(1);
+		Transaction modified = new Transaction(testTransaction);
+		modified.setStatus(TransactionStatus.FAILED);
+		modified.setVersion(2);
+		when(transactionService.getTransactionById("testId")).thenReturn(testTransaction, testTransaction, modified);
+
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		controller.getTransactionById("testId", request(), first);
+		MockHttpServletResponse second = new MockHttpServletResponse();
+		controller.getTransactionById("testId", request(), second);
+		MockHttpServletResponse third = new MockHttpServletResponse();
+		controller.getTransactionById("testId", request(), third);
+
+		assertEquals("application/json", first.getContentType());
+		assertEquals("\"1\"", first.getHeader("ETag"));
+		JsonNode body = objectMapper.readTree(first.getContentAsByteArray());
+		assertEquals("success", body.get("message").asText());
+		assertEquals("testOrderId", body.get("data").get("orderId").asText());
+		assertArrayEquals(first.getContentAsByteArray(), second.getContentAsByteArray());
+		assertEquals("FAILED", objectMapper.readTree(third.getContentAsByteArray()).get("data").get("status").asText());
+		verify(objectMapper, times(2)).writeValueAsBytes(any());
+	}
+
+	private static ServletWebRequest request() {
+		return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/transaction"),
+				new MockHttpServletResponse());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.bank.transaction.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+	@Test
+	public void testAddedKeysAreAlwaysFound() {
+		BloomFilter filter = new BloomFilter(50_000, BloomFilter.DEFAULT_BITS_PER_KEY);
+		for (int i = 0; i < 50_000; i++) {
+			filter.add("order-" + i);
+		}
+
+		for (int i = 0; i < 50_000; i++) {
+			assertTrue(filter.mightContain("order-" + i));
+		}
+	}
+
+	@Test
+	public void testFalsePositiveRateStaysNearOnePercent() {
+		BloomFilter filter = new BloomFilter(100_000, BloomFilter.DEFAULT_BITS_PER_KEY);
+		for (int i = 0; i < 100_000; i++) {
+			filter.add("order-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("unseen-" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 2_000, falsePositives + " false positives");
+		assertEquals(125_000, filter.sizeInBytes(), 64);
+	}
+
+	@Test
+	public void testEmptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(0, BloomFilter.DEFAULT_BITS_PER_KEY);
+
+		assertFalse(filter.mightContain(""));
+		assertFalse(filter.mightContain("order-1"));
+	}
+}
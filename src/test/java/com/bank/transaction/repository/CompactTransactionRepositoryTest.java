@@ -0,0 +1,236 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.BatchItemStatus;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.bank.transaction.repository.TestTransactions.newTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactTransactionRepositoryTest {
+
+	private CompactTransactionRepository repository;
+
+	@BeforeEach
+	public void setUp() {
+		repository = new CompactTransactionRepository();
+	}
+
+	@Test
+	public void testCreateAndGetRoundTripsEveryField() {
+		Transaction request = newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00.123456Z"));
+
+		Transaction created = repository.createTransaction(request);
+		Transaction found = repository.getTransactionById(created.getId());
+
+		assertNotNull(found);
+		assertEquals(created.getId(), found.getId());
+		assertEquals("order-1", found.getOrderId());
+		assertEquals(TransactionType.TRANSFER, found.getType());
+		assertEquals(Currency.getInstance("CNY"), found.getCurrency());
+		assertEquals(new BigDecimal("1500.00"), found.getAmount());
+		assertEquals(Instant.parse("2025-04-02T10:10:00.123Z"), found.getDate());
+		assertEquals("card1", found.getCardId());
+		assertEquals("other", found.getToCardId());
+		assertEquals(TestTransactions.DESCRIPTION, found.getDescription());
+		assertEquals(TransactionStatus.PROCESSING, found.getStatus());
+		assertEquals(TransactionChannel.MOBILE_APP, found.getChannel());
+		assertTrue(repository.existsByOrderId("order-1"));
+		assertNull(repository.getTransactionById("not-a-uuid"));
+	}
+
+	@Test
+	public void testDuplicateOrderIdReplaysOrConflicts() {
+		Transaction created = repository.createTransaction(newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00.123456Z")));
+
+		Transaction retry = repository.createTransaction(newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00.123456Z")));
+		Transaction different = newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00Z"));
+		different.setAmount(BigDecimal.ONE);
+
+		assertEquals(created.getId(), retry.getId());
+		assertThrows(TransactionAlreadyExistsException.class, () -> repository.createTransaction(different));
+	}
+
+	@Test
+	public void testModifyAndDelete() {
+		Transaction created = repository.createTransaction(newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00Z")));
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		update.setDescription("declined");
+
+		Transaction modified = repository.modifyTransaction(created.getId(), update);
+		assertNull(repository.modifyTransaction(created.getId(), update, 1));
+		repository.deleteTransaction(created.getId());
+
+		assertEquals(TransactionStatus.FAILED, modified.getStatus());
+		assertEquals("declined", modified.getDescription());
+		assertEquals(2, modified.getVersion());
+		assertNull(repository.getTransactionById(created.getId()));
+		assertFalse(repository.existsByOrderId("order-1"));
+		assertEquals(0, repository.listAllTransactions(0, 10, TransactionQuery.all().withCardId("card1")).getTotalCount());
+		assertThrows(TransactionNotFoundException.class, () -> repository.deleteTransaction(created.getId()));
+		assertNotNull(repository.createTransaction(newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00Z"))));
+	}
+
+	@Test
+	public void testLookupsSurviveManyDeletes() {
+		List<Transaction> created = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			created.add(repository.createTransaction(newTransaction("order-" + i, "card" + (i % 7), Instant.ofEpochSecond(i))));
+		}
+		for (int i = 0; i < 2000; i += 3) {
+			repository.deleteTransaction(created.get(i).getId());
+		}
+
+		for (int i = 0; i < 2000; i++) {
+			boolean kept = i % 3 != 0;
+			assertEquals(kept, repository.getTransactionById(created.get(i).getId()) != null);
+			assertEquals(kept, repository.existsByOrderId("order-" + i));
+		}
+		assertEquals(1333, repository.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testFiltersAndNewestFirstOrder() {
+		for (int i = 0; i < 30; i++) {
+			Transaction t = newTransaction("order-" + i, "card" + (i % 3), Instant.parse("2025-04-02T10:00:00Z").plusSeconds(i));
+			t.setStatus(i % 2 == 0 ? TransactionStatus.SUCCESS : TransactionStatus.PROCESSING);
+			repository.createTransaction(t);
+		}
+		TransactionQuery query = TransactionQuery.all()
+				.withCardId("card0")
+				.withStatus(TransactionStatus.SUCCESS)
+				.withDateRange(Instant.parse("2025-04-02T10:00:05Z"), null);
+
+		PageResult<Transaction> result = repository.listAllTransactions(0, 3, query);
+
+		assertEquals(4, result.getTotalCount());
+		assertEquals(List.of("order-24", "order-18", "order-12"), result.getData().stream().map(Transaction::getOrderId).toList());
+		assertEquals(0, repository.listAllTransactions(0, 3, TransactionQuery.all().withCardId("unknown")).getTotalCount());
+	}
+
+	@Test
+	public void testTextFilter() {
+		for (int i = 0; i < 12; i++) {
+			Transaction t = newTransaction("order-" + i, "card" + (i % 2), Instant.parse("2025-04-02T10:00:00Z").plusSeconds(i));
+			t.setDescription(i % 3 == 0 ? "STARBUCKS #" + i : "Coffee #" + i);
+			repository.createTransaction(t);
+		}
+		TransactionQuery query = TransactionQuery.all().withText("starbucks");
+
+		assertEquals(List.of("order-9", "order-6", "order-3", "order-0"),
+				repository.listAllTransactions(0, 10, query).getData().stream().map(Transaction::getOrderId).toList());
+		assertEquals(List.of("order-6", "order-0"),
+				repository.listAllTransactions(0, 10, query.withCardId("card0")).getData().stream().map(Transaction::getOrderId).toList());
+		assertEquals(List.of("order-6"),
+				repository.listAllTransactions(0, 10, query.withText("Starbucks 6")).getData().stream().map(Transaction::getOrderId).toList());
+	}
+
+	@Test
+	public void testCursorPaginationWalksEveryRowOnce() {
+		for (int i = 0; i < 25; i++) {
+			repository.createTransaction(newTransaction("order-" + i, "card1", Instant.parse("2025-04-02T10:00:00Z").plusSeconds(i / 2)));
+		}
+		List<String> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPageResult<Transaction> page = repository.listTransactionsByCursor(cursor, 10, TransactionQuery.all());
+			page.getData().forEach(t -> seen.add(t.getOrderId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(25, seen.size());
+		assertEquals(25, seen.stream().distinct().count());
+		assertEquals(repository.streamTransactions(TransactionQuery.all()).map(Transaction::getOrderId).toList(), seen);
+	}
+
+	@Test
+	public void testPagesOfRowsStoredOutOfDateOrderMatchTheFullOrder() {
+		for (int i = 0; i < 300; i++) {
+			// dates repeat and arrive shuffled, and every eleventh row is undated, so the heap breaks ties by ID
+			Instant date = i % 11 == 0 ? null : Instant.parse("2025-04-02T10:00:00Z").plusSeconds(i * 37 % 50);
+			Transaction t = newTransaction("order-" + i, "card" + (i % 2), date);
+			t.setStatus(i % 3 == 0 ? TransactionStatus.SUCCESS : TransactionStatus.PROCESSING);
+			repository.createTransaction(t);
+		}
+		for (TransactionQuery query : List.of(TransactionQuery.all(), TransactionQuery.all().withCardId("card1"),
+				TransactionQuery.all().withStatus(TransactionStatus.SUCCESS))) {
+			List<String> all = repository.streamTransactions(query).map(Transaction::getId).toList();
+			for (int page = 0; page * 7 <= all.size(); page++) {
+				PageResult<Transaction> result = repository.listAllTransactions(page, 7, query);
+				assertEquals(all.subList(page * 7, Math.min(page * 7 + 7, all.size())),
+						result.getData().stream().map(Transaction::getId).toList());
+				assertEquals(all.size(), result.getTotalCount());
+			}
+			assertEquals(all.size(), repository.listAllTransactions(0, 0, query).getTotalCount());
+
+			List<String> walked = new ArrayList<>();
+			String cursor = null;
+			do {
+				CursorPageResult<Transaction> page = repository.listTransactionsByCursor(cursor, 9, query);
+				page.getData().forEach(t -> walked.add(t.getId()));
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+			assertEquals(all, walked);
+		}
+	}
+
+	@Test
+	public void testBatchCreate() {
+		repository.createTransaction(newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00Z")));
+		Transaction clash = newTransaction("order-1", "card1", Instant.parse("2025-04-02T10:10:00Z"));
+		clash.setAmount(BigDecimal.TEN);
+
+		List<BatchItemResult> results = repository.createTransactions(List.of(
+				newTransaction("order-2", "card2", Instant.parse("2025-04-02T10:10:00Z")), clash));
+
+		assertEquals(BatchItemStatus.CREATED, results.get(0).getStatus());
+		assertEquals(BatchItemStatus.CONFLICT, results.get(1).getStatus());
+		assertNotNull(repository.getTransactionById(results.get(0).getData().getId()));
+	}
+
+	@Test
+	public void testCardSummariesFollowStatusChangesAndDeletes() {
+		Transaction first = newTransaction("order-1", "card1", Instant.parse("2025-04-01T00:00:00Z"));
+		first.setStatus(TransactionStatus.SUCCESS);
+		repository.createTransaction(first);
+		Transaction second = repository.createTransaction(
+				newTransaction("order-2", "card1", Instant.parse("2025-04-02T00:00:00Z")));
+		assertEquals(new BigDecimal("1500.00"), repository.getCardSummaries("card1").get(0).getOutflow());
+
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.SUCCESS);
+		repository.modifyTransaction(second.getId(), update);
+		CardSummary summary = repository.getCardSummaries("card1").get(0);
+		assertEquals(new BigDecimal("3000.00"), summary.getOutflow());
+		assertEquals(new BigDecimal("-3000.00"), summary.getNet());
+		assertEquals(Instant.parse("2025-04-02T00:00:00Z"), summary.getLastActivity());
+		assertEquals(new BigDecimal("3000.00"), repository.getCardSummaries("other").get(0).getInflow());
+
+		repository.deleteTransaction(second.getId());
+		assertEquals(1, repository.getCardSummaries("card1").get(0).getCount());
+		assertEquals(new BigDecimal("1500.00"), repository.getCardSummaries("other").get(0).getInflow());
+	}
+}
@@ -0,0 +1,113 @@
+package com.bank.transaction.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DescriptionIndexTest {
+	private static final Instant START = Instant.parse("2025-04-01T00:00:00Z");
+
+	@Test
+	public void testRenumberingReclaimsTheNumbersOfDeadDocuments() {
+		DescriptionIndex index = new DescriptionIndex();
+		List<TransactionKey> keys = keys(100);
+		String[] descriptions = new String[keys.size()];
+		for (int i = 0; i < keys.size(); i++) {
+			descriptions[i] = "Coffee store " + i;
+			index.add(keys.get(i), descriptions[i]);
+		}
+
+		// every change kills a document and numbers a new one, so numbers run far past the live count
+		for (int change = 0; change < 40_000; change++) {
+			int i = change % keys.size();
+			index.remove(keys.get(i), descriptions[i]);
+			descriptions[i] = (change % 3 == 0 ? "Tea store " : "Coffee store ") + i;
+			index.add(keys.get(i), descriptions[i]);
+		}
+
+		assertTrue(index.documentNumbers() < 2 << 14, index.documentNumbers() + " document numbers");
+		List<TransactionKey> coffee = new ArrayList<>();
+		for (int i = 0; i < keys.size(); i++) {
+			if (descriptions[i].startsWith("Coffee")) {
+				coffee.add(keys.get(i));
+			}
+		}
+		coffee.sort(null);
+		assertEquals(coffee, index.search(List.of("coffee"), null, null, null));
+		assertEquals(sorted(keys), index.search(List.of("store"), null, null, null));
+		assertEquals(List.of(keys.get(42)), index.search(List.of("store", "42"), null, null, null));
+	}
+
+	@Test
+	public void testSearchesRacingWithRenumberingSeeOnlyIndexedKeys() throws Exception {
+		DescriptionIndex index = new DescriptionIndex();
+		int writers = 4;
+		List<TransactionKey> keys = keys(writers * 25);
+		for (int i = 0; i < keys.size(); i++) {
+			index.add(keys.get(i), "Coffee store writer" + i % writers);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+		CountDownLatch go = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		List<Future<?>> results = new ArrayList<>();
+		for (int writer = 0; writer < writers; writer++) {
+			int thread = writer;
+			results.add(executor.submit(() -> {
+				go.await();
+				for (int change = 0; change < 10_000; change++) {
+					TransactionKey key = keys.get((change % 25) * writers + thread);
+					// the shared "store" token puts every writer on the same list
+					index.remove(key, "Coffee store writer" + thread);
+					index.add(key, "Coffee store writer" + thread);
+				}
+				return null;
+			}));
+		}
+		Future<Integer> searches = executor.submit(() -> {
+			go.await();
+			int done = 0;
+			while (writing.get()) {
+				for (TransactionKey key : index.search(List.of("coffee", "store"), null, null, null)) {
+					assertTrue(keys.contains(key), key.toString());
+				}
+				done++;
+			}
+			return done;
+		});
+		go.countDown();
+		for (Future<?> result : results) {
+			result.get();
+		}
+		writing.set(false);
+		assertTrue(searches.get() > 0);
+		executor.shutdown();
+
+		assertEquals(sorted(keys), index.search(List.of("coffee", "store"), null, null, null));
+		assertEquals(keys.size() / writers, index.search(List.of("writer1"), null, null, null).size());
+		assertTrue(index.documentNumbers() < 2 << 14, index.documentNumbers() + " document numbers");
+	}
+
+	private static List<TransactionKey> keys(int count) {
+		List<TransactionKey> keys = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			keys.add(new TransactionKey(START.plusSeconds(i), "id-" + i));
+		}
+		return keys;
+	}
+
+	private static List<TransactionKey> sorted(List<TransactionKey> keys) {
+		List<TransactionKey> sorted = new ArrayList<>(keys);
+		sorted.sort(null);
+		return sorted;
+	}
+}
@@ -2,16 +2,26 @@ package com.bank.transaction.repository;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Currency;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.bank.transaction.exception.TransactionAlreadyExistsException;
 import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.BatchItemStatus;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
 import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsResolution;
 import com.bank.transaction.model.Transaction;
 import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionQuery;
 import com.bank.transaction.model.TransactionStatus;
 import com.bank.transaction.model.TransactionType;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -65,8 +76,106 @@ public class InMemoryTransactionRepositoryTest {
 	@Test
 	public void testCreateTransactionWithExistingOrderId() {
 		repository.createTransaction(testTransaction);
+		Transaction different = copyOf(testTransaction);
+		different.setAmount(BigDecimal.valueOf(200));
 
-		assertThrows(TransactionAlreadyExistsException.class, () -> repository.createTransaction(testTransaction));
+		assertThrows(TransactionAlreadyExistsException.class, () -> repository.createTransaction(different));
+	}
+
+	@Test
+	public void testCreateTransactionReplaysIdenticalRetry() {
+		Transaction created = repository.createTransaction(testTransaction);
+		Transaction retry = copyOf(testTransaction);
+		retry.setAmount(new BigDecimal("100.00"));
+
+		Transaction replayed = repository.createTransaction(retry);
+
+		assertSame(created, replayed);
+		assertEquals(1, repository.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testConcurrentCreatesWithSameOrderIdStoreOnlyOne() throws Exception {
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			Transaction attempt = copyOf(testTransaction);
+			attempt.setAmount(BigDecimal.valueOf(100 + i));
+			results.add(executor.submit(() -> {
+				start.await();
+				try {
+					return repository.createTransaction(attempt).getId();
+				} catch (TransactionAlreadyExistsException e) {
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+		int created = 0;
+		for (Future<String> result : results) {
+			if (result.get() != null) {
+				created++;
+			}
+		}
+		executor.shutdown();
+
+		assertEquals(1, created);
+		assertEquals(1, repository.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testConcurrentModificationsEachStoreOneVersion() throws Exception {
+		Transaction created = repository.createTransaction(testTransaction);
+		int threads = 8;
+		int perThread = 100;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> results = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			TransactionStatus status = i % 2 == 0 ? TransactionStatus.FAILED : TransactionStatus.PROCESSING;
+			results.add(executor.submit(() -> {
+				start.await();
+				for (int j = 0; j < perThread; j++) {
+					Transaction update = new Transaction();
+					update.setStatus(status);
+					repository.modifyTransaction(created.getId(), update);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> result : results) {
+			result.get();
+		}
+		executor.shutdown();
+
+		Transaction current = repository.getTransactionById(created.getId());
+		assertEquals(1 + threads * perThread, current.getVersion());
+		assertEquals(1, repository.listAllTransactions(0, 10, TransactionQuery.all().withStatus(TransactionStatus.FAILED))
+				.getTotalCount() + repository.listAllTransactions(0, 10,
+				TransactionQuery.all().withStatus(TransactionStatus.PROCESSING)).getTotalCount());
+	}
+
+	@Test
+	public void testCreateTransactionsReportsConflictsWithoutAborting() {
+		repository.createTransaction(testTransaction);
+		Transaction clash = copyOf(testTransaction);
+		clash.setAmount(BigDecimal.valueOf(999));
+		Transaction fresh = copyOf(testTransaction);
+		fresh.setOrderId("freshOrderId");
+		Transaction duplicateInBatch = copyOf(fresh);
+		duplicateInBatch.setAmount(BigDecimal.ONE);
+
+		List<BatchItemResult> results = repository.createTransactions(List.of(clash, fresh, duplicateInBatch));
+
+		assertEquals(BatchItemStatus.CONFLICT, results.get(0).getStatus());
+		assertEquals(BatchItemStatus.CREATED, results.get(1).getStatus());
+		assertNotNull(results.get(1).getData().getId());
+		assertEquals(BatchItemStatus.CONFLICT, results.get(2).getStatus());
+		assertEquals(2, results.get(2).getIndex());
+		assertEquals(2, repository.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
 	}
 
 	@Test
@@ -91,14 +200,33 @@ public class InMemoryTransactionRepositoryTest {
 		assertEquals(TransactionStatus.SUCCESS, result.getStatus());
 	}
 
+	@Test
+	public void testModifyStoresNewVersionAsCompareAndSwap() {
+		Transaction created = repository.createTransaction(testTransaction);
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		update.setDescription("declined");
+
+		Transaction modified = repository.modifyTransaction(created.getId(), update, 1);
+
+		assertEquals(2, modified.getVersion());
+		assertEquals(1, created.getVersion());
+		assertEquals(TransactionStatus.PROCESSING, created.getStatus());
+		assertSame(modified, repository.getTransactionById(created.getId()));
+		assertNull(repository.modifyTransaction(created.getId(), update, 1));
+		assertEquals(1, repository.listAllTransactions(0, 10,
+				TransactionQuery.all().withStatus(TransactionStatus.FAILED)).getTotalCount());
+		assertEquals(0, repository.listAllTransactions(0, 10,
+				TransactionQuery.all().withStatus(TransactionStatus.PROCESSING)).getTotalCount());
+	}
+
 	@Test
 	public void testListAllTransactions() {
 		repository.createTransaction(testTransaction);
-		Map<String, Object> filters = new HashMap<>();
-		filters.put("cardId", "testCardId");
-		filters.put("status", TransactionStatus.PROCESSING);
+		TransactionQuery query = TransactionQuery.all().withCardId("testCardId");
+		query = query.withStatus(TransactionStatus.PROCESSING);
 
-		PageResult<Transaction> result = repository.listAllTransactions(0, 10, filters);
+		PageResult<Transaction> result = repository.listAllTransactions(0, 10, query);
 
 		assertFalse(result.getData().isEmpty());
 	}
@@ -143,33 +271,319 @@ public class InMemoryTransactionRepositoryTest {
 		Transaction t2 = createTestTransactionWith("card2", TransactionStatus.FAILED, TransactionChannel.ATM, Instant.parse("2025-04-02T00:00:00Z"));
 		Transaction t3 = createTestTransactionWith("card1", TransactionStatus.PROCESSING, TransactionChannel.WEB_PORTAL, Instant.parse("2025-04-03T00:00:00Z"));
 
-		Map<String, Object> filters = new HashMap<>();
-		filters.put("channel", TransactionChannel.MOBILE_APP);
-		PageResult<Transaction> results = repository.listAllTransactions(0, 10, filters);
+		TransactionQuery query = TransactionQuery.all().withChannel(TransactionChannel.MOBILE_APP);
+		PageResult<Transaction> results = repository.listAllTransactions(0, 10, query);
 		assertEquals(1, results.getData().size());
 		assertTrue(results.getData().contains(t1));
 
-		filters.clear();
-		filters.put("startDate", Instant.parse("2025-04-02T00:00:00Z"));
-		filters.put("endDate", Instant.parse("2025-04-03T00:00:00Z"));
-		results = repository.listAllTransactions(0, 10, filters);
+		query = TransactionQuery.all().withDateRange(Instant.parse("2025-04-02T00:00:00Z"), Instant.parse("2025-04-03T00:00:00Z"));
+		results = repository.listAllTransactions(0, 10, query);
 		assertEquals(2, results.getData().size());
 		assertTrue(results.getData().contains(t2));
 		assertTrue(results.getData().contains(t3));
 
-		filters.put("cardId", "card1");
-		filters.put("status", TransactionStatus.PROCESSING);
-		results = repository.listAllTransactions(0, 10, filters);
+		query = query.withCardId("card1").withStatus(TransactionStatus.PROCESSING);
+		results = repository.listAllTransactions(0, 10, query);
 		assertEquals(1, results.getData().size());
 		assertTrue(results.getData().contains(t3));
+	}
 
-		filters.put("invalidKey", "someValue");
-		results = repository.listAllTransactions(0, 10, filters);
-		assertEquals(1, results.getData().size()); // 无效key不应影响过滤结果
+	@Test
+	public void testIndexesFollowModifyAndDelete() {
+		Transaction t1 = createTestTransactionWith("card1", TransactionStatus.PROCESSING, TransactionChannel.ATM, Instant.parse("2025-04-01T00:00:00Z"));
+		Transaction t2 = createTestTransactionWith("card1", TransactionStatus.PROCESSING, TransactionChannel.ATM, Instant.parse("2025-04-02T00:00:00Z"));
+		createTestTransactionWith("card2", TransactionStatus.PROCESSING, TransactionChannel.ATM, Instant.parse("2025-04-03T00:00:00Z"));
+
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		Transaction modified = repository.modifyTransaction(t1.getId(), update);
+
+		TransactionQuery query = TransactionQuery.all().withStatus(TransactionStatus.FAILED);
+		PageResult<Transaction> results = repository.listAllTransactions(0, 10, query);
+		assertEquals(1, results.getTotalCount());
+		assertTrue(results.getData().contains(modified));
+
+		query = query.withStatus(TransactionStatus.PROCESSING);
+		assertEquals(2, repository.listAllTransactions(0, 10, query).getTotalCount());
+
+		repository.deleteTransaction(t2.getId());
+		query = TransactionQuery.all().withCardId("card1");
+		results = repository.listAllTransactions(0, 10, query);
+		assertEquals(1, results.getTotalCount());
+		assertTrue(results.getData().contains(modified));
+
+		query = query.withCardId("unknownCard");
+		assertEquals(0, repository.listAllTransactions(0, 10, query).getTotalCount());
+	}
+
+	@Test
+	public void testDescriptionSearchCombinesWithOtherFilters() {
+		Transaction coffee = createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-01T00:00:00Z"), "STARBUCKS #1024 Seattle");
+		Transaction otherCard = createTestTransactionWith("card2", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-02T00:00:00Z"), "Starbucks coffee");
+		Transaction newer = createTestTransactionWith("card1", TransactionStatus.FAILED, TransactionChannel.ATM, Instant.parse("2025-04-03T00:00:00Z"), "starbucks, Seattle");
+		createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-04T00:00:00Z"), "Amazon marketplace");
+
+		TransactionQuery query = TransactionQuery.all().withText("Starbucks");
+		assertEquals(List.of(newer, otherCard, coffee), repository.listAllTransactions(0, 10, query).getData());
+
+		assertEquals(List.of(newer, coffee), repository.listAllTransactions(0, 10, query.withText("seattle STARBUCKS")).getData());
+		assertEquals(List.of(newer, coffee), repository.listAllTransactions(0, 10, query.withCardId("card1")).getData());
+		assertEquals(List.of(coffee), repository.listAllTransactions(0, 10, query.withCardId("card1").withStatus(TransactionStatus.SUCCESS)).getData());
+		assertEquals(List.of(otherCard), repository.listAllTransactions(0, 10,
+				query.withDateRange(Instant.parse("2025-04-02T00:00:00Z"), Instant.parse("2025-04-02T00:00:00Z"))).getData());
+		assertEquals(0, repository.listAllTransactions(0, 10, query.withText("starbuck")).getTotalCount());
+		assertEquals(0, repository.listAllTransactions(0, 10, query.withText("starbucks amazon")).getTotalCount());
+
+		CursorPageResult<Transaction> first = repository.listTransactionsByCursor(null, 2, query);
+		assertEquals(List.of(newer, otherCard), first.getData());
+		assertEquals(List.of(coffee), repository.listTransactionsByCursor(first.getNextCursor(), 2, query).getData());
+		assertEquals(List.of(newer, otherCard, coffee), repository.streamTransactions(query).toList());
+	}
+
+	@Test
+	public void testDescriptionIndexFollowsModifyAndDelete() {
+		Transaction t1 = createTestTransactionWith("card1", TransactionStatus.PROCESSING, TransactionChannel.ATM, Instant.parse("2025-04-01T00:00:00Z"), "Coffee shop");
+		Transaction t2 = createTestTransactionWith("card1", TransactionStatus.PROCESSING, TransactionChannel.ATM, Instant.parse("2025-04-02T00:00:00Z"), "Coffee shop");
+
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		update.setDescription("Book shop");
+		Transaction modified = repository.modifyTransaction(t1.getId(), update);
+
+		assertEquals(List.of(t2), repository.listAllTransactions(0, 10, TransactionQuery.all().withText("coffee")).getData());
+		assertEquals(List.of(modified), repository.listAllTransactions(0, 10, TransactionQuery.all().withText("book")).getData());
+		assertEquals(2, repository.listAllTransactions(0, 10, TransactionQuery.all().withText("shop")).getTotalCount());
+
+		repository.deleteTransaction(t2.getId());
+		assertEquals(0, repository.listAllTransactions(0, 10, TransactionQuery.all().withText("coffee")).getTotalCount());
+		assertEquals(List.of(modified), repository.listAllTransactions(0, 10, TransactionQuery.all().withText("shop")).getData());
+	}
+
+	@Test
+	public void testDescriptionSearchSurvivesManyWrites() {
+		Instant start = Instant.parse("2025-04-01T00:00:00Z");
+		List<Transaction> created = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			String description = (i % 29 == 0 ? "Starbucks " : "Coffee ") + "store " + (i % 50);
+			created.add(createTestTransactionWith("card" + (i % 3), TransactionStatus.PROCESSING, TransactionChannel.ATM, start.plusSeconds(i), description));
+		}
+		// two in three documents die, so every posting list is re-encoded at least once
+		for (int i = 0; i < 2000; i++) {
+			if (i % 3 != 0) {
+				repository.deleteTransaction(created.get(i).getId());
+			}
+		}
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.PROCESSING);
+		update.setDescription("Starbucks store 3");
+		for (int i = 0; i < 2000; i += 30) {
+			repository.modifyTransaction(created.get(i).getId(), update);
+		}
+
+		for (String text : List.of("starbucks", "store 3", "starbucks 3", "coffee 7", "store")) {
+			TransactionQuery query = TransactionQuery.all().withText(text);
+			List<Transaction> expected = repository.streamTransactions(TransactionQuery.all())
+					.filter(query::matches)
+					.toList();
+			assertFalse(expected.isEmpty());
+			assertEquals(expected, repository.streamTransactions(query).toList(), text);
+			assertEquals(expected.size(), repository.listAllTransactions(0, 10, query).getTotalCount(), text);
+
+			List<Transaction> walked = new ArrayList<>();
+			String cursor = null;
+			do {
+				CursorPageResult<Transaction> page = repository.listTransactionsByCursor(cursor, 7, query);
+				walked.addAll(page.getData());
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+			assertEquals(expected, walked, text);
+		}
+		assertTrue(repository.sizes().get("descriptionPostingBytes") > 0);
+	}
+
+	@Test
+	public void testConcurrentWritesKeepDescriptionSearchExact() throws Exception {
+		Instant start = Instant.parse("2025-04-01T00:00:00Z");
+		int threads = 6;
+		int perThread = 400;
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		CountDownLatch go = new CountDownLatch(1);
+		List<Future<?>> results = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			int thread = i;
+			results.add(executor.submit(() -> {
+				go.await();
+				Transaction update = new Transaction();
+				update.setStatus(TransactionStatus.PROCESSING);
+				update.setDescription("Tea store writer" + thread);
+				for (int j = 0; j < perThread; j++) {
+					// every writer shares "coffee" and "store", so they all contend for the same posting lists
+					Transaction created = createTestTransactionWith("card" + thread, TransactionStatus.PROCESSING, TransactionChannel.ATM,
+							start.plusSeconds(thread * perThread + j), "Coffee store writer" + thread + " lane" + (j % 7));
+					if (j % 3 == 0) {
+						repository.deleteTransaction(created.getId());
+					} else if (j % 5 == 0) {
+						repository.modifyTransaction(created.getId(), update);
+					}
+				}
+				return null;
+			}));
+		}
+		results.add(executor.submit(() -> {
+			go.await();
+			for (int j = 0; j < 200; j++) {
+				repository.listAllTransactions(0, 10, TransactionQuery.all().withText("coffee store"));
+				repository.streamTransactions(TransactionQuery.all().withText("lane3")).forEach(t -> assertTrue(t.getDescription().contains("lane3")));
+			}
+			return null;
+		}));
+		go.countDown();
+		for (Future<?> result : results) {
+			result.get();
+		}
+		executor.shutdown();
+
+		for (String text : List.of("coffee", "tea", "store", "writer2", "lane4", "coffee lane6", "tea writer5")) {
+			TransactionQuery query = TransactionQuery.all().withText(text);
+			List<Transaction> expected = repository.streamTransactions(TransactionQuery.all())
+					.filter(query::matches)
+					.toList();
+			assertFalse(expected.isEmpty(), text);
+			assertEquals(expected, repository.streamTransactions(query).toList(), text);
+			assertEquals(expected.size(), repository.listAllTransactions(0, 10, query).getTotalCount(), text);
+		}
+	}
+
+	@Test
+	public void testCardSummariesCountOnlySuccessfulTransactions() {
+		Transaction deposit = copyOf(testTransaction);
+		deposit.setStatus(TransactionStatus.SUCCESS);
+		repository.createTransaction(deposit);
+		Transaction transfer = copyOf(testTransaction);
+		transfer.setOrderId("transferOrderId");
+		transfer.setType(TransactionType.TRANSFER);
+		transfer.setAmount(new BigDecimal("30.25"));
+		Transaction pending = repository.createTransaction(transfer);
+		Transaction euros = copyOf(testTransaction);
+		euros.setOrderId("eurOrderId");
+		euros.setCurrency(Currency.getInstance("EUR"));
+		euros.setStatus(TransactionStatus.SUCCESS);
+		Transaction deleted = repository.createTransaction(euros);
+
+		assertEquals(1, repository.getCardSummaries("testCardId").get(0).getCount());
+
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.SUCCESS);
+		repository.modifyTransaction(pending.getId(), update);
+		repository.deleteTransaction(deleted.getId());
+
+		List<CardSummary> summaries = repository.getCardSummaries("testCardId");
+		assertEquals(1, summaries.size());
+		assertEquals(Currency.getInstance("USD"), summaries.get(0).getCurrency());
+		assertEquals(new BigDecimal("100.00"), summaries.get(0).getInflow());
+		assertEquals(new BigDecimal("30.25"), summaries.get(0).getOutflow());
+		assertEquals(new BigDecimal("69.75"), summaries.get(0).getNet());
+		assertEquals(2, summaries.get(0).getCount());
+		assertEquals(testTransaction.getDate().toEpochMilli(), summaries.get(0).getLastActivity().toEpochMilli());
+		assertEquals(new BigDecimal("30.25"), repository.getCardSummaries("testToCardId").get(0).getInflow());
+		assertTrue(repository.getCardSummaries("unknownCard").isEmpty());
+		assertEquals(2, repository.getStats(StatsResolution.HOUR, 1).get(0).getTotal().getCount());
+	}
+
+	@Test
+	public void testListIsNewestFirstAndStable() {
+		Transaction oldest = createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-01T00:00:00Z"));
+		Transaction newest = createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-03T00:00:00Z"));
+		Transaction middle = createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-02T00:00:00Z"));
+
+		TransactionQuery query = TransactionQuery.all();
+		PageResult<Transaction> first = repository.listAllTransactions(0, 2, query);
+		PageResult<Transaction> second = repository.listAllTransactions(1, 2, query);
+		assertEquals(List.of(newest, middle), first.getData());
+		assertEquals(List.of(oldest), second.getData());
+		assertEquals(3, second.getTotalCount());
+
+		query = query.withCardId("card1").withDateRange(query.getStartDate(), Instant.parse("2025-04-02T00:00:00Z"));
+		assertEquals(List.of(middle, oldest), repository.listAllTransactions(0, 10, query).getData());
+
+		query = query.withDateRange(Instant.parse("2025-04-03T00:00:00Z"), query.getEndDate());
+		assertTrue(repository.listAllTransactions(0, 10, query).getData().isEmpty());
+	}
+
+	@Test
+	public void testCursorPagination() {
+		Transaction t1 = createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-01T00:00:00Z"));
+		Transaction t2 = createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-02T00:00:00Z"));
+		Transaction t3 = createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-03T00:00:00Z"));
+		TransactionQuery query = TransactionQuery.all().withCardId("card1");
+
+		CursorPageResult<Transaction> first = repository.listTransactionsByCursor(null, 2, query);
+		assertEquals(List.of(t3, t2), first.getData());
+		assertNotNull(first.getNextCursor());
+
+		// a newer insert must not shift the pages that follow
+		createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-04T00:00:00Z"));
+
+		CursorPageResult<Transaction> second = repository.listTransactionsByCursor(first.getNextCursor(), 2, query);
+		assertEquals(List.of(t1), second.getData());
+		assertNull(second.getNextCursor());
+
+		query = query.withDateRange(Instant.parse("2025-04-02T00:00:00Z"), query.getEndDate());
+		assertTrue(repository.listTransactionsByCursor(first.getNextCursor(), 2, query).getData().isEmpty());
+	}
+
+	@Test
+	public void testStreamTransactionsMatchesListOrder() {
+		createTestTransactionWith("card1", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-01T00:00:00Z"));
+		createTestTransactionWith("card2", TransactionStatus.SUCCESS, TransactionChannel.ATM, Instant.parse("2025-04-02T00:00:00Z"));
+		createTestTransactionWith("card1", TransactionStatus.FAILED, TransactionChannel.ATM, Instant.parse("2025-04-03T00:00:00Z"));
+		TransactionQuery query = TransactionQuery.all().withCardId("card1");
+
+		List<Transaction> streamed = repository.streamTransactions(query).toList();
+
+		assertEquals(repository.listAllTransactions(0, 10, query).getData(), streamed);
+		assertEquals(2, streamed.size());
+	}
+
+	@Test
+	public void testInvalidCursorIsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> repository.listTransactionsByCursor("not-a-cursor", 10, TransactionQuery.all()));
+	}
+
+	@Test
+	public void testPagePastTheEndIsEmpty() {
+		repository.createTransaction(testTransaction);
+
+		PageResult<Transaction> result = repository.listAllTransactions(5, 10, TransactionQuery.all());
+
+		assertTrue(result.getData().isEmpty());
+		assertEquals(1, result.getTotalCount());
+	}
+
+	private static Transaction copyOf(Transaction source) {
+		Transaction t = new Transaction();
+		t.setOrderId(source.getOrderId());
+		t.setType(source.getType());
+		t.setCurrency(source.getCurrency());
+		t.setAmount(source.getAmount());
+		t.setDate(source.getDate());
+		t.setCardId(source.getCardId());
+		t.setToCardId(source.getToCardId());
+		t.setDescription(source.getDescription());
+		t.setStatus(source.getStatus());
+		t.setChannel(source.getChannel());
+		return t;
 	}
 
 	private Transaction createTestTransactionWith(String cardId, TransactionStatus status, TransactionChannel channel, Instant date) {
+		return createTestTransactionWith(cardId, status, channel, date, null);
+	}
+
+	private Transaction createTestTransactionWith(String cardId, TransactionStatus status, TransactionChannel channel, Instant date,
+			String description) {
 		Transaction t = new Transaction();
+		t.setDescription(description);
 		t.setOrderId(UUID.randomUUID().toString());
 		t.setCardId(cardId);
 		t.setStatus(status);
@@ -183,15 +597,12 @@ public class InMemoryTransactionRepositoryTest {
 		Instant exactTime = Instant.parse("2025-04-02T12:00:00Z");
 		Transaction t = createTestTransactionWith("cardX", TransactionStatus.SUCCESS, TransactionChannel.ATM, exactTime);
 
-		Map<String, Object> filters = new HashMap<>();
-		filters.put("startDate", exactTime);
-		filters.put("endDate", exactTime);
-		PageResult<Transaction> results = repository.listAllTransactions(0, 10, filters);
+		TransactionQuery query = TransactionQuery.all().withDateRange(exactTime, exactTime);
+		PageResult<Transaction> results = repository.listAllTransactions(0, 10, query);
 		assertEquals(1, results.getData().size());
 
-		filters.put("startDate", exactTime.minusSeconds(1));
-		filters.put("endDate", exactTime.plusSeconds(1));
-		results = repository.listAllTransactions(0, 10, filters);
+		query = query.withDateRange(exactTime.minusSeconds(1), exactTime.plusSeconds(1));
+		results = repository.listAllTransactions(0, 10, query);
 		assertEquals(1, results.getData().size());
 	}
 }
@@ -0,0 +1,175 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.BatchItemStatus;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.bank.transaction.repository.TestTransactions.copy;
+import static com.bank.transaction.repository.TestTransactions.newTransaction;
+import static com.bank.transaction.repository.TestTransactions.orderIds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedTransactionRepositoryTest {
+	private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+	private ShardedTransactionRepository repository;
+
+	/** Same data in a single store, whose results the sharded ones must match */
+	private InMemoryTransactionRepository reference;
+
+	@BeforeEach
+	public void setUp() {
+		repository = new ShardedTransactionRepository(4);
+		reference = new InMemoryTransactionRepository();
+		for (int i = 0; i < 200; i++) {
+			Transaction t = newTransaction("order-" + i, "card" + (i % 23), START.plusSeconds(i * 37L % 1000));
+			t.setStatus(i % 3 == 0 ? TransactionStatus.SUCCESS : TransactionStatus.PROCESSING);
+			repository.createTransaction(t);
+			reference.createTransaction(copy(t));
+		}
+	}
+
+	@AfterEach
+	public void tearDown() {
+		repository.close();
+	}
+
+	@Test
+	public void testOffsetPagesMatchSingleStoreOrder() {
+		TransactionQuery processing = TransactionQuery.all().withStatus(TransactionStatus.PROCESSING);
+		for (TransactionQuery query : List.of(TransactionQuery.all(), processing)) {
+			for (int page = 0; page < 8; page++) {
+				PageResult<Transaction> sharded = repository.listAllTransactions(page, 30, query);
+				PageResult<Transaction> single = reference.listAllTransactions(page, 30, query);
+
+				assertEquals(single.getTotalCount(), sharded.getTotalCount());
+				assertEquals(orderIds(single.getData()), orderIds(sharded.getData()));
+			}
+		}
+	}
+
+	@Test
+	public void testCursorPagesWalkEveryShardInOrder() {
+		List<String> walked = new ArrayList<>();
+		String cursor = "";
+		do {
+			CursorPageResult<Transaction> page = repository.listTransactionsByCursor(cursor, 17, TransactionQuery.all());
+			walked.addAll(orderIds(page.getData()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(orderIds(reference.listAllTransactions(0, 1000, TransactionQuery.all()).getData()), walked);
+		assertThrows(IllegalArgumentException.class,
+				() -> repository.listTransactionsByCursor("not a cursor", 10, TransactionQuery.all()));
+	}
+
+	@Test
+	public void testCardQueriesAndExportMatchSingleStore() {
+		TransactionQuery card = TransactionQuery.all().withCardId("card7");
+
+		assertEquals(orderIds(reference.listAllTransactions(0, 100, card).getData()),
+				orderIds(repository.listAllTransactions(0, 100, card).getData()));
+		try (Stream<Transaction> sharded = repository.streamTransactions(TransactionQuery.all());
+				Stream<Transaction> single = reference.streamTransactions(TransactionQuery.all())) {
+			assertEquals(orderIds(single.toList()), orderIds(sharded.toList()));
+		}
+	}
+
+	@Test
+	public void testOrderIdIsUniqueAcrossShards() {
+		String cardA = "card-a";
+		String cardB = "card-b";
+		for (int i = 0; repository.shardOf(cardA) == repository.shardOf(cardB); i++) {
+			cardB = "card-b" + i;
+		}
+		repository.createTransaction(newTransaction("shared-order", cardA, START));
+		String otherShardCard = cardB;
+
+		assertThrows(TransactionAlreadyExistsException.class,
+				() -> repository.createTransaction(newTransaction("shared-order", otherShardCard, START)));
+		List<BatchItemResult> results = repository.createTransactions(List.of(
+				newTransaction("shared-order", otherShardCard, START),
+				newTransaction("new-order", otherShardCard, START)));
+		assertEquals(BatchItemStatus.CONFLICT, results.get(0).getStatus());
+		assertEquals(BatchItemStatus.CREATED, results.get(1).getStatus());
+		assertEquals(1, results.get(1).getIndex());
+	}
+
+	@Test
+	public void testIdenticalRetryReplaysAndDeleteReleasesOrderId() {
+		Transaction created = repository.createTransaction(newTransaction("retry-order", "card1", START));
+		Transaction replayed = repository.createTransaction(newTransaction("retry-order", "card1", START));
+		assertSame(created, replayed);
+
+		repository.deleteTransaction(created.getId());
+
+		assertNull(repository.getTransactionById(created.getId()));
+		assertFalse(repository.existsByOrderId("retry-order"));
+		Transaction recreated = repository.createTransaction(newTransaction("retry-order", "card2", START));
+		assertNotEquals(created.getId(), recreated.getId());
+		assertThrows(TransactionNotFoundException.class, () -> repository.deleteTransaction(created.getId()));
+	}
+
+	@Test
+	public void testModifyFindsTheOwningShard() {
+		Transaction created = repository.createTransaction(newTransaction("modify-order", "card5", START));
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		update.setDescription("declined");
+
+		repository.modifyTransaction(created.getId(), update);
+
+		assertEquals(TransactionStatus.FAILED, repository.getTransactionById(created.getId()).getStatus());
+		assertTrue(repository.listAllTransactions(0, 10, TransactionQuery.all().withStatus(TransactionStatus.FAILED))
+				.getData().stream().anyMatch(t -> t.getId().equals(created.getId())));
+		assertThrows(TransactionNotFoundException.class, () -> repository.modifyTransaction("missing", update));
+		assertEquals(201L, repository.sizes().get("transactions"));
+	}
+
+	@Test
+	public void testCardSummariesIncludeTransfersFromOtherShards() {
+		String sender = "sender";
+		String receiver = "receiver";
+		for (int i = 0; repository.shardOf(sender) == repository.shardOf(receiver); i++) {
+			receiver = "receiver" + i;
+		}
+		Transaction transfer = newTransaction("transfer-order", sender, START);
+		transfer.setToCardId(receiver);
+		transfer.setStatus(TransactionStatus.SUCCESS);
+		repository.createTransaction(transfer);
+		Transaction deposit = newTransaction("deposit-order", receiver, START.plusSeconds(60));
+		deposit.setType(TransactionType.DEPOSIT);
+		deposit.setStatus(TransactionStatus.SUCCESS);
+		repository.createTransaction(deposit);
+
+		List<CardSummary> summaries = repository.getCardSummaries(receiver);
+		assertEquals(1, summaries.size());
+		assertEquals(new BigDecimal("3000.00"), summaries.get(0).getInflow());
+		assertEquals(2, summaries.get(0).getCount());
+		assertEquals(START.plusSeconds(60), summaries.get(0).getLastActivity());
+		assertEquals(new BigDecimal("-1500.00"), repository.getCardSummaries(sender).get(0).getNet());
+	}
+}
@@ -0,0 +1,49 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+
+/**
+ * Transaction fixtures shared by the repository engine tests
+ */
+final class TestTransactions {
+	static final String DESCRIPTION = "repository test";
+
+	private TestTransactions() {
+	}
+
+	/** A valid, not yet stored 1500 CNY transfer from the card to "other" */
+	static Transaction newTransaction(String orderId, String cardId, Instant date) {
+		Transaction t = new Transaction();
+		t.setOrderId(orderId);
+		t.setType(TransactionType.TRANSFER);
+		t.setCurrency(Currency.getInstance("CNY"));
+		t.setAmount(new BigDecimal("1500"));
+		t.setDate(date);
+		t.setCardId(cardId);
+		t.setToCardId("other");
+		t.setDescription(DESCRIPTION);
+		t.setStatus(TransactionStatus.PROCESSING);
+		t.setChannel(TransactionChannel.MOBILE_APP);
+		return t;
+	}
+
+	/** Fixture with the orderId, card, date and status of the given transaction */
+	static Transaction copy(Transaction t) {
+		Transaction copy = newTransaction(t.getOrderId(), t.getCardId(), t.getDate());
+		copy.setStatus(t.getStatus());
+		return copy;
+	}
+
+	static List<String> orderIds(List<Transaction> transactions) {
+		return transactions.stream().map(Transaction::getOrderId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,497 @@
+package com.bank.transaction.repository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.BatchItemStatus;
+import com.bank.transaction.model.CardSummary;
+import com.bank.transaction.model.CursorPageResult;
+import com.bank.transaction.model.PageResult;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.bank.transaction.repository.TestTransactions.copy;
+import static com.bank.transaction.repository.TestTransactions.newTransaction;
+import static com.bank.transaction.repository.TestTransactions.orderIds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TieredTransactionRepositoryTest {
+	private static final Instant NOW = Instant.parse("2025-03-01T00:00:00Z");
+	private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+	@TempDir
+	Path directory;
+
+	private TieredTransactionRepository repository;
+
+	/** Same data in a single in-memory store, whose results the tiered ones must match */
+	private InMemoryTransactionRepository reference;
+
+	@BeforeEach
+	public void setUp() {
+		repository = new TieredTransactionRepository(directory, Duration.ofDays(5), 10_000, 4, CLOCK);
+		reference = new InMemoryTransactionRepository();
+		for (int i = 0; i < 300; i++) {
+			Transaction t = newTransaction("order-" + i, "card" + (i % 7), NOW.minus(i * 7919L % 300, ChronoUnit.HOURS));
+			t.setStatus(i % 3 == 0 ? TransactionStatus.SUCCESS : TransactionStatus.PROCESSING);
+			repository.createTransaction(t);
+			reference.createTransaction(copy(t));
+		}
+	}
+
+	@AfterEach
+	public void tearDown() {
+		repository.close();
+	}
+
+	@Test
+	public void testSpillMovesOldTransactionsAndReadsMergeBothTiers() {
+		long moved = repository.spill();
+
+		// hours 121 to 299 are older than the five days kept hot
+		assertEquals(179, moved);
+		assertEquals(121L, repository.sizes().get("hotTransactions"));
+		assertEquals(179L, repository.sizes().get("coldTransactions"));
+		assertEquals(300L, repository.sizes().get("transactions"));
+		TransactionQuery processing = TransactionQuery.all().withStatus(TransactionStatus.PROCESSING);
+		TransactionQuery card = TransactionQuery.all().withCardId("card3");
+		TransactionQuery range = TransactionQuery.all().withDateRange(NOW.minus(200, ChronoUnit.HOURS), NOW.minus(50, ChronoUnit.HOURS));
+		for (TransactionQuery query : List.of(TransactionQuery.all(), processing, card, range)) {
+			for (int page = 0; page < 4; page++) {
+				PageResult<Transaction> tiered = repository.listAllTransactions(page, 70, query);
+				PageResult<Transaction> single = reference.listAllTransactions(page, 70, query);
+
+				assertEquals(orderIds(single.getData()), orderIds(tiered.getData()));
+				if (query.equals(TransactionQuery.all()) || query.equals(range) || (page + 1) * 70 >= single.getTotalCount()) {
+					assertEquals(single.getTotalCount(), tiered.getTotalCount());
+				} else {
+					// a filtered page ending before the cold tier does extrapolates the cold matches
+					assertTrue(tiered.getTotalCount() > (page + 1) * 70);
+				}
+			}
+		}
+		try (Stream<Transaction> tiered = repository.streamTransactions(range);
+				Stream<Transaction> single = reference.streamTransactions(range)) {
+			assertEquals(orderIds(single.toList()), orderIds(tiered.toList()));
+		}
+	}
+
+	@Test
+	public void testDateFilteredTotalsCountOnlyTheColdRowsInTheRange() {
+		repository.close();
+		// a small heap budget spreads the cold rows over several segments of a few blocks each
+		repository = new TieredTransactionRepository(directory.resolve("budget"), Duration.ofDays(5), 100, 100, CLOCK);
+		try (Stream<Transaction> all = reference.streamTransactions(TransactionQuery.all())) {
+			all.forEach(t -> repository.createTransaction(copy(t)));
+		}
+		repository.spill();
+		assertTrue(repository.sizes().get("segments") > 1);
+
+		for (Instant[] range : new Instant[][] {
+				{NOW.minus(200, ChronoUnit.HOURS), NOW.minus(50, ChronoUnit.HOURS)},
+				{NOW.minus(290, ChronoUnit.HOURS), NOW.minus(130, ChronoUnit.HOURS)},
+				{null, NOW.minus(250, ChronoUnit.HOURS)},
+				{NOW.minus(150, ChronoUnit.HOURS), null}}) {
+			TransactionQuery query = TransactionQuery.all().withDateRange(range[0], range[1]);
+			PageResult<Transaction> tiered = repository.listAllTransactions(0, 5, query);
+			PageResult<Transaction> single = reference.listAllTransactions(0, 5, query);
+
+			assertEquals(orderIds(single.getData()), orderIds(tiered.getData()));
+			assertEquals(single.getTotalCount(), tiered.getTotalCount());
+		}
+	}
+
+	@Test
+	public void testLookupsAndCursorPagesReachTheColdTier() {
+		Transaction old = repository.listAllTransactions(0, 1, TransactionQuery.all()
+				.withDateRange(null, NOW.minus(250, ChronoUnit.HOURS))).getData().get(0);
+		repository.spill();
+
+		Transaction cold = repository.getTransactionById(old.getId());
+		assertNotNull(cold);
+		assertEquals(old.getOrderId(), cold.getOrderId());
+		assertEquals(0, old.getAmount().compareTo(cold.getAmount()));
+		assertTrue(repository.existsByOrderId(old.getOrderId()));
+		assertNull(repository.getTransactionById("missing"));
+
+		List<String> walked = new ArrayList<>();
+		String cursor = "";
+		do {
+			CursorPageResult<Transaction> page = repository.listTransactionsByCursor(cursor, 17, TransactionQuery.all());
+			walked.addAll(orderIds(page.getData()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		assertEquals(orderIds(reference.listAllTransactions(0, 1000, TransactionQuery.all()).getData()), walked);
+	}
+
+	@Test
+	public void testHeapBudgetSpillsTheOldestBeyondIt() {
+		repository.close();
+		repository = new TieredTransactionRepository(directory.resolve("heap"), Duration.ofDays(365), 50, 100, CLOCK);
+		for (int i = 0; i < 120; i++) {
+			repository.createTransaction(newTransaction("budget-" + i, "card1", NOW.minusSeconds(i)));
+		}
+
+		assertEquals(70, repository.spill());
+
+		assertEquals(50L, repository.sizes().get("hotTransactions"));
+		assertEquals(2L, repository.sizes().get("segments"));
+		List<Transaction> newest = repository.listAllTransactions(0, 50, TransactionQuery.all()).getData();
+		assertEquals("budget-0", newest.get(0).getOrderId());
+		assertEquals("budget-49", newest.get(49).getOrderId());
+		assertEquals(120, repository.listAllTransactions(0, 1, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testCreateChecksOrderIdsOfColdTransactions() {
+		Instant date = NOW.minus(2 * 7919L % 300, ChronoUnit.HOURS);
+		String id = repository.listAllTransactions(0, 1, TransactionQuery.all().withCardId("card2")
+				.withDateRange(date, date)).getData().get(0).getId();
+		repository.spill();
+
+		Transaction replayed = repository.createTransaction(newTransaction("order-2", "card2", date));
+
+		assertEquals(id, replayed.getId());
+		assertEquals(300L, repository.sizes().get("transactions"));
+		assertThrows(TransactionAlreadyExistsException.class,
+				() -> repository.createTransaction(newTransaction("order-2", "card3", NOW)));
+		List<BatchItemResult> results = repository.createTransactions(List.of(
+				newTransaction("order-2", "card3", NOW),
+				newTransaction("new-order", "card2", NOW)));
+		assertEquals(BatchItemStatus.CONFLICT, results.get(0).getStatus());
+		assertEquals(BatchItemStatus.CREATED, results.get(1).getStatus());
+		assertEquals(1, results.get(1).getIndex());
+	}
+
+	@Test
+	public void testModifyMovesAColdTransactionBackToTheHotTier() {
+		String id = coldTransaction().getId();
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		update.setDescription("declined");
+
+		Transaction modified = repository.modifyTransaction(id, update, 1);
+
+		assertEquals(2, modified.getVersion());
+		assertNull(repository.modifyTransaction(id, update, 1));
+		assertEquals(TransactionStatus.FAILED, repository.getTransactionById(id).getStatus());
+		assertEquals(1, repository.listAllTransactions(0, 300, TransactionQuery.all()).getData().stream()
+				.filter(t -> t.getId().equals(id)).count());
+		assertEquals(300L, repository.sizes().get("transactions"));
+
+		repository.spill();
+
+		assertEquals(2, repository.getTransactionById(id).getVersion());
+		assertEquals(300, repository.listAllTransactions(0, 1, TransactionQuery.all()).getTotalCount());
+		assertThrows(TransactionNotFoundException.class, () -> repository.modifyTransaction("missing", update));
+	}
+
+	@Test
+	public void testDeleteHidesAColdTransactionAndReleasesItsOrderId() {
+		Transaction cold = coldTransaction();
+
+		repository.deleteTransaction(cold.getId());
+
+		assertNull(repository.getTransactionById(cold.getId()));
+		assertFalse(repository.existsByOrderId(cold.getOrderId()));
+		assertEquals(299, repository.listAllTransactions(0, 1, TransactionQuery.all()).getTotalCount());
+		assertThrows(TransactionNotFoundException.class, () -> repository.deleteTransaction(cold.getId()));
+		Transaction recreated = repository.createTransaction(newTransaction(cold.getOrderId(), "card2", NOW));
+		assertEquals(recreated.getId(), repository.getTransactionById(recreated.getId()).getId());
+	}
+
+	@Test
+	public void testCompactionMergesSegmentsAndDropsHiddenRows() {
+		repository.close();
+		repository = new TieredTransactionRepository(directory.resolve("compact"), Duration.ofDays(365), 20, 3, CLOCK);
+		List<Transaction> created = new ArrayList<>();
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 30; i++) {
+				created.add(repository.createTransaction(
+						newTransaction("compact-" + round + "-" + i, "card" + i % 3, NOW.minusSeconds(round * 100L + i))));
+			}
+			repository.spill();
+		}
+		// the oldest of the first round, spilled by it
+		Transaction deleted = created.get(29);
+		repository.deleteTransaction(deleted.getId());
+		for (int i = 0; i < 30; i++) {
+			repository.createTransaction(newTransaction("compact-late-" + i, "card1", NOW.plusSeconds(i)));
+		}
+		repository.spill();
+
+		assertTrue(repository.sizes().get("segments") <= 3);
+		assertEquals(179, repository.listAllTransactions(0, 1, TransactionQuery.all()).getTotalCount());
+		assertNull(repository.getTransactionById(deleted.getId()));
+		for (Transaction t : created) {
+			if (t != deleted) {
+				assertEquals(t.getOrderId(), repository.getTransactionById(t.getId()).getOrderId());
+			}
+		}
+	}
+
+	@Test
+	public void testCompactionMergesOnlySegmentsOfSimilarSize() {
+		repository.close();
+		repository = new TieredTransactionRepository(directory.resolve("tiers"), Duration.ofDays(365), 10, 100, CLOCK);
+		List<Transaction> created = new ArrayList<>();
+		for (int round = 0; round <= 16; round++) {
+			for (int i = 0; i < 10; i++) {
+				created.add(repository.createTransaction(
+						newTransaction("tier-" + round + "-" + i, "card1", NOW.minusSeconds(1000 - created.size()))));
+			}
+			repository.spill();
+			if (round == 5) {
+				// hidden in the first merged segment, which the next merges leave alone
+				repository.deleteTransaction(created.get(0).getId());
+			}
+			if (round == 15) {
+				// fifteen spills of ten rows: three merges of four into forty, three spills left alone
+				assertEquals(6L, repository.sizes().get("segments"));
+				assertNull(repository.getTransactionById(created.get(0).getId()));
+			}
+		}
+
+		// the sixteenth spill fills the lowest tier, whose merge fills the next one
+		assertEquals(1L, repository.sizes().get("segments"));
+		assertEquals(159L, repository.sizes().get("coldTransactions"));
+		assertEquals(169, repository.listAllTransactions(0, 1, TransactionQuery.all()).getTotalCount());
+		assertNull(repository.getTransactionById(created.get(0).getId()));
+		for (Transaction t : created.subList(1, created.size())) {
+			assertEquals(t.getOrderId(), repository.getTransactionById(t.getId()).getOrderId());
+		}
+	}
+
+	@Test
+	public void testOpenListingKeepsReadingSegmentsThatACompactionReplaced() throws IOException {
+		repository.close();
+		repository = new TieredTransactionRepository(directory.resolve("open"), Duration.ofDays(1), 10, 100, CLOCK);
+		Instant old = NOW.minus(2, ChronoUnit.DAYS);
+		List<Transaction> created = new ArrayList<>();
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 10; i++) {
+				created.add(repository.createTransaction(
+						newTransaction("open-" + round + "-" + i, "card1", old.minusSeconds(1000 - created.size()))));
+			}
+			repository.spill();
+		}
+		List<String> expected = orderIds(created.reversed().subList(0, 29));
+
+		List<String> read = new ArrayList<>();
+		try (Stream<Transaction> listing = repository.streamTransactions(TransactionQuery.all())) {
+			Iterator<Transaction> rows = listing.iterator();
+			for (int i = 0; i < 5; i++) {
+				read.add(rows.next().getOrderId());
+			}
+			// the oldest row is deleted, then the fourth spill merges the three segments being read
+			// with it, and the eighth merges the four since
+			repository.deleteTransaction(created.get(0).getId());
+			for (int round = 3; round < 8; round++) {
+				for (int i = 0; i < 10; i++) {
+					repository.createTransaction(newTransaction("open-" + round + "-" + i, "card1", old.plusSeconds(round * 10 + i)));
+				}
+				repository.spill();
+			}
+			assertEquals(2L, repository.sizes().get("segments"));
+			assertEquals(5, segmentFiles(directory.resolve("open")));
+
+			rows.forEachRemaining(t -> read.add(t.getOrderId()));
+		}
+
+		assertEquals(expected, read);
+		assertEquals(2, segmentFiles(directory.resolve("open")));
+		assertNull(repository.getTransactionById(created.get(0).getId()));
+	}
+
+	@Test
+	public void testCardSummariesCoverBothTiers() {
+		List<CardSummary> before = reference.getCardSummaries("card0");
+		repository.spill();
+
+		List<CardSummary> summaries = repository.getCardSummaries("card0");
+
+		assertEquals(1, summaries.size());
+		assertEquals(before.get(0).getOutflow(), summaries.get(0).getOutflow());
+		assertEquals(before.get(0).getCount(), summaries.get(0).getCount());
+		assertEquals(new BigDecimal("-" + before.get(0).getOutflow().toPlainString()), summaries.get(0).getNet());
+	}
+
+	@Test
+	public void testRestartReopensBothTiers() {
+		Transaction modified = coldTransaction();
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		update.setDescription("declined");
+		repository.modifyTransaction(modified.getId(), update, 1);
+		TransactionQuery old = TransactionQuery.all().withDateRange(null, NOW.minus(200, ChronoUnit.HOURS));
+		Transaction coldDeleted = repository.listAllTransactions(1, 1, old).getData().get(0);
+		repository.deleteTransaction(coldDeleted.getId());
+		// back in the hot tier after its modification, over the cold copy it hides
+		Transaction modifiedThenDeleted = repository.listAllTransactions(1, 1, old).getData().get(0);
+		repository.modifyTransaction(modifiedThenDeleted.getId(), update, 1);
+		repository.deleteTransaction(modifiedThenDeleted.getId());
+		Transaction hotDeleted = repository.listAllTransactions(0, 1, TransactionQuery.all()).getData().get(0);
+		repository.deleteTransaction(hotDeleted.getId());
+		TransactionQuery processing = TransactionQuery.all().withStatus(TransactionStatus.PROCESSING);
+		List<String> all = orderIds(repository.streamTransactions(TransactionQuery.all()).toList());
+		List<String> filtered = orderIds(repository.streamTransactions(processing).toList());
+		CardSummary summary = repository.getCardSummaries("card1").get(0);
+		List<Long> stats = hourlyCounts();
+		long cold = repository.sizes().get("coldTransactions");
+
+		repository.close();
+		repository = new TieredTransactionRepository(directory, Duration.ofDays(5), 10_000, 4, CLOCK);
+
+		assertEquals(all, orderIds(repository.streamTransactions(TransactionQuery.all()).toList()));
+		assertEquals(filtered, orderIds(repository.streamTransactions(processing).toList()));
+		assertEquals(297, repository.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+		assertEquals(cold, repository.sizes().get("coldTransactions"));
+		assertEquals(TransactionStatus.FAILED, repository.getTransactionById(modified.getId()).getStatus());
+		assertEquals(2, repository.getTransactionById(modified.getId()).getVersion());
+		assertNull(repository.getTransactionById(coldDeleted.getId()));
+		assertNull(repository.getTransactionById(modifiedThenDeleted.getId()));
+		assertNull(repository.getTransactionById(hotDeleted.getId()));
+		assertFalse(repository.existsByOrderId(coldDeleted.getOrderId()));
+		assertEquals(summary.getCount(), repository.getCardSummaries("card1").get(0).getCount());
+		assertEquals(summary.getOutflow(), repository.getCardSummaries("card1").get(0).getOutflow());
+		assertEquals(stats, hourlyCounts());
+
+		// new segments are numbered after the reopened ones; the old modified transaction goes too
+		repository.createTransaction(newTransaction("after-restart", "card1", NOW.minus(30, ChronoUnit.DAYS)));
+		assertEquals(2, repository.spill());
+		assertEquals(cold + 2, repository.sizes().get("coldTransactions"));
+		assertEquals(TransactionStatus.FAILED, repository.getTransactionById(modified.getId()).getStatus());
+		assertTrue(repository.existsByOrderId("after-restart"));
+	}
+
+	@Test
+	public void testRestartFinishesASpillCutShortByACrash() throws IOException {
+		Path hotState = directory.resolveSibling(directory.getFileName() + "-hot");
+		copyDirectory(directory, hotState);
+		List<Long> stats = hourlyCounts();
+
+		// a crash after the segment was written, before the evictions were journaled
+		assertEquals(179, repository.spill());
+		repository.close();
+		deleteRecursively(directory.resolve("journal"));
+		deleteRecursively(directory.resolve("snapshots"));
+		copyDirectory(hotState, directory);
+		deleteRecursively(hotState);
+		repository = new TieredTransactionRepository(directory, Duration.ofDays(5), 10_000, 4, CLOCK);
+
+		assertEquals(121L, repository.sizes().get("hotTransactions"));
+		assertEquals(179L, repository.sizes().get("coldTransactions"));
+		assertEquals(orderIds(reference.streamTransactions(TransactionQuery.all()).toList()),
+				orderIds(repository.streamTransactions(TransactionQuery.all()).toList()));
+		assertEquals(reference.getCardSummaries("card2").get(0).getCount(),
+				repository.getCardSummaries("card2").get(0).getCount());
+		assertEquals(stats, hourlyCounts());
+		assertEquals(0, repository.spill());
+
+		// the evictions are journaled now
+		repository.close();
+		repository = new TieredTransactionRepository(directory, Duration.ofDays(5), 10_000, 4, CLOCK);
+		assertEquals(121L, repository.sizes().get("hotTransactions"));
+		assertEquals(300, repository.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testRestartDeletesPartlyWrittenAndReplacedSegments() throws IOException {
+		repository.close();
+		Path segments = directory.resolve("restart");
+		repository = new TieredTransactionRepository(segments, Duration.ofDays(1), 10, 100, CLOCK);
+		Instant old = NOW.minus(2, ChronoUnit.DAYS);
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 10; i++) {
+				repository.createTransaction(newTransaction("restart-" + round + "-" + i, "card1", old.plusSeconds(round * 10 + i)));
+			}
+			repository.spill();
+		}
+		try (Stream<Transaction> listing = repository.streamTransactions(TransactionQuery.all())) {
+			listing.iterator().next();
+			for (int i = 0; i < 10; i++) {
+				repository.createTransaction(newTransaction("restart-3-" + i, "card1", old.plusSeconds(30 + i)));
+			}
+			// merges the four segments, three of whose files the open listing keeps
+			repository.spill();
+			repository.close();
+			assertEquals(4, segmentFiles(segments));
+		}
+		Files.write(segments.resolve("segment-00000000000000000099.seg.tmp"), new byte[] {1, 2, 3});
+
+		repository = new TieredTransactionRepository(segments, Duration.ofDays(1), 10, 100, CLOCK);
+
+		assertEquals(1L, repository.sizes().get("segments"));
+		assertEquals(1, segmentFiles(segments));
+		assertFalse(Files.exists(segments.resolve("segment-00000000000000000099.seg.tmp")));
+		assertEquals(40, repository.listAllTransactions(0, 100, TransactionQuery.all()).getData().size());
+		assertEquals(40L, repository.sizes().get("coldTransactions"));
+	}
+
+	private List<Long> hourlyCounts() {
+		return repository.getStats(StatsResolution.HOUR, 48).stream().map(bucket -> bucket.getTotal().getCount()).toList();
+	}
+
+	private static void copyDirectory(Path from, Path to) throws IOException {
+		try (Stream<Path> files = Files.walk(from)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Path target = to.resolve(from.relativize(file).toString());
+				if (Files.isDirectory(file)) {
+					Files.createDirectories(target);
+				} else {
+					Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+	}
+
+	private static void deleteRecursively(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	private static long segmentFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(".seg")).count();
+		}
+	}
+
+	/** Spills, then returns a transaction that is in the cold tier only */
+	private Transaction coldTransaction() {
+		repository.spill();
+		Transaction cold = repository.listAllTransactions(0, 1, TransactionQuery.all()
+				.withDateRange(null, NOW.minus(200, ChronoUnit.HOURS))).getData().get(0);
+		assertEquals(1, cold.getVersion());
+		return cold;
+	}
+}
@@ -0,0 +1,67 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+
+import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TimedTransactionRepositoryTest {
+
+	private SimpleMeterRegistry registry;
+	private TimedTransactionRepository repository;
+
+	@BeforeEach
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+		repository = new TimedTransactionRepository(new InMemoryTransactionRepository(), registry);
+	}
+
+	@Test
+	public void testEveryCallIsTimedPerMethod() {
+		Transaction created = repository.createTransaction(newTransaction("order-1"));
+		repository.getTransactionById(created.getId());
+		repository.getTransactionById("missing");
+		repository.listAllTransactions(0, 10, TransactionQuery.all());
+		assertThrows(TransactionNotFoundException.class, () -> repository.deleteTransaction("missing"));
+
+		assertEquals(1, registry.get(TimedTransactionRepository.TIMER_NAME).tag("method", "createTransaction").timer().count());
+		assertEquals(2, registry.get(TimedTransactionRepository.TIMER_NAME).tag("method", "getTransactionById").timer().count());
+		assertEquals(1, registry.get(TimedTransactionRepository.TIMER_NAME).tag("method", "listAllTransactions").timer().count());
+		assertEquals(1, registry.get(TimedTransactionRepository.TIMER_NAME).tag("method", "deleteTransaction").timer().count());
+		assertEquals(0, registry.get(TimedTransactionRepository.TIMER_NAME).tag("method", "modifyTransaction").timer().count());
+	}
+
+	@Test
+	public void testSizeGaugesFollowTheStore() {
+		Transaction created = repository.createTransaction(newTransaction("order-1"));
+		repository.createTransaction(newTransaction("order-2"));
+
+		assertEquals(2, registry.get(TimedTransactionRepository.SIZE_GAUGE_NAME).tag("structure", "transactions").gauge().value());
+		assertEquals(1, registry.get(TimedTransactionRepository.SIZE_GAUGE_NAME).tag("structure", "cardIds").gauge().value());
+
+		repository.deleteTransaction(created.getId());
+
+		assertEquals(1, registry.get(TimedTransactionRepository.SIZE_GAUGE_NAME).tag("structure", "orderIds").gauge().value());
+	}
+
+	private static Transaction newTransaction(String orderId) {
+		Transaction t = new Transaction();
+		t.setOrderId(orderId);
+		t.setType(TransactionType.TRANSFER);
+		t.setCurrency(Currency.getInstance("CNY"));
+		t.setAmount(new BigDecimal("10"));
+		t.setDate(Instant.parse("2025-04-02T10:10:00Z"));
+		t.setCardId("card1");
+		return t;
+	}
+}
@@ -0,0 +1,529 @@
+package com.bank.transaction.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionJournalTest {
+
+	@TempDir
+	Path directory;
+
+	private final List<TransactionJournal> journals = new ArrayList<>();
+
+	@AfterEach
+	public void tearDown() {
+		journals.forEach(TransactionJournal::close);
+	}
+
+	@Test
+	public void testRepositoryIsRebuiltFromJournal() {
+		InMemoryTransactionRepository repository = open(TransactionJournal.Durability.BATCH);
+		Transaction kept = repository.createTransaction(newTransaction("order-1", "card1"));
+		Transaction deleted = repository.createTransaction(newTransaction("order-2", "card1"));
+		repository.createTransactions(List.of(newTransaction("order-3", "card2"), newTransaction("order-4", "card2")));
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		update.setDescription("declined");
+		repository.modifyTransaction(kept.getId(), update);
+		repository.deleteTransaction(deleted.getId());
+		closeAll();
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.BATCH);
+
+		Transaction replayed = restored.getTransactionById(kept.getId());
+		assertNotNull(replayed);
+		assertEquals(TransactionStatus.FAILED, replayed.getStatus());
+		assertEquals("declined", replayed.getDescription());
+		assertEquals(2, replayed.getVersion());
+		assertEquals(0, replayed.getAmount().compareTo(new BigDecimal("12.34")));
+		assertNull(restored.getTransactionById(deleted.getId()));
+		assertEquals(3, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+		assertEquals(2, restored.listAllTransactions(0, 10, TransactionQuery.all().withCardId("card2")).getTotalCount());
+		assertEquals(1, restored.listAllTransactions(0, 10, TransactionQuery.all().withStatus(TransactionStatus.FAILED)).getTotalCount());
+
+		Transaction clash = newTransaction("order-1", "card1");
+		clash.setAmount(BigDecimal.ONE);
+		assertThrows(TransactionAlreadyExistsException.class, () -> restored.createTransaction(clash));
+		assertNotNull(restored.createTransaction(newTransaction("order-2", "card1")).getId());
+	}
+
+	@Test
+	public void testConcurrentWritersAreAllDurable() throws Exception {
+		InMemoryTransactionRepository repository = open(TransactionJournal.Durability.INTERVAL);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Transaction>> futures = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Transaction transaction = newTransaction("order-" + i, "card" + (i % 5));
+			futures.add(executor.submit(() -> repository.createTransaction(transaction)));
+		}
+		for (Future<Transaction> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		closeAll();
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.INTERVAL);
+
+		assertEquals(200, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testTornTailIsDiscardedOnReplay() throws IOException {
+		InMemoryTransactionRepository repository = open(TransactionJournal.Durability.BATCH);
+		Transaction created = repository.createTransaction(newTransaction("order-1", "card1"));
+		closeAll();
+		Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.findFirst().orElseThrow();
+		}
+		long validSize = Files.size(segment);
+		Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.BATCH);
+
+		assertNotNull(restored.getTransactionById(created.getId()));
+		assertEquals(validSize, Files.size(segment));
+		restored.createTransaction(newTransaction("order-2", "card1"));
+		closeAll();
+		assertEquals(2, open(TransactionJournal.Durability.BATCH).listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testSnapshotPlusJournalTailRestoresState() throws IOException {
+		InMemoryTransactionRepository repository = openWithSnapshots();
+		Transaction modified = repository.createTransaction(newTransaction("order-1", "card1"));
+		Transaction deleted = repository.createTransaction(newTransaction("order-2", "card1"));
+		assertEquals(2, repository.snapshot());
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.SUCCESS);
+		update.setDescription("settled");
+		repository.modifyTransaction(modified.getId(), update);
+		repository.deleteTransaction(deleted.getId());
+		Transaction added = repository.createTransaction(newTransaction("order-3", "card2"));
+		closeAll();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(1, files.filter(path -> path.getFileName().toString().startsWith("journal-")).count());
+		}
+		InMemoryTransactionRepository restored = openWithSnapshots();
+
+		assertEquals(TransactionStatus.SUCCESS, restored.getTransactionById(modified.getId()).getStatus());
+		assertEquals("settled", restored.getTransactionById(modified.getId()).getDescription());
+		assertEquals(2, restored.getTransactionById(modified.getId()).getVersion());
+		assertNull(restored.getTransactionById(deleted.getId()));
+		assertNotNull(restored.getTransactionById(added.getId()));
+		assertEquals(1, restored.listAllTransactions(0, 10, TransactionQuery.all().withStatus(TransactionStatus.SUCCESS)).getTotalCount());
+		assertEquals(2, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+
+		Transaction clash = newTransaction("order-1", "card1");
+		clash.setAmount(BigDecimal.ONE);
+		assertThrows(TransactionAlreadyExistsException.class, () -> restored.createTransaction(clash));
+	}
+
+	@Test
+	public void testSnapshotDuringConcurrentWritesLosesNothing() throws Exception {
+		InMemoryTransactionRepository repository = openWithSnapshots();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Transaction>> futures = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			Transaction transaction = newTransaction("order-" + i, "card" + (i % 5));
+			futures.add(executor.submit(() -> repository.createTransaction(transaction)));
+			if (i % 100 == 50) {
+				futures.add(executor.submit(() -> {
+					repository.snapshot();
+					return null;
+				}));
+			}
+		}
+		for (Future<Transaction> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		closeAll();
+
+		InMemoryTransactionRepository restored = openWithSnapshots();
+
+		assertEquals(400, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+		assertEquals(80, restored.listAllTransactions(0, 10, TransactionQuery.all().withCardId("card3")).getTotalCount());
+	}
+
+	@Test
+	public void testSnapshotLeavesOutACreateThatIsNotYetJournaled() throws Exception {
+		FailingChannel failing = new FailingChannel();
+		CountDownLatch copying = new CountDownLatch(1);
+		CountDownLatch copy = new CountDownLatch(1);
+		TransactionSnapshots snapshots = new TransactionSnapshots(directory.resolve("snapshots")) {
+			@Override
+			long write(long segment, Iterable<Transaction> transactions) {
+				copying.countDown();
+				try {
+					copy.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return super.write(segment, transactions);
+			}
+		};
+		InMemoryTransactionRepository repository = open(failing, snapshots);
+		repository.createTransaction(newTransaction("order-1", "card1"));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Future<?> snapshot = executor.submit(repository::snapshot);
+		copying.await();
+
+		// the create claims its row and then waits for a journal write that fails
+		CountDownLatch fsync = new CountDownLatch(1);
+		failing.holdNextForce = fsync;
+		failing.failNextForce = true;
+		Future<Transaction> failed = executor.submit(() -> repository.createTransaction(newTransaction("order-2", "card1")));
+		try {
+			while (!repository.existsByOrderId("order-2")) {
+				Thread.onSpinWait();
+			}
+			copy.countDown();
+			snapshot.get();
+		} finally {
+			copy.countDown();
+			fsync.countDown();
+		}
+		ExecutionException thrown = assertThrows(ExecutionException.class, failed::get);
+		assertInstanceOf(UncheckedIOException.class, thrown.getCause());
+		executor.shutdown();
+		closeAll();
+
+		InMemoryTransactionRepository restored = openWithSnapshots();
+
+		assertFalse(restored.existsByOrderId("order-2"));
+		assertTrue(restored.existsByOrderId("order-1"));
+		assertEquals(1, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testReplayedModificationIsSkippedOnceItsVersionIsApplied() throws IOException {
+		InMemoryTransactionRepository repository = open(TransactionJournal.Durability.BATCH);
+		Transaction created = repository.createTransaction(newTransaction("order-1", "card1"));
+		Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.findFirst().orElseThrow();
+		}
+		long beforeFirst = Files.size(segment);
+		Transaction failed = new Transaction();
+		failed.setStatus(TransactionStatus.FAILED);
+		failed.setDescription("declined");
+		repository.modifyTransaction(created.getId(), failed, 1);
+		long afterFirst = Files.size(segment);
+		Transaction settled = new Transaction();
+		settled.setStatus(TransactionStatus.SUCCESS);
+		settled.setDescription("settled");
+		repository.modifyTransaction(created.getId(), settled, 2);
+		closeAll();
+		byte[] bytes = Files.readAllBytes(segment);
+		Files.write(segment, Arrays.copyOfRange(bytes, (int) beforeFirst, (int) afterFirst), StandardOpenOption.APPEND);
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.BATCH);
+
+		Transaction replayed = restored.getTransactionById(created.getId());
+		assertEquals(3, replayed.getVersion());
+		assertEquals(TransactionStatus.SUCCESS, replayed.getStatus());
+		assertEquals("settled", replayed.getDescription());
+		assertEquals(0, restored.listAllTransactions(0, 10, TransactionQuery.all().withStatus(TransactionStatus.FAILED)).getTotalCount());
+	}
+
+	@Test
+	public void testTornGroupIsRolledBackAndLaterAppendsSurvive() {
+		FailingChannel failing = new FailingChannel();
+		InMemoryTransactionRepository repository = open(failing);
+		repository.createTransaction(newTransaction("order-1", "card1"));
+
+		failing.tearNextWrite = true;
+		assertThrows(UncheckedIOException.class, () -> repository.createTransaction(newTransaction("order-2", "card1")));
+		repository.createTransaction(newTransaction("order-3", "card1"));
+		closeAll();
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.BATCH);
+
+		assertFalse(restored.existsByOrderId("order-2"));
+		assertTrue(restored.existsByOrderId("order-1"));
+		assertTrue(restored.existsByOrderId("order-3"));
+	}
+
+	@Test
+	public void testGroupWhoseFsyncFailedIsNotReplayed() {
+		FailingChannel failing = new FailingChannel();
+		InMemoryTransactionRepository repository = open(failing);
+		repository.createTransaction(newTransaction("order-1", "card1"));
+
+		failing.failNextForce = true;
+		assertThrows(UncheckedIOException.class, () -> repository.createTransaction(newTransaction("order-2", "card1")));
+		repository.createTransaction(newTransaction("order-3", "card1"));
+		closeAll();
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.BATCH);
+
+		assertFalse(restored.existsByOrderId("order-2"));
+		assertTrue(restored.existsByOrderId("order-3"));
+		assertEquals(2, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testRetryIsNotAnsweredBeforeTheCreateItReplaysIsJournaled() throws Exception {
+		FailingChannel failing = new FailingChannel();
+		InMemoryTransactionRepository repository = open(failing);
+		CountDownLatch fsync = new CountDownLatch(1);
+		failing.holdNextForce = fsync;
+		failing.failNextForce = true;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Future<Transaction> first = executor.submit(() -> repository.createTransaction(newTransaction("order-1", "card1")));
+		while (!repository.existsByOrderId("order-1")) {
+			Thread.onSpinWait();
+		}
+
+		Future<Transaction> retry = executor.submit(() -> repository.createTransaction(newTransaction("order-1", "card1")));
+		try {
+			Thread.sleep(100);
+			assertFalse(retry.isDone());
+		} finally {
+			fsync.countDown();
+		}
+
+		ExecutionException failed = assertThrows(ExecutionException.class, first::get);
+		assertInstanceOf(UncheckedIOException.class, failed.getCause());
+		Transaction created = retry.get();
+		executor.shutdown();
+		closeAll();
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.BATCH);
+
+		assertEquals(created.getId(), restored.getTransactionById(created.getId()).getId());
+		assertEquals(1, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+	}
+
+	@Test
+	public void testJournalRejectsAppendsWhenRollbackFails() {
+		FailingChannel failing = new FailingChannel();
+		InMemoryTransactionRepository repository = open(failing);
+		repository.createTransaction(newTransaction("order-1", "card1"));
+
+		failing.tearNextWrite = true;
+		failing.failTruncate = true;
+		assertThrows(UncheckedIOException.class, () -> repository.createTransaction(newTransaction("order-2", "card1")));
+		assertThrows(IllegalStateException.class, () -> repository.createTransaction(newTransaction("order-3", "card1")));
+		assertFalse(repository.existsByOrderId("order-3"));
+		closeAll();
+
+		InMemoryTransactionRepository restored = open(TransactionJournal.Durability.BATCH);
+
+		assertEquals(1, restored.listAllTransactions(0, 10, TransactionQuery.all()).getTotalCount());
+		assertTrue(restored.existsByOrderId("order-1"));
+	}
+
+	private InMemoryTransactionRepository open(FailingChannel failing) {
+		TransactionJournal journal = new TransactionJournal(directory, TransactionJournal.Durability.BATCH, 5, path -> {
+			failing.delegate = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			return failing;
+		});
+		journals.add(journal);
+		return new InMemoryTransactionRepository(journal);
+	}
+
+	private InMemoryTransactionRepository open(FailingChannel failing, TransactionSnapshots snapshots) {
+		TransactionJournal journal = new TransactionJournal(directory, TransactionJournal.Durability.BATCH, 5, path -> {
+			failing.delegate = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			return failing;
+		});
+		journals.add(journal);
+		return new InMemoryTransactionRepository(journal, snapshots);
+	}
+
+	private InMemoryTransactionRepository openWithSnapshots() {
+		TransactionJournal journal = new TransactionJournal(directory, TransactionJournal.Durability.BATCH, 5);
+		journals.add(journal);
+		return new InMemoryTransactionRepository(journal, new TransactionSnapshots(directory.resolve("snapshots")));
+	}
+
+	private InMemoryTransactionRepository open(TransactionJournal.Durability durability) {
+		TransactionJournal journal = new TransactionJournal(directory, durability, 5);
+		journals.add(journal);
+		return new InMemoryTransactionRepository(journal);
+	}
+
+	private void closeAll() {
+		journals.forEach(TransactionJournal::close);
+		journals.clear();
+	}
+
+	/**
+	 * File channel that can tear its next write halfway through the first buffer, hold or fail its
+	 * next fsync, or fail every truncation
+	 */
+	private static final class FailingChannel extends FileChannel {
+		private FileChannel delegate;
+		private volatile boolean tearNextWrite;
+		private volatile boolean failNextForce;
+		private volatile CountDownLatch holdNextForce;
+		private volatile boolean failTruncate;
+
+		@Override
+		public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+			if (tearNextWrite) {
+				tearNextWrite = false;
+				ByteBuffer half = sources[offset].duplicate();
+				half.limit(half.position() + half.remaining() / 2);
+				delegate.write(half);
+				throw new IOException("Injected torn write");
+			}
+			return delegate.write(sources, offset, length);
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			CountDownLatch hold = holdNextForce;
+			if (hold != null) {
+				holdNextForce = null;
+				try {
+					hold.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failNextForce) {
+				failNextForce = false;
+				throw new IOException("Injected fsync failure");
+			}
+			delegate.force(metaData);
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			if (failTruncate) {
+				throw new IOException("Injected truncate failure");
+			}
+			delegate.truncate(size);
+			return this;
+		}
+
+		@Override
+		public int write(ByteBuffer source) throws IOException {
+			return (int) write(new ByteBuffer[]{source}, 0, 1);
+		}
+
+		@Override
+		public int read(ByteBuffer destination) throws IOException {
+			return delegate.read(destination);
+		}
+
+		@Override
+		public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+			return delegate.read(destinations, offset, length);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return delegate.position();
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return delegate.size();
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return delegate.transferTo(position, count, target);
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+			return delegate.transferFrom(source, position, count);
+		}
+
+		@Override
+		public int read(ByteBuffer destination, long position) throws IOException {
+			return delegate.read(destination, position);
+		}
+
+		@Override
+		public int write(ByteBuffer source, long position) throws IOException {
+			return delegate.write(source, position);
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return delegate.map(mode, position, size);
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return delegate.lock(position, size, shared);
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return delegate.tryLock(position, size, shared);
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			delegate.close();
+		}
+	}
+
+	private static Transaction newTransaction(String orderId, String cardId) {
+		Transaction t = new Transaction();
+		t.setOrderId(orderId);
+		t.setType(TransactionType.TRANSFER);
+		t.setCurrency(Currency.getInstance("CNY"));
+		t.setAmount(new BigDecimal("12.34"));
+		t.setDate(Instant.parse("2025-04-02T10:10:00Z"));
+		t.setCardId(cardId);
+		t.setToCardId("other");
+		t.setDescription("journal test");
+		t.setStatus(TransactionStatus.PROCESSING);
+		t.setChannel(TransactionChannel.MOBILE_APP);
+		return t;
+	}
+}
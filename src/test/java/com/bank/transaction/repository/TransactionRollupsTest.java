@@ -0,0 +1,151 @@
+package com.bank.transaction.repository;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Currency;
+import java.util.List;
+
+import com.bank.transaction.model.StatsBucket;
+import com.bank.transaction.model.StatsResolution;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionChannel;
+import com.bank.transaction.model.TransactionStatus;
+import com.bank.transaction.model.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionRollupsTest {
+	private static final Currency CNY = Currency.getInstance("CNY");
+	private static final Instant NOW = Instant.parse("2025-04-02T10:30:30Z");
+
+	private MovableClock clock;
+	private TransactionRollups rollups;
+
+	@BeforeEach
+	public void setUp() {
+		clock = new MovableClock(NOW);
+		rollups = new TransactionRollups(clock);
+	}
+
+	@Test
+	public void testBucketsBreakDownCountsAndVolumes() {
+		rollups.add(newTransaction(NOW.minusSeconds(10), TransactionChannel.ATM, TransactionType.WITHDRAW,
+				TransactionStatus.SUCCESS, "100"));
+		rollups.add(newTransaction(NOW.minusSeconds(20), TransactionChannel.ATM, TransactionType.DEPOSIT,
+				TransactionStatus.PROCESSING, "50.5"));
+		rollups.add(newTransaction(NOW.minusSeconds(90), TransactionChannel.WEB_PORTAL, TransactionType.WITHDRAW,
+				TransactionStatus.SUCCESS, "7"));
+
+		List<StatsBucket> minutes = rollups.stats(StatsResolution.MINUTE, 2);
+		assertEquals(Instant.parse("2025-04-02T10:29:00Z"), minutes.get(0).getStart());
+		assertEquals(1, minutes.get(0).getTotal().getCount());
+		StatsBucket current = minutes.get(1);
+		assertEquals(Instant.parse("2025-04-02T10:30:00Z"), current.getStart());
+		assertEquals(2, current.getTotal().getCount());
+		assertEquals(new BigDecimal("150.50"), current.getTotal().getVolume().get(CNY));
+		assertEquals(2, current.getByChannel().get(TransactionChannel.ATM).getCount());
+		assertFalse(current.getByChannel().containsKey(TransactionChannel.WEB_PORTAL));
+		assertEquals(new BigDecimal("100.00"), current.getByType().get(TransactionType.WITHDRAW).getVolume().get(CNY));
+		assertEquals(1, current.getByStatus().get(TransactionStatus.PROCESSING).getCount());
+
+		StatsBucket hour = rollups.stats(StatsResolution.HOUR, 1).get(0);
+		assertEquals(Instant.parse("2025-04-02T10:00:00Z"), hour.getStart());
+		assertEquals(3, hour.getTotal().getCount());
+		assertEquals(new BigDecimal("157.50"), hour.getTotal().getVolume().get(CNY));
+		assertEquals(2, hour.getByType().get(TransactionType.WITHDRAW).getCount());
+	}
+
+	@Test
+	public void testStatusChangesAndDeletesMoveTheCounts() {
+		Transaction transaction = newTransaction(NOW, TransactionChannel.MOBILE_APP, TransactionType.TRANSFER,
+				TransactionStatus.PROCESSING, "20");
+		rollups.add(transaction);
+
+		transaction.setStatus(TransactionStatus.FAILED);
+		rollups.statusChanged(transaction, TransactionStatus.PROCESSING);
+		StatsBucket bucket = rollups.stats(StatsResolution.MINUTE, 1).get(0);
+		assertFalse(bucket.getByStatus().containsKey(TransactionStatus.PROCESSING));
+		assertEquals(new BigDecimal("20.00"), bucket.getByStatus().get(TransactionStatus.FAILED).getVolume().get(CNY));
+
+		rollups.remove(transaction);
+		bucket = rollups.stats(StatsResolution.HOUR, 1).get(0);
+		assertEquals(0, bucket.getTotal().getCount());
+		assertTrue(bucket.getTotal().getVolume().isEmpty());
+	}
+
+	@Test
+	public void testRingsKeepOnlyRecentBuckets() {
+		rollups.add(newTransaction(NOW.minus(Duration.ofMinutes(TransactionRollups.MINUTE_BUCKETS)),
+				TransactionChannel.ATM, TransactionType.DEPOSIT, TransactionStatus.SUCCESS, "1"));
+		rollups.add(newTransaction(NOW, TransactionChannel.ATM, TransactionType.DEPOSIT, TransactionStatus.SUCCESS, "1"));
+
+		List<StatsBucket> minutes = rollups.stats(StatsResolution.MINUTE, TransactionRollups.MINUTE_BUCKETS);
+		assertEquals(1, minutes.stream().mapToLong(bucket -> bucket.getTotal().getCount()).sum());
+		assertEquals(2, rollups.stats(StatsResolution.HOUR, 3).stream()
+				.mapToLong(bucket -> bucket.getTotal().getCount()).sum());
+
+		// the slot of the current minute is reused once the ring comes around to it again
+		clock.advance(Duration.ofMinutes(TransactionRollups.MINUTE_BUCKETS));
+		rollups.add(newTransaction(clock.instant(), TransactionChannel.ATM, TransactionType.DEPOSIT,
+				TransactionStatus.SUCCESS, "5"));
+		StatsBucket current = rollups.stats(StatsResolution.MINUTE, 1).get(0);
+		assertEquals(1, current.getTotal().getCount());
+		assertEquals(new BigDecimal("5.00"), current.getTotal().getVolume().get(CNY));
+	}
+
+	@Test
+	public void testBucketCountIsBoundedByTheRing() {
+		assertEquals(24, rollups.stats(StatsResolution.HOUR, 24).size());
+		assertThrows(IllegalArgumentException.class, () -> rollups.stats(StatsResolution.HOUR, 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> rollups.stats(StatsResolution.MINUTE, TransactionRollups.MINUTE_BUCKETS + 1));
+	}
+
+	private static Transaction newTransaction(Instant date, TransactionChannel channel, TransactionType type,
+			TransactionStatus status, String amount) {
+		Transaction t = new Transaction();
+		t.setDate(date);
+		t.setChannel(channel);
+		t.setType(type);
+		t.setStatus(status);
+		t.setCurrency(CNY);
+		t.setAmount(new BigDecimal(amount));
+		return t;
+	}
+
+	private static final class MovableClock extends Clock {
+		private Instant now;
+
+		MovableClock(Instant now) {
+			this.now = now;
+		}
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.bank.transaction.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
+import com.bank.transaction.model.TransactionType;
+import com.bank.transaction.repository.InMemoryTransactionRepository;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionIngestorTest {
+
+	@Test
+	void testConcurrentCreatesAreAppliedInBatches() throws Exception {
+		for (TransactionIngestor.WaitStrategy strategy : TransactionIngestor.WaitStrategy.values()) {
+			RecordingRepository repository = new RecordingRepository();
+			try (TransactionIngestor ingestor = new TransactionIngestor(repository, 64, 16, strategy.name())) {
+				int threads = 8;
+				int perThread = 200;
+				ExecutorService executor = Executors.newFixedThreadPool(threads);
+				CountDownLatch start = new CountDownLatch(1);
+				Set<String> ids = ConcurrentHashMap.newKeySet();
+				List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					int thread = t;
+					futures.add(executor.submit(() -> {
+						start.await();
+						for (int i = 0; i < perThread; i++) {
+							Transaction created = ingestor.create(newTransaction("order-" + thread + "-" + i));
+							assertNotNull(created.getId());
+							ids.add(created.getId());
+						}
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get(30, TimeUnit.SECONDS);
+				}
+				executor.shutdown();
+
+				assertEquals(threads * perThread, ids.size(), strategy.name());
+				assertEquals(threads * perThread,
+						repository.listAllTransactions(0, 1, TransactionQuery.all()).getTotalCount());
+				assertEquals(threads * perThread, repository.batchSizes.stream().mapToInt(Integer::intValue).sum());
+				assertTrue(repository.batchSizes.stream().allMatch(size -> size >= 1 && size <= 16), strategy.name());
+			}
+		}
+	}
+
+	@Test
+	void testDuplicateOrderIdFailsOnlyItsCaller() {
+		try (TransactionIngestor ingestor = new TransactionIngestor(new InMemoryTransactionRepository(), 8, 4, "blocking")) {
+			Transaction created = ingestor.create(newTransaction("order-1"));
+			assertSame(created, ingestor.create(newTransaction("order-1")));
+
+			Transaction conflicting = newTransaction("order-1");
+			conflicting.setAmount(new BigDecimal("999"));
+			assertThrows(TransactionAlreadyExistsException.class, () -> ingestor.create(conflicting));
+			assertNotNull(ingestor.create(newTransaction("order-2")).getId());
+		}
+	}
+
+	@Test
+	void testClosedIngestorRejectsCreates() {
+		TransactionIngestor ingestor = new TransactionIngestor(new InMemoryTransactionRepository(), 8, 4, "sleeping");
+		CompletableFuture<Transaction> submitted = ingestor.submit(newTransaction("order-1"));
+		ingestor.close();
+
+		assertNotNull(submitted.join().getId());
+		assertThrows(IllegalStateException.class, () -> ingestor.create(newTransaction("order-2")));
+		assertThrows(IllegalArgumentException.class,
+				() -> new TransactionIngestor(new InMemoryTransactionRepository(), 100, 4, "blocking"));
+	}
+
+	@Test
+	void testErrorInBatchFailsItsCallersAndWriterCarriesOn() {
+		RecordingRepository repository = new RecordingRepository();
+		repository.failNextBatch = true;
+		try (TransactionIngestor ingestor = new TransactionIngestor(repository, 8, 4, "blocking")) {
+			CompletionException failed = assertThrows(CompletionException.class, () -> ingestor.create(newTransaction("order-1")));
+			assertInstanceOf(StackOverflowError.class, failed.getCause());
+
+			assertNotNull(ingestor.create(newTransaction("order-2")).getId());
+		}
+	}
+
+	@Test
+	void testCloseCompletesEverySubmitIncludingThoseWaitingForRoom() throws Exception {
+		RecordingRepository repository = new RecordingRepository();
+		repository.holdBatches = new CountDownLatch(1);
+		TransactionIngestor ingestor = new TransactionIngestor(repository, 2, 1, "blocking");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<CompletableFuture<Transaction>>> submits = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Transaction transaction = newTransaction("order-" + i);
+			submits.add(executor.submit(() -> ingestor.submit(transaction)));
+		}
+		// the writer holds one batch and the ring two more slots, so at least one producer waits for room
+		TimeUnit.MILLISECONDS.sleep(100);
+		Future<?> closed = executor.submit(ingestor::close);
+		TimeUnit.MILLISECONDS.sleep(50);
+		repository.holdBatches.countDown();
+
+		closed.get(5, TimeUnit.SECONDS);
+		for (Future<CompletableFuture<Transaction>> submit : submits) {
+			CompletableFuture<Transaction> done = submit.get(5, TimeUnit.SECONDS);
+			assertTrue(done.handle((created, failure) -> created != null || failure instanceof IllegalStateException)
+					.get(5, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+	}
+
+	private static Transaction newTransaction(String orderId) {
+		Transaction t = new Transaction();
+		t.setOrderId(orderId);
+		t.setType(TransactionType.DEPOSIT);
+		t.setCurrency(Currency.getInstance("CNY"));
+		t.setAmount(new BigDecimal("100"));
+		t.setCardId("card1");
+		return t;
+	}
+
+	/**
+	 * In-memory store that records the size of every batch it is handed, and can fail the next
+	 * batch with an error or hold batches until released
+	 */
+	private static final class RecordingRepository extends InMemoryTransactionRepository {
+		final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+		volatile boolean failNextBatch;
+		volatile CountDownLatch holdBatches;
+
+		@Override
+		public List<BatchItemResult> createTransactions(List<Transaction> batch) {
+			if (failNextBatch) {
+				failNextBatch = false;
+				throw new StackOverflowError();
+			}
+			if (holdBatches != null) {
+				try {
+					holdBatches.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			batchSizes.add(batch.size());
+			return super.createTransactions(batch);
+		}
+	}
+}
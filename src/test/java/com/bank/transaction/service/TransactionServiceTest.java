@@ -1,30 +1,49 @@
 package com.bank.transaction.service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Currency;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
+import com.bank.transaction.exception.TransactionAlreadyExistsException;
 import com.bank.transaction.exception.TransactionNotFoundException;
+import com.bank.transaction.exception.TransactionVersionMismatchException;
+import com.bank.transaction.model.BatchItemResult;
+import com.bank.transaction.model.BatchItemStatus;
 import com.bank.transaction.model.PageResult;
 import com.bank.transaction.model.Transaction;
+import com.bank.transaction.model.TransactionQuery;
 import com.bank.transaction.model.TransactionStatus;
 import com.bank.transaction.model.TransactionType;
+import com.bank.transaction.repository.AmountUnits;
 import com.bank.transaction.repository.ITransactionRepository;
+import com.bank.transaction.repository.InMemoryTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.util.unit.DataSize;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,6 +53,21 @@ class TransactionServiceTest {
 	@Mock
 	private ITransactionRepository transactionRepository;
 
+	@Spy
+	private TransactionListCache listCache = new TransactionListCache(1000, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Spy
+	private TransactionMetrics metrics = new TransactionMetrics(meterRegistry);
+
+	@Spy
+	private ModificationVersions versions = new ModificationVersions();
+
+	@Spy
+	private TransactionResponseCache responseCache = new TransactionResponseCache(DataSize.ofMegabytes(1),
+			new SimpleMeterRegistry());
+
 	@InjectMocks
 	private TransactionService transactionService;
 
@@ -90,18 +124,150 @@ class TransactionServiceTest {
 
 		assertThrows(TransactionNotFoundException.class,
 				() -> transactionService.deleteTransaction("INVALID_ID"));
+		assertEquals(1, meterRegistry.counter("transaction.rejections", "reason", "notFound").count());
+	}
+
+	@Test
+	void testAsyncCreateThroughIngestorCompletesFromTheRing() {
+		try (TransactionIngestor ingestor = new TransactionIngestor(new InMemoryTransactionRepository(), 8, 4, "blocking")) {
+			TransactionService service = new TransactionService(transactionRepository, listCache, metrics, ingestor,
+					responseCache, versions);
+			String tag = versions.listTag(TransactionQuery.all());
+
+			Transaction created = service.createTransactionAsync(validTransaction).join();
+
+			assertNotNull(created.getId());
+			assertNotEquals(tag, versions.listTag(TransactionQuery.all()));
+			Transaction conflicting = new Transaction(validTransaction);
+			conflicting.setAmount(BigDecimal.ONE);
+			CompletionException failed = assertThrows(CompletionException.class,
+					() -> service.createTransactionAsync(conflicting).join());
+			assertInstanceOf(TransactionAlreadyExistsException.class, failed.getCause());
+			assertEquals(1, meterRegistry.counter("transaction.rejections", "reason", "duplicateOrderId").count());
+		}
+	}
+
+	@Test
+	void testCreateTransactionCountsDuplicateOrderId() {
+		when(transactionRepository.createTransaction(validTransaction))
+				.thenThrow(new TransactionAlreadyExistsException("exists"));
+
+		assertThrows(TransactionAlreadyExistsException.class,
+				() -> transactionService.createTransaction(validTransaction));
+		assertEquals(1, meterRegistry.counter("transaction.rejections", "reason", "duplicateOrderId").count());
 	}
 
 	@Test
 	void testListAllTransactionsWithPaging() {
-		when(transactionRepository.listAllTransactions(0, 10, Map.of("status", "PENDING")))
+		TransactionQuery processing = TransactionQuery.all().withStatus(TransactionStatus.PROCESSING);
+		when(transactionRepository.listAllTransactions(0, 10, processing))
 				.thenReturn(new PageResult<>(Collections.singletonList(validTransaction), 1));
 
-		var results = transactionService.listAllTransactions(0, 10, Map.of("status", "PENDING"));
+		var results = transactionService.listAllTransactions(0, 10, processing);
 
 		assertEquals(1, results.getTotalCount());
 	}
 
+	@Test
+	void testListPagesAreCachedUntilAMatchingWrite() {
+		TransactionQuery card1 = TransactionQuery.all().withCardId("CARD456");
+		TransactionQuery card2 = TransactionQuery.all().withCardId("OTHER");
+		when(transactionRepository.listAllTransactions(0, 10, card1))
+				.thenReturn(new PageResult<>(Collections.singletonList(validTransaction), 1));
+		when(transactionRepository.listAllTransactions(0, 10, card2))
+				.thenReturn(new PageResult<>(Collections.emptyList(), 0));
+		when(transactionRepository.createTransaction(any())).thenReturn(validTransaction);
+
+		transactionService.listAllTransactions(0, 10, card1);
+		transactionService.listAllTransactions(0, 10, card2);
+		transactionService.listAllTransactions(0, 10, card1);
+		transactionService.createTransaction(validTransaction);
+		transactionService.listAllTransactions(0, 10, card1);
+		transactionService.listAllTransactions(0, 10, card2);
+
+		verify(transactionRepository, times(2)).listAllTransactions(0, 10, card1);
+		verify(transactionRepository, times(1)).listAllTransactions(0, 10, card2);
+	}
+
+	@Test
+	void testModifyInvalidatesPagesFilteredByPreviousStatus() {
+		TransactionQuery processing = TransactionQuery.all().withStatus(TransactionStatus.PROCESSING);
+		Transaction existing = new Transaction();
+		existing.setCardId("CARD456");
+		existing.setStatus(TransactionStatus.PROCESSING);
+		Transaction modified = new Transaction();
+		modified.setCardId("CARD456");
+		modified.setStatus(TransactionStatus.FAILED);
+		when(transactionRepository.listAllTransactions(0, 10, processing))
+				.thenReturn(new PageResult<>(Collections.singletonList(existing), 1));
+		when(transactionRepository.getTransactionById("123")).thenReturn(existing);
+		when(transactionRepository.modifyTransaction("123", modified, 0)).thenReturn(modified);
+
+		transactionService.listAllTransactions(0, 10, processing);
+		transactionService.modifyTransaction("123", modified);
+		transactionService.listAllTransactions(0, 10, processing);
+
+		verify(transactionRepository, times(2)).listAllTransactions(0, 10, processing);
+	}
+
+	@Test
+	void testModifyInvalidatesPagesMatchingThePreviousDescription() {
+		TransactionQuery coffee = TransactionQuery.all().withText("coffee");
+		Transaction existing = new Transaction();
+		existing.setCardId("CARD456");
+		existing.setStatus(TransactionStatus.PROCESSING);
+		existing.setDescription("Coffee shop");
+		Transaction modified = new Transaction();
+		modified.setCardId("CARD456");
+		modified.setStatus(TransactionStatus.PROCESSING);
+		modified.setDescription("Book shop");
+		when(transactionRepository.listAllTransactions(0, 10, coffee))
+				.thenReturn(new PageResult<>(Collections.singletonList(existing), 1));
+		when(transactionRepository.getTransactionById("123")).thenReturn(existing);
+		when(transactionRepository.modifyTransaction("123", modified, 0)).thenReturn(modified);
+
+		transactionService.listAllTransactions(0, 10, coffee);
+		transactionService.modifyTransaction("123", modified);
+		transactionService.listAllTransactions(0, 10, coffee);
+
+		verify(transactionRepository, times(2)).listAllTransactions(0, 10, coffee);
+	}
+
+	@Test
+	void testWritesAdvanceTheListTagsOfTheirCardOnly() {
+		TransactionQuery card = TransactionQuery.all().withCardId("CARD456");
+		TransactionQuery otherCard = TransactionQuery.all().withCardId("CARD789");
+		String cardTag = versions.listTag(card);
+		String otherTag = versions.listTag(otherCard);
+		String allTag = versions.listTag(TransactionQuery.all());
+		when(transactionRepository.createTransaction(validTransaction)).thenReturn(validTransaction);
+
+		transactionService.createTransaction(validTransaction);
+
+		assertNotEquals(cardTag, versions.listTag(card));
+		assertNotEquals(allTag, versions.listTag(TransactionQuery.all()));
+		assertEquals(otherTag, versions.listTag(otherCard));
+	}
+
+	@Test
+	void testModifyAndDeleteDropCachedResponseBodies() {
+		Transaction existing = new Transaction();
+		existing.setId("123");
+		existing.setStatus(TransactionStatus.PROCESSING);
+		existing.setVersion(1);
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		when(transactionRepository.getTransactionById("123")).thenReturn(existing);
+		when(transactionRepository.modifyTransaction("123", update, 1)).thenReturn(update);
+		byte[] cached = responseCache.get(existing, "JSON", t -> new byte[] {1});
+
+		transactionService.modifyTransaction("123", update);
+
+		assertNotSame(cached, responseCache.get(existing, "JSON", t -> new byte[] {2}));
+		transactionService.deleteTransaction("123");
+		verify(responseCache, times(2)).invalidate("123");
+	}
+
 	@Test
 	void testGetTransactionByIdSuccess() {
 		when(transactionRepository.getTransactionById("123")).thenReturn(validTransaction);
@@ -124,6 +290,7 @@ class TransactionServiceTest {
 		validTransaction.setToCardId(validTransaction.getCardId());
 		assertThrows(IllegalArgumentException.class,
 				() -> transactionService.createTransaction(validTransaction));
+		assertEquals(1, meterRegistry.counter("transaction.validation.failures", "rule", "sameCard").count());
 	}
 
 	@Test
@@ -139,6 +306,18 @@ class TransactionServiceTest {
 				() -> transactionService.createTransaction(validTransaction));
 	}
 
+	@Test
+	void testCreateTransactionThrowsWhenAmountOverflowsTheAggregates() {
+		validTransaction.setAmount(AmountUnits.MAX_AMOUNT.add(new BigDecimal("0.0001")));
+		assertThrows(IllegalArgumentException.class,
+				() -> transactionService.createTransaction(validTransaction));
+		assertEquals(1, meterRegistry.counter("transaction.validation.failures", "rule", "amountRange").count());
+
+		validTransaction.setAmount(AmountUnits.MAX_AMOUNT);
+		when(transactionRepository.createTransaction(validTransaction)).thenReturn(validTransaction);
+		assertDoesNotThrow(() -> transactionService.createTransaction(validTransaction));
+	}
+
 	@Test
 	void testCreateTransactionThrowsWhenMissingRequiredFields() {
 
@@ -168,21 +347,48 @@ class TransactionServiceTest {
 				() -> transactionService.modifyTransaction("123", update));
 	}
 
+	@Test
+	void testModifyRechecksRulesWhenAnotherModificationWins() {
+		Transaction processing = new Transaction();
+		processing.setStatus(TransactionStatus.PROCESSING);
+		processing.setVersion(1);
+		Transaction settled = new Transaction(processing);
+		settled.setStatus(TransactionStatus.SUCCESS);
+		settled.setVersion(2);
+		when(transactionRepository.getTransactionById("123")).thenReturn(processing, settled);
+		Transaction update = new Transaction();
+		update.setStatus(TransactionStatus.FAILED);
+		when(transactionRepository.modifyTransaction("123", update, 1)).thenReturn(null);
+
+		assertThrows(IllegalArgumentException.class, () -> transactionService.modifyTransaction("123", update));
+		verify(transactionRepository, times(2)).getTransactionById("123");
+	}
+
+	@Test
+	void testModifyWithStaleVersionIsRejected() {
+		Transaction existing = new Transaction();
+		existing.setStatus(TransactionStatus.PROCESSING);
+		existing.setVersion(3);
+		when(transactionRepository.getTransactionById("123")).thenReturn(existing);
+
+		assertThrows(TransactionVersionMismatchException.class,
+				() -> transactionService.modifyTransaction("123", new Transaction(), 2L));
+		assertEquals(1, meterRegistry.counter("transaction.rejections", "reason", "versionMismatch").count());
+	}
+
 	@Test
 	void testListWithInvalidPaginationParams() {
-		assertDoesNotThrow(() -> transactionService.listAllTransactions(-1, 10, Map.of()));
+		assertDoesNotThrow(() -> transactionService.listAllTransactions(-1, 10, TransactionQuery.all()));
 
-		assertDoesNotThrow(() -> transactionService.listAllTransactions(0, 0, Map.of()));
+		assertDoesNotThrow(() -> transactionService.listAllTransactions(0, 0, TransactionQuery.all()));
 	}
 
 	@Test
 	void testFilterWithInvalidParamTypes() {
-		Map<String, Object> invalidFilters = Map.of(
-				"status", 12345,
-				"startDate", "invalid-date"
-		);
-
-		assertDoesNotThrow(() -> transactionService.listAllTransactions(0, 10, invalidFilters));
+		assertThrows(IllegalArgumentException.class,
+				() -> TransactionQuery.fromParameters(Map.of("status", "12345")));
+		assertThrows(IllegalArgumentException.class,
+				() -> TransactionQuery.fromParameters(Map.of("startDate", "invalid-date")));
 	}
 
 	@Test
@@ -218,4 +424,47 @@ class TransactionServiceTest {
 		assertEquals("Currency must be specified", exception.getMessage());
 	}
 
+	@Test
+	void testCreateTransactionsReportsInvalidItemsAndKeepsGoing() {
+		Transaction invalid = new Transaction();
+		invalid.setOrderId("ORDER999");
+		List<Transaction> batch = Arrays.asList(validTransaction, invalid, null);
+		when(transactionRepository.createTransactions(List.of(validTransaction)))
+				.thenReturn(List.of(BatchItemResult.created(0, validTransaction)));
+
+		List<BatchItemResult> results = transactionService.createTransactions(batch);
+
+		assertEquals(3, results.size());
+		assertEquals(BatchItemStatus.CREATED, results.get(0).getStatus());
+		assertEquals(BatchItemStatus.INVALID, results.get(1).getStatus());
+		assertEquals("Amount must be a positive value", results.get(1).getMessage());
+		assertEquals(1, results.get(1).getIndex());
+		assertEquals(BatchItemStatus.INVALID, results.get(2).getStatus());
+	}
+
+	@Test
+	void testCreateTransactionsMapsRepositoryResultsBackToRequestPositions() {
+		Transaction invalid = new Transaction();
+		Transaction second = new Transaction();
+		second.setOrderId("ORDER789");
+		second.setAmount(BigDecimal.TEN);
+		second.setCurrency(Currency.getInstance("CNY"));
+		second.setCardId("CARD456");
+		second.setType(TransactionType.DEPOSIT);
+		when(transactionRepository.createTransactions(List.of(validTransaction, second)))
+				.thenReturn(List.of(BatchItemResult.created(0, validTransaction), BatchItemResult.conflict(1, "exists")));
+
+		List<BatchItemResult> results = transactionService.createTransactions(List.of(validTransaction, invalid, second));
+
+		assertEquals(BatchItemStatus.CONFLICT, results.get(2).getStatus());
+		assertEquals(2, results.get(2).getIndex());
+		assertEquals(1, meterRegistry.counter("transaction.rejections", "reason", "duplicateOrderId").count());
+		assertEquals(1, meterRegistry.counter("transaction.validation.failures", "rule", "orderId").count());
+	}
+
+	@Test
+	void testCreateTransactionsRejectsOversizedBatch() {
+		List<Transaction> batch = Collections.nCopies(TransactionService.MAX_BATCH_SIZE + 1, validTransaction);
+		assertThrows(IllegalArgumentException.class, () -> transactionService.createTransactions(batch));
+	}
 }